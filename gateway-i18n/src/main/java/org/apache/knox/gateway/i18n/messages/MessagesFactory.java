@@ -18,6 +18,7 @@
 package org.apache.knox.gateway.i18n.messages;
 
 import org.apache.knox.gateway.i18n.messages.loggers.jdk.JdkMessageLoggerFactory;
+import org.apache.knox.gateway.i18n.processor.GeneratedImplementations;
 
 import java.lang.reflect.Proxy;
 import java.util.Iterator;
@@ -39,7 +40,10 @@ public class MessagesFactory {
         throw new IllegalArgumentException( clazz.getName() + " missing @" + Messages.class.getCanonicalName() );
       }
       MessagesInvoker invoker = new MessagesInvoker( clazz, loggers );
-      proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      proxy = GeneratedImplementations.newInstance( clazz, MessagesInvoker.class, invoker );
+      if( proxy == null ) {
+        proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      }
       proxies.put( clazz, proxy );
     }
     return (T)proxy;
@@ -41,6 +41,23 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
 
   @Override
   public Object invoke( final Object proxy, final Method method, final Object[] args ) throws Throwable {
+    return logMessage( method, args );
+  }
+
+  public boolean isLoggable( final MessageLevel level ) {
+    return logger.isLoggable( level );
+  }
+
+  /**
+   * Logs the message of a method, for the implementations generated by the
+   * {@link org.apache.knox.gateway.i18n.processor.I18nProcessor}.
+   */
+  public String log( final Method method, final Object[] args ) {
+    return logMessage( method, args );
+  }
+
+  // Called through either invoke or log, so that the caller is at the same depth of the stack either way.
+  private String logMessage( final Method method, final Object[] args ) {
     String message = null;
     MessageLevel level = getLevel( method );
     if( logger.isLoggable( level ) ) {
@@ -52,8 +69,8 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
       // The second version ends up calling the first version after getting the current thread
       // and then checking that it is being called from the current thread.
       //TODO: Should probably only do this if the logger is at debug or finer to make sure there isn't a performance impact during production usage.
-      StackTraceElement caller = new Throwable().getStackTrace()[2];
-      // StackTraceElement caller = Thread.currentThread().getStackTrace()[3];
+      StackTraceElement caller = new Throwable().getStackTrace()[3];
+      // StackTraceElement caller = Thread.currentThread().getStackTrace()[4];
       logger.log( caller, level, code, message, throwable );
     }
     return message;
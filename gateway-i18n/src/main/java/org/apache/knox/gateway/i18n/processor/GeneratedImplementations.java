@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.i18n.processor;
+
+/**
+ * Locates the implementations generated by the {@link I18nProcessor} for the interfaces annotated with
+ * {@link org.apache.knox.gateway.i18n.messages.Messages} or {@link org.apache.knox.gateway.i18n.resources.Resources}.
+ */
+public final class GeneratedImplementations {
+  static final String SUFFIX = "_I18n";
+
+  private GeneratedImplementations() {
+  }
+
+  /**
+   * @param binaryName the binary name of an interface, such as <code>a.b.Outer$Inner</code>
+   * @return the name of the implementation generated for it, such as <code>a.b.Outer_Inner_I18n</code>
+   */
+  public static String getImplementationName( String binaryName ) {
+    int dot = binaryName.lastIndexOf( '.' );
+    return binaryName.substring( 0, dot + 1 ) + binaryName.substring( dot + 1 ).replace( '$', '_' ) + SUFFIX;
+  }
+
+  /**
+   * @return a new instance of the implementation generated for the interface, delegating to the invoker, or
+   *         <code>null</code> if none has been generated, in which case a proxy has to be used instead
+   */
+  public static <T> T newInstance( Class<T> clazz, Class<?> invokerClass, Object invoker ) {
+    try {
+      Class<?> implementation = Class.forName( getImplementationName( clazz.getName() ), true, clazz.getClassLoader() );
+      if( !clazz.isAssignableFrom( implementation ) ) {
+        return null;
+      }
+      return clazz.cast( implementation.getConstructor( invokerClass ).newInstance( invoker ) );
+    } catch( ReflectiveOperationException | LinkageError e ) {
+      return null;
+    }
+  }
+}
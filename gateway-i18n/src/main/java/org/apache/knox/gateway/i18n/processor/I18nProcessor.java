@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.i18n.processor;
+
+import org.apache.knox.gateway.i18n.messages.Message;
+import org.apache.knox.gateway.i18n.messages.MessageLevel;
+import org.apache.knox.gateway.i18n.messages.Messages;
+import org.apache.knox.gateway.i18n.messages.MessagesInvoker;
+import org.apache.knox.gateway.i18n.resources.Resources;
+import org.apache.knox.gateway.i18n.resources.ResourcesInvoker;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates an implementation for each interface annotated with {@link Messages} or {@link Resources}, which
+ * the factories use instead of a reflective proxy. The implementations check the level of a message before
+ * doing anything else, and only then box the arguments and format the message through the same invoker as
+ * the proxies.
+ * <p>
+ * Interfaces the implementation of which would not be equivalent to the proxy, such as generic ones or ones
+ * with methods returning anything else than a String, are left to the proxies.
+ */
+@SupportedAnnotationTypes( { "org.apache.knox.gateway.i18n.messages.Messages", "org.apache.knox.gateway.i18n.resources.Resources" } )
+public class I18nProcessor extends AbstractProcessor {
+
+  private final Set<String> generated = new HashSet<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment round ) {
+    for( Element element : round.getElementsAnnotatedWith( Messages.class ) ) {
+      generate( element, true );
+    }
+    for( Element element : round.getElementsAnnotatedWith( Resources.class ) ) {
+      if( element.getAnnotation( Messages.class ) == null ) {
+        generate( element, false );
+      }
+    }
+    // Other processors may be interested in the annotations too.
+    return false;
+  }
+
+  private void generate( Element element, boolean messages ) {
+    if( element.getKind() != ElementKind.INTERFACE || !isAccessible( (TypeElement)element ) ) {
+      return;
+    }
+    TypeElement type = (TypeElement)element;
+    List<ExecutableElement> methods = getMethods( type, messages );
+    if( methods == null ) {
+      return;
+    }
+    String name = GeneratedImplementations.getImplementationName(
+        processingEnv.getElementUtils().getBinaryName( type ).toString() );
+    if( !generated.add( name ) ) {
+      return;
+    }
+    try( Writer writer = processingEnv.getFiler().createSourceFile( name, type ).openWriter() ) {
+      writer.write( new Source( type, name, methods, messages ).toString() );
+    } catch( IOException e ) {
+      processingEnv.getMessager().printMessage( Diagnostic.Kind.WARNING,
+          "Failed to generate " + name + ", a proxy will be used instead: " + e.getMessage(), type );
+    }
+  }
+
+  private static boolean isAccessible( TypeElement type ) {
+    for( Element element = type; element instanceof TypeElement; element = element.getEnclosingElement() ) {
+      if( element.getModifiers().contains( Modifier.PRIVATE )
+          || ( (TypeElement)element ).getNestingKind() == NestingKind.LOCAL
+          || ( (TypeElement)element ).getNestingKind() == NestingKind.ANONYMOUS ) {
+        return false;
+      }
+    }
+    return type.getTypeParameters().isEmpty();
+  }
+
+  /* The methods to implement, or null if the interface has to be left to a proxy */
+  private List<ExecutableElement> getMethods( TypeElement type, boolean messages ) {
+    TypeMirror string = processingEnv.getElementUtils().getTypeElement( String.class.getName() ).asType();
+    List<ExecutableElement> methods = new ArrayList<>();
+    Set<String> signatures = new HashSet<>();
+    for( Element member : processingEnv.getElementUtils().getAllMembers( type ) ) {
+      if( member.getKind() != ElementKind.METHOD
+          || member.getModifiers().contains( Modifier.STATIC )
+          || member.getModifiers().contains( Modifier.PRIVATE )
+          || isObjectMethod( (ExecutableElement)member ) ) {
+        continue;
+      }
+      ExecutableElement method = (ExecutableElement)member;
+      TypeMirror returnType = method.getReturnType();
+      boolean supported = processingEnv.getTypeUtils().isSameType( returnType, string )
+          || messages && returnType.getKind() == TypeKind.VOID;
+      if( !supported || !method.getTypeParameters().isEmpty() || hasUnresolvedParameter( method ) ) {
+        return null;
+      }
+      // The same method may be inherited from several interfaces.
+      if( signatures.add( method.getSimpleName() + processingEnv.getTypeUtils().erasure( method.asType() ).toString() ) ) {
+        methods.add( method );
+      }
+    }
+    return methods;
+  }
+
+  /* The parameter types which could not be resolved can't be named in the implementation either */
+  private boolean hasUnresolvedParameter( ExecutableElement method ) {
+    for( Element parameter : method.getParameters() ) {
+      TypeMirror type = processingEnv.getTypeUtils().erasure( parameter.asType() );
+      while( type.getKind() == TypeKind.ARRAY ) {
+        type = ( (ArrayType)type ).getComponentType();
+      }
+      if( type.getKind() == TypeKind.ERROR ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isObjectMethod( ExecutableElement method ) {
+    String name = method.getSimpleName().toString();
+    int params = method.getParameters().size();
+    return Object.class.getName().equals( method.getEnclosingElement().toString() )
+        || params == 0 && ( "toString".equals( name ) || "hashCode".equals( name ) )
+        || params == 1 && "equals".equals( name );
+  }
+
+  private final class Source {
+    private final StringBuilder text = new StringBuilder();
+
+    Source( TypeElement type, String name, List<ExecutableElement> methods, boolean messages ) {
+      String packageName = processingEnv.getElementUtils().getPackageOf( type ).getQualifiedName().toString();
+      String simpleName = name.substring( name.lastIndexOf( '.' ) + 1 );
+      String interfaceName = type.getQualifiedName().toString();
+      String invokerName = ( messages ? MessagesInvoker.class : ResourcesInvoker.class ).getName();
+
+      if( !packageName.isEmpty() ) {
+        line( "package " + packageName + ";" );
+        line( "" );
+      }
+      line( "@javax.annotation.processing.Generated( \"" + I18nProcessor.class.getName() + "\" )" );
+      line( "public final class " + simpleName + " implements " + interfaceName + " {" );
+      line( "" );
+      line( "  private final " + invokerName + " invoker;" );
+      for( int i = 0; i < methods.size(); i++ ) {
+        line( "  private final java.lang.reflect.Method m" + i + ";" );
+      }
+      line( "" );
+      line( "  public " + simpleName + "( " + invokerName + " invoker ) throws java.lang.NoSuchMethodException {" );
+      line( "    this.invoker = invoker;" );
+      for( int i = 0; i < methods.size(); i++ ) {
+        ExecutableElement method = methods.get( i );
+        StringBuilder lookup = new StringBuilder( "    m" ).append( i ).append( " = " ).append( interfaceName )
+            .append( ".class.getMethod( \"" ).append( method.getSimpleName() ).append( '"' );
+        for( int p = 0; p < method.getParameters().size(); p++ ) {
+          lookup.append( ", " ).append( erasure( method.getParameters().get( p ).asType() ) ).append( ".class" );
+        }
+        line( lookup.append( " );" ).toString() );
+      }
+      line( "  }" );
+      for( int i = 0; i < methods.size(); i++ ) {
+        line( "" );
+        if( messages ) {
+          message( i, methods.get( i ) );
+        } else {
+          resource( i, methods.get( i ) );
+        }
+      }
+      line( "}" );
+    }
+
+    private void message( int index, ExecutableElement method ) {
+      Message anno = method.getAnnotation( Message.class );
+      MessageLevel level = anno == null ? MessageLevel.INFO : anno.level();
+      boolean returnsText = method.getReturnType().getKind() != TypeKind.VOID;
+      signature( method );
+      line( "    if( invoker.isLoggable( " + MessageLevel.class.getName() + "." + level.name() + " ) ) {" );
+      line( "      " + ( returnsText ? "return " : "" ) + "invoker.log( m" + index + ", " + arguments( method ) + " );" );
+      line( "    }" );
+      if( returnsText ) {
+        line( "    return null;" );
+      }
+      line( "  }" );
+    }
+
+    private void resource( int index, ExecutableElement method ) {
+      signature( method );
+      line( "    return invoker.getText( m" + index + ", " + arguments( method ) + " );" );
+      line( "  }" );
+    }
+
+    private void signature( ExecutableElement method ) {
+      StringBuilder signature = new StringBuilder( "  public " )
+          .append( method.getReturnType().getKind() == TypeKind.VOID ? "void" : String.class.getName() )
+          .append( ' ' ).append( method.getSimpleName() ).append( "(" );
+      int params = method.getParameters().size();
+      for( int p = 0; p < params; p++ ) {
+        String paramType = erasure( method.getParameters().get( p ).asType() );
+        if( p == params - 1 && method.isVarArgs() ) {
+          paramType = paramType.substring( 0, paramType.length() - 2 ) + "...";
+        }
+        signature.append( p == 0 ? " " : ", " ).append( "final " ).append( paramType ).append( " p" ).append( p );
+      }
+      line( "  @java.lang.Override" );
+      line( signature.append( params == 0 ? ") {" : " ) {" ).toString() );
+    }
+
+    /* The arguments as the proxy gets them, which is null when there are none */
+    private String arguments( ExecutableElement method ) {
+      int params = method.getParameters().size();
+      if( params == 0 ) {
+        return "null";
+      }
+      StringBuilder arguments = new StringBuilder( "new java.lang.Object[]{ " );
+      for( int p = 0; p < params; p++ ) {
+        arguments.append( p == 0 ? "p" : ", p" ).append( p );
+      }
+      return arguments.append( " }" ).toString();
+    }
+
+    private String erasure( TypeMirror type ) {
+      TypeMirror erased = processingEnv.getTypeUtils().erasure( type );
+      if( erased.getKind() == TypeKind.ARRAY ) {
+        return erasure( ( (ArrayType)erased ).getComponentType() ) + "[]";
+      }
+      if( erased.getKind() == TypeKind.DECLARED ) {
+        return ( (TypeElement)processingEnv.getTypeUtils().asElement( erased ) ).getQualifiedName().toString();
+      }
+      return erased.toString();
+    }
+
+    private void line( String line ) {
+      text.append( line ).append( '\n' );
+    }
+
+    @Override
+    public String toString() {
+      return text.toString();
+    }
+  }
+}
@@ -17,6 +17,8 @@
  */
 package org.apache.knox.gateway.i18n.resources;
 
+import org.apache.knox.gateway.i18n.processor.GeneratedImplementations;
+
 import java.lang.reflect.Proxy;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -34,7 +36,10 @@ public class ResourcesFactory {
         throw new IllegalArgumentException( clazz.getName() + " missing @" + Resources.class.getCanonicalName() );
       }
       ResourcesInvoker invoker = new ResourcesInvoker( clazz );
-      proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      proxy = GeneratedImplementations.newInstance( clazz, ResourcesInvoker.class, invoker );
+      if( proxy == null ) {
+        proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      }
       proxies.put( clazz, proxy );
     }
     return (T)proxy;
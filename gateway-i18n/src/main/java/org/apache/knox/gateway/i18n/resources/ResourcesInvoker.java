@@ -50,7 +50,7 @@ public class ResourcesInvoker implements InvocationHandler {
     return getText( method, args );
   }
 
-  protected final String getText( final Method method, final Object[] args ) {
+  public final String getText( final Method method, final Object[] args ) {
     String pattern = getPattern( method );
     MessageFormat messageFormat = new MessageFormat(pattern, Locale.ROOT );
     return messageFormat.format(args);
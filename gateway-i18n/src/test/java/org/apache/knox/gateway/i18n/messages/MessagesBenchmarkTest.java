@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.i18n.messages;
+
+import org.apache.knox.test.category.ManualTests;
+import org.apache.knox.test.category.MediumTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.lang.reflect.Proxy;
+import java.util.Locale;
+
+/**
+ * Compares the cost of a call through the generated implementation of a {@link Messages} interface with the
+ * cost of the same call through a proxy, with the level of the message both disabled and enabled.
+ */
+@Category( { ManualTests.class, MediumTests.class } )
+public class MessagesBenchmarkTest {
+  private static final int CALLS = 10_000_000;
+
+  @Test
+  public void testCallCost() throws Exception {
+    for( boolean enabled : new boolean[]{ false, true } ) {
+      MessagesInvoker invoker = new MessagesInvoker( MessagesSubject.class, name -> new NullLogger( enabled ) );
+      MessagesSubject generated = new MessagesSubject_I18n( invoker );
+      MessagesSubject proxy = (MessagesSubject)Proxy.newProxyInstance(
+          MessagesSubject.class.getClassLoader(), new Class[]{ MessagesSubject.class }, invoker );
+      // Logging captures the stack trace of the caller, which costs several orders of magnitude more.
+      int calls = enabled ? CALLS / 1000 : CALLS;
+      run( generated, calls / 10 );
+      run( proxy, calls / 10 );
+      System.out.println( String.format( Locale.ROOT, "level %s: generated %.1f ns/call, proxy %.1f ns/call",
+          enabled ? "enabled" : "disabled", run( generated, calls ), run( proxy, calls ) ) );
+    }
+  }
+
+  private static double run( MessagesSubject log, int calls ) {
+    long start = System.nanoTime();
+    for( int i = 0; i < calls; i++ ) {
+      log.withFullAnnotationAndParameter( i );
+    }
+    return (double)( System.nanoTime() - start ) / calls;
+  }
+
+  private static class NullLogger implements MessageLogger {
+    private final boolean enabled;
+
+    NullLogger( boolean enabled ) {
+      this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isLoggable( MessageLevel level ) {
+      return enabled;
+    }
+
+    @Override
+    public void log( StackTraceElement caller, MessageLevel messageLevel, String messageId, String messageText, Throwable thrown ) {
+    }
+  }
+}
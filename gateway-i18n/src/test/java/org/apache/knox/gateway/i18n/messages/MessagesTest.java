@@ -25,7 +25,10 @@ import org.apache.knox.test.category.UnitTests;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.lang.reflect.Proxy;
+
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -45,4 +48,13 @@ public class MessagesTest {
     assertThat( record.getCaller().getClassName(), is( this.getClass().getName() ) );
     assertThat( record.getCaller().getMethodName(), is( "testFirst" ) );
   }
+
+  @Test
+  public void testGeneratedImplementation() {
+    MessagesSubject log = MessagesFactory.get( MessagesSubject.class );
+
+    assertThat( log, instanceOf( MessagesSubject_I18n.class ) );
+    assertThat( Proxy.isProxyClass( log.getClass() ), is( false ) );
+    assertThat( MessagesFactory.get( MessagesSubject.class ), is( log ) );
+  }
 }
@@ -24,9 +24,12 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.lang.reflect.Proxy;
 import java.util.Locale;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 @Category( { UnitTests.class, FastTests.class } )
@@ -107,4 +110,12 @@ public class ResourcesTest {
     Locale.setDefault( Locale.CANADA );
     assertThat( res.testResource( "queryParam" ), equalTo( "ca=[queryParam]" ) );
   }
+
+  @Test
+  public void testGeneratedImplementation() {
+    ResourcesFormattingSubject res = ResourcesFactory.get( ResourcesFormattingSubject.class );
+
+    assertThat( res, instanceOf( ResourcesFormattingSubject_I18n.class ) );
+    assertThat( Proxy.isProxyClass( res.getClass() ), is( false ) );
+  }
 }
@@ -87,4 +87,10 @@ public interface UrlRewriteMessages {
 
   @Message( level = MessageLevel.DEBUG, text = "No rewrite rule was found, skipping rewriting JSON request body" )
   void skippingRewritingJsonRequestBody();
+
+  @Message( level = MessageLevel.DEBUG, text = "Served rewritten response for {0} from the rewrite cache" )
+  void servedRewrittenResponseFromCache( String url );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to move a rewrite cache entry to {0}: {1}" )
+  void failedToSpillRewriteCacheEntry( String directory, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
 }
@@ -22,6 +22,7 @@ import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteMessages;
 import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteContextImpl;
 import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteFunctionProcessorFactory;
 import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteRuleProcessorHolder;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteStatistics;
 import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteStepProcessorHolder;
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
@@ -46,6 +47,7 @@ public class UrlRewriteProcessor implements UrlRewriter {
   ScopedMatcher inbound = new ScopedMatcher();
   ScopedMatcher outbound = new ScopedMatcher();
   Map<String,UrlRewriteFunctionProcessor> functions = new HashMap<>();
+  UrlRewriteStatistics.Topology statistics;
 
   public UrlRewriteProcessor() {
   }
@@ -58,11 +60,29 @@ public class UrlRewriteProcessor implements UrlRewriter {
     initializeRules( descriptor );
   }
 
+  public UrlRewriteEnvironment getEnvironment() {
+    return environment;
+  }
+
   @Override
   public UrlRewriteRulesDescriptor getConfig() {
     return descriptor;
   }
 
+  /**
+   * Starts recording the statistics of the rules of this processor, including those that never fire.
+   */
+  public void setStatistics( UrlRewriteStatistics.Topology statistics ) {
+    this.statistics = statistics;
+    for( String ruleName : rules.keySet() ) {
+      statistics.getRule( ruleName );
+    }
+  }
+
+  public UrlRewriteStatistics.Topology getStatistics() {
+    return statistics;
+  }
+
   @SuppressWarnings("unchecked")
   private void initializeFunctions( UrlRewriteRulesDescriptor rules ) {
     for( String name : UrlRewriteFunctionDescriptorFactory.getNames() ) {
@@ -153,6 +173,9 @@ public class UrlRewriteProcessor implements UrlRewriter {
       effectiveRuleName = ruleName;
     }
     if( stepHolder != null ) {
+      UrlRewriteStatistics.Rule ruleStatistics = statistics == null ? null : statistics.getRule( effectiveRuleName );
+      boolean sampled = ruleStatistics != null && statistics.sample();
+      long start = sampled ? System.nanoTime() : 0L;
       UrlRewriteContext context = new UrlRewriteContextImpl( environment, resolver, functions, direction, inputUri );
       try {
         UrlRewriteStepStatus stepStatus = stepHolder.process( context );
@@ -171,6 +194,12 @@ public class UrlRewriteProcessor implements UrlRewriter {
         LOG.failedToRewriteUrlDueToException( inputUri, direction, effectiveRuleName, e );
         outputUri = null;
       }
+      if( sampled ) {
+        long nanos = System.nanoTime() - start;
+        ruleStatistics.record( outputUri != null, nanos, outputUri == null ? 0 : outputUri.toString().length() );
+      } else if( ruleStatistics != null ) {
+        ruleStatistics.record( outputUri != null );
+      }
     } else {
       LOG.noRuleMatchingUrl( inputUri, direction );
     }
@@ -17,17 +17,19 @@
  */
 package org.apache.knox.gateway.filter.rewrite.api;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteRulesModelCache;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteStatistics;
+
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 
 public class UrlRewriteServletContextListener implements ServletContextListener {
 
@@ -47,8 +49,20 @@ public class UrlRewriteServletContextListener implements ServletContextListener
     }
     ServletContext context = event.getServletContext();
     UrlRewriteEnvironment environment = new UrlRewriteServletEnvironment( context );
+    // The descriptor is shared, the processor and the matchers of its rules are bound to this topology.
     UrlRewriteProcessor processor = new UrlRewriteProcessor();
-    processor.initialize( environment, descriptor );
+    try {
+      processor.initialize( environment, descriptor );
+    } catch( RuntimeException e ) {
+      // contextDestroyed is not called for a context that failed to start.
+      UrlRewriteRulesModelCache.getInstance().release( descriptor );
+      throw e;
+    }
+    GatewayConfig config = (GatewayConfig)context.getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE );
+    if( config != null && config.isRewriteProfilingEnabled() ) {
+      processor.setStatistics( UrlRewriteStatistics.getInstance().addTopology(
+          context.getServletContextName(), config.getRewriteProfilingSampleRate() ) );
+    }
     event.getServletContext().setAttribute( PROCESSOR_ATTRIBUTE_NAME, processor );
   }
 
@@ -58,7 +72,11 @@ public class UrlRewriteServletContextListener implements ServletContextListener
         (UrlRewriteProcessor)event.getServletContext().getAttribute( PROCESSOR_ATTRIBUTE_NAME );
     event.getServletContext().removeAttribute( PROCESSOR_ATTRIBUTE_NAME );
     if( processor != null ) {
+      if( processor.getStatistics() != null ) {
+        UrlRewriteStatistics.getInstance().removeTopology( processor.getStatistics().getName(), processor.getStatistics() );
+      }
       processor.destroy();
+      UrlRewriteRulesModelCache.getInstance().release( processor.getConfig() );
     }
   }
 
@@ -85,9 +103,9 @@ public class UrlRewriteServletContextListener implements ServletContextListener
   }
 
   private static UrlRewriteRulesDescriptor loadDescriptor( URL url ) throws IOException {
-    try (InputStream stream = url.openStream();
-         Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)){
-      return UrlRewriteRulesDescriptorFactory.load( "xml", reader );
+    try (InputStream stream = url.openStream()){
+      // Topologies with the same rules share a single parsed descriptor.
+      return UrlRewriteRulesModelCache.getInstance().acquire( IOUtils.toByteArray( stream ) );
     }
   }
 }
@@ -17,9 +17,13 @@
  */
 package org.apache.knox.gateway.filter.rewrite.api;
 
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.dispatch.CachedResponse;
 import org.apache.knox.gateway.filter.AbstractGatewayFilter;
 import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteRequest;
 import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteResponse;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteResponseCache;
+import org.apache.knox.gateway.security.SubjectUtils;
 import org.apache.knox.gateway.util.MimeTypes;
 
 import jakarta.activation.MimeType;
@@ -43,18 +47,52 @@ public class UrlRewriteServletFilter extends AbstractGatewayFilter {
   public static final MimeType HEADERS_MIME_TYPE = MimeTypes.create( "application/x-http-headers", null );
   public static final MimeType COOKIES_MIME_TYPE = MimeTypes.create( "application/x-http-cookies", null );
 
+  private UrlRewriteResponseCache cache;
+  private long rulesVersion;
+
   @Override
   public void init( FilterConfig filterConfig ) throws ServletException {
     super.init( filterConfig );
+    GatewayConfig gatewayConfig =
+        (GatewayConfig)filterConfig.getServletContext().getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE );
+    cache = UrlRewriteResponseCache.getShared( gatewayConfig );
+    if( cache != null ) {
+      // Every deployment of the filter starts with an empty cache, as its rules or their parameters may have changed.
+      rulesVersion = UrlRewriteResponseCache.nextRulesVersion();
+    }
   }
 
   @Override
   protected void doFilter( HttpServletRequest request, HttpServletResponse response, FilterChain chain )
       throws IOException, ServletException {
     FilterConfig config = getConfig();
+    String cacheKey = null;
+    if( cache != null ) {
+      cacheKey = UrlRewriteResponseCache.key( rulesVersion, config.getServletContext().getServletContextName(),
+          SubjectUtils.getCurrentEffectivePrincipalName(), request );
+    }
     UrlRewriteRequest rewriteRequest = new UrlRewriteRequest( config, request );
     UrlRewriteResponse rewriteResponse = new UrlRewriteResponse( config, rewriteRequest, response );
-    chain.doFilter( rewriteRequest, rewriteResponse );
+    if( cacheKey == null ) {
+      chain.doFilter( rewriteRequest, rewriteResponse );
+      return;
+    }
+    rewriteResponse.setCache( cache, cacheKey );
+    // A cache hit is only served by the dispatch, once the request got through identity assertion and authorization.
+    final String key = cacheKey;
+    request.setAttribute( CachedResponse.REQUEST_ATTRIBUTE, (CachedResponse)() -> cache.serve( key, request, response ) );
+    try {
+      chain.doFilter( rewriteRequest, rewriteResponse );
+    } finally {
+      request.removeAttribute( CachedResponse.REQUEST_ATTRIBUTE );
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if( cache != null ) {
+      cache.invalidate( rulesVersion );
+    }
   }
 
 }
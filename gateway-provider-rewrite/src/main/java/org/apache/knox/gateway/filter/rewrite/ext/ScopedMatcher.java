@@ -22,14 +22,20 @@ import org.apache.knox.gateway.util.urltemplate.Matcher;
 import org.apache.knox.gateway.util.urltemplate.Template;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A simple extension to the matcher that takes into account scopes for rules along with the templates themselves.
  * This matcher maintains a list of matchers and delegates to an appropriate matcher based on scope information for the
  * associated rules.
+ * <p>
+ * The scopes are indexed by the literal first path segment of their templates so that a URL is only
+ * matched against the scopes that have a template it could possibly match, most URLs in a response body
+ * are rejected with a single hash lookup.
  */
 public class ScopedMatcher extends Matcher<UrlRewriteRuleProcessorHolder> {
 
@@ -37,9 +43,17 @@ public class ScopedMatcher extends Matcher<UrlRewriteRuleProcessorHolder> {
 
   private Map<String, Matcher<UrlRewriteRuleProcessorHolder>> matchers;
 
+  /* the index used for input with a port or without a host */
+  private ScopeIndex index;
+
+  /* the index used for input with a host but no port, the matcher skips the first node below the host then */
+  private ScopeIndex portlessIndex;
+
   public ScopedMatcher() {
     super();
     matchers = new HashMap<>();
+    index = new ScopeIndex();
+    portlessIndex = new ScopeIndex();
   }
 
   @Override
@@ -51,6 +65,8 @@ public class ScopedMatcher extends Matcher<UrlRewriteRuleProcessorHolder> {
   public void add(Template template, UrlRewriteRuleProcessorHolder value) {
     Matcher<UrlRewriteRuleProcessorHolder> matcher = getMatcher(value);
     matcher.add( template, value );
+    index.add(Matcher.getDispatchKey(template, false), value.getScope());
+    portlessIndex.add(Matcher.getDispatchKey(template, true), value.getScope());
   }
 
   @Override
@@ -59,9 +75,17 @@ public class ScopedMatcher extends Matcher<UrlRewriteRuleProcessorHolder> {
   }
 
   public Match match(Template input, String scope) {
+    String key = Matcher.getDispatchKey(input);
+    ScopeIndex scopes = input.getHost() != null && input.getPort() == null ? portlessIndex : index;
+    if (key != null && !scopes.mayMatch(key)) {
+      return null;
+    }
     List<Match> matches = new ArrayList<>();
-    for (Matcher<UrlRewriteRuleProcessorHolder> matcher : matchers.values()) {
-      Match match = matcher.match(input);
+    for (Map.Entry<String, Matcher<UrlRewriteRuleProcessorHolder>> entry : matchers.entrySet()) {
+      if (key != null && !scopes.mayMatch(key, entry.getKey())) {
+        continue;
+      }
+      Match match = entry.getValue().match(input);
       if (match != null) {
         matches.add(match);
       }
@@ -120,4 +144,33 @@ public class ScopedMatcher extends Matcher<UrlRewriteRuleProcessorHolder> {
 
     return matchers.get(scope);
   }
+
+  /**
+   * The scopes with a template for a literal first path segment, and the scopes with a template that may match
+   * any first path segment.
+   */
+  private static class ScopeIndex {
+    private final Map<String, Set<String>> literals = new HashMap<>();
+    private final Set<String> any = new HashSet<>();
+
+    void add(String key, String scope) {
+      if (key == null) {
+        any.add(scope);
+      } else {
+        literals.computeIfAbsent(key, k -> new HashSet<>()).add(scope);
+      }
+    }
+
+    boolean mayMatch(String key) {
+      return !any.isEmpty() || literals.containsKey(key);
+    }
+
+    boolean mayMatch(String key, String scope) {
+      if (any.contains(scope)) {
+        return true;
+      }
+      Set<String> scopes = literals.get(key);
+      return scopes != null && scopes.contains(scope);
+    }
+  }
 }
@@ -18,15 +18,37 @@
 package org.apache.knox.gateway.filter.rewrite.ext;
 
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteActionDescriptorBase;
+import org.apache.knox.gateway.util.urltemplate.Parser;
+import org.apache.knox.gateway.util.urltemplate.Template;
+
+import java.net.URISyntaxException;
 
 public class UrlRewriteActionRewriteDescriptorExt
     extends UrlRewriteActionDescriptorBase
     implements UrlRewriteActionDescriptor {
 
+  private Template parsedTemplate;
+
   public UrlRewriteActionRewriteDescriptorExt() {
     super( "rewrite" );
   }
 
+  @Override
+  public synchronized UrlRewriteActionDescriptor parameter( String parameter ) {
+    parsedTemplate = null;
+    return super.parameter( parameter );
+  }
+
+  /**
+   * Returns the template parsed only once, however many topologies share this descriptor.
+   */
+  public synchronized Template parsedTemplate() throws URISyntaxException {
+    if( parsedTemplate == null ) {
+      parsedTemplate = Parser.parseTemplate( parameter() == null ? "" : parameter() );
+    }
+    return parsedTemplate;
+  }
+
   public String template() {
     return parameter();
   }
@@ -0,0 +1,354 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decompression and compression of rewritten response bodies. In the pipelined mode inflating the backend
+ * response and deflating the rewritten body run on threads of their own, handing chunks to and from the
+ * rewriting request thread through bounded queues, so the three stages overlap instead of running one
+ * after the other. When no pipeline thread is available the stages run on the request thread.
+ */
+final class CompressionPipeline {
+
+  private static final int CHUNK_SIZE = 8 * 1024;
+  private static final int QUEUED_CHUNKS = 8;
+  private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+  private static final ThreadPoolExecutor STAGES = createExecutor();
+
+  private CompressionPipeline() {
+  }
+
+  /**
+   * In the pipelined mode closing the returned stream stops the inflating stage, waits for it to finish and
+   * discards whatever it has inflated but not been read yet, so no stage outlives the response it belongs to.
+   */
+  static InputStream inflate( InputStream input, boolean gzip, boolean pipelined ) throws IOException {
+    if( !pipelined ) {
+      return gzip ? new GzipCompressorInputStream( input, true ) : new InflaterInputStream( input );
+    }
+    final Pipe pipe = new Pipe();
+    final Runnable stage = () -> {
+      OutputStream sink = pipe.output();
+      try( InputStream inflater = gzip ? new GzipCompressorInputStream( input, true ) : new InflaterInputStream( input ) ) {
+        copy( inflater, sink );
+      } catch( IOException | RuntimeException e ) {
+        pipe.fail( e );
+      } finally {
+        closeQuietly( sink );
+      }
+    };
+    final Future<?> done;
+    try {
+      done = STAGES.submit( stage );
+    } catch( RejectedExecutionException e ) {
+      return inflate( input, gzip, false );
+    }
+    return new FilterInputStream( pipe.input() ) {
+      private boolean closed;
+
+      @Override
+      public void close() throws IOException {
+        if( closed ) {
+          return;
+        }
+        closed = true;
+        /* a stage blocked on the full pipe notices the closed reader within one offer timeout */
+        super.close();
+        try {
+          done.get();
+        } catch( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        } catch( ExecutionException e ) {
+          throw new IOException( e.getCause() );
+        } finally {
+          pipe.drain();
+        }
+      }
+    };
+  }
+
+  static OutputStream deflate( OutputStream output, boolean gzip, int level, boolean pipelined ) throws IOException {
+    if( !pipelined ) {
+      return gzip ? new LevelGZIPOutputStream( output, level ) : new LevelDeflaterOutputStream( output, level );
+    }
+    final Pipe pipe = new Pipe();
+    final Runnable stage = () -> {
+      InputStream source = pipe.input();
+      try {
+        OutputStream deflater = gzip ? new LevelGZIPOutputStream( output, level ) : new LevelDeflaterOutputStream( output, level );
+        copy( source, deflater );
+        deflater.close();
+      } catch( IOException | RuntimeException e ) {
+        pipe.fail( e );
+      } finally {
+        closeQuietly( source );
+      }
+    };
+    final Future<?> done;
+    try {
+      done = STAGES.submit( stage );
+    } catch( RejectedExecutionException e ) {
+      return deflate( output, gzip, level, false );
+    }
+    return new OutputStream() {
+      private final OutputStream sink = pipe.output();
+
+      @Override
+      public void write( int b ) throws IOException {
+        sink.write( b );
+      }
+
+      @Override
+      public void write( byte[] b, int off, int len ) throws IOException {
+        sink.write( b, off, len );
+      }
+
+      @Override
+      public void close() throws IOException {
+        sink.close();
+        try {
+          done.get();
+        } catch( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        } catch( ExecutionException e ) {
+          throw new IOException( e.getCause() );
+        }
+        pipe.rethrow();
+      }
+    };
+  }
+
+  private static void copy( InputStream input, OutputStream output ) throws IOException {
+    byte[] buffer = new byte[ CHUNK_SIZE ];
+    int count;
+    while( ( count = input.read( buffer ) ) != -1 ) {
+      output.write( buffer, 0, count );
+    }
+  }
+
+  private static void closeQuietly( Closeable closeable ) {
+    try {
+      closeable.close();
+    } catch( IOException e ) {
+      // The failure, if any, has been reported through the pipe already.
+    }
+  }
+
+  private static ThreadPoolExecutor createExecutor() {
+    final AtomicInteger count = new AtomicInteger();
+    final int maxThreads = 4 * Runtime.getRuntime().availableProcessors();
+    return new ThreadPoolExecutor( 0, maxThreads, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+      Thread thread = new Thread( runnable, "rewrite-compression-" + count.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    } );
+  }
+
+  /*
+   * A bounded handoff of byte chunks from one thread to another. A failure of the writing side is reported
+   * to the reader once it has read everything handed over before it, closing the reading side makes the
+   * writer fail rather than block.
+   */
+  private static class Pipe {
+    private static final byte[] END = new byte[ 0 ];
+
+    private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>( QUEUED_CHUNKS );
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final AtomicBoolean readerClosed = new AtomicBoolean();
+
+    /* must be called before the side that failed is closed */
+    void fail( Exception e ) {
+      failure.compareAndSet( null, e );
+    }
+
+    void rethrow() throws IOException {
+      Exception e = failure.get();
+      if( e instanceof IOException ) {
+        throw (IOException)e;
+      } else if( e != null ) {
+        throw new IOException( e );
+      }
+    }
+
+    /* drops the chunks handed over after the reader was closed */
+    void drain() {
+      chunks.clear();
+    }
+
+    void put( byte[] chunk ) throws IOException {
+      try {
+        do {
+          if( readerClosed.get() ) {
+            rethrow();
+            throw new IOException( "Pipe closed by the reader" );
+          }
+        } while( !chunks.offer( chunk, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS ) );
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+    }
+
+    InputStream input() {
+      return new InputStream() {
+        private byte[] chunk = new byte[ 0 ];
+        private int offset;
+
+        @Override
+        public int read() throws IOException {
+          return next() ? chunk[ offset++ ] & 0xff : -1;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len ) throws IOException {
+          if( len == 0 ) {
+            return 0;
+          }
+          if( !next() ) {
+            return -1;
+          }
+          int count = Math.min( len, chunk.length - offset );
+          System.arraycopy( chunk, offset, b, off, count );
+          offset += count;
+          return count;
+        }
+
+        private boolean next() throws IOException {
+          while( chunk != END && offset == chunk.length ) {
+            try {
+              chunk = chunks.take();
+              offset = 0;
+            } catch( InterruptedException e ) {
+              Thread.currentThread().interrupt();
+              throw new InterruptedIOException();
+            }
+          }
+          if( chunk == END ) {
+            rethrow();
+            return false;
+          }
+          return true;
+        }
+
+        @Override
+        public void close() {
+          readerClosed.set( true );
+          chunks.clear();
+        }
+      };
+    }
+
+    OutputStream output() {
+      return new OutputStream() {
+        private byte[] chunk = new byte[ CHUNK_SIZE ];
+        private int size;
+        private boolean closed;
+
+        @Override
+        public void write( int b ) throws IOException {
+          if( size == chunk.length ) {
+            handOff();
+          }
+          chunk[ size++ ] = (byte)b;
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) throws IOException {
+          while( len > 0 ) {
+            if( size == chunk.length ) {
+              handOff();
+            }
+            int count = Math.min( len, chunk.length - size );
+            System.arraycopy( b, off, chunk, size, count );
+            size += count;
+            off += count;
+            len -= count;
+          }
+        }
+
+        private void handOff() throws IOException {
+          put( chunk );
+          chunk = new byte[ CHUNK_SIZE ];
+          size = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+          if( !closed ) {
+            closed = true;
+            if( size > 0 ) {
+              byte[] last = new byte[ size ];
+              System.arraycopy( chunk, 0, last, 0, size );
+              put( last );
+            }
+            put( END );
+          }
+        }
+      };
+    }
+  }
+
+  private static class LevelGZIPOutputStream extends GZIPOutputStream {
+    LevelGZIPOutputStream( OutputStream output, int level ) throws IOException {
+      super( output, CHUNK_SIZE );
+      def.setLevel( level );
+    }
+  }
+
+  private static class LevelDeflaterOutputStream extends DeflaterOutputStream {
+    LevelDeflaterOutputStream( OutputStream output, int level ) {
+      super( output, new Deflater( level ) );
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        def.end();
+      }
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Remembers the rewritten values of a single body, so that a URL that appears many times in the
+ * same response is only parsed and rewritten once. Not thread safe, a filter reader owns its memo.
+ */
+public class UrlRewriteMemo {
+
+  static final int MAX_ENTRIES = 1024;
+
+  private final Map<String,Map<String,String>> values = new HashMap<>();
+  private int size;
+
+  public String rewrite( String value, String rule, BiFunction<String,String,String> rewriter ) {
+    Map<String,String> ruleValues = values.get( rule );
+    String rewritten = ruleValues == null ? null : ruleValues.get( value );
+    if( rewritten == null ) {
+      rewritten = rewriter.apply( value, rule );
+      if( rewritten != null && size < MAX_ENTRIES ) {
+        values.computeIfAbsent( rule, r -> new HashMap<>() ).put( value, rewritten );
+        size++;
+      }
+    }
+    return rewritten;
+  }
+}
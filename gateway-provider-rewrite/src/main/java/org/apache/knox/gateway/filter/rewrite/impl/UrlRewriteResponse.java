@@ -17,11 +17,13 @@
  */
 package org.apache.knox.gateway.filter.rewrite.impl;
 
-import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.filter.GatewayResponseWrapper;
+import org.apache.knox.gateway.filter.PassthroughResponseStreamer;
 import org.apache.knox.gateway.filter.ResponseStreamer;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteProcessor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteServletContextListener;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteServletFilter;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteStreamFilterFactory;
@@ -54,10 +56,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.GZIPOutputStream;
-import java.util.zip.InflaterInputStream;
+import java.util.zip.Deflater;
 
 import static org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteUtil.getRewriteFilterConfig;
 import static org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteUtil.pickFirstRuleWithEqualsIgnoreCasePathMatch;
@@ -71,9 +72,13 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
   // Testing with 16K made no appreciable difference.
   private static final int STREAM_BUFFER_SIZE = 8 * 1024;
 
+  private static final String CONTENT_LENGTH = "Content-Length";
+  private static final String CONTENT_ENCODING = "Content-Encoding";
+  private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
   private static final Set<String> IGNORE_HEADER_NAMES = new HashSet<>();
   static {
-    IGNORE_HEADER_NAMES.add( "Content-Length" );
+    IGNORE_HEADER_NAMES.add( CONTENT_LENGTH );
   }
 
   private static final String REQUEST_PARAM_PREFIX = "request.";
@@ -93,6 +98,12 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
   private String xForwardedPort;
   private String xForwardedScheme;
   private String contentEncoding;
+  private String contentLength;
+  private boolean compressionPipelined;
+  private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+  private boolean skipUnacceptedRecompression;
+  private UrlRewriteResponseCache cache;
+  private String cacheKey;
 
   public UrlRewriteResponse( FilterConfig config, HttpServletRequest request, HttpServletResponse response ) {
     super( response );
@@ -106,6 +117,20 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
     this.headersFilterName = config.getInitParameter( UrlRewriteServletFilter.RESPONSE_HEADERS_FILTER_PARAM );
     this.headersFilterConfig = getRewriteFilterConfig( rewriter.getConfig(), headersFilterName, UrlRewriteServletFilter.HEADERS_MIME_TYPE );
     this.contentEncoding = "";
+    GatewayConfig gatewayConfig = (GatewayConfig)config.getServletContext().getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE );
+    if( gatewayConfig != null ) {
+      this.compressionPipelined = gatewayConfig.isRewriteCompressionPipelined();
+      this.compressionLevel = gatewayConfig.getRewriteCompressionLevel();
+      this.skipUnacceptedRecompression = gatewayConfig.isRewriteRecompressionSkippedIfNotAccepted();
+    }
+  }
+
+  /**
+   * Makes the rewritten body of this response a candidate for the given cache, under the given key.
+   */
+  public void setCache( UrlRewriteResponseCache cache, String cacheKey ) {
+    this.cache = cache;
+    this.cacheKey = cacheKey;
   }
 
   protected boolean ignoreHeader( String name ) {
@@ -126,11 +151,18 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
   }
 
   private void setContentEncoding(String name, String value) {
-    if ("Content-Encoding".equalsIgnoreCase(name)) {
+    if (CONTENT_ENCODING.equalsIgnoreCase(name)) {
       contentEncoding = value;
     }
   }
 
+  // Remembered so that it can be restored if the body turns out to be streamed through unchanged.
+  private void setContentLength(String name, String value) {
+    if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+      contentLength = value;
+    }
+  }
+
   // Ignore the Content-Length from the dispatch respond since the respond body may be rewritten.
   @Override
   public void setHeader( String name, String value ) {
@@ -138,6 +170,8 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
       value = rewriteValue( value, pickFirstRuleWithEqualsIgnoreCasePathMatch( headersFilterConfig, name ) );
       setContentEncoding(name, value);
       super.setHeader( name, value );
+    } else {
+      setContentLength( name, value );
     }
   }
 
@@ -149,6 +183,8 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
       value = rewriteValue( value, rule );
       setContentEncoding(name, value);
       super.addHeader( name, value );
+    } else {
+      setContentLength( name, value );
     }
   }
 
@@ -170,45 +206,98 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
     }
 
     UrlRewriteStreamFilter filter = UrlRewriteStreamFilterFactory.create(mimeType, null);
-
-    final InputStream inStream;
-    final OutputStream outStream;
-    if( filter != null ) {
-      // Use this way to check whether the input stream is gzip compressed, in case
-      // the content encoding header is unknown, as it could be unset in inbound response
-      boolean isGzip = false;
-      final BufferedInputStream inBuffer = new BufferedInputStream(input, STREAM_BUFFER_SIZE);
-      inBuffer.mark(2);
-      byte [] signature = new byte[2];
-      int len = inBuffer.read(signature);
-      if( len == 2 && signature[ 0 ] == (byte) 0x1f && signature[ 1 ] == (byte) 0x8b ) {
-        isGzip = true;
+    if( filter == null ) {
+      // Nothing is going to touch the body so pass it through as is, including its original length.
+      if( contentLength != null ) {
+        super.setHeader( CONTENT_LENGTH, contentLength );
       }
-      inBuffer.reset();
-
-      final InputStream unFilteredStream;
-      if(isGzip) {
-        unFilteredStream = new GzipCompressorInputStream(inBuffer, true);
-        outStream = new GZIPOutputStream(output, STREAM_BUFFER_SIZE);
-      } else if ("deflate".equalsIgnoreCase(contentEncoding)) {
-        unFilteredStream = new InflaterInputStream(inBuffer);
-        outStream = new DeflaterOutputStream(output);
+      PassthroughResponseStreamer.stream( input, output );
+      return;
+    }
+
+    // Use this way to check whether the input stream is gzip compressed, in case
+    // the content encoding header is unknown, as it could be unset in inbound response
+    boolean isGzip = false;
+    final BufferedInputStream inBuffer = new BufferedInputStream(input, STREAM_BUFFER_SIZE);
+    inBuffer.mark(2);
+    byte [] signature = new byte[2];
+    int len = inBuffer.read(signature);
+    if( len == 2 && signature[ 0 ] == (byte) 0x1f && signature[ 1 ] == (byte) 0x8b ) {
+      isGzip = true;
+    }
+    inBuffer.reset();
+
+    final InputStream unFilteredStream;
+    boolean compress = false;
+    if(isGzip || "deflate".equalsIgnoreCase(contentEncoding)) {
+      unFilteredStream = CompressionPipeline.inflate(inBuffer, isGzip, compressionPipelined);
+      if (skipUnacceptedRecompression && !isEncodingAccepted(isGzip ? "gzip" : "deflate")) {
+        // The body is decompressed for rewriting anyway, so a client that cannot decode it gets it as is.
+        super.setHeader(CONTENT_ENCODING, null);
       } else {
-        unFilteredStream = inBuffer;
-        outStream = output;
+        compress = true;
       }
-      String charset = MimeTypes.getCharset( mimeType, StandardCharsets.UTF_8.name() );
-      inStream = filter.filter( unFilteredStream, charset, rewriter, this, UrlRewriter.Direction.OUT, filterContentConfig );
     } else {
-      inStream = input;
-      outStream = output;
+      unFilteredStream = inBuffer;
     }
-
+    // The cache keeps the body as it is sent, compressed or not, so it is captured below the compression.
+    final UrlRewriteResponseCache.Capture capture = cache == null ? null : cache.capture(cacheKey, this, output);
+    final OutputStream target = capture == null ? output : capture;
+    final OutputStream outStream = compress ? CompressionPipeline.deflate(target, isGzip, compressionLevel, compressionPipelined) : target;
+    String charset = MimeTypes.getCharset( mimeType, StandardCharsets.UTF_8.name() );
+
+    final UrlRewriteStatistics.Topology statistics =
+        rewriter instanceof UrlRewriteProcessor ? ((UrlRewriteProcessor) rewriter).getStatistics() : null;
+    final long start = System.nanoTime();
     try {
-      IOUtils.copy(inStream, outStream, STREAM_BUFFER_SIZE);
+      final InputStream inStream = filter.filter( unFilteredStream, charset, rewriter, this, UrlRewriter.Direction.OUT, filterContentConfig );
+      long bytes = IOUtils.copyLarge(inStream, outStream, new byte[STREAM_BUFFER_SIZE]);
+      if (statistics != null) {
+        statistics.getStream(mimeType.getBaseType()).record(bytes, System.nanoTime() - start);
+      }
     } finally {
-      outStream.close();
+      try {
+        outStream.close();
+      } finally {
+        // Joins a pipelined inflater, which may still be ahead of a failed rewrite, before the response completes.
+        if (compressionPipelined && unFilteredStream != inBuffer) {
+          unFilteredStream.close();
+        }
+      }
+    }
+    if (capture != null) {
+      capture.commit();
+    }
+  }
+
+  boolean isEncodingAccepted( String encoding ) {
+    String accept = request.getHeader( ACCEPT_ENCODING );
+    if( accept == null ) {
+      // No Accept-Encoding means any content coding is acceptable (RFC 7231, section 5.3.4).
+      return true;
+    }
+    Boolean wildcard = null;
+    for( String element : accept.split( "," ) ) {
+      String[] params = element.split( ";" );
+      String coding = params[ 0 ].trim().toLowerCase( Locale.ROOT );
+      boolean accepted = true;
+      for( int i = 1; i < params.length; i++ ) {
+        String param = params[ i ].trim();
+        if( param.startsWith( "q=" ) ) {
+          try {
+            accepted = Float.parseFloat( param.substring( 2 ).trim() ) > 0;
+          } catch( NumberFormatException e ) {
+            accepted = false;
+          }
+        }
+      }
+      if( coding.equals( encoding ) || ( "x-" + encoding ).equals( coding ) ) {
+        return accepted;
+      } else if( "*".equals( coding ) ) {
+        wildcard = accepted;
+      }
     }
+    return Boolean.TRUE.equals( wildcard );
   }
 
   //TODO: Need to buffer the output here and when it is closed, rewrite it and then write the result to the stream.
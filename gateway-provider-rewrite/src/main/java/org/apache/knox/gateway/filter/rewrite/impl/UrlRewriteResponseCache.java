@@ -0,0 +1,603 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl;
+
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps rewritten static UI assets, scripts, style sheets and HTML pages, for as long as the backend says
+ * they are fresh, so that they can be served again without a backend request and without rewriting them
+ * again. Entries are keyed by the rule set version, topology, authenticated principal, request URL, the
+ * request headers the rewritten body depends on and the accepted encodings, and are bounded by a memory tier
+ * and an optional disk tier that entries evicted from memory move to. Responses to requests that carry
+ * credentials of their own are never cached. Conditional requests for a cached asset are answered with a 304.
+ * Cache hits replay all end-to-end headers of the response that was stored. They are served by the dispatch of
+ * the service through a {@link org.apache.knox.gateway.dispatch.CachedResponse}, so that a cached asset is only
+ * served to requests that get through the identity assertion and authorization policies of the topology.
+ */
+public class UrlRewriteResponseCache {
+
+  private static final UrlRewriteMessages LOG = MessagesFactory.get( UrlRewriteMessages.class );
+
+  private static final String CACHE_CONTROL = "Cache-Control";
+  private static final String CONTENT_ENCODING = "Content-Encoding";
+  private static final String ETAG = "ETag";
+  private static final String LAST_MODIFIED = "Last-Modified";
+  private static final String EXPIRES = "Expires";
+  private static final String VARY = "Vary";
+  private static final String DATE = "Date";
+  private static final String SET_COOKIE = "Set-Cookie";
+  private static final String IF_NONE_MATCH = "If-None-Match";
+  private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+  private static final String AUTHORIZATION = "Authorization";
+  private static final String CONNECTION = "Connection";
+  private static final String BODY_SUFFIX = ".body";
+
+  // The rewritten body depends on the URL the client used to reach the gateway.
+  private static final List<String> KEY_REQUEST_HEADERS = Arrays.asList(
+      "Accept-Encoding", "Host", "X-Forwarded-Host", "X-Forwarded-Port", "X-Forwarded-Proto", "X-Forwarded-Context" );
+  // Hop-by-hop headers (RFC 7230, section 6.1) and the headers that serving an entry sets itself.
+  private static final Set<String> UNSTORED_HEADERS = new HashSet<>( Arrays.asList(
+      "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te", "trailer", "transfer-encoding",
+      "upgrade", "content-type", "content-length", "age", "set-cookie" ) );
+  private static final Set<String> CACHED_MIME_TYPES = new HashSet<>( Arrays.asList(
+      "text/html", "text/css", "text/javascript", "application/javascript", "application/x-javascript" ) );
+
+  // The freshness heuristic of RFC 7234 for responses that only carry a Last-Modified date.
+  private static final long MAX_HEURISTIC_LIFETIME = TimeUnit.DAYS.toMillis( 1 );
+
+  private static final AtomicLong RULES_VERSIONS = new AtomicLong();
+  private static UrlRewriteResponseCache shared;
+
+  private final long memorySize;
+  private final long maxEntrySize;
+  private final Path diskDir;
+  private final long diskSize;
+  private final Map<String,Entry> memory = new LinkedHashMap<>( 16, 0.75f, true );
+  private final Map<String,Entry> disk = new LinkedHashMap<>( 16, 0.75f, true );
+  // Entries evicted from memory whose body is being written to disk outside of the lock.
+  private final Map<String,Entry> spilling = new HashMap<>();
+  private final AtomicLong files = new AtomicLong();
+  private long memoryBytes;
+  private long diskBytes;
+
+  public UrlRewriteResponseCache( long memorySize, long maxEntrySize, Path diskDir, long diskSize ) {
+    this.memorySize = memorySize;
+    this.maxEntrySize = Math.min( maxEntrySize, memorySize );
+    this.diskDir = diskDir;
+    this.diskSize = diskSize;
+    if( diskDir != null ) {
+      clearDiskDir( diskDir );
+    }
+  }
+
+  /**
+   * @param config the gateway configuration, may be <code>null</code>
+   * @return the cache shared by all topologies, or <code>null</code> if the rewrite cache is not enabled
+   */
+  public static synchronized UrlRewriteResponseCache getShared( GatewayConfig config ) {
+    if( config == null || !config.isRewriteCacheEnabled() ) {
+      return null;
+    }
+    if( shared == null ) {
+      String dir = config.getRewriteCacheDiskDir();
+      shared = new UrlRewriteResponseCache( config.getRewriteCacheMemorySize(), config.getRewriteCacheMaxEntrySize(),
+          dir == null ? null : Paths.get( dir ), config.getRewriteCacheDiskSize() );
+    }
+    return shared;
+  }
+
+  /**
+   * @return a version that is unique to a deployment of a set of rewrite rules
+   */
+  public static long nextRulesVersion() {
+    return RULES_VERSIONS.incrementAndGet();
+  }
+
+  /**
+   * @param principal the effective principal the request is served for, may be <code>null</code>
+   * @return the key of the rewritten response to the request, or <code>null</code> if responses to the
+   *         request cannot be cached
+   */
+  public static String key( long rulesVersion, String topology, String principal, HttpServletRequest request ) {
+    // A shared cache must not reuse responses to requests with credentials of their own (RFC 7234, section 3.2).
+    if( !"GET".equals( request.getMethod() ) || request.getHeader( AUTHORIZATION ) != null ) {
+      return null;
+    }
+    StringBuilder key = new StringBuilder();
+    key.append( rulesVersion ).append( '\n' ).append( topology ).append( '\n' ).append( principal ).append( '\n' );
+    key.append( request.getRequestURL() );
+    if( request.getQueryString() != null ) {
+      key.append( '?' ).append( request.getQueryString() );
+    }
+    for( String name : KEY_REQUEST_HEADERS ) {
+      String value = request.getHeader( name );
+      key.append( '\n' ).append( value == null ? "" : value.trim() );
+    }
+    return key.toString();
+  }
+
+  /**
+   * Answers the request from the cache if a fresh rewritten response is cached for it.
+   *
+   * @return <code>true</code> if the response has been written
+   */
+  public boolean serve( String key, HttpServletRequest request, HttpServletResponse response ) throws IOException {
+    if( hasDirective( list( request.getHeaders( CACHE_CONTROL ) ), "no-cache" ) ) {
+      return false;
+    }
+    Entry entry = get( key );
+    if( entry == null ) {
+      return false;
+    }
+    byte[] body = entry.body;
+    if( body == null ) {
+      try {
+        body = Files.readAllBytes( entry.file );
+      } catch( IOException e ) {
+        // The entry was evicted from disk meanwhile.
+        return false;
+      }
+      promote( key, entry, body );
+    }
+    long now = System.currentTimeMillis();
+    boolean notModified = isNotModified( entry, request );
+    response.setStatus( notModified ? HttpServletResponse.SC_NOT_MODIFIED : HttpServletResponse.SC_OK );
+    for( int i = 0; i < entry.headers.size(); i += 2 ) {
+      if( !notModified || !CONTENT_ENCODING.equals( entry.headers.get( i ) ) ) {
+        response.addHeader( entry.headers.get( i ), entry.headers.get( i + 1 ) );
+      }
+    }
+    response.setHeader( "Age", Long.toString( Math.max( 0, now - entry.stored ) / 1000 ) );
+    if( !notModified ) {
+      response.setContentType( entry.contentType );
+      response.setContentLength( body.length );
+      response.getOutputStream().write( body );
+    }
+    LOG.servedRewrittenResponseFromCache( request.getRequestURL().toString() );
+    return true;
+  }
+
+  /**
+   * Starts capturing the rewritten body of a response if the response may be cached, based on the status
+   * and headers already set on it.
+   *
+   * @return the capture the rewritten body has to be written to, or <code>null</code> if it cannot be cached
+   */
+  public Capture capture( String key, HttpServletResponse response, OutputStream output ) {
+    long lifetime = getFreshnessLifetime( response );
+    if( response.getStatus() != HttpServletResponse.SC_OK || lifetime <= 0 || !isCachedMimeType( response.getContentType() )
+        || response.containsHeader( SET_COOKIE ) ) {
+      return null;
+    }
+    String vary = response.getHeader( VARY );
+    if( vary != null && !"accept-encoding".equalsIgnoreCase( vary.trim() ) ) {
+      return null;
+    }
+    Set<String> hopByHop = new HashSet<>( UNSTORED_HEADERS );
+    for( String value : list( response.getHeaders( CONNECTION ) ) ) {
+      for( String name : value.split( "," ) ) {
+        hopByHop.add( name.trim().toLowerCase( Locale.ROOT ) );
+      }
+    }
+    List<String> headers = new ArrayList<>();
+    for( String name : new LinkedHashSet<>( list( response.getHeaderNames() ) ) ) {
+      if( !hopByHop.contains( name.toLowerCase( Locale.ROOT ) ) ) {
+        for( String value : list( response.getHeaders( name ) ) ) {
+          headers.add( name );
+          headers.add( value );
+        }
+      }
+    }
+    long now = System.currentTimeMillis();
+    return new Capture( key, new Entry( response.getContentType(), headers, response.getHeader( ETAG ),
+        parseDate( response.getHeader( LAST_MODIFIED ) ), now, now + lifetime ), output );
+  }
+
+  /**
+   * Drops the entries of a set of rewrite rules that is no longer deployed.
+   */
+  public void invalidate( long rulesVersion ) {
+    String prefix = rulesVersion + "\n";
+    List<Path> obsolete = new ArrayList<>();
+    synchronized( this ) {
+      remove( memory.entrySet().iterator(), prefix, obsolete );
+      remove( disk.entrySet().iterator(), prefix, obsolete );
+      spilling.keySet().removeIf( key -> key.startsWith( prefix ) );
+    }
+    delete( obsolete );
+  }
+
+  Entry get( String key ) {
+    List<Path> obsolete = new ArrayList<>();
+    Entry entry;
+    synchronized( this ) {
+      entry = memory.get( key );
+      if( entry == null ) {
+        entry = spilling.get( key );
+      }
+      if( entry == null ) {
+        entry = disk.get( key );
+      }
+      if( entry != null && entry.expires <= System.currentTimeMillis() ) {
+        removeEntry( key, obsolete );
+        entry = null;
+      }
+    }
+    delete( obsolete );
+    return entry;
+  }
+
+  synchronized long getMemoryBytes() {
+    return memoryBytes;
+  }
+
+  synchronized long getDiskBytes() {
+    return diskBytes;
+  }
+
+  /*
+   * Only the bookkeeping happens under the lock, the bodies of the entries evicted from memory are written,
+   * and the bodies of the entries dropped from disk are deleted, once it has been released.
+   */
+  private void put( String key, Entry entry ) {
+    List<Path> obsolete = new ArrayList<>();
+    List<Map.Entry<String,Entry>> evicted = new ArrayList<>();
+    synchronized( this ) {
+      removeEntry( key, obsolete );
+      memory.put( key, entry );
+      memoryBytes += entry.size;
+      Iterator<Map.Entry<String,Entry>> eldest = memory.entrySet().iterator();
+      while( memoryBytes > memorySize && eldest.hasNext() ) {
+        Map.Entry<String,Entry> next = eldest.next();
+        eldest.remove();
+        memoryBytes -= next.getValue().size;
+        if( diskDir != null && next.getValue().size <= diskSize ) {
+          spilling.put( next.getKey(), next.getValue() );
+          evicted.add( next );
+        }
+      }
+    }
+    delete( obsolete );
+    for( Map.Entry<String,Entry> next : evicted ) {
+      spill( next.getKey(), next.getValue() );
+    }
+  }
+
+  private void promote( String key, Entry entry, byte[] body ) {
+    synchronized( this ) {
+      if( disk.get( key ) != entry ) {
+        return;
+      }
+    }
+    put( key, entry.withBody( body ) );
+  }
+
+  private void spill( String key, Entry entry ) {
+    Path file = diskDir.resolve( files.incrementAndGet() + BODY_SUFFIX );
+    try {
+      Files.write( file, entry.body );
+    } catch( IOException e ) {
+      LOG.failedToSpillRewriteCacheEntry( diskDir.toString(), e );
+      synchronized( this ) {
+        spilling.remove( key, entry );
+      }
+      return;
+    }
+    List<Path> obsolete = new ArrayList<>();
+    synchronized( this ) {
+      // The entry may have been replaced, expired or invalidated while its body was written.
+      if( spilling.remove( key, entry ) ) {
+        disk.put( key, entry.withFile( file ) );
+        diskBytes += entry.size;
+        Iterator<Map.Entry<String,Entry>> eldest = disk.entrySet().iterator();
+        while( diskBytes > diskSize && eldest.hasNext() ) {
+          Entry next = eldest.next().getValue();
+          eldest.remove();
+          discard( next, obsolete );
+        }
+      } else {
+        obsolete.add( file );
+      }
+    }
+    delete( obsolete );
+  }
+
+  private void removeEntry( String key, List<Path> obsolete ) {
+    Entry entry = memory.remove( key );
+    if( entry != null ) {
+      memoryBytes -= entry.size;
+    }
+    spilling.remove( key );
+    entry = disk.remove( key );
+    if( entry != null ) {
+      discard( entry, obsolete );
+    }
+  }
+
+  private void remove( Iterator<Map.Entry<String,Entry>> entries, String prefix, List<Path> obsolete ) {
+    while( entries.hasNext() ) {
+      Map.Entry<String,Entry> entry = entries.next();
+      if( entry.getKey().startsWith( prefix ) ) {
+        entries.remove();
+        discard( entry.getValue(), obsolete );
+      }
+    }
+  }
+
+  private void discard( Entry entry, List<Path> obsolete ) {
+    if( entry.file == null ) {
+      memoryBytes -= entry.size;
+    } else {
+      diskBytes -= entry.size;
+      obsolete.add( entry.file );
+    }
+  }
+
+  private static void delete( List<Path> obsolete ) {
+    for( Path file : obsolete ) {
+      try {
+        Files.deleteIfExists( file );
+      } catch( IOException e ) {
+        // Bodies left behind are removed when the cache is created again.
+      }
+    }
+  }
+
+  private static void clearDiskDir( Path dir ) {
+    try {
+      Files.createDirectories( dir );
+      try( DirectoryStream<Path> bodies = Files.newDirectoryStream( dir, "*" + BODY_SUFFIX ) ) {
+        for( Path body : bodies ) {
+          Files.deleteIfExists( body );
+        }
+      }
+    } catch( IOException e ) {
+      LOG.failedToSpillRewriteCacheEntry( dir.toString(), e );
+    }
+  }
+
+  private static boolean isNotModified( Entry entry, HttpServletRequest request ) {
+    String ifNoneMatch = request.getHeader( IF_NONE_MATCH );
+    if( ifNoneMatch != null ) {
+      if( entry.etag == null ) {
+        return false;
+      }
+      String etag = weak( entry.etag );
+      for( String tag : ifNoneMatch.split( "," ) ) {
+        tag = tag.trim();
+        if( "*".equals( tag ) || weak( tag ).equals( etag ) ) {
+          return true;
+        }
+      }
+      return false;
+    }
+    long ifModifiedSince = parseDate( request.getHeader( IF_MODIFIED_SINCE ) );
+    return ifModifiedSince >= 0 && entry.lastModified >= 0 && entry.lastModified <= ifModifiedSince;
+  }
+
+  private static String weak( String etag ) {
+    return etag.startsWith( "W/" ) ? etag.substring( 2 ) : etag;
+  }
+
+  static long getFreshnessLifetime( HttpServletResponse response ) {
+    Collection<String> cacheControl = list( response.getHeaders( CACHE_CONTROL ) );
+    if( hasDirective( cacheControl, "no-store" ) || hasDirective( cacheControl, "private" )
+        || hasDirective( cacheControl, "no-cache" ) ) {
+      return 0;
+    }
+    long maxAge = getSeconds( cacheControl, "s-maxage" );
+    if( maxAge < 0 ) {
+      maxAge = getSeconds( cacheControl, "max-age" );
+    }
+    if( maxAge >= 0 ) {
+      return TimeUnit.SECONDS.toMillis( maxAge );
+    }
+    long date = parseDate( response.getHeader( DATE ) );
+    if( date < 0 ) {
+      date = System.currentTimeMillis();
+    }
+    String expires = response.getHeader( EXPIRES );
+    if( expires != null ) {
+      // An invalid date, such as 0, means already expired.
+      return Math.max( 0, parseDate( expires ) - date );
+    }
+    long lastModified = parseDate( response.getHeader( LAST_MODIFIED ) );
+    if( lastModified >= 0 && lastModified < date ) {
+      return Math.min( ( date - lastModified ) / 10, MAX_HEURISTIC_LIFETIME );
+    }
+    return 0;
+  }
+
+  private static Collection<String> list( Collection<String> values ) {
+    return values == null ? Collections.emptyList() : values;
+  }
+
+  private static Collection<String> list( Enumeration<String> values ) {
+    return values == null ? Collections.emptyList() : Collections.list( values );
+  }
+
+  private static boolean hasDirective( Collection<String> values, String directive ) {
+    return getDirective( values, directive ) != null;
+  }
+
+  private static long getSeconds( Collection<String> values, String directive ) {
+    String value = getDirective( values, directive );
+    if( value == null ) {
+      return -1;
+    }
+    try {
+      return Long.parseLong( value.startsWith( "\"" ) ? value.substring( 1, value.length() - 1 ) : value );
+    } catch( NumberFormatException | StringIndexOutOfBoundsException e ) {
+      return 0;
+    }
+  }
+
+  /* Returns the argument of a directive, an empty string if it has none, or null if it is absent. */
+  private static String getDirective( Collection<String> values, String directive ) {
+    for( String value : values ) {
+      for( String element : value.split( "," ) ) {
+        element = element.trim();
+        int equals = element.indexOf( '=' );
+        String name = equals < 0 ? element : element.substring( 0, equals ).trim();
+        if( name.equalsIgnoreCase( directive ) ) {
+          return equals < 0 ? "" : element.substring( equals + 1 ).trim();
+        }
+      }
+    }
+    return null;
+  }
+
+  private static long parseDate( String value ) {
+    if( value == null ) {
+      return -1;
+    }
+    try {
+      return ZonedDateTime.parse( value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME ).toInstant().toEpochMilli();
+    } catch( DateTimeParseException e ) {
+      return -1;
+    }
+  }
+
+  private static boolean isCachedMimeType( String contentType ) {
+    if( contentType == null ) {
+      return false;
+    }
+    int semicolon = contentType.indexOf( ';' );
+    String mimeType = semicolon < 0 ? contentType : contentType.substring( 0, semicolon );
+    return CACHED_MIME_TYPES.contains( mimeType.trim().toLowerCase( Locale.ROOT ) );
+  }
+
+  static final class Entry {
+    final String contentType;
+    final List<String> headers;
+    final String etag;
+    final long lastModified;
+    final long stored;
+    final long expires;
+    final byte[] body;
+    final Path file;
+    final int size;
+
+    Entry( String contentType, List<String> headers, String etag, long lastModified, long stored, long expires ) {
+      this( contentType, headers, etag, lastModified, stored, expires, null, null, 0 );
+    }
+
+    private Entry( String contentType, List<String> headers, String etag, long lastModified, long stored, long expires,
+        byte[] body, Path file, int size ) {
+      this.contentType = contentType;
+      this.headers = headers;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.stored = stored;
+      this.expires = expires;
+      this.body = body;
+      this.file = file;
+      this.size = size;
+    }
+
+    Entry withBody( byte[] body ) {
+      return new Entry( contentType, headers, etag, lastModified, stored, expires, body, null, body.length );
+    }
+
+    Entry withFile( Path file ) {
+      return new Entry( contentType, headers, etag, lastModified, stored, expires, null, file, size );
+    }
+  }
+
+  /**
+   * Passes a rewritten body through to the client while keeping a copy of it, which is stored once the
+   * whole body has been written. A body larger than the largest entry is passed through only.
+   */
+  public final class Capture extends FilterOutputStream {
+    private final String key;
+    private final Entry entry;
+    private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+    Capture( String key, Entry entry, OutputStream output ) {
+      super( output );
+      this.key = key;
+      this.entry = entry;
+    }
+
+    @Override
+    public void write( int b ) throws IOException {
+      out.write( b );
+      if( keep( 1 ) ) {
+        copy.write( b );
+      }
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len ) throws IOException {
+      out.write( b, off, len );
+      if( keep( len ) ) {
+        copy.write( b, off, len );
+      }
+    }
+
+    private boolean keep( int len ) {
+      if( copy != null && copy.size() + len > maxEntrySize ) {
+        copy = null;
+      }
+      return copy != null;
+    }
+
+    /**
+     * Stores the captured body, to be called once the whole body has been written successfully.
+     */
+    public void commit() {
+      if( copy != null ) {
+        put( key, entry.withBody( copy.toByteArray() ) );
+        copy = null;
+      }
+    }
+  }
+}
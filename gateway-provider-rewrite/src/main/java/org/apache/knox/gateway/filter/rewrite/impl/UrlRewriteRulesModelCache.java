@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl;
+
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Gateway wide cache of the rewrite rules descriptors of the deployed topologies.
+ * <p>
+ * Topologies that include the same service definitions are deployed with identical rules descriptors, so
+ * a descriptor is identified by a digest of its content and parsed only once however many topologies use
+ * it. The parsed descriptor, including the templates of its rules, match and rewrite steps and the compiled
+ * selectors of its filters, is shared by all of them and must not be modified. So no template or regex is
+ * parsed again for another topology. The compiled rules are not shared though: the rewrite processor, the URL
+ * template matchers built from the rules and the rule, step and function processors are still built for
+ * every topology, as step and function processors may be bound to the environment of the topology, e.g. the
+ * cluster name and crypto service of encrypt-uri. A descriptor is dropped once the last topology using it
+ * releases it.
+ */
+public class UrlRewriteRulesModelCache {
+  private static final UrlRewriteRulesModelCache INSTANCE = new UrlRewriteRulesModelCache();
+
+  private final Map<String,Entry> entries = new HashMap<>();
+  private final Map<UrlRewriteRulesDescriptor,Entry> descriptors = new IdentityHashMap<>();
+
+  public static UrlRewriteRulesModelCache getInstance() {
+    return INSTANCE;
+  }
+
+  /* Visible for testing; everything else should share the gateway wide instance */
+  UrlRewriteRulesModelCache() {
+  }
+
+  /**
+   * Returns the descriptor for the given XML content, parsing it only if no deployed topology uses the same
+   * content yet. Every call must be matched by a call to {@link #release(UrlRewriteRulesDescriptor)}.
+   */
+  public UrlRewriteRulesDescriptor acquire( byte[] content ) throws IOException {
+    String key = digest( content );
+    synchronized( this ) {
+      Entry entry = entries.get( key );
+      if( entry != null ) {
+        entry.references++;
+        return entry.descriptor;
+      }
+    }
+    // Parse outside the lock so topologies deployed at the same time with other rules are not held up.
+    UrlRewriteRulesDescriptor descriptor;
+    try( Reader reader = new InputStreamReader( new ByteArrayInputStream( content ), StandardCharsets.UTF_8 ) ) {
+      descriptor = UrlRewriteRulesDescriptorFactory.load( "xml", reader );
+    }
+    synchronized( this ) {
+      Entry entry = entries.get( key );
+      if( entry == null ) {
+        entry = new Entry( key, descriptor );
+        entries.put( key, entry );
+        descriptors.put( descriptor, entry );
+      }
+      entry.references++;
+      return entry.descriptor;
+    }
+  }
+
+  public synchronized void release( UrlRewriteRulesDescriptor descriptor ) {
+    Entry entry = descriptors.get( descriptor );
+    if( entry != null && --entry.references == 0 ) {
+      entries.remove( entry.key );
+      descriptors.remove( descriptor );
+    }
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  private static String digest( byte[] content ) {
+    try {
+      return Base64.getEncoder().encodeToString( MessageDigest.getInstance( "SHA-256" ).digest( content ) );
+    } catch( NoSuchAlgorithmException e ) {
+      // Every Java platform is required to support SHA-256.
+      throw new IllegalStateException( e );
+    }
+  }
+
+  private static final class Entry {
+    private final String key;
+    private final UrlRewriteRulesDescriptor descriptor;
+    private int references;
+
+    Entry( String key, UrlRewriteRulesDescriptor descriptor ) {
+      this.key = key;
+      this.descriptor = descriptor;
+    }
+  }
+
+}
@@ -0,0 +1,415 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl;
+
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterApplyDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterPathDescriptor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the matches of all the apply selectors of a content descriptor in a single pass over free
+ * form content such as JavaScript or CSS.
+ * <p>
+ * Expressions starting with a literal are located with an Aho-Corasick automaton built over those
+ * literals and each hit is confirmed by matching the expression anchored at the hit, the remaining
+ * expressions are searched for directly. The leftmost match wins, the first declared selector if several
+ * start at the same position, and the replacement is not scanned again. Content is read through a bounded
+ * window, so a match can be at most {@link #MAX_MATCH} characters long, and unmatched regions are copied
+ * to the output in bulk. The window keeps up to {@link #MAX_MATCH} characters of the content already
+ * written, so lookbehinds and anchors behave as if the whole content had been matched at once.
+ */
+public class UrlRewriteScanner {
+
+  static final int MAX_MATCH = 4096;
+  /* carried over context, new content, and the look ahead held back for matches that may continue */
+  private static final int WINDOW = 4 * MAX_MATCH;
+  private static final int NONE = -1;
+  private static final int UNKNOWN = -2;
+  private static final String META_CHARS = "\\[](){}.*+?^$|";
+  private static final String OPTIONAL_QUANTIFIERS = "?*{";
+
+  private final UrlRewriteFilterReader filterReader;
+  private final String[] rules;
+  private final Matcher[] matchers;
+  private final int[] literalLengths;
+  private final int[] searched;
+  private final Automaton automaton;
+  private final int[] nextStart;
+  private final int[] nextEnd;
+  private char[] buffer;
+  private int pos;
+  private int limit;
+  private boolean eof;
+  private int matchStart;
+  private int matchEnd;
+
+  public UrlRewriteScanner( UrlRewriteFilterContentDescriptor config, UrlRewriteFilterReader filterReader,
+                            UrlRewriteFilterPathDescriptor.Compiler<Pattern> regexCompiler ) {
+    this.filterReader = filterReader;
+    List<UrlRewriteFilterApplyDescriptor> applies = new ArrayList<>();
+    if( config != null ) {
+      for( UrlRewriteFilterPathDescriptor<?> selector : config.getSelectors() ) {
+        if( selector instanceof UrlRewriteFilterApplyDescriptor ) {
+          applies.add( (UrlRewriteFilterApplyDescriptor)selector );
+        }
+      }
+    }
+    rules = new String[ applies.size() ];
+    matchers = new Matcher[ applies.size() ];
+    literalLengths = new int[ applies.size() ];
+    String[] literals = new String[ applies.size() ];
+    List<Integer> unprefixed = new ArrayList<>();
+    for( int i = 0; i < applies.size(); i++ ) {
+      UrlRewriteFilterApplyDescriptor apply = applies.get( i );
+      Pattern pattern = apply.compiledPath( regexCompiler );
+      rules[ i ] = apply.rule();
+      matchers[ i ] = pattern.matcher( "" ).useTransparentBounds( true ).useAnchoringBounds( false );
+      literals[ i ] = literalPrefix( pattern );
+      literalLengths[ i ] = literals[ i ].length();
+      if( literals[ i ].isEmpty() ) {
+        unprefixed.add( i );
+      }
+    }
+    searched = new int[ unprefixed.size() ];
+    for( int i = 0; i < searched.length; i++ ) {
+      searched[ i ] = unprefixed.get( i );
+    }
+    automaton = searched.length < literals.length ? new Automaton( literals ) : null;
+    nextStart = new int[ applies.size() ];
+    nextEnd = new int[ applies.size() ];
+  }
+
+  public boolean isEmpty() {
+    return matchers.length == 0;
+  }
+
+  /**
+   * Rewrites a complete value, for example the text of an inline script.
+   */
+  public String scan( String value ) {
+    if( isEmpty() || value.isEmpty() ) {
+      return value;
+    }
+    buffer = value.toCharArray();
+    pos = 0;
+    limit = buffer.length;
+    eof = true;
+    reset();
+    StringBuilder output = new StringBuilder( value.length() + 64 );
+    process( output, limit );
+    return output.toString();
+  }
+
+  /**
+   * Reads the next window of the content and appends everything that can be rewritten without reading
+   * further to the output.
+   *
+   * @return <code>false</code> once the content has been read and written completely
+   */
+  public boolean scan( Reader reader, StringBuilder output ) throws IOException {
+    if( buffer == null ) {
+      buffer = new char[ WINDOW ];
+    } else if( eof && pos >= limit ) {
+      return false;
+    }
+    fill( reader );
+    if( isEmpty() ) {
+      output.append( buffer, pos, limit - pos );
+      pos = limit;
+    } else {
+      process( output, eof ? limit : limit - MAX_MATCH );
+    }
+    return pos < limit || !eof;
+  }
+
+  private void fill( Reader reader ) throws IOException {
+    if( eof ) {
+      return;
+    }
+    /*
+     * Up to MAX_MATCH characters that have already been written are carried over in front of pos, so that
+     * lookbehinds and boundaries see the content that actually precedes the next match. Index 0 is the start
+     * of the content until it is dropped here; from then on at least one carried character precedes pos,
+     * so ^ (which matches at index 0 only as the anchoring bounds are not used) can no longer match there.
+     */
+    int carried = Math.min( pos, MAX_MATCH );
+    int dropped = pos - carried;
+    if( dropped > 0 ) {
+      System.arraycopy( buffer, dropped, buffer, 0, limit - dropped );
+      limit -= dropped;
+      pos = carried;
+    }
+    while( limit < buffer.length ) {
+      int count = reader.read( buffer, limit, buffer.length - limit );
+      if( count < 0 ) {
+        eof = true;
+        break;
+      }
+      limit += count;
+    }
+    reset();
+  }
+
+  private void reset() {
+    CharBuffer input = CharBuffer.wrap( buffer, 0, limit );
+    for( Matcher matcher : matchers ) {
+      matcher.reset( input );
+    }
+    Arrays.fill( nextStart, UNKNOWN );
+  }
+
+  /*
+   * Writes out the content up to the given position, rewriting every match that starts before it.
+   */
+  private void process( StringBuilder output, int end ) {
+    while( pos < end ) {
+      int match = nextMatch( end );
+      if( match == NONE ) {
+        break;
+      }
+      output.append( buffer, pos, matchStart - pos );
+      String value = new String( buffer, matchStart, matchEnd - matchStart );
+      String filtered = filterReader.filterValueString( null, value, rules[ match ] );
+      output.append( filtered == null ? value : filtered );
+      pos = matchEnd;
+      if( matchEnd == matchStart && pos < limit ) {
+        output.append( buffer[ pos++ ] );
+      }
+    }
+    if( pos < end ) {
+      output.append( buffer, pos, end - pos );
+      pos = end;
+    }
+  }
+
+  /*
+   * Finds the leftmost match starting at or after pos and before the given position.
+   */
+  private int nextMatch( int end ) {
+    int best = NONE;
+    matchStart = Integer.MAX_VALUE;
+    for( int index : searched ) {
+      if( nextStart[ index ] == UNKNOWN || ( nextStart[ index ] >= 0 && nextStart[ index ] < pos ) ) {
+        Matcher matcher = matchers[ index ];
+        matcher.region( pos, limit );
+        if( matcher.find() ) {
+          nextStart[ index ] = matcher.start();
+          nextEnd[ index ] = matcher.end();
+        } else {
+          nextStart[ index ] = NONE;
+        }
+      }
+      if( nextStart[ index ] >= 0 && nextStart[ index ] < end && nextStart[ index ] < matchStart ) {
+        best = index;
+        matchStart = nextStart[ index ];
+        matchEnd = nextEnd[ index ];
+      }
+    }
+    if( automaton != null ) {
+      int state = 0;
+      int scanEnd = best == NONE ? limit : Math.min( limit, matchStart + automaton.maxLength );
+      for( int i = pos; i < scanEnd; i++ ) {
+        state = automaton.next( state, buffer[ i ] );
+        for( int index : automaton.outputs[ state ] ) {
+          int start = i + 1 - literalLengths[ index ];
+          if( start >= end || start > matchStart || ( start == matchStart && index > best ) ) {
+            continue;
+          }
+          Matcher matcher = matchers[ index ];
+          matcher.region( start, limit );
+          if( matcher.lookingAt() ) {
+            best = index;
+            matchStart = start;
+            matchEnd = matcher.end();
+            scanEnd = Math.min( scanEnd, start + automaton.maxLength );
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  /*
+   * Returns the literal every match of the expression has to start with, or an empty string if that
+   * cannot be told without a full parse of the expression.
+   */
+  static String literalPrefix( Pattern pattern ) {
+    String expression = pattern.pattern();
+    if( pattern.flags() != 0 || hasTopLevelAlternation( expression ) ) {
+      return "";
+    }
+    StringBuilder literal = new StringBuilder();
+    int i = 0;
+    while( i < expression.length() ) {
+      char c = expression.charAt( i );
+      int next = i + 1;
+      if( c == '\\' ) {
+        if( next >= expression.length() || Character.isLetterOrDigit( expression.charAt( next ) ) ) {
+          break;
+        }
+        c = expression.charAt( next++ );
+      } else if( META_CHARS.indexOf( c ) >= 0 ) {
+        break;
+      }
+      if( next < expression.length() && OPTIONAL_QUANTIFIERS.indexOf( expression.charAt( next ) ) >= 0 ) {
+        break;
+      }
+      literal.append( c );
+      i = next;
+    }
+    return literal.toString();
+  }
+
+  private static boolean hasTopLevelAlternation( String expression ) {
+    int depth = 0;
+    boolean inClass = false;
+    for( int i = 0; i < expression.length(); i++ ) {
+      char c = expression.charAt( i );
+      if( c == '\\' ) {
+        i++;
+      } else if( inClass ) {
+        inClass = c != ']';
+      } else if( c == '[' ) {
+        inClass = true;
+      } else if( c == '(' ) {
+        depth++;
+      } else if( c == ')' ) {
+        depth--;
+      } else if( c == '|' && depth == 0 ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Aho-Corasick automaton over the literal prefixes, compiled into a transition table over the
+   * characters that occur in them. The outputs of a state are the selectors whose literal ends there.
+   */
+  private static class Automaton {
+    private static final int[] NO_OUTPUT = new int[ 0 ];
+
+    private final char[] alphabet;
+    private final int[] ascii = new int[ 128 ];
+    private final int width;
+    private final int[] transitions;
+    private final int[][] outputs;
+    private final int maxLength;
+
+    Automaton( String[] literals ) {
+      TreeSet<Character> chars = new TreeSet<>();
+      int size = 1;
+      int longest = 0;
+      for( String literal : literals ) {
+        for( int i = 0; i < literal.length(); i++ ) {
+          chars.add( literal.charAt( i ) );
+        }
+        size += literal.length();
+        longest = Math.max( longest, literal.length() );
+      }
+      alphabet = new char[ chars.size() ];
+      int n = 0;
+      for( Character c : chars ) {
+        alphabet[ n++ ] = c;
+      }
+      for( int i = 0; i < alphabet.length && alphabet[ i ] < ascii.length; i++ ) {
+        ascii[ alphabet[ i ] ] = i + 1;
+      }
+      width = alphabet.length + 1;
+      maxLength = longest;
+
+      int[] table = new int[ size * width ];
+      Arrays.fill( table, NONE );
+      List<List<Integer>> found = new ArrayList<>();
+      found.add( new ArrayList<>() );
+      int states = 1;
+      for( int index = 0; index < literals.length; index++ ) {
+        int state = 0;
+        for( int i = 0; i < literals[ index ].length(); i++ ) {
+          int slot = state * width + symbol( literals[ index ].charAt( i ) );
+          if( table[ slot ] == NONE ) {
+            table[ slot ] = states++;
+            found.add( new ArrayList<>() );
+          }
+          state = table[ slot ];
+        }
+        if( !literals[ index ].isEmpty() ) {
+          found.get( state ).add( index );
+        }
+      }
+
+      /* breadth first, so the failure state of every state is complete before the state itself */
+      int[] failure = new int[ states ];
+      int[] queue = new int[ states ];
+      int head = 0;
+      int tail = 0;
+      for( int s = 0; s < width; s++ ) {
+        if( table[ s ] == NONE ) {
+          table[ s ] = 0;
+        } else {
+          failure[ table[ s ] ] = 0;
+          queue[ tail++ ] = table[ s ];
+        }
+      }
+      while( head < tail ) {
+        int state = queue[ head++ ];
+        found.get( state ).addAll( found.get( failure[ state ] ) );
+        for( int s = 0; s < width; s++ ) {
+          int slot = state * width + s;
+          int fallback = table[ failure[ state ] * width + s ];
+          if( table[ slot ] == NONE ) {
+            table[ slot ] = fallback;
+          } else {
+            failure[ table[ slot ] ] = fallback;
+            queue[ tail++ ] = table[ slot ];
+          }
+        }
+      }
+
+      transitions = Arrays.copyOf( table, states * width );
+      outputs = new int[ states ][];
+      for( int state = 0; state < states; state++ ) {
+        List<Integer> indexes = found.get( state );
+        outputs[ state ] = indexes.isEmpty() ? NO_OUTPUT : indexes.stream().mapToInt( Integer::intValue ).toArray();
+      }
+    }
+
+    int next( int state, char c ) {
+      return transitions[ state * width + symbol( c ) ];
+    }
+
+    private int symbol( char c ) {
+      if( c < ascii.length ) {
+        return ascii[ c ];
+      }
+      int index = Arrays.binarySearch( alphabet, c );
+      return index < 0 ? 0 : index + 1;
+    }
+  }
+
+}
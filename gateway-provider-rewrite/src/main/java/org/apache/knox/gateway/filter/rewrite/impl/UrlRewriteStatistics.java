@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Gateway wide statistics of the rewrite rules and stream filters of the topologies that are profiled.
+ * <p>
+ * Every invocation of a rule counts as an attempt, and as a hit if the rule rewrote the URL. The time
+ * spent and the size of the output are only measured for one in a configurable number of invocations
+ * and are extrapolated from those samples, which keeps the overhead of profiling to a couple of counter
+ * increments per rewritten URL. Stream filters are measured for every body they rewrite.
+ */
+public class UrlRewriteStatistics implements MetricSet {
+  private static final UrlRewriteStatistics INSTANCE = new UrlRewriteStatistics();
+
+  static final String METRICS_PREFIX = "rewrite";
+
+  private final ConcurrentMap<String,Topology> topologies = new ConcurrentHashMap<>();
+
+  public static UrlRewriteStatistics getInstance() {
+    return INSTANCE;
+  }
+
+  /* Visible for testing; everything else should share the gateway wide instance */
+  UrlRewriteStatistics() {
+  }
+
+  /**
+   * Starts profiling a topology, replacing the statistics of a previous deployment of it.
+   */
+  public Topology addTopology( String name, int sampleRate ) {
+    Topology topology = new Topology( name, sampleRate );
+    topologies.put( name, topology );
+    return topology;
+  }
+
+  /**
+   * @return the statistics of the topology, or <code>null</code> if it is not profiled
+   */
+  public Topology getTopology( String name ) {
+    return name == null ? null : topologies.get( name );
+  }
+
+  public void removeTopology( String name, Topology topology ) {
+    topologies.remove( name, topology );
+  }
+
+  public Collection<Topology> getTopologies() {
+    return new ArrayList<>( topologies.values() );
+  }
+
+  @Override
+  public Map<String,Metric> getMetrics() {
+    final Map<String,Metric> metrics = new HashMap<>();
+    metrics.put( MetricRegistry.name( METRICS_PREFIX, "rules" ), (Gauge<Long>)() -> sumRules( rule -> 1 ) );
+    metrics.put( MetricRegistry.name( METRICS_PREFIX, "rules", "unused" ),
+        (Gauge<Long>)() -> sumRules( rule -> rule.getHits() == 0 ? 1 : 0 ) );
+    metrics.put( MetricRegistry.name( METRICS_PREFIX, "attempts" ), (Gauge<Long>)() -> sumRules( Rule::getAttempts ) );
+    metrics.put( MetricRegistry.name( METRICS_PREFIX, "hits" ), (Gauge<Long>)() -> sumRules( Rule::getHits ) );
+    metrics.put( MetricRegistry.name( METRICS_PREFIX, "time-ms" ),
+        (Gauge<Long>)() -> TimeUnit.NANOSECONDS.toMillis( sumRules( Rule::getEstimatedNanos ) ) );
+    metrics.put( MetricRegistry.name( METRICS_PREFIX, "stream", "bodies" ), (Gauge<Long>)() -> sumStreams( Stream::getBodies ) );
+    metrics.put( MetricRegistry.name( METRICS_PREFIX, "stream", "bytes" ), (Gauge<Long>)() -> sumStreams( Stream::getBytes ) );
+    metrics.put( MetricRegistry.name( METRICS_PREFIX, "stream", "time-ms" ),
+        (Gauge<Long>)() -> TimeUnit.NANOSECONDS.toMillis( sumStreams( Stream::getNanos ) ) );
+    return metrics;
+  }
+
+  private long sumRules( ToLongFunction<Rule> value ) {
+    long sum = 0;
+    for( Topology topology : topologies.values() ) {
+      for( Rule rule : topology.rules.values() ) {
+        sum += value.applyAsLong( rule );
+      }
+    }
+    return sum;
+  }
+
+  private long sumStreams( ToLongFunction<Stream> value ) {
+    long sum = 0;
+    for( Topology topology : topologies.values() ) {
+      for( Stream stream : topology.streams.values() ) {
+        sum += value.applyAsLong( stream );
+      }
+    }
+    return sum;
+  }
+
+  public static final class Topology {
+    private final String name;
+    private final int sampleRate;
+    private final ConcurrentMap<String,Rule> rules = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String,Stream> streams = new ConcurrentHashMap<>();
+
+    Topology( String name, int sampleRate ) {
+      this.name = name;
+      this.sampleRate = Math.max( 1, sampleRate );
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public Rule getRule( String ruleName ) {
+      Rule rule = rules.get( ruleName );
+      return rule == null ? rules.computeIfAbsent( ruleName, Rule::new ) : rule;
+    }
+
+    public Stream getStream( String mimeType ) {
+      Stream stream = streams.get( mimeType );
+      return stream == null ? streams.computeIfAbsent( mimeType, Stream::new ) : stream;
+    }
+
+    public List<Rule> getRules() {
+      return new ArrayList<>( rules.values() );
+    }
+
+    public List<Stream> getStreams() {
+      return new ArrayList<>( streams.values() );
+    }
+
+    /**
+     * @return <code>true</code> if the invocation about to start should be measured
+     */
+    public boolean sample() {
+      return sampleRate == 1 || ThreadLocalRandom.current().nextInt( sampleRate ) == 0;
+    }
+  }
+
+  public static final class Rule {
+    private final String name;
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder sampledNanos = new LongAdder();
+    private final LongAdder sampledHits = new LongAdder();
+    private final LongAdder sampledBytes = new LongAdder();
+
+    Rule( String name ) {
+      this.name = name;
+    }
+
+    public void record( boolean hit ) {
+      attempts.increment();
+      if( hit ) {
+        hits.increment();
+      }
+    }
+
+    /**
+     * @param bytes the size of the rewritten URL, only relevant for a hit
+     */
+    public void record( boolean hit, long nanos, long bytes ) {
+      record( hit );
+      samples.increment();
+      sampledNanos.add( nanos );
+      if( hit ) {
+        sampledHits.increment();
+        sampledBytes.add( bytes );
+      }
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getAttempts() {
+      return attempts.sum();
+    }
+
+    public long getHits() {
+      return hits.sum();
+    }
+
+    public long getSamples() {
+      return samples.sum();
+    }
+
+    /**
+     * @return the estimated time spent in all the attempts of the rule
+     */
+    public long getEstimatedNanos() {
+      long sampled = samples.sum();
+      return sampled == 0 ? 0 : sampledNanos.sum() * attempts.sum() / sampled;
+    }
+
+    /**
+     * @return the estimated size of all the URLs the rule rewrote
+     */
+    public long getEstimatedBytes() {
+      long sampled = sampledHits.sum();
+      return sampled == 0 ? 0 : sampledBytes.sum() * hits.sum() / sampled;
+    }
+  }
+
+  public static final class Stream {
+    private final String mimeType;
+    private final LongAdder bodies = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    Stream( String mimeType ) {
+      this.mimeType = mimeType;
+    }
+
+    /**
+     * @param bytes the size of the rewritten body
+     * @param nanos the time from the first to the last byte of the rewritten body
+     */
+    public void record( long bytes, long nanos ) {
+      this.bodies.increment();
+      this.bytes.add( bytes );
+      this.nanos.add( nanos );
+    }
+
+    public String getMimeType() {
+      return mimeType;
+    }
+
+    public long getBodies() {
+      return bodies.sum();
+    }
+
+    public long getBytes() {
+      return bytes.sum();
+    }
+
+    public long getNanos() {
+      return nanos.sum();
+    }
+  }
+}
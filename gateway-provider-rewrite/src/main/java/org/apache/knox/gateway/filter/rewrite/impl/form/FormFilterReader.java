@@ -24,71 +24,116 @@ import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * Filters the values of an application/x-www-form-urlencoded body as it is read.
+ * <p>
+ * Only the values of the pairs selected by the filter configuration are decoded, filtered and, if the
+ * filter changed them, encoded again. Everything else, including the values of the pairs that are not
+ * selected, is copied through exactly as it was received without being buffered.
+ */
 public class FormFilterReader extends Reader {
 
   private static final UrlRewriteMessages LOG = MessagesFactory.get( UrlRewriteMessages.class );
 
   private int offset;
-  private StringWriter writer;
-  private StringBuffer buffer;
+  private StringBuilder buffer;
   private Reader reader;
   private FormReader parser;
-  private FormWriter generator;
   private UrlRewriteFilterContentDescriptor config;
+  private boolean first;
+  private boolean passthrough;
 
   public FormFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException {
     this.reader = reader;
     this.config = config;
     parser = new FormReader( reader );
-    writer = new StringWriter();
-    buffer = writer.getBuffer();
+    buffer = new StringBuilder();
     offset = 0;
-    generator = new FormWriter( writer );
+    first = true;
+    passthrough = false;
   }
 
   @Override
   public int read( char[] destBuffer, int destOffset, int destCount ) throws IOException {
-    int count = 0;
-    int available = buffer.length() - offset;
-
-    if( available == 0 ) {
-      FormPair pair = parser.getNextPair();
-      if( pair == null ) {
-        count = -1;
-      } else {
-        processPair();
-        available = buffer.length() - offset;
+    if( destCount == 0 ) {
+      return 0;
+    }
+    while( true ) {
+      int available = buffer.length() - offset;
+      if( available > 0 ) {
+        int count = Math.min( destCount, available );
+        buffer.getChars( offset, offset+count, destBuffer, destOffset );
+        offset += count;
+        if( offset == buffer.length() ) {
+          offset = 0;
+          buffer.setLength( 0 );
+        }
+        return count;
+      }
+      if( passthrough ) {
+        int count = parser.readValue( destBuffer, destOffset, destCount );
+        if( count >= 0 ) {
+          return count;
+        }
+        passthrough = false;
+      }
+      if( !processPair() ) {
+        return -1;
       }
     }
+  }
 
-    if( available > 0 ) {
-      count = Math.min( destCount, available );
-      buffer.getChars( offset, offset+count, destBuffer, destOffset );
-      offset += count;
-      if( offset == buffer.length() ) {
-        offset = 0;
-        buffer.setLength( 0 );
+  private boolean processPair() throws IOException {
+    String encodedName = parser.readName();
+    if( encodedName == null ) {
+      return false;
+    }
+    if( first ) {
+      first = false;
+    } else {
+      buffer.append( '&' );
+    }
+    buffer.append( encodedName );
+    if( parser.hasValue() ) {
+      buffer.append( '=' );
+      String name = decode( encodedName );
+      String rule = name == null ? "" : UrlRewriteUtil.pickFirstRuleWithEqualsIgnoreCasePathMatch( config, name );
+      // An apply without a rule (null) leaves the pick of the rule to the rewriter.
+      if( rule != null && rule.isEmpty() ) {
+        // No rule applies to the value so copy it through as it is read.
+        passthrough = true;
+      } else {
+        buffer.append( processValue( name, parser.readValue(), rule ) );
       }
     }
-
-    return count;
+    return true;
   }
 
-  private void processPair() throws IOException {
-    FormPair pair = parser.getCurrentPair();
-    String name = pair.getName();
-    String value;
-    String rule = UrlRewriteUtil.pickFirstRuleWithEqualsIgnoreCasePathMatch( config, name );
+  private String processValue( String name, String encodedValue, String rule ) {
     try {
-      value = filterValue( name, pair.getValue(), rule );
-      pair.setValue( value );
+      String value = URLDecoder.decode( encodedValue, StandardCharsets.UTF_8.name() );
+      String filteredValue = filterValue( name, value, rule );
+      if( !value.equals( filteredValue ) ) {
+        return URLEncoder.encode( filteredValue, StandardCharsets.UTF_8.name() );
+      }
     } catch( Exception e ) {
-      LOG.failedToFilterValue( pair.getValue(), rule, e );
+      LOG.failedToFilterValue( encodedValue, rule, e );
       // Write original value.
     }
-    generator.writePair( pair );
+    return encodedValue;
+  }
+
+  private static String decode( String encoded ) {
+    try {
+      return URLDecoder.decode( encoded, StandardCharsets.UTF_8.name() );
+    } catch( IllegalArgumentException | UnsupportedEncodingException e ) {
+      return null;
+    }
   }
 
   protected String filterValue( String name, String value, String rule ) {
@@ -97,9 +142,7 @@ public class FormFilterReader extends Reader {
 
   @Override
   public void close() throws IOException {
-    writer.close();
     reader.close();
   }
 
 }
-
@@ -19,77 +19,170 @@ package org.apache.knox.gateway.filter.rewrite.impl.form;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 
+/**
+ * Tokenizes an application/x-www-form-urlencoded body.
+ * <p>
+ * The body can either be read as decoded pairs with {@link #getNextPair()}, or token by token in its
+ * encoded form with {@link #readName()} and {@link #readValue(char[], int, int)}, which lets a caller
+ * copy a value through without ever holding all of it in memory.
+ */
 public class FormReader {
 
-  private static final int DEFAULT_BUFFER_SIZE = 1024;
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
 
-  private Reader reader;
+  private final Reader reader;
+  private final char[] chars;
+  private int position;
+  private int limit;
+  private boolean ended;
+  private boolean hasValue;
+  private boolean valuePending;
   private FormPair current;
-  private StringBuilder buffer;
-  private int sepIndex;
 
   public FormReader( Reader reader ) {
     this.reader = reader;
+    this.chars = new char[ DEFAULT_BUFFER_SIZE ];
+    this.position = 0;
+    this.limit = 0;
+    this.ended = false;
     this.current = null;
-    this.buffer = new StringBuilder( DEFAULT_BUFFER_SIZE );
-    this.sepIndex = -1;
   }
 
   public FormPair getNextPair() throws IOException {
     while( true ) {
-      int c = reader.read();
+      String name = readName();
+      if( name == null ) {
+        return null;
+      }
+      String value = hasValue ? readValue() : "";
+      // Ignore adjacent &s.
+      if( !name.isEmpty() || !value.isEmpty() ) {
+        current = new FormPair(
+            URLDecoder.decode( name, StandardCharsets.UTF_8.name() ),
+            URLDecoder.decode( value, StandardCharsets.UTF_8.name() ) );
+        return current;
+      }
+    }
+  }
+
+  public FormPair getCurrentPair() {
+    return current;
+  }
+
+  /**
+   * Reads the still encoded name of the next pair. Any part of the value of the previous pair that
+   * has not been read is skipped.
+   *
+   * @return the name, which is empty for an empty pair, or <code>null</code> once the body is exhausted
+   */
+  public String readName() throws IOException {
+    skipValue();
+    if( ended ) {
+      return null;
+    }
+    StringBuilder name = new StringBuilder();
+    hasValue = false;
+    while( true ) {
+      int c = next();
       switch( c ) {
-        case '=':
-          sepIndex = buffer.length();
-          break;
-        case '&':
-          // Ignore adjacent &s.
-          if( buffer.length() == 0 ) {
-            sepIndex = -1;
-            continue;
-          } else {
-            return createCurrentPair();
-          }
         case -1:
-          // Ignore adjacent &s.
-          if( buffer.length() == 0 ) {
-            sepIndex = -1;
-            return null;
-          } else {
-            return createCurrentPair();
-          }
+          ended = true;
+          return name.toString();
+        case '&':
+          return name.toString();
+        case '=':
+          hasValue = true;
+          valuePending = true;
+          return name.toString();
         default:
-          buffer.append( (char)c );
+          name.append( (char)c );
           break;
       }
     }
   }
 
-  private FormPair createCurrentPair() throws UnsupportedEncodingException {
-    String name;
-    String value;
-    if( sepIndex >= 0 ) {
-      name = buffer.substring( 0, sepIndex );
-      value = buffer.substring( sepIndex );
-    } else {
-      name = buffer.toString();
-      value = "";
+  /**
+   * @return <code>true</code> if the name last read was followed by a value, possibly an empty one
+   */
+  public boolean hasValue() {
+    return hasValue;
+  }
+
+  /**
+   * Copies the next chunk of the still encoded value of the current pair.
+   *
+   * @return the number of characters copied, or -1 once the value is exhausted
+   */
+  public int readValue( char[] buffer, int offset, int count ) throws IOException {
+    if( !valuePending || count == 0 ) {
+      return valuePending ? 0 : -1;
+    }
+    if( position == limit && !fill() ) {
+      valuePending = false;
+      ended = true;
+      return -1;
+    }
+    int end = Math.min( limit, position + count );
+    int stop = position;
+    while( stop < end && chars[ stop ] != '&' ) {
+      stop++;
     }
-    name = URLDecoder.decode( name, StandardCharsets.UTF_8.name() );
-    value = URLDecoder.decode( value, StandardCharsets.UTF_8.name() );
-    FormPair pair = new FormPair( name, value );
-    current = pair;
-    buffer.setLength( 0 );
-    sepIndex = -1;
-    return pair;
+    int copied = stop - position;
+    System.arraycopy( chars, position, buffer, offset, copied );
+    position = stop;
+    if( stop < end ) {
+      // Consume the & ending the pair.
+      position++;
+      valuePending = false;
+      return copied == 0 ? -1 : copied;
+    }
+    return copied;
   }
 
-  public FormPair getCurrentPair() {
-    return current;
+  /**
+   * @return the rest of the still encoded value of the current pair
+   */
+  public String readValue() throws IOException {
+    StringBuilder value = new StringBuilder();
+    char[] chunk = new char[ DEFAULT_BUFFER_SIZE ];
+    int count = readValue( chunk, 0, chunk.length );
+    while( count >= 0 ) {
+      value.append( chunk, 0, count );
+      count = readValue( chunk, 0, chunk.length );
+    }
+    return value.toString();
+  }
+
+  private void skipValue() throws IOException {
+    while( valuePending ) {
+      int c = next();
+      if( c == -1 ) {
+        ended = true;
+        valuePending = false;
+      } else if( c == '&' ) {
+        valuePending = false;
+      }
+    }
+  }
+
+  private int next() throws IOException {
+    if( position == limit && !fill() ) {
+      return -1;
+    }
+    return chars[ position++ ];
+  }
+
+  private boolean fill() throws IOException {
+    int count = 0;
+    while( count == 0 ) {
+      count = reader.read( chars, 0, chars.length );
+    }
+    position = 0;
+    limit = Math.max( count, 0 );
+    return count > 0;
   }
 
 }
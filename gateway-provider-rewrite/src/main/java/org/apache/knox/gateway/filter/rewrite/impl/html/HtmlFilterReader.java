@@ -24,6 +24,7 @@ import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescrip
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Set;
 
 //map.put( "meta", buildTagPattern( ".*url\\s*=\\s*['\"]?(.*?)[;\\s'\"\\/>].*" ) );
 //map.put( "link", buildTagPattern( ".*href\\s*=\\s*['\"]?(.*?)['\"\\>].*" ) );
@@ -44,6 +45,10 @@ public abstract class HtmlFilterReader extends HtmlFilterReaderBase {
     super( reader, config );
   }
 
+  public HtmlFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config, Set<String> urlAttributes ) {
+    super( reader, config, urlAttributes );
+  }
+
   protected abstract String filterAttribute( String tagName, String attributeName, String attributeValue, String ruleName );
 
   protected abstract String filterText( String tagName, String text, String ruleName );
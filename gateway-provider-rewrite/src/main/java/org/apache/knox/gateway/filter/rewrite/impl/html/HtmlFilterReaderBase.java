@@ -29,19 +29,23 @@ import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescrip
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterPathDescriptor;
 import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteMessages;
 import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteFilterReader;
-import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteUtil;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteScanner;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 
+import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -50,6 +54,7 @@ public abstract class HtmlFilterReaderBase extends Reader implements
     UrlRewriteFilterReader {
 
   private static final String SCRIPTTAG = "script";
+  private static final String STYLETAG = "style";
   private static final UrlRewriteFilterPathDescriptor.Compiler<Pattern> REGEX_COMPILER = new RegexCompiler();
 
   private static final UrlRewriteMessages LOG = MessagesFactory.get( UrlRewriteMessages.class );
@@ -63,6 +68,10 @@ public abstract class HtmlFilterReaderBase extends Reader implements
   private StringWriter writer;
   private StringBuffer buffer;
   private UrlRewriteFilterContentDescriptor config;
+  private UrlRewriteScanner scanner;
+  private HtmlTagScanner tagScanner;
+  private Matcher[] scannedMatchers;
+  private String[] scannedRules;
 
   protected HtmlFilterReaderBase( Reader reader ) throws IOException {
     this.reader = reader;
@@ -79,12 +88,27 @@ public abstract class HtmlFilterReaderBase extends Reader implements
     this.config = config;
   }
 
+  /**
+   * Creates a reader that streams the document through an {@link HtmlTagScanner} instead of parsing it.
+   * Only the values of the given URL attributes are always filtered. The values of other attributes and
+   * the content of script and style elements are only filtered when a selector of the configuration
+   * applies to them, and other text is never filtered.
+   */
+  protected HtmlFilterReaderBase( Reader reader, UrlRewriteFilterContentDescriptor config, Set<String> urlAttributes ) {
+    this.reader = reader;
+    this.config = config;
+    tagScanner = new HtmlTagScanner( reader, this, urlAttributes, hasSelectors() );
+  }
+
   protected abstract String filterAttribute( QName elementName, QName attributeName, String attributeValue, String ruleName );
 
   protected abstract String filterText( QName elementName, String text, String ruleName );
 
   @Override
   public int read( char[] destBuffer, int destOffset, int destCount ) throws IOException {
+    if( tagScanner != null ) {
+      return tagScanner.read( destBuffer, destOffset, destCount );
+    }
     int count = 0;
     int available = buffer.length() - offset;
 
@@ -191,8 +215,8 @@ public abstract class HtmlFilterReaderBase extends Reader implements
     }
   }
 
-  private String getRuleName(String inputValue) {
-    if( config != null && !config.getSelectors().isEmpty() ) {
+  private String getRuleName(CharSequence inputValue) {
+    if( hasSelectors() ) {
       for( UrlRewriteFilterPathDescriptor<?> selector : config.getSelectors() ) {
         if ( selector instanceof UrlRewriteFilterApplyDescriptor) {
           UrlRewriteFilterApplyDescriptor apply = (UrlRewriteFilterApplyDescriptor)selector;
@@ -206,18 +230,32 @@ public abstract class HtmlFilterReaderBase extends Reader implements
       return null;
     }
 
+  private boolean hasSelectors() {
+    return config != null && !config.getSelectors().isEmpty();
+  }
+
   private void processText( Segment segment ) {
     String inputValue = segment.toString();
+    String outputValue = inputValue;
+    if (!stack.isEmpty()) {
+      Level level = stack.peek();
+      outputValue = filterElementText( level.getTag().getName(), level, inputValue );
+    }
+    writer.write( outputValue );
+  }
+
+  private String filterElementText( String tagName, Level level, String inputValue ) {
     String outputValue = inputValue;
     try {
-      if (!stack.isEmpty()) {
-        String tagName = stack.peek().getTag().getName();
-        if (SCRIPTTAG.equals(tagName) && config != null && !config.getSelectors().isEmpty() ) {
-          // embedded javascript content
-          outputValue = UrlRewriteUtil.filterJavaScript( inputValue, config, this, REGEX_COMPILER );
-        } else {
-          outputValue = filterText( stack.peek().getQName(), inputValue, getRuleName(inputValue) );
+      if ((SCRIPTTAG.equals(tagName) || STYLETAG.equals(tagName)) && hasSelectors() ) {
+        // embedded javascript or stylesheet content
+        if( scanner == null ) {
+          scanner = new UrlRewriteScanner( config, this, REGEX_COMPILER );
         }
+        outputValue = scanner.scan( inputValue );
+      } else {
+        QName elementName = level == null ? getScannedQName( tagName ) : level.getQName();
+        outputValue = filterText( elementName, inputValue, getRuleName(inputValue) );
       }
       if( outputValue == null ) {
         outputValue = inputValue;
@@ -225,15 +263,75 @@ public abstract class HtmlFilterReaderBase extends Reader implements
     } catch ( Exception e ) {
       LOG.failedToFilterValue( inputValue, null, e );
     }
-    writer.write( outputValue );
+    return outputValue;
+  }
+
+  /**
+   * Filters the text of an element found by the {@link HtmlTagScanner}.
+   */
+  String filterScannedText( String tagName, String text ) {
+    return filterElementText( tagName, null, text );
+  }
+
+  /**
+   * Matches the raw value of an attribute found by the {@link HtmlTagScanner} against the apply selectors,
+   * reusing one matcher per selector for all the attributes of the document.
+   *
+   * @return the rule of the first selector that matches the value, or <code>null</code> if none does
+   */
+  String getScannedRuleName( CharSequence value ) {
+    if( scannedMatchers == null ) {
+      List<Matcher> matchers = new ArrayList<>();
+      List<String> rules = new ArrayList<>();
+      for( UrlRewriteFilterPathDescriptor<?> selector : config.getSelectors() ) {
+        if( selector instanceof UrlRewriteFilterApplyDescriptor ) {
+          UrlRewriteFilterApplyDescriptor apply = (UrlRewriteFilterApplyDescriptor)selector;
+          matchers.add( apply.compiledPath( REGEX_COMPILER ).matcher( "" ) );
+          rules.add( apply.rule() );
+        }
+      }
+      scannedMatchers = matchers.toArray( new Matcher[ 0 ] );
+      scannedRules = rules.toArray( new String[ 0 ] );
+    }
+    for( int i = 0; i < scannedMatchers.length; i++ ) {
+      if( scannedMatchers[ i ].reset( value ).matches() ) {
+        return scannedRules[ i ];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Filters the raw value of an attribute found by the {@link HtmlTagScanner}.
+   *
+   * @return the new value, or <code>null</code> if the value stays as it is
+   */
+  String filterScannedAttribute( String tagName, String attributeName, String inputValue, String ruleName ) {
+    try {
+      String outputValue = filterAttribute( getScannedQName( tagName ), getScannedQName( attributeName ), inputValue, ruleName );
+      return outputValue == null || outputValue.equals( inputValue ) ? null : outputValue;
+    } catch ( Exception e ) {
+      LOG.failedToFilterAttribute( attributeName, e );
+      return null;
+    }
+  }
+
+  private static QName getScannedQName( String name ) {
+    int colon = name.indexOf( ':' );
+    if( colon > 0 ) {
+      return new QName( XMLConstants.NULL_NS_URI, name.substring( colon + 1 ), name.substring( 0, colon ) );
+    }
+    return new QName( name );
   }
 
   @Override
   public void close() throws IOException {
-    parser.close();
+    if( parser != null ) {
+      parser.close();
+      writer.close();
+      stack.clear();
+    }
     reader.close();
-    writer.close();
-    stack.clear();
   }
 
   private static class Level {
@@ -0,0 +1,475 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl.html;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Streams an HTML document through a reusable char buffer and only hands the pieces that may need
+ * rewriting to the filter reader: the values of URL attributes, the values of other attributes when the
+ * filter has selectors, and the content of script and style elements when the filter has selectors.
+ * <p>
+ * Everything else, text, comments, CDATA sections, declarations, end tags and the rest of every start
+ * tag, is copied to the output exactly as it was read. Attribute values are matched against the selectors
+ * in place, through one reusable matcher per selector, so no objects are created for tags or attributes
+ * that are not rewritten.
+ */
+final class HtmlTagScanner {
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final int LOOKAHEAD = 9; // <![CDATA[
+  // Bounds the tag buffer for tags that never end, e.g. behind an unclosed quote, but leaves room for data URIs.
+  private static final int MAX_TAG_LENGTH = 256 * 1024;
+  private static final String[] RAW_TEXT_ELEMENTS = { "script", "style", "textarea", "title" };
+
+  private final Reader reader;
+  private final HtmlFilterReaderBase filter;
+  private final char[][] urlAttributes;
+  private final boolean filterAllAttributes;
+  private final boolean filterRawText;
+  private final char[] chars;
+  private int position;
+  private int limit;
+  private boolean eof;
+  private boolean finished;
+  private final StringBuilder output;
+  private int outputOffset;
+  private char[] tag;
+  private int tagLength;
+  private String tagName;
+  private String rawTextElement;
+  private boolean rawTextFiltered;
+  private final StringBuilder rawText;
+  private final CharSlice attributeValue = new CharSlice();
+
+  HtmlTagScanner( Reader reader, HtmlFilterReaderBase filter, Set<String> urlAttributes, boolean hasSelectors ) {
+    this.reader = reader;
+    this.filter = filter;
+    this.urlAttributes = new char[ urlAttributes.size() ][];
+    int i = 0;
+    for( String attribute : urlAttributes ) {
+      this.urlAttributes[ i++ ] = attribute.toLowerCase( Locale.ROOT ).toCharArray();
+    }
+    this.filterAllAttributes = hasSelectors;
+    this.filterRawText = hasSelectors;
+    this.chars = new char[ BUFFER_SIZE ];
+    this.output = new StringBuilder( BUFFER_SIZE );
+    this.tag = new char[ 256 ];
+    this.rawText = new StringBuilder();
+  }
+
+  int read( char[] destBuffer, int destOffset, int destCount ) throws IOException {
+    while( outputOffset == output.length() ) {
+      output.setLength( 0 );
+      outputOffset = 0;
+      if( !scan() ) {
+        return -1;
+      }
+    }
+    int count = Math.min( destCount, output.length() - outputOffset );
+    output.getChars( outputOffset, outputOffset + count, destBuffer, destOffset );
+    outputOffset += count;
+    return count;
+  }
+
+  /**
+   * Scans the next piece of the document into the output.
+   *
+   * @return <code>false</code> once the document has been scanned completely
+   */
+  private boolean scan() throws IOException {
+    if( finished ) {
+      return false;
+    }
+    if( position == limit && !fill() ) {
+      // An element whose end tag is missing still gets its content filtered.
+      flushRawText();
+      finished = true;
+      return true;
+    }
+    if( rawTextElement != null ) {
+      scanRawText();
+    } else if( chars[ position ] == '<' ) {
+      scanMarkup();
+    } else {
+      int start = position;
+      while( position < limit && chars[ position ] != '<' ) {
+        position++;
+      }
+      output.append( chars, start, position - start );
+    }
+    return true;
+  }
+
+  private void scanMarkup() throws IOException {
+    ensure( LOOKAHEAD );
+    if( startsWith( "<!--" ) ) {
+      copyThrough( "-->", 4 );
+    } else if( startsWith( "<![CDATA[" ) ) {
+      copyThrough( "]]>", 9 );
+    } else if( startsWith( "<!" ) || startsWith( "<?" ) || ( startsWith( "</" ) && isLetter( 2 ) ) ) {
+      copyThrough( ">", 2 );
+    } else if( isLetter( 1 ) ) {
+      scanStartTag();
+    } else {
+      output.append( '<' );
+      position++;
+    }
+  }
+
+  private void scanStartTag() throws IOException {
+    if( !readTag() ) {
+      // Not a tag that can be rewritten, so it is copied as text and the scan goes on after it.
+      output.append( tag, 0, tagLength );
+      return;
+    }
+    int nameEnd = 1;
+    while( nameEnd < tagLength && !isTagNameEnd( tag[ nameEnd ] ) ) {
+      nameEnd++;
+    }
+    tagName = null;
+    int copied = 0;
+    int index = nameEnd;
+    while( index < tagLength ) {
+      char c = tag[ index ];
+      if( c == '>' ) {
+        break;
+      }
+      if( Character.isWhitespace( c ) || c == '/' ) {
+        index++;
+        continue;
+      }
+      int attributeStart = index;
+      while( index < tagLength && !isAttributeNameEnd( tag[ index ] ) ) {
+        index++;
+      }
+      int attributeEnd = index;
+      index = skipWhitespace( index );
+      if( index >= tagLength || tag[ index ] != '=' ) {
+        continue;
+      }
+      index = skipWhitespace( index + 1 );
+      if( index >= tagLength ) {
+        break;
+      }
+      char quote = tag[ index ];
+      int valueStart;
+      int valueEnd;
+      if( quote == '"' || quote == '\'' ) {
+        valueStart = index + 1;
+        valueEnd = valueStart;
+        while( valueEnd < tagLength && tag[ valueEnd ] != quote ) {
+          valueEnd++;
+        }
+        index = Math.min( valueEnd + 1, tagLength );
+      } else {
+        quote = 0;
+        valueStart = index;
+        valueEnd = index;
+        while( valueEnd < tagLength && !Character.isWhitespace( tag[ valueEnd ] ) && tag[ valueEnd ] != '>' ) {
+          valueEnd++;
+        }
+        index = valueEnd;
+      }
+      boolean urlAttribute = isUrlAttribute( attributeStart, attributeEnd );
+      String ruleName = null;
+      if( filterAllAttributes ) {
+        attributeValue.set( tag, valueStart, valueEnd );
+        ruleName = filter.getScannedRuleName( attributeValue );
+      }
+      if( urlAttribute || ruleName != null ) {
+        String value = filter.filterScannedAttribute( getTagName( nameEnd ),
+            new String( tag, attributeStart, attributeEnd - attributeStart ),
+            new String( tag, valueStart, valueEnd - valueStart ), ruleName );
+        if( value != null ) {
+          output.append( tag, copied, valueStart - copied );
+          if( quote == 0 ) {
+            output.append( '"' ).append( value ).append( '"' );
+          } else {
+            output.append( value );
+          }
+          copied = valueEnd;
+        }
+      }
+    }
+    output.append( tag, copied, tagLength - copied );
+    startRawText( nameEnd );
+  }
+
+  /**
+   * Copies the start tag at the current position, up to and including the closing &gt; that is not part of
+   * a quoted attribute value, into the tag buffer.
+   *
+   * @return <code>false</code> if the tag is longer than {@link #MAX_TAG_LENGTH}, in which case the buffer
+   *         holds its first {@link #MAX_TAG_LENGTH} chars
+   */
+  private boolean readTag() throws IOException {
+    tagLength = 0;
+    char quote = 0;
+    char previous = 0;
+    while( position < limit || fill() ) {
+      if( tagLength == MAX_TAG_LENGTH ) {
+        return false;
+      }
+      char c = chars[ position++ ];
+      if( tagLength == tag.length ) {
+        char[] grown = new char[ Math.min( tag.length * 2, MAX_TAG_LENGTH ) ];
+        System.arraycopy( tag, 0, grown, 0, tagLength );
+        tag = grown;
+      }
+      tag[ tagLength++ ] = c;
+      if( quote != 0 ) {
+        if( c == quote ) {
+          quote = 0;
+        }
+      } else if( c == '>' ) {
+        return true;
+      } else if( ( c == '"' || c == '\'' ) && previous == '=' ) {
+        quote = c;
+      }
+      if( !Character.isWhitespace( c ) ) {
+        previous = c;
+      }
+    }
+    return true;
+  }
+
+  private void startRawText( int nameEnd ) {
+    if( tagLength < 2 || tag[ tagLength - 1 ] != '>' || tag[ tagLength - 2 ] == '/' ) {
+      return;
+    }
+    for( String element : RAW_TEXT_ELEMENTS ) {
+      if( nameEnd - 1 == element.length() && regionMatches( tag, 1, element ) ) {
+        rawTextElement = element;
+        rawTextFiltered = filterRawText && ( "script".equals( element ) || "style".equals( element ) );
+        return;
+      }
+    }
+  }
+
+  private void scanRawText() throws IOException {
+    int start = position;
+    while( position < limit && chars[ position ] != '<' ) {
+      position++;
+    }
+    appendRawText( start, position );
+    if( position == limit ) {
+      return;
+    }
+    ensure( rawTextElement.length() + 3 );
+    if( isEndTag( rawTextElement ) ) {
+      flushRawText();
+      rawTextElement = null;
+    } else {
+      appendRawText( position, position + 1 );
+      position++;
+    }
+  }
+
+  private void appendRawText( int start, int end ) {
+    if( rawTextFiltered ) {
+      rawText.append( chars, start, end - start );
+    } else {
+      output.append( chars, start, end - start );
+    }
+  }
+
+  private void flushRawText() {
+    if( rawText.length() > 0 ) {
+      output.append( filter.filterScannedText( rawTextElement, rawText.toString() ) );
+      rawText.setLength( 0 );
+    }
+  }
+
+  private boolean isEndTag( String name ) {
+    int end = position + 2 + name.length();
+    if( end > limit || chars[ position + 1 ] != '/' || !regionMatches( chars, position + 2, name ) ) {
+      return false;
+    }
+    return end == limit || isTagNameEnd( chars[ end ] );
+  }
+
+  private void copyThrough( String terminator, int skip ) throws IOException {
+    output.append( chars, position, skip );
+    position += skip;
+    int matched = 0;
+    while( position < limit || fill() ) {
+      int start = position;
+      while( position < limit ) {
+        char c = chars[ position++ ];
+        if( c == terminator.charAt( matched ) ) {
+          matched++;
+        } else if( c == terminator.charAt( 0 ) ) {
+          // Only --> and ]]> can restart a partial match, and both repeat their first char.
+          matched = matched == 2 ? 2 : 1;
+        } else {
+          matched = 0;
+        }
+        if( matched == terminator.length() ) {
+          output.append( chars, start, position - start );
+          return;
+        }
+      }
+      output.append( chars, start, position - start );
+    }
+  }
+
+  private String getTagName( int nameEnd ) {
+    if( tagName == null ) {
+      tagName = new String( tag, 1, nameEnd - 1 ).toLowerCase( Locale.ROOT );
+    }
+    return tagName;
+  }
+
+  private boolean isUrlAttribute( int start, int end ) {
+    for( char[] attribute : urlAttributes ) {
+      if( attribute.length == end - start && regionMatches( tag, start, attribute ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int skipWhitespace( int index ) {
+    while( index < tagLength && Character.isWhitespace( tag[ index ] ) ) {
+      index++;
+    }
+    return index;
+  }
+
+  private boolean startsWith( String prefix ) {
+    if( limit - position < prefix.length() ) {
+      return false;
+    }
+    for( int i = 0; i < prefix.length(); i++ ) {
+      if( chars[ position + i ] != prefix.charAt( i ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isLetter( int offset ) {
+    return position + offset < limit && Character.isLetter( chars[ position + offset ] );
+  }
+
+  private static boolean isTagNameEnd( char c ) {
+    return Character.isWhitespace( c ) || c == '/' || c == '>';
+  }
+
+  private static boolean isAttributeNameEnd( char c ) {
+    return Character.isWhitespace( c ) || c == '=' || c == '/' || c == '>';
+  }
+
+  /* Compares case insensitively against a lower case name. */
+  private static boolean regionMatches( char[] source, int offset, String name ) {
+    for( int i = 0; i < name.length(); i++ ) {
+      if( Character.toLowerCase( source[ offset + i ] ) != name.charAt( i ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean regionMatches( char[] source, int offset, char[] name ) {
+    for( int i = 0; i < name.length; i++ ) {
+      if( Character.toLowerCase( source[ offset + i ] ) != name[ i ] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Makes at least <code>count</code> chars available from the current position, unless the document ends
+   * first. Everything before the current position must already have been consumed.
+   */
+  private void ensure( int count ) throws IOException {
+    if( limit - position >= count || eof ) {
+      return;
+    }
+    System.arraycopy( chars, position, chars, 0, limit - position );
+    limit -= position;
+    position = 0;
+    while( limit < count ) {
+      int read = reader.read( chars, limit, chars.length - limit );
+      if( read < 0 ) {
+        eof = true;
+        return;
+      }
+      limit += read;
+    }
+  }
+
+  private boolean fill() throws IOException {
+    if( eof ) {
+      return false;
+    }
+    position = 0;
+    limit = 0;
+    while( limit == 0 ) {
+      int read = reader.read( chars, 0, chars.length );
+      if( read < 0 ) {
+        eof = true;
+        return false;
+      }
+      limit = read;
+    }
+    return true;
+  }
+
+
+  /*
+   * A view of a range of the tag buffer, so that attribute values are matched against the selectors
+   * without being copied.
+   */
+  private static final class CharSlice implements CharSequence {
+    private char[] chars;
+    private int start;
+    private int end;
+
+    void set( char[] chars, int start, int end ) {
+      this.chars = chars;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt( int index ) {
+      return chars[ start + index ];
+    }
+
+    @Override
+    public CharSequence subSequence( int from, int to ) {
+      return new String( chars, start + from, to - from );
+    }
+
+    @Override
+    public String toString() {
+      return new String( chars, start, end - start );
+    }
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.knox.gateway.filter.rewrite.impl.html;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteMessages;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteMemo;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.util.urltemplate.Parser;
 import org.apache.knox.gateway.util.urltemplate.Resolver;
@@ -29,6 +30,7 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.io.Reader;
 import java.net.URISyntaxException;
+import java.util.Set;
 
 public class HtmlUrlRewriteFilterReader extends HtmlFilterReader {
 
@@ -37,6 +39,7 @@ public class HtmlUrlRewriteFilterReader extends HtmlFilterReader {
   private Resolver resolver;
   private UrlRewriter rewriter;
   private UrlRewriter.Direction direction;
+  private UrlRewriteMemo memo = new UrlRewriteMemo();
 
   public HtmlUrlRewriteFilterReader( Reader reader, UrlRewriter rewriter, Resolver resolver, UrlRewriter.Direction direction, UrlRewriteFilterContentDescriptor config )
       throws IOException, ParserConfigurationException {
@@ -46,9 +49,21 @@ public class HtmlUrlRewriteFilterReader extends HtmlFilterReader {
     this.direction = direction;
   }
 
+  public HtmlUrlRewriteFilterReader( Reader reader, UrlRewriter rewriter, Resolver resolver, UrlRewriter.Direction direction,
+                                     UrlRewriteFilterContentDescriptor config, Set<String> urlAttributes ) {
+    super( reader, config, urlAttributes );
+    this.resolver = resolver;
+    this.rewriter = rewriter;
+    this.direction = direction;
+  }
+
   //TODO: Need to limit which values are attempted to be filtered by the name.
   @Override
   public String filterValueString( String name, String value, String rule ) {
+    return memo.rewrite( value, rule, this::rewriteValue );
+  }
+
+  private String rewriteValue( String value, String rule ) {
     try {
       Template input = Parser.parseLiteral( value );
       Template output = rewriter.rewrite( resolver, input, direction, rule );
@@ -18,7 +18,10 @@
 package org.apache.knox.gateway.filter.rewrite.impl.html;
 
 import org.apache.commons.io.input.ReaderInputStream;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteEnvironment;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteProcessor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteStreamFilter;
 import org.apache.knox.gateway.util.urltemplate.Resolver;
@@ -52,6 +55,13 @@ public class HtmlUrlRewriteStreamFilter implements UrlRewriteStreamFilter {
       UrlRewriter.Direction direction,
       UrlRewriteFilterContentDescriptor config )
           throws IOException {
+    GatewayConfig gatewayConfig = getGatewayConfig( rewriter );
+    if( gatewayConfig != null && gatewayConfig.isRewriteHtmlScannerEnabled() ) {
+      return new ReaderInputStream(
+          new HtmlUrlRewriteFilterReader(
+              new InputStreamReader( stream, encoding ), rewriter, resolver, direction, config,
+              gatewayConfig.getRewriteHtmlScannerAttributes() ), encoding );
+    }
     try {
       return new ReaderInputStream(
           new HtmlUrlRewriteFilterReader(
@@ -61,4 +71,14 @@ public class HtmlUrlRewriteStreamFilter implements UrlRewriteStreamFilter {
     }
   }
 
+  private static GatewayConfig getGatewayConfig( UrlRewriter rewriter ) {
+    if( rewriter instanceof UrlRewriteProcessor ) {
+      UrlRewriteEnvironment environment = ((UrlRewriteProcessor)rewriter).getEnvironment();
+      if( environment != null ) {
+        return environment.getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE );
+      }
+    }
+    return null;
+  }
+
 }
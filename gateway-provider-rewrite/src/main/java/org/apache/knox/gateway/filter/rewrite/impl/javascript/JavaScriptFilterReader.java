@@ -20,29 +20,26 @@ package org.apache.knox.gateway.filter.rewrite.impl.javascript;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterPathDescriptor;
 import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteFilterReader;
-import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteUtil;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteScanner;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringWriter;
 import java.util.regex.Pattern;
 
 public abstract class JavaScriptFilterReader extends Reader implements UrlRewriteFilterReader {
 
   private static final UrlRewriteFilterPathDescriptor.Compiler<Pattern> REGEX_COMPILER = new RegexCompiler();
 
-  private BufferedReader reader;
+  private Reader reader;
   private int offset;
-  private StringWriter writer;
-  private StringBuffer buffer;
-  private UrlRewriteFilterContentDescriptor config;
+  private StringBuilder buffer;
+  private UrlRewriteScanner scanner;
+  private boolean done;
 
   protected JavaScriptFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException {
-    this.reader = new BufferedReader( reader );
-    this.config = config;
-    writer = new StringWriter();
-    buffer = writer.getBuffer();
+    this.reader = reader;
+    scanner = new UrlRewriteScanner( config, this, REGEX_COMPILER );
+    buffer = new StringBuilder();
     offset = 0;
   }
 
@@ -51,19 +48,11 @@ public abstract class JavaScriptFilterReader extends Reader implements UrlRewrit
 
   @Override
   public int read( char[] destBuffer, int destOffset, int destCount ) throws IOException {
-    int count = 0;
+    int count = -1;
     int available = buffer.length() - offset;
-    String cbuff;
-    if( available == 0 ) {
-      cbuff = reader.readLine();
-      if( cbuff != null ) {
-        count = cbuff.length();
-        writer.write( UrlRewriteUtil.filterJavaScript( cbuff, config, this, REGEX_COMPILER ) );
-        writer.write( '\n' );
-        available = buffer.length() - offset;
-      } else {
-        count = -1;
-      }
+    while( available == 0 && !done ) {
+      done = !scanner.scan( reader, buffer );
+      available = buffer.length() - offset;
     }
 
     if( available > 0 ) {
@@ -82,6 +71,5 @@ public abstract class JavaScriptFilterReader extends Reader implements UrlRewrit
   @Override
   public void close() throws IOException {
     reader.close();
-    writer.close();
   }
 }
@@ -24,6 +24,7 @@ import java.net.URISyntaxException;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteMessages;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteMemo;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.util.urltemplate.Parser;
 import org.apache.knox.gateway.util.urltemplate.Resolver;
@@ -36,6 +37,7 @@ public class JavaScriptUrlRewriteFilterReader extends JavaScriptFilterReader {
   private Resolver resolver;
   private UrlRewriter rewriter;
   private UrlRewriter.Direction direction;
+  private UrlRewriteMemo memo = new UrlRewriteMemo();
 
   public JavaScriptUrlRewriteFilterReader( Reader reader, UrlRewriter rewriter, Resolver resolver, UrlRewriter.Direction direction, UrlRewriteFilterContentDescriptor config )
       throws IOException {
@@ -47,6 +49,10 @@ public class JavaScriptUrlRewriteFilterReader extends JavaScriptFilterReader {
 
   @Override
   public String filterValueString( String name, String value, String rule ) {
+    return memo.rewrite( value, rule, this::rewriteValue );
+  }
+
+  private String rewriteValue( String value, String rule ) {
     try {
       Template input = Parser.parseLiteral( value );
       Template output = rewriter.rewrite( resolver, input, direction, rule );
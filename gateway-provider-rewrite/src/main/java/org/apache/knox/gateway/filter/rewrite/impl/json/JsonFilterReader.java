@@ -25,8 +25,8 @@ import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.node.TextNode;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterApplyDescriptor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterBufferDescriptor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
@@ -40,17 +40,24 @@ import org.apache.knox.gateway.util.JsonPath;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Stack;
 import java.util.regex.Pattern;
 
+/**
+ * Rewrites JSON one token at a time. Tokens are copied straight from the parser to the generator and the
+ * selectors are matched against the path of the current token. Only the subtrees selected by a buffer
+ * descriptor are read into a JsonNode tree, so memory use does not grow with the size of the document.
+ */
 class JsonFilterReader extends Reader {
 
   private static final UrlRewriteMessages LOG = MessagesFactory.get( UrlRewriteMessages.class );
 
-  private static final UrlRewriteFilterPathDescriptor.Compiler<JsonPath.Expression> JPATH_COMPILER = new JsonPathCompiler();
+  private static final UrlRewriteFilterPathDescriptor.Compiler<JsonPathMatcher> JPATH_COMPILER = new JsonPathCompiler();
   private static final UrlRewriteFilterPathDescriptor.Compiler<Pattern> REGEX_COMPILER = new RegexCompiler();
 
+  private static final int INITIAL_DEPTH = 16;
+
   private JsonFactory factory;
   private JsonParser parser;
   private JsonGenerator generator;
@@ -60,9 +67,8 @@ class JsonFilterReader extends Reader {
   private int offset;
   private StringWriter writer;
   private StringBuffer buffer;
-  private Stack<Level> stack;
-  private Level bufferingLevel;
-  private UrlRewriteFilterBufferDescriptor bufferingConfig;
+  private JsonPathMatcher.Step[] path;
+  private int depth;
   private UrlRewriteFilterGroupDescriptor config;
 
   JsonFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException {
@@ -74,9 +80,8 @@ class JsonFilterReader extends Reader {
     buffer = writer.getBuffer();
     offset = 0;
     generator = factory.createGenerator( writer );
-    stack = new Stack<>();
-    bufferingLevel = null;
-    bufferingConfig = null;
+    path = new JsonPathMatcher.Step[ INITIAL_DEPTH ];
+    depth = 0;
     this.config = config;
     jsonParserConfigInit();
   }
@@ -116,16 +121,16 @@ class JsonFilterReader extends Reader {
   private void processCurrentToken() throws IOException {
     switch( parser.getCurrentToken() ) {
       case START_OBJECT:
-        processStartObject();
+      case START_ARRAY:
+        processStartContainer();
         break;
       case END_OBJECT:
-        processEndObject();
-        break;
-      case START_ARRAY:
-        processStartArray();
+        generator.writeEndObject();
+        depth--;
         break;
       case END_ARRAY:
-        processEndArray();
+        generator.writeEndArray();
+        depth--;
         break;
       case FIELD_NAME:
         processFieldName(); // Could be the name of an object, array or value.
@@ -135,14 +140,17 @@ class JsonFilterReader extends Reader {
         break;
       case VALUE_NUMBER_INT:
       case VALUE_NUMBER_FLOAT:
-        processValueNumber();
+        nextElement();
+        processedUnbufferedValueNumber();
         break;
       case VALUE_TRUE:
       case VALUE_FALSE:
-        processValueBoolean();
+        nextElement();
+        generator.writeBoolean( parser.getBooleanValue() );
         break;
       case VALUE_NULL:
-        processValueNull();
+        nextElement();
+        generator.writeNull();
         break;
       case NOT_AVAILABLE:
         // Ignore it.
@@ -151,218 +159,65 @@ class JsonFilterReader extends Reader {
     generator.flush();
   }
 
-  private Level pushLevel( String field, JsonNode node, JsonNode scopeNode, UrlRewriteFilterGroupDescriptor scopeConfig ) {
-    if( !stack.isEmpty() ) {
-      Level top = stack.peek();
-      if( scopeNode == null ) {
-        scopeNode = top.scopeNode;
-        scopeConfig = top.scopeConfig;
-      }
-    }
-    Level level = new Level( field, node, scopeNode, scopeConfig );
-    stack.push( level );
-    return level;
-  }
-
-  private void processStartObject() throws IOException {
-    JsonNode node;
-    Level child;
-    Level parent;
-    if( stack.isEmpty() ) {
-      node = mapper.createObjectNode();
-      child = pushLevel( null, node, node, config );
-    } else {
-      child = stack.peek();
-      if( child.node == null ) {
-        child.node = mapper.createObjectNode();
-        parent = stack.get( stack.size()-2 );
-        switch( parent.node.asToken() ) {
-          case START_ARRAY:
-            ((ArrayNode)parent.node ).add( child.node );
-            break;
-          case START_OBJECT:
-            ((ObjectNode)parent.node ).set( child.field, child.node );
-            break;
-          default:
-            throw new IllegalStateException();
-        }
-      } else if( child.isArray() ) {
-        parent = child;
-        node = mapper.createObjectNode();
-        child = pushLevel( null, node, null, null );
-        ((ArrayNode)parent.node ).add( child.node );
-      } else {
-        throw new IllegalStateException();
-      }
+  private void pushLevel( boolean array ) {
+    if( depth == path.length ) {
+      path = Arrays.copyOf( path, depth * 2 );
     }
-    if( bufferingLevel == null && !startBuffering( child ) ) {
-      generator.writeStartObject();
+    JsonPathMatcher.Step step = path[ depth ];
+    if( step == null ) {
+      step = new JsonPathMatcher.Step();
+      path[ depth ] = step;
     }
+    step.array = array;
+    step.field = null;
+    step.index = -1;
+    depth++;
   }
 
-  private void processEndObject() throws IOException {
-    Level child;
-    Level parent;
-    child = stack.pop();
-    if( child.equals(bufferingLevel) ) {
-      filterBufferedNode( child );
-      mapper.writeTree( generator, child.node );
-      bufferingLevel = null;
-      bufferingConfig = null;
-    } else if( bufferingLevel == null ) {
-      generator.writeEndObject();
-      if( !stack.isEmpty() ) {
-        parent = stack.peek();
-        switch( parent.node.asToken() ) {
-          case START_ARRAY:
-            ((ArrayNode)parent.node ).removeAll();
-            break;
-          case START_OBJECT:
-            ((ObjectNode)parent.node ).removeAll();
-            break;
-          default:
-            throw new IllegalStateException();
-        }
-      }
+  /* Moves the innermost array on to its next element, the member of an object was set by its field name. */
+  private void nextElement() {
+    if( depth > 0 && path[ depth - 1 ].array ) {
+      path[ depth - 1 ].index++;
     }
   }
 
-  private void processStartArray() throws IOException {
-    JsonNode node;
-    Level child;
-    Level parent;
-    if( stack.isEmpty() ) {
-      node = mapper.createArrayNode();
-      child = pushLevel( null, node, node, config );
+  private void processStartContainer() throws IOException {
+    boolean array = parser.getCurrentToken() == JsonToken.START_ARRAY;
+    nextElement();
+    UrlRewriteFilterBufferDescriptor bufferingConfig = startBuffering();
+    if( bufferingConfig != null ) {
+      JsonNode node = readNode();
+      filterBufferedNode( node, bufferingConfig );
+      mapper.writeTree( generator, node );
     } else {
-      child = stack.peek();
-      if( child.node == null ) {
-        child.node = mapper.createArrayNode();
-        parent = stack.get( stack.size() - 2 );
-        switch( parent.node.asToken() ) {
-          case START_ARRAY:
-            ((ArrayNode)parent.node ).add( child.node );
-            break;
-          case START_OBJECT:
-            ((ObjectNode)parent.node ).set( child.field, child.node );
-            break;
-          default:
-            throw new IllegalStateException();
-        }
-      } else if( child.isArray() ) {
-        parent = child;
-        child = pushLevel( null, mapper.createArrayNode(), null, null );
-        ((ArrayNode)parent.node ).add( child.node );
+      if( array ) {
+        generator.writeStartArray();
       } else {
-        throw new IllegalStateException();
-      }
-    }
-    if( bufferingLevel == null && !startBuffering( child ) ) {
-      generator.writeStartArray();
-    }
-  }
-
-  private void processEndArray() throws IOException {
-    Level child;
-    Level parent;
-    child = stack.pop();
-    if( child.equals(bufferingLevel) ) {
-      filterBufferedNode( child );
-      mapper.writeTree( generator, child.node );
-      bufferingLevel = null;
-      bufferingConfig = null;
-    } else if( bufferingLevel == null ) {
-      generator.writeEndArray();
-      if( !stack.isEmpty() ) {
-        parent = stack.peek();
-        switch( parent.node.asToken() ) {
-          case START_ARRAY:
-            ((ArrayNode)parent.node ).removeAll();
-            break;
-          case START_OBJECT:
-            ((ObjectNode)parent.node ).removeAll();
-            break;
-          default:
-            throw new IllegalStateException();
-        }
+        generator.writeStartObject();
       }
+      pushLevel( array );
     }
   }
 
   private void processFieldName() throws IOException {
-    Level child = pushLevel( parser.getCurrentName(), null, null, null );
+    String field = parser.getCurrentName();
     try {
-      child.field = filterFieldName( child.field );
+      field = filterFieldName( field );
     } catch( Exception e ) {
-      LOG.failedToFilterFieldName( child.field, e );
+      LOG.failedToFilterFieldName( field, e );
       // Write original name.
     }
-    if( bufferingLevel == null ) {
-      generator.writeFieldName( child.field );
-    }
+    path[ depth - 1 ].field = field;
+    generator.writeFieldName( field );
   }
 
   private void processValueString() throws IOException {
-    Level child;
-    Level parent;
-    String value = null;
-    if(stack.isEmpty()) {
+    if( depth == 0 ) {
       generator.writeString( parser.getText() );
       return;
     }
-    parent = stack.peek();
-    if( parent.isArray() ) {
-      ArrayNode array = (ArrayNode)parent.node;
-      array.add( parser.getText() );
-      if( bufferingLevel == null ) {
-        value = filterStreamValue( parent );
-        array.set( array.size()-1, new TextNode( value ) );
-      } else {
-        array.removeAll();
-      }
-    } else {
-      child = stack.pop();
-      parent = stack.peek();
-      ((ObjectNode)parent.node ).put( child.field, parser.getText() );
-      if( bufferingLevel == null ) {
-        child.node = parent.node; // Populate the JsonNode of the child for filtering.
-        value = filterStreamValue( child );
-      }
-    }
-    if( bufferingLevel == null ) {
-      if( parent.node.isArray() ) {
-        ((ArrayNode)parent.node).removeAll();
-      } else {
-        ((ObjectNode)parent.node).removeAll();
-      }
-      generator.writeString( value );
-    }
-  }
-
-  private void processValueNumber() throws IOException {
-    Level child;
-    Level parent;
-    if(stack.isEmpty()) {
-      processedUnbufferedValueNumber();
-      return;
-    }
-    parent = stack.peek();
-    if( parent.isArray() ) {
-      if( bufferingLevel != null ) {
-        ArrayNode array = (ArrayNode)parent.node;
-        processBufferedArrayValueNumber( array );
-      }
-    } else {
-      child = stack.pop();
-      if( bufferingLevel != null ) {
-        parent = stack.peek();
-        ObjectNode object = (ObjectNode)parent.node;
-        processBufferedFieldValueNumber( child, object );
-      }
-    }
-    if( bufferingLevel == null ) {
-      processedUnbufferedValueNumber();
-    }
+    nextElement();
+    generator.writeString( filterStreamValue( parser.getText() ) );
   }
 
   private void processedUnbufferedValueNumber() throws IOException {
@@ -388,170 +243,114 @@ class JsonFilterReader extends Reader {
     }
   }
 
-  private void processBufferedFieldValueNumber( Level child, ObjectNode object ) throws IOException {
-    //object.put( child.field, parser.getDecimalValue() );
-    switch( parser.getNumberType() ) {
-      case INT:
-        object.put( child.field, parser.getIntValue() );
-        break;
-      case LONG:
-        object.put( child.field, parser.getLongValue() );
-        break;
-      case BIG_INTEGER:
-        object.put( child.field, parser.getDecimalValue() );
-        break;
-      case FLOAT:
-        object.put( child.field, parser.getFloatValue() );
-        break;
-      case DOUBLE:
-        object.put( child.field, parser.getDoubleValue() );
-        break;
-      case BIG_DECIMAL:
-        object.put( child.field, parser.getDecimalValue() );
-        break;
+  /* Reads the value at the current token, including all of its children, into a tree. */
+  private JsonNode readNode() throws IOException {
+    JsonNodeFactory nodes = mapper.getNodeFactory();
+    switch( parser.getCurrentToken() ) {
+      case START_OBJECT:
+        ObjectNode object = nodes.objectNode();
+        while( parser.nextToken() == JsonToken.FIELD_NAME ) {
+          String field = parser.getCurrentName();
+          try {
+            field = filterFieldName( field );
+          } catch( Exception e ) {
+            LOG.failedToFilterFieldName( field, e );
+          }
+          parser.nextToken();
+          object.set( field, readNode() );
+        }
+        return object;
+      case START_ARRAY:
+        ArrayNode array = nodes.arrayNode();
+        while( parser.nextToken() != JsonToken.END_ARRAY ) {
+          array.add( readNode() );
+        }
+        return array;
+      case VALUE_STRING:
+        return nodes.textNode( parser.getText() );
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return readNumberNode( nodes );
+      case VALUE_TRUE:
+      case VALUE_FALSE:
+        return nodes.booleanNode( parser.getBooleanValue() );
+      case VALUE_NULL:
+        return nodes.nullNode();
+      default:
+        throw new IllegalStateException( String.valueOf( parser.getCurrentToken() ) );
     }
   }
 
-  private void processBufferedArrayValueNumber( ArrayNode array ) throws IOException {
-    //array.add( parser.getDecimalValue() );
+  private JsonNode readNumberNode( JsonNodeFactory nodes ) throws IOException {
     switch( parser.getNumberType() ) {
       case INT:
-        array.add( parser.getIntValue() );
-        break;
+        return nodes.numberNode( parser.getIntValue() );
       case LONG:
-        array.add( parser.getLongValue() );
-        break;
-      case BIG_INTEGER:
-        array.add( parser.getDecimalValue() );
-        break;
+        return nodes.numberNode( parser.getLongValue() );
       case FLOAT:
-        array.add( parser.getFloatValue() );
-        break;
+        return nodes.numberNode( parser.getFloatValue() );
       case DOUBLE:
-        array.add( parser.getDoubleValue() );
-        break;
-      case BIG_DECIMAL:
-        array.add( parser.getDecimalValue() );
-        break;
-    }
-  }
-
-  private void processValueBoolean() throws IOException {
-    Level child;
-    Level parent;
-    if(stack.isEmpty()) {
-      generator.writeBoolean(parser.getBooleanValue());
-      return;
-    }
-    parent = stack.peek();
-    if( parent.isArray() ) {
-      ((ArrayNode)parent.node ).add( parser.getBooleanValue() );
-      //dump();
-      if( bufferingLevel == null ) {
-        ((ArrayNode)parent.node ).removeAll();
-      }
-    } else {
-      child = stack.pop();
-      parent = stack.peek();
-      ((ObjectNode)parent.node ).put( child.field, parser.getBooleanValue() );
-      //dump();
-      if( bufferingLevel == null ) {
-        ((ObjectNode)parent.node ).remove( child.field );
-      }
-    }
-    if( bufferingLevel == null ) {
-      generator.writeBoolean( parser.getBooleanValue() );
+        return nodes.numberNode( parser.getDoubleValue() );
+      default:
+        return nodes.numberNode( parser.getDecimalValue() );
     }
   }
 
-  private void processValueNull() throws IOException {
-    Level child;
-    if(stack.isEmpty()) {
-      generator.writeNull();
-      return;
-    }
-    Level parent = stack.peek();
-    if( parent.isArray() ) {
-      ((ArrayNode)parent.node ).addNull();
-      //dump();
-      if( bufferingLevel == null ) {
-        ((ArrayNode)parent.node ).removeAll();
-      }
-    } else {
-      child = stack.pop();
-      parent = stack.peek();
-      ((ObjectNode)parent.node ).putNull( child.field );
-      //dump();
-      if( bufferingLevel == null ) {
-        ((ObjectNode)parent.node ).remove( child.field );
-      }
-    }
-    if( bufferingLevel == null ) {
-      generator.writeNull();
-    }
-  }
-
-  protected boolean startBuffering( Level node ) {
-    boolean buffered = false;
-    UrlRewriteFilterGroupDescriptor scope = node.scopeConfig;
-    if( scope != null ) {
-      for( UrlRewriteFilterPathDescriptor selector : scope.getSelectors() ) {
-        JsonPath.Expression path = (JsonPath.Expression)selector.compiledPath( JPATH_COMPILER );
-        List<JsonPath.Match> matches = path.evaluate( node.scopeNode );
-        if( matches != null && !matches.isEmpty() ) {
+  /* The first selector matching the current container decides whether it is buffered. */
+  protected UrlRewriteFilterBufferDescriptor startBuffering() {
+    if( config != null ) {
+      for( UrlRewriteFilterPathDescriptor selector : config.getSelectors() ) {
+        JsonPathMatcher matcher = (JsonPathMatcher)selector.compiledPath( JPATH_COMPILER );
+        if( matcher.match( path, depth ) >= 0 ) {
           if( selector instanceof UrlRewriteFilterBufferDescriptor ) {
-            bufferingLevel = node;
-            bufferingConfig = (UrlRewriteFilterBufferDescriptor)selector;
-            buffered = true;
+            return (UrlRewriteFilterBufferDescriptor)selector;
           }
           break;
         }
       }
     }
-    return buffered;
+    return null;
   }
 
-  protected String filterStreamValue( Level node ) {
-    String value;
-    if( node.isArray() ) {
-      value = node.node.get( 0 ).asText();
-    } else {
-      value = node.node.get( node.field ).asText();
-    }
+  protected String filterStreamValue( String value ) {
     String rule = null;
-    UrlRewriteFilterGroupDescriptor scope = node.scopeConfig;
     //TODO: Scan the top level apply rules for the first match.
-    if( scope != null ) {
-      for( UrlRewriteFilterPathDescriptor selector : scope.getSelectors() ) {
-        JsonPath.Expression path = (JsonPath.Expression)selector.compiledPath( JPATH_COMPILER );
-        List<JsonPath.Match> matches = path.evaluate( node.scopeNode );
-        if( matches != null && !matches.isEmpty() ) {
-          JsonPath.Match match = matches.get( 0 );
-          if( match.getNode().isTextual() && selector instanceof UrlRewriteFilterApplyDescriptor ) {
-            UrlRewriteFilterApplyDescriptor apply = (UrlRewriteFilterApplyDescriptor)selector;
-            rule = apply.rule();
+    if( config != null ) {
+      for( UrlRewriteFilterPathDescriptor selector : config.getSelectors() ) {
+        if( selector instanceof UrlRewriteFilterApplyDescriptor ) {
+          JsonPathMatcher matcher = (JsonPathMatcher)selector.compiledPath( JPATH_COMPILER );
+          // The rule applies if the selector matches the value rather than one of its parents.
+          if( matcher.match( path, depth ) == depth ) {
+            rule = ((UrlRewriteFilterApplyDescriptor)selector).rule();
             break;
           }
         }
       }
     }
     try {
-      value = filterValueString( node.field, value, rule );
-      if( node.isArray() ) {
-        ((ArrayNode)node.node).set( 0, new TextNode( value ) );
-      } else {
-        ((ObjectNode)node.node).put( node.field, value );
-      }
+      value = filterValueString( valueFieldName(), value, rule );
     } catch( Exception e ) {
       LOG.failedToFilterValue( value, rule, e );
     }
     return value;
   }
 
-  private void filterBufferedNode( Level node ) {
+  /* The name of the field holding the current value, or holding the array the value is an element of. */
+  private String valueFieldName() {
+    JsonPathMatcher.Step step = path[ depth - 1 ];
+    if( !step.array ) {
+      return step.field;
+    }
+    if( depth > 1 && !path[ depth - 2 ].array ) {
+      return path[ depth - 2 ].field;
+    }
+    return null;
+  }
+
+  private void filterBufferedNode( JsonNode node, UrlRewriteFilterBufferDescriptor bufferingConfig ) {
     for( UrlRewriteFilterPathDescriptor selector : bufferingConfig.getSelectors() ) {
-      JsonPath.Expression path = (JsonPath.Expression)selector.compiledPath( JPATH_COMPILER );
-      List<JsonPath.Match> matches = path.evaluate( node.node );
+      JsonPath.Expression expression = ((JsonPathMatcher)selector.compiledPath( JPATH_COMPILER )).getExpression();
+      List<JsonPath.Match> matches = expression.evaluate( node );
       for( JsonPath.Match match : matches ) {
         if( selector instanceof UrlRewriteFilterApplyDescriptor ) {
           if( match.getNode().isTextual() ) {
@@ -559,8 +358,8 @@ class JsonFilterReader extends Reader {
           }
         } else if( selector instanceof UrlRewriteFilterDetectDescriptor ) {
           UrlRewriteFilterDetectDescriptor detectConfig = (UrlRewriteFilterDetectDescriptor)selector;
-          JsonPath.Expression detectPath = (JsonPath.Expression)detectConfig.compiledPath( JPATH_COMPILER );
-          List<JsonPath.Match> detectMatches = detectPath.evaluate( node.node );
+          JsonPath.Expression detectPath = ((JsonPathMatcher)detectConfig.compiledPath( JPATH_COMPILER )).getExpression();
+          List<JsonPath.Match> detectMatches = detectPath.evaluate( node );
           for( JsonPath.Match detectMatch : detectMatches ) {
             if( detectMatch.getNode().isTextual() ) {
               String detectValue = detectMatch.getNode().asText();
@@ -575,10 +374,10 @@ class JsonFilterReader extends Reader {
     }
   }
 
-  private void filterBufferedValues( Level node, List<UrlRewriteFilterPathDescriptor> selectors ) {
+  private void filterBufferedValues( JsonNode node, List<UrlRewriteFilterPathDescriptor> selectors ) {
     for( UrlRewriteFilterPathDescriptor selector : selectors ) {
-      JsonPath.Expression path = (JsonPath.Expression)selector.compiledPath( JPATH_COMPILER );
-      List<JsonPath.Match> matches = path.evaluate( node.node );
+      JsonPath.Expression expression = ((JsonPathMatcher)selector.compiledPath( JPATH_COMPILER )).getExpression();
+      List<JsonPath.Match> matches = expression.evaluate( node );
       for( JsonPath.Match match : matches ) {
         if( match.getNode().isTextual() && selector instanceof UrlRewriteFilterApplyDescriptor ) {
           filterBufferedValue( match, (UrlRewriteFilterApplyDescriptor)selector );
@@ -614,26 +413,14 @@ class JsonFilterReader extends Reader {
     reader.close();
   }
 
-  private static class Level {
-    String field;
-    JsonNode node;
-    JsonNode scopeNode;
-    UrlRewriteFilterGroupDescriptor scopeConfig;
-    Level( String field, JsonNode node, JsonNode scopeNode, UrlRewriteFilterGroupDescriptor scopeConfig ) {
-      this.field = field;
-      this.node = node;
-      this.scopeNode = scopeNode;
-      this.scopeConfig = scopeConfig;
-    }
-    public boolean isArray() {
-      return node != null && node.isArray();
-    }
-  }
-
-  private static class JsonPathCompiler implements UrlRewriteFilterPathDescriptor.Compiler<JsonPath.Expression> {
+  private static class JsonPathCompiler implements UrlRewriteFilterPathDescriptor.Compiler<JsonPathMatcher> {
     @Override
-    public JsonPath.Expression compile( String expression, JsonPath.Expression compiled ) {
-      return JsonPath.compile( expression );
+    public JsonPathMatcher compile( String expression, JsonPathMatcher compiled ) {
+      if( compiled != null ) {
+        return compiled;
+      } else {
+        return new JsonPathMatcher( expression );
+      }
     }
   }
 
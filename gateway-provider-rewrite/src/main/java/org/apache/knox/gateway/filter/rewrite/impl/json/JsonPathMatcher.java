@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl.json;
+
+import org.apache.knox.gateway.util.JsonPath;
+
+/**
+ * A JsonPath selector compiled into a small automaton that is matched against the path of the token being
+ * streamed, so selectors can be evaluated without building a JsonNode tree. The states are the number of
+ * segments consumed so far and are tracked in a bit mask.
+ */
+class JsonPathMatcher {
+
+  private static final int MAX_SEGMENTS = Long.SIZE - 1;
+
+  private final JsonPath.Expression expression;
+  private final JsonPath.Segment[] segments;
+  private final long accept;
+
+  JsonPathMatcher( String path ) {
+    expression = JsonPath.compile( path );
+    JsonPath.Segment[] all = expression.getSegments();
+    /* The first segment is always the root. */
+    segments = new JsonPath.Segment[ all.length - 1 ];
+    System.arraycopy( all, 1, segments, 0, segments.length );
+    if( segments.length > MAX_SEGMENTS ) {
+      throw new IllegalArgumentException( path );
+    }
+    accept = 1L << segments.length;
+  }
+
+  JsonPath.Expression getExpression() {
+    return expression;
+  }
+
+  /**
+   * @param path the steps from the root to the current token
+   * @param depth the number of steps in use
+   * @return the length of the shortest prefix of the path the selector matches, or -1 if there is none
+   */
+  int match( Step[] path, int depth ) {
+    long states = closure( 1L );
+    for( int i = 0; ; i++ ) {
+      if( ( states & accept ) != 0 ) {
+        return i;
+      }
+      if( i == depth || states == 0 ) {
+        return -1;
+      }
+      states = advance( states, path[ i ] );
+    }
+  }
+
+  private long advance( long states, Step step ) {
+    long next = 0;
+    for( int s = 0; s < segments.length; s++ ) {
+      if( ( states & ( 1L << s ) ) != 0 ) {
+        JsonPath.Segment segment = segments[ s ];
+        switch( segment.getType() ) {
+          case FIELD:
+            if( !step.array && segment.getField().equals( step.field ) ) {
+              next |= 1L << ( s + 1 );
+            }
+            break;
+          case INDEX:
+            if( step.array && segment.getIndex() == step.index ) {
+              next |= 1L << ( s + 1 );
+            }
+            break;
+          case WILD:
+            next |= 1L << ( s + 1 );
+            break;
+          case GLOB:
+            next |= 1L << s;
+            break;
+          default:
+            throw new IllegalStateException();
+        }
+      }
+    }
+    return closure( next );
+  }
+
+  /* A glob also matches zero steps. */
+  private long closure( long states ) {
+    for( int s = 0; s < segments.length; s++ ) {
+      if( ( states & ( 1L << s ) ) != 0 && segments[ s ].getType() == JsonPath.Segment.Type.GLOB ) {
+        states |= 1L << ( s + 1 );
+      }
+    }
+    return states;
+  }
+
+  /**
+   * One step of the path from the root to the current token: either a member of an object or an
+   * element of an array.
+   */
+  static class Step {
+    boolean array;
+    String field;
+    int index;
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.knox.gateway.filter.rewrite.impl.json;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteMessages;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteMemo;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.util.urltemplate.Parser;
 import org.apache.knox.gateway.util.urltemplate.Resolver;
@@ -35,6 +36,7 @@ public class JsonUrlRewriteFilterReader extends JsonFilterReader {
   private Resolver resolver;
   private UrlRewriter rewriter;
   private UrlRewriter.Direction direction;
+  private UrlRewriteMemo memo = new UrlRewriteMemo();
 
   public JsonUrlRewriteFilterReader(
       Reader reader,
@@ -58,20 +60,24 @@ public class JsonUrlRewriteFilterReader extends JsonFilterReader {
      JSON requests and any other rewrite functionality.
      */
     if(rule != null || UrlRewriter.Direction.OUT == direction) {
-      try {
-        Template input = Parser.parseLiteral( value );
-        Template output = rewriter.rewrite( resolver, input, direction, rule );
-        // We should only use output if it is valid. If a rule doesn't match output could be null.
-        if(output != null) {
-          value = output.getPattern();
-        }
-      } catch( URISyntaxException e ) {
-        LOG.failedToParseValueForUrlRewrite( value );
-      }
-      return value;
+      return memo.rewrite( value, rule, this::rewriteValue );
     } else {
       LOG.skippingRewritingJsonRequestBody();
       return value;
     }
   }
+
+  private String rewriteValue( String value, String rule ) {
+    try {
+      Template input = Parser.parseLiteral( value );
+      Template output = rewriter.rewrite( resolver, input, direction, rule );
+      // We should only use output if it is valid. If a rule doesn't match output could be null.
+      if(output != null) {
+        value = output.getPattern();
+      }
+    } catch( URISyntaxException e ) {
+      LOG.failedToParseValueForUrlRewrite( value );
+    }
+    return value;
+  }
 }
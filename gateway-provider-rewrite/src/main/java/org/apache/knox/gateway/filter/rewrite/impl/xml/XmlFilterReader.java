@@ -62,18 +62,25 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Stack;
 import java.util.regex.Pattern;
 
+/**
+ * Rewrites XML one StAX event at a time. Selectors are matched against the open elements by
+ * {@link XmlPathMatcher}, so streamed content never goes into a DOM. Only elements selected by a buffer
+ * descriptor are read into a DOM, where the descriptor's selectors are evaluated as XPath.
+ */
 public abstract class XmlFilterReader extends Reader {
   private static final UrlRewriteResources RES = ResourcesFactory.get( UrlRewriteResources.class );
 
   private static final String DEFAULT_XML_VERSION = "1.0";
 
-  private static final UrlRewriteFilterPathDescriptor.Compiler<XPathExpression> XPATH_COMPILER = new XmlPathCompiler();
+  private static final UrlRewriteFilterPathDescriptor.Compiler<XmlPathMatcher> XPATH_COMPILER = new XmlPathCompiler();
   private static final UrlRewriteFilterPathDescriptor.Compiler<Pattern> REGEX_COMPILER = new RegexCompiler();
 
+  private static final int INITIAL_DEPTH = 16;
+
   private Reader reader;
   private UrlRewriteFilterContentDescriptor config;
   private int offset;
@@ -82,7 +89,8 @@ public abstract class XmlFilterReader extends Reader {
   private XMLInputFactory factory;
   private XMLEventReader parser;
   private Document document;
-  private Stack<Level> stack;
+  private Level[] stack;
+  private int depth;
   private boolean isEmptyElement;
 
   protected XmlFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException, XMLStreamException {
@@ -92,7 +100,8 @@ public abstract class XmlFilterReader extends Reader {
     buffer = writer.getBuffer();
     offset = 0;
     document = null;
-    stack = new Stack<>();
+    stack = new Level[ INITIAL_DEPTH ];
+    depth = 0;
     isEmptyElement = false;
     factory = XMLInputFactory.newFactory();
     //KNOX-620 factory.setProperty( XMLConstants.ACCESS_EXTERNAL_DTD, Boolean.FALSE );
@@ -185,12 +194,9 @@ public abstract class XmlFilterReader extends Reader {
     }
   }
 
-  private void processStartDocument( StartDocument event ) throws ParserConfigurationException {
+  private void processStartDocument( StartDocument event ) {
     String s;
 
-    document = XmlUtils.createDocument( false );
-    pushLevel( null, document, document, config );
-
     writer.write( "<?xml" );
 
     s = event.getVersion();
@@ -216,73 +222,125 @@ public abstract class XmlFilterReader extends Reader {
   }
 
   private void processEndDocument() {
-    stack.clear();
+    depth = 0;
     document = null;
   }
 
-  private void processStartElement( StartElement event ) throws XPathExpressionException {
-    // Create a new "empty" element and add it to the document.
-    Element element = bufferElement( event );
-    Level parent = stack.peek();
-    parent.node.appendChild( element );
-
-    // If already buffering just continue to do so.
+  private void processStartElement( StartElement event )
+      throws ParserConfigurationException, XPathExpressionException, IOException, XMLStreamException {
+    Level level = pushLevel( event );
+    // See if there is a matching path descriptor in the current scope.
+    UrlRewriteFilterPathDescriptor descriptor = pickFirstMatchingPath( level, null, null );
+    // If this is a buffer descriptor then read the whole element and filter it as a DOM.
     // Note: Don't currently support nested buffer or scope descriptors.
-    if( currentlyBuffering() ) {
-      pushLevel( parent, element, parent.scopeNode, parent.scopeConfig );
-      bufferAttributes( event, element );
-    // Else not currently buffering
+    if( descriptor instanceof UrlRewriteFilterBufferDescriptor ) {
+      Element element = bufferElement( event );
+      processBufferedElement( element, (UrlRewriteFilterBufferDescriptor)descriptor );
+      writeBufferedElement( element, writer );
+      document = null;
+      depth--;
+      isEmptyElement = false;
+    // Otherwise if this is a scope descriptor then change the scope and stream the attributes.
     } else {
-      // See if there is a matching path descriptor in the current scope.
-      UrlRewriteFilterPathDescriptor descriptor = pickFirstMatchingPath( parent );
-      if( descriptor != null ) {
-        // If this is a buffer descriptor then switch to buffering and buffer the attributes.
-        if( descriptor instanceof UrlRewriteFilterBufferDescriptor ) {
-          pushLevel( parent, element, element, (UrlRewriteFilterBufferDescriptor)descriptor );
-          bufferAttributes( event, element );
-        // Otherwise if this is a scope descriptor then change the scope and stream the attributes.
-        } else if( descriptor instanceof UrlRewriteFilterScopeDescriptor ) {
-          pushLevel( parent, element, element, (UrlRewriteFilterScopeDescriptor)descriptor );
-          streamElement( event, element );
-        // Else found an unexpected matching path.
-        } else {
-          // This is likely because there is an <apply> targeted at the text of an element.
-          // That "convenience" config will be taken care of in the streamElement() processing.
-          pushLevel( parent, element, parent.scopeNode, parent.scopeConfig );
-          streamElement( event, element );
-        }
-      // If there is no matching path descriptor then continue streaming.
-      } else {
-        pushLevel( parent, element, parent.scopeNode, parent.scopeConfig );
-        streamElement( event, element );
+      if( descriptor instanceof UrlRewriteFilterScopeDescriptor ) {
+        level.scopeConfig = (UrlRewriteFilterScopeDescriptor)descriptor;
+        level.scopeDepth = depth;
       }
+      // Any other match is likely because there is an <apply> targeted at the text of an element.
+      // That "convenience" config will be taken care of in the streamElement() processing.
+      streamElement( event, level );
     }
   }
 
-  private void processEndElement( EndElement event ) throws XPathExpressionException, IOException {
-    boolean buffering = currentlyBuffering();
-    Level child = stack.pop();
-    if( buffering ) {
-      if( child.node == child.scopeNode ) {
-        processBufferedElement( child );
+  private void processEndElement( EndElement event ) {
+    if( ! isEmptyElement ) {
+      QName n = event.getName();
+      writer.write( "</" );
+      String p = n.getPrefix();
+      if( p != null && !p.isEmpty() ) {
+        writer.write( p );
+        writer.write( ":" );
       }
+      writer.write( n.getLocalPart() );
+      writer.write( ">" );
+    }
+    depth--;
+  }
+
+  private Level pushLevel( StartElement event ) {
+    if( depth == stack.length ) {
+      stack = Arrays.copyOf( stack, depth * 2 );
+    }
+    Level level = stack[ depth ];
+    if( level == null ) {
+      level = new Level();
+      stack[ depth ] = level;
+    }
+    level.name = event.getName();
+    level.hasText = false;
+    level.event = event;
+    if( depth == 0 ) {
+      level.scopeConfig = config;
+      level.scopeDepth = 0;
     } else {
-      if( ! isEmptyElement ) {
-        QName n = event.getName();
-        writer.write( "</" );
-        String p = n.getPrefix();
-        if( p != null && !p.isEmpty() ) {
-          writer.write( p );
-          writer.write( ":" );
-        }
-        writer.write( n.getLocalPart() );
-        writer.write( ">" );
+      level.scopeConfig = stack[ depth - 1 ].scopeConfig;
+      level.scopeDepth = stack[ depth - 1 ].scopeDepth;
+    }
+    depth++;
+    return level;
+  }
+
+  /*
+   * Reads the element that has just been started, including all of its content, into a DOM. Its ancestors
+   * are added without attributes or content so absolute selectors still work.
+   */
+  private Element bufferElement( StartElement start ) throws ParserConfigurationException, XMLStreamException {
+    document = XmlUtils.createDocument( false );
+    Node parent = document;
+    for( int i = 0; i < depth - 1; i++ ) {
+      Element ancestor = createElement( stack[ i ].event );
+      parent.appendChild( ancestor );
+      parent = ancestor;
+    }
+    Element element = createElement( start );
+    bufferAttributes( start, element );
+    parent.appendChild( element );
+    Node node = element;
+    while( true ) {
+      XMLEvent event = parser.nextEvent();
+      switch( event.getEventType() ) {
+        case XMLStreamConstants.START_ELEMENT:
+          Element child = createElement( event.asStartElement() );
+          bufferAttributes( event.asStartElement(), child );
+          node.appendChild( child );
+          node = child;
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          if( node == element ) {
+            return element;
+          }
+          node = node.getParentNode();
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          Characters characters = event.asCharacters();
+          if( characters.isCData() ) {
+            node.appendChild( document.createCDATASection( characters.getData() ) );
+          } else {
+            node.appendChild( document.createTextNode( characters.getData() ) );
+          }
+          break;
+        case XMLStreamConstants.COMMENT:
+          node.appendChild( document.createComment( ((Comment)event).getText() ) );
+          break;
+        default:
+          throw new IllegalStateException( Integer.toString( event.getEventType() ) );
       }
-      child.node.getParentNode().removeChild( child.node );
     }
   }
 
-  private Element bufferElement( StartElement event ) {
+  private Element createElement( StartElement event ) {
     QName qname = event.getName();
     String prefix = qname.getPrefix();
     String uri = qname.getNamespaceURI();
@@ -313,7 +371,7 @@ public abstract class XmlFilterReader extends Reader {
     }
   }
 
-  private void streamElement( StartElement event, Element element ) throws XPathExpressionException {
+  private void streamElement( StartElement event, Level level ) throws ParserConfigurationException {
     writer.write( "<" );
     QName qname = event.getName();
     String prefix = event.getName().getPrefix();
@@ -323,7 +381,7 @@ public abstract class XmlFilterReader extends Reader {
     }
     writer.write( qname.getLocalPart() );
     streamNamespaces( event );
-    streamAttributes( event, element );
+    streamAttributes( event, level );
     if( isEmptyElement ) {
       writer.write("/>");
     } else {
@@ -331,11 +389,11 @@ public abstract class XmlFilterReader extends Reader {
     }
   }
 
-  private void processBufferedElement( Level level, UrlRewriteFilterGroupDescriptor config ) throws XPathExpressionException {
+  private void processBufferedElement( Node scopeNode, UrlRewriteFilterGroupDescriptor config ) throws XPathExpressionException {
     for( UrlRewriteFilterPathDescriptor selector : config.getSelectors() ) {
       if( selector instanceof UrlRewriteFilterApplyDescriptor ) {
-        XPathExpression path = (XPathExpression)selector.compiledPath( XPATH_COMPILER );
-        Object node = path.evaluate( level.scopeNode, XPathConstants.NODE );
+        XPathExpression path = ((XmlPathMatcher)selector.compiledPath( XPATH_COMPILER )).getExpression();
+        Object node = path.evaluate( scopeNode, XPathConstants.NODE );
         if( node != null ) {
           UrlRewriteFilterApplyDescriptor apply = (UrlRewriteFilterApplyDescriptor)selector;
           if( node instanceof Element ) {
@@ -358,8 +416,8 @@ public abstract class XmlFilterReader extends Reader {
           }
         }
       } else if( selector instanceof UrlRewriteFilterDetectDescriptor) {
-        XPathExpression path = (XPathExpression)selector.compiledPath( XPATH_COMPILER );
-        Object node = path.evaluate( level.scopeNode, XPathConstants.NODE );
+        XPathExpression path = ((XmlPathMatcher)selector.compiledPath( XPATH_COMPILER )).getExpression();
+        Object node = path.evaluate( scopeNode, XPathConstants.NODE );
         if( node != null ) {
           UrlRewriteFilterDetectDescriptor detect = (UrlRewriteFilterDetectDescriptor)selector;
           String value;
@@ -376,7 +434,7 @@ public abstract class XmlFilterReader extends Reader {
             throw new IllegalArgumentException( RES.unexpectedSelectedNodeType( node ) );
           }
           if( detect.compiledValue( REGEX_COMPILER ).matcher( value ).matches() ) {
-            processBufferedElement( level, detect );
+            processBufferedElement( scopeNode, detect );
           }
         }
       } else {
@@ -385,11 +443,6 @@ public abstract class XmlFilterReader extends Reader {
     }
   }
 
-  private void processBufferedElement( Level level ) throws XPathExpressionException, IOException {
-    processBufferedElement( level, level.scopeConfig );
-    writeBufferedElement( level.node, writer );
-  }
-
   private QName extractQName( Node node ) {
     QName qname;
     String localName = node.getLocalName();
@@ -447,41 +500,26 @@ public abstract class XmlFilterReader extends Reader {
     }
   }
 
-  private void streamAttributes( StartElement event, Element element ) throws XPathExpressionException {
+  private void streamAttributes( StartElement event, Level level ) throws ParserConfigurationException {
     Iterator i = event.getAttributes();
     while( i.hasNext() ) {
       Attribute attribute = (Attribute)i.next();
-      streamAttribute( element, attribute );
+      streamAttribute( level, attribute );
     }
   }
 
-  private void streamAttribute( Element element, Attribute attribute ) throws XPathExpressionException {
-    Attr node;
+  private void streamAttribute( Level level, Attribute attribute ) throws ParserConfigurationException {
     QName name = attribute.getName();
     String prefix = name.getPrefix();
-    String uri = name.getNamespaceURI();
-    if( uri == null || uri.isEmpty() ) {
-      node = document.createAttribute( name.getLocalPart() );
-      element.setAttributeNode( node );
-    } else {
-      node = document.createAttributeNS( uri, name.getLocalPart() );
-      if( prefix != null && !prefix.isEmpty() ) {
-        node.setPrefix( prefix );
-      }
-      element.setAttributeNodeNS( node );
-    }
 
     String value = attribute.getValue();
-    Level level = stack.peek();
     if( ( level.scopeConfig ) == null || ( level.scopeConfig.getSelectors().isEmpty() ) ) {
       value = filterAttribute( null, attribute.getName(), value, null );
-      node.setValue( value );
     } else {
-      UrlRewriteFilterPathDescriptor path = pickFirstMatchingPath( level );
+      UrlRewriteFilterPathDescriptor path = pickFirstMatchingPath( level, attribute, null );
       if( path instanceof UrlRewriteFilterApplyDescriptor ) {
         String rule = ((UrlRewriteFilterApplyDescriptor)path).rule();
         value = filterAttribute( null, attribute.getName(), value, rule );
-        node.setValue( value );
       }
     }
 
@@ -497,48 +535,38 @@ public abstract class XmlFilterReader extends Reader {
     writer.write( "=\"" );
     writer.write( value );
     writer.write( "\"" );
-    element.removeAttributeNode( node );
   }
 
-  private void processCharacters( Characters event ) {
-    Level level = stack.peek();
-    Node node = stack.peek().node;
-    if( event.isCData() ) {
-      node.appendChild( document.createCDATASection( event.getData() ) );
-    } else {
-      node.appendChild( document.createTextNode( event.getData() ) );
-    }
-    if( !currentlyBuffering() ) {
-      String value = event.getData();
+  private void processCharacters( Characters event ) throws ParserConfigurationException {
+    String value = event.getData();
+    if( depth > 0 ) {
+      Level level = stack[ depth - 1 ];
+      level.hasText = true;
       if( !event.isWhiteSpace() ) {
         if( level.scopeConfig == null || level.scopeConfig.getSelectors().isEmpty() ) {
-          value = filterText( extractQName( node ), value, null );
+          value = filterText( level.name, value, null );
         } else {
-          UrlRewriteFilterPathDescriptor path = pickFirstMatchingPath( level );
+          UrlRewriteFilterPathDescriptor path = pickFirstMatchingPath( level, null, value );
           if( path instanceof UrlRewriteFilterApplyDescriptor ) {
             String rule = ((UrlRewriteFilterApplyDescriptor)path).rule();
-            value = filterText( extractQName( node ), value, rule );
+            value = filterText( level.name, value, rule );
           }
         }
       }
-      if( event.isCData() ) {
-        writer.write( "<![CDATA[" );
-        writer.write( value );
-        writer.write( "]]>" );
-      } else {
-        writer.write( StringEscapeUtils.escapeXml11( value ) );
-      }
+    }
+    if( event.isCData() ) {
+      writer.write( "<![CDATA[" );
+      writer.write( value );
+      writer.write( "]]>" );
+    } else {
+      writer.write( StringEscapeUtils.escapeXml11( value ) );
     }
   }
 
   private void processComment( Comment event ) {
-    if( currentlyBuffering() ) {
-      stack.peek().node.appendChild( document.createComment( event.getText() ) );
-    } else {
-      writer.write( "<!--" );
-      writer.write( event.getText() );
-      writer.write( "-->" );
-    }
+    writer.write( "<!--" );
+    writer.write( event.getText() );
+    writer.write( "-->" );
   }
 
   @Override
@@ -550,54 +578,74 @@ public abstract class XmlFilterReader extends Reader {
     }
     reader.close();
     writer.close();
-    stack.clear();
+    depth = 0;
   }
 
-  protected UrlRewriteFilterPathDescriptor pickFirstMatchingPath( Level level ) {
+  /*
+   * Finds the first selector of the current scope that selects any node of the open part of the document:
+   * the open elements, the text read within them and the attribute or text being streamed.
+   */
+  private UrlRewriteFilterPathDescriptor pickFirstMatchingPath( Level level, Attribute attribute, String text )
+      throws ParserConfigurationException {
     UrlRewriteFilterPathDescriptor match = null;
     if( level.scopeConfig != null ) {
       for( UrlRewriteFilterPathDescriptor selector : level.scopeConfig.getSelectors() ) {
-        try {
-          XPathExpression path = (XPathExpression)selector.compiledPath( XPATH_COMPILER );
-          Object node = path.evaluate( level.scopeNode, XPathConstants.NODE );
-          if( node != null ) {
-            match = selector;
-            break;
+        XmlPathMatcher matcher = (XmlPathMatcher)selector.compiledPath( XPATH_COMPILER );
+        boolean selected;
+        if( matcher.isStreamable() ) {
+          selected = matcher.selects( stack, level.scopeDepth, depth, attribute == null ? null : attribute.getName() );
+        } else {
+          try {
+            selected = matcher.getExpression().evaluate( skeleton( level, attribute, text ), XPathConstants.NODE ) != null;
+          } catch( XPathExpressionException e ) {
+            throw new IllegalArgumentException( selector.path(), e );
+          } finally {
+            document = null;
           }
-        } catch( XPathExpressionException e ) {
-          throw new IllegalArgumentException( selector.path(), e );
+        }
+        if( selected ) {
+          match = selector;
+          break;
         }
       }
     }
     return match;
   }
 
-  private boolean currentlyBuffering() {
-    return stack.peek().buffered;
-  }
-
-  private Level pushLevel( Level parent, Node node, Node scopeNode, UrlRewriteFilterGroupDescriptor scopeConfig ) {
-    Level level = new Level( parent, node, scopeNode, scopeConfig );
-    stack.push( level );
-    return level;
+  /*
+   * Selectors the matcher cannot evaluate fall back to XPath on a DOM of the open elements. The content
+   * of the open elements other than the text being streamed is not kept, so an empty text node stands in
+   * for it. Returns the context node of the level's scope.
+   */
+  private Node skeleton( Level level, Attribute attribute, String text ) throws ParserConfigurationException {
+    document = XmlUtils.createDocument( false );
+    Node context = document;
+    Node parent = document;
+    for( int i = 0; i < depth; i++ ) {
+      Element element = createElement( stack[ i ].event );
+      if( stack[ i ].hasText ) {
+        element.appendChild( document.createTextNode( i == depth - 1 && text != null ? text : "" ) );
+      }
+      parent.appendChild( element );
+      parent = element;
+      if( i == level.scopeDepth - 1 ) {
+        context = element;
+      }
+    }
+    if( attribute != null ) {
+      bufferAttribute( (Element)parent, attribute );
+    }
+    return context;
   }
 
-  private static class Level {
-    private Node node;
+  private static class Level extends XmlPathMatcher.Element {
+    private StartElement event;
     private UrlRewriteFilterGroupDescriptor scopeConfig;
-    private Node scopeNode;
-    private boolean buffered;
-
-    Level( Level parent, Node node, Node scopeNode, UrlRewriteFilterGroupDescriptor scopeConfig ) {
-      this.node = node;
-      this.scopeConfig = scopeConfig;
-      this.scopeNode = scopeNode;
-      this.buffered = ( parent != null && parent.buffered ) ||
-                      (scopeConfig instanceof UrlRewriteFilterBufferDescriptor);
-    }
+    /* The number of open elements up to and including the scope's context node, 0 for the document. */
+    private int scopeDepth;
   }
 
-  private static class XmlPathCompiler implements UrlRewriteFilterPathDescriptor.Compiler<XPathExpression> {
+  private static class XmlPathCompiler implements UrlRewriteFilterPathDescriptor.Compiler<XmlPathMatcher> {
     private static final XPathFactory xpathFactory = getXpathFactory();
 
     private static synchronized XPathFactory getXpathFactory() {
@@ -619,11 +667,11 @@ public abstract class XmlFilterReader extends Reader {
     }
 
     @Override
-    public XPathExpression compile( String expression, XPathExpression compiled ) {
+    public XmlPathMatcher compile( String expression, XmlPathMatcher compiled ) {
       if(compiled != null) {
         return compiled;
       } else {
-        return getXPathExpression(expression);
+        return new XmlPathMatcher(expression, getXPathExpression(expression));
       }
     }
   }
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl.xml;
+
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPathExpression;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled rewrite selector. Besides the XPath expression used on buffered elements, selectors made up
+ * of plain location steps (<code>/a/b</code>, <code>*</code>, <code>//</code>, a final <code>@name</code>,
+ * <code>@*</code> or <code>text()</code>, no prefixes or predicates) are compiled into a small automaton
+ * that is matched against the open elements of the document being streamed, so no DOM is needed to
+ * evaluate them.
+ */
+class XmlPathMatcher {
+
+  private static final int MAX_STEPS = Long.SIZE - 1;
+
+  private enum Target { ELEMENT, TEXT, ATTRIBUTE }
+
+  private final XPathExpression expression;
+  private final boolean streamable;
+  private boolean absolute;
+  private Step[] steps;
+  private Target target = Target.ELEMENT;
+  private String attribute;
+
+  XmlPathMatcher( String path, XPathExpression expression ) {
+    this.expression = expression;
+    this.streamable = parse( path.trim() );
+  }
+
+  XPathExpression getExpression() {
+    return expression;
+  }
+
+  /**
+   * @return <code>true</code> if {@link #selects} can evaluate this selector
+   */
+  boolean isStreamable() {
+    return streamable;
+  }
+
+  /**
+   * Determines whether the selector selects any node of the part of the document that is currently
+   * open: the open elements, the text already read within them and the attribute being streamed.
+   *
+   * @param path the open elements, outermost first
+   * @param context the number of open elements up to and including the context node, 0 for the document
+   * @param depth the number of open elements
+   * @param attributeName the attribute of the innermost element being streamed, or <code>null</code>
+   */
+  boolean selects( Element[] path, int context, int depth, QName attributeName ) {
+    int start = absolute ? 0 : context;
+    long accept = 1L << steps.length;
+    long states = 1L;
+    for( int i = start; ; i++ ) {
+      if( ( states & accept ) != 0 && targetExists( path, i, depth, attributeName ) ) {
+        return true;
+      }
+      if( i == depth || states == 0 ) {
+        return false;
+      }
+      states = advance( states, path[ i ].name );
+    }
+  }
+
+  /* Whether the target of the selector exists on the element the location steps matched. */
+  private boolean targetExists( Element[] path, int matched, int depth, QName attributeName ) {
+    switch( target ) {
+      case TEXT:
+        return matched > 0 && path[ matched - 1 ].hasText;
+      case ATTRIBUTE:
+        return matched == depth && attributeName != null && matches( attribute, attributeName );
+      default:
+        return matched > 0;
+    }
+  }
+
+  private long advance( long states, QName name ) {
+    long next = 0;
+    for( int s = 0; s < steps.length; s++ ) {
+      if( ( states & ( 1L << s ) ) != 0 ) {
+        Step step = steps[ s ];
+        if( step.descendant ) {
+          next |= 1L << s;
+        }
+        if( matches( step.name, name ) ) {
+          next |= 1L << ( s + 1 );
+        }
+      }
+    }
+    return next;
+  }
+
+  /* Unprefixed XPath name tests only select nodes that are in no namespace. */
+  private static boolean matches( String test, QName name ) {
+    if( test == null ) {
+      return true;
+    }
+    String uri = name.getNamespaceURI();
+    return test.equals( name.getLocalPart() ) && ( uri == null || uri.isEmpty() );
+  }
+
+  private boolean parse( String path ) {
+    List<Step> list = new ArrayList<>();
+    absolute = path.startsWith( "/" );
+    boolean descendant = false;
+    String[] tokens = ( absolute ? path.substring( 1 ) : path ).split( "/", -1 );
+    for( String token : tokens ) {
+      if( target != Target.ELEMENT ) {
+        return false;
+      }
+      if( token.isEmpty() ) {
+        if( descendant ) {
+          return false;
+        }
+        descendant = true;
+      } else if( "text()".equals( token ) && !descendant ) {
+        target = Target.TEXT;
+      } else if( token.startsWith( "@" ) && !descendant && isNameTest( token.substring( 1 ) ) ) {
+        target = Target.ATTRIBUTE;
+        attribute = "*".equals( token.substring( 1 ) ) ? null : token.substring( 1 );
+      } else if( isNameTest( token ) ) {
+        list.add( new Step( "*".equals( token ) ? null : token, descendant ) );
+        descendant = false;
+      } else {
+        return false;
+      }
+    }
+    if( descendant || list.size() > MAX_STEPS || ( list.isEmpty() && target == Target.ELEMENT ) ) {
+      return false;
+    }
+    steps = list.toArray( new Step[ 0 ] );
+    return true;
+  }
+
+  private static boolean isNameTest( String token ) {
+    if( "*".equals( token ) ) {
+      return true;
+    }
+    if( token.isEmpty() || !( Character.isLetter( token.charAt( 0 ) ) || token.charAt( 0 ) == '_' ) ) {
+      return false;
+    }
+    for( int i = 1; i < token.length(); i++ ) {
+      char c = token.charAt( i );
+      if( !( Character.isLetterOrDigit( c ) || c == '_' || c == '-' || c == '.' ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static class Step {
+    private final String name;
+    private final boolean descendant;
+
+    Step( String name, boolean descendant ) {
+      this.name = name;
+      this.descendant = descendant;
+    }
+  }
+
+  /**
+   * An open element of the document being streamed.
+   */
+  static class Element {
+    QName name;
+    boolean hasText;
+  }
+}
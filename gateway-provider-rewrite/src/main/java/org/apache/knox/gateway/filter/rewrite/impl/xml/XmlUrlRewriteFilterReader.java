@@ -20,6 +20,7 @@ package org.apache.knox.gateway.filter.rewrite.impl.xml;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.knox.gateway.filter.rewrite.i18n.UrlRewriteMessages;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteMemo;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.util.urltemplate.Parser;
 import org.apache.knox.gateway.util.urltemplate.Resolver;
@@ -39,6 +40,7 @@ public class XmlUrlRewriteFilterReader extends XmlFilterReader {
   private Resolver resolver;
   private UrlRewriter rewriter;
   private UrlRewriter.Direction direction;
+  private UrlRewriteMemo memo = new UrlRewriteMemo();
 
   public XmlUrlRewriteFilterReader( Reader reader, UrlRewriter rewriter, Resolver resolver, UrlRewriter.Direction direction, UrlRewriteFilterContentDescriptor config )
       throws IOException, ParserConfigurationException, XMLStreamException {
@@ -50,6 +52,10 @@ public class XmlUrlRewriteFilterReader extends XmlFilterReader {
 
   //TODO: Need to limit which values are attempted to be filtered by the name.
   private String filterValueString( String value, String rule ) {
+    return memo.rewrite( value, rule, this::rewriteValue );
+  }
+
+  private String rewriteValue( String value, String rule ) {
     try {
       Template input = Parser.parseLiteral( value );
       if( input != null ) {
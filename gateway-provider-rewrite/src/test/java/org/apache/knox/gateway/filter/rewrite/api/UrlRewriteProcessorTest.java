@@ -40,6 +40,7 @@ import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteStatistics;
 import org.apache.knox.gateway.util.urltemplate.Expander;
 import org.apache.knox.gateway.util.urltemplate.Matcher;
 import org.apache.knox.gateway.util.urltemplate.Parser;
@@ -90,6 +91,39 @@ public class UrlRewriteProcessorTest {
     processor.destroy();
   }
 
+  @Test
+  public void testRuleStatistics() throws IOException, URISyntaxException {
+    UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
+    EasyMock.replay( environment );
+
+    UrlRewriteProcessor processor = new UrlRewriteProcessor();
+    processor.initialize( environment, UrlRewriteRulesDescriptorFactory.load( "xml", getTestResourceReader( "rewrite.xml" ) ) );
+    UrlRewriteStatistics.Topology statistics = UrlRewriteStatistics.getInstance().addTopology( "processor-test-topology", 1 );
+    try {
+      processor.setStatistics( statistics );
+      assertThat( statistics.getRules().size(), is( 3 ) );
+
+      Template outputUrl = processor.rewrite( null, Parser.parseLiteral( "test-scheme://test-host:1/test-input-path" ), UrlRewriter.Direction.IN, null );
+      processor.rewrite( null, Parser.parseLiteral( "test-scheme://test-host:1/test-input-path" ), UrlRewriter.Direction.IN, null );
+      assertThat( processor.rewrite( null, Parser.parseLiteral( "/no-host" ), UrlRewriter.Direction.OUT, "test-rule-2" ), nullValue() );
+
+      UrlRewriteStatistics.Rule hit = statistics.getRule( "test-rule-1" );
+      assertThat( hit.getAttempts(), is( 2L ) );
+      assertThat( hit.getHits(), is( 2L ) );
+      assertThat( hit.getSamples(), is( 2L ) );
+      assertThat( hit.getEstimatedBytes(), is( 2L * outputUrl.toString().length() ) );
+      assertTrue( hit.getEstimatedNanos() > 0 );
+      UrlRewriteStatistics.Rule missed = statistics.getRule( "test-rule-2" );
+      assertThat( missed.getAttempts(), is( 1L ) );
+      assertThat( missed.getHits(), is( 0L ) );
+      assertThat( missed.getEstimatedBytes(), is( 0L ) );
+      assertThat( statistics.getRule( "test-rule-with-complex-flow" ).getAttempts(), is( 0L ) );
+    } finally {
+      UrlRewriteStatistics.getInstance().removeTopology( statistics.getName(), statistics );
+      processor.destroy();
+    }
+  }
+
   @Test
   public void testMultipleIdenticalRewriteOutputRules() throws IOException, URISyntaxException {
     UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
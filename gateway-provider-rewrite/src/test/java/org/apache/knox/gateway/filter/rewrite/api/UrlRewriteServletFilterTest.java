@@ -18,11 +18,14 @@
 package org.apache.knox.gateway.filter.rewrite.api;
 
 import com.jayway.jsonassert.JsonAssert;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.dispatch.CachedResponse;
 import org.apache.knox.gateway.filter.AbstractGatewayFilter;
 import org.apache.knox.gateway.util.urltemplate.Parser;
 import org.apache.knox.test.TestUtils;
 import org.apache.knox.test.mock.MockInteraction;
 import org.apache.knox.test.mock.MockServlet;
+import org.easymock.EasyMock;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpTester;
 import org.eclipse.jetty.servlet.FilterHolder;
@@ -39,11 +42,13 @@ import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
@@ -62,6 +67,7 @@ public class UrlRewriteServletFilterTest {
   private HttpTester.Response response;
   private Queue<MockInteraction> interactions;
   private MockInteraction interaction;
+  private AuthorizationFilter authorization;
 
   private static URL getTestResource( String name ) {
     name = UrlRewriteServletFilterTest.class.getName().replaceAll( "\\.", "/" ) + "/" + name;
@@ -69,10 +75,17 @@ public class UrlRewriteServletFilterTest {
   }
 
   private void testSetUp(Map<String,String> initParams ) throws Exception {
+    testSetUp( initParams, null );
+  }
+
+  private void testSetUp(Map<String,String> initParams, GatewayConfig gatewayConfig ) throws Exception {
     String descriptorUrl = getTestResource( "rewrite.xml" ).toExternalForm();
 
     server = new ServletTester();
     server.setContextPath( "/" );
+    if( gatewayConfig != null ) {
+      server.getContext().setAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE, gatewayConfig );
+    }
     server.getContext().addEventListener( new UrlRewriteServletContextListener() );
     server.getContext().setInitParameter(
         UrlRewriteServletContextListener.DESCRIPTOR_LOCATION_INIT_PARAM_NAME, descriptorUrl );
@@ -86,6 +99,9 @@ public class UrlRewriteServletFilterTest {
       }
     }
     rewriteFilter.setFilter( new UrlRewriteServletFilter() );
+    authorization = new AuthorizationFilter();
+    server.addFilter( AuthorizationFilter.class, "/*", EnumSet.of( DispatcherType.REQUEST ) ).setFilter( authorization );
+    server.addFilter( DispatchFilter.class, "/*", EnumSet.of( DispatcherType.REQUEST ) ).setFilter( new DispatchFilter() );
 
     interactions = new ArrayDeque<>();
 
@@ -793,6 +809,87 @@ public class UrlRewriteServletFilterTest {
     assertThat(content, anyOf( is(responseHtmlOne), is(responseHtmlTwo)));
   }
 
+  @Test
+  public void testCachedResponseServedWithoutBackendRequest() throws Exception {
+    testCacheSetUp();
+
+    String responseHtml = "<html><head><style type=\"text/css\">@import \"pretty.css\";</style></head></html>";
+    String rewrittenHtml = "<html><head><style type=\"text/css\">@import \"http://localhost:0/stylesheets/pretty.css\";</style></head></html>";
+    interaction.expect()
+               .method( "GET" )
+               .requestUrl( "http://mock-host:42/test-output-path-1" );
+    interaction.respond()
+               .contentType( "text/html" )
+               .header( "Cache-Control", "max-age=600" )
+               .header( "ETag", "\"v1\"" )
+               .content( responseHtml, StandardCharsets.UTF_8 )
+               .status( 200 );
+    interactions.add( interaction );
+    request.setMethod( "GET" );
+    request.setURI( "/test-input-path" );
+    request.setHeader( "Host", "mock-host:42" );
+
+    response = TestUtils.execute( server, request );
+    assertThat( response.getStatus(), is( 200 ) );
+    assertThat( response.getContent(), anyOf( is( rewrittenHtml ), is( rewrittenHtml.replace( "localhost", "0.0.0.0" ) ) ) );
+    String rewritten = response.getContent();
+
+    // No interaction is queued anymore, so a request that reaches the backend fails.
+    response = TestUtils.execute( server, request );
+    assertThat( response.getStatus(), is( 200 ) );
+    assertThat( response.getContent(), is( rewritten ) );
+    assertThat( response.get( "ETag" ), is( "\"v1\"" ) );
+
+    request.setHeader( "If-None-Match", "W/\"v0\", \"v1\"" );
+    response = TestUtils.execute( server, request );
+    assertThat( response.getStatus(), is( 304 ) );
+    assertThat( response.getContent(), is( "" ) );
+  }
+
+  @Test
+  public void testCachedResponseNotServedOnceAuthorizationIsRevoked() throws Exception {
+    testCacheSetUp();
+
+    interaction.expect()
+               .method( "GET" )
+               .requestUrl( "http://mock-host:42/test-output-path-1" );
+    interaction.respond()
+               .contentType( "text/html" )
+               .header( "Cache-Control", "max-age=600" )
+               .content( "<html><head></head></html>", StandardCharsets.UTF_8 )
+               .status( 200 );
+    interactions.add( interaction );
+    request.setMethod( "GET" );
+    request.setURI( "/test-input-path" );
+    request.setHeader( "Host", "mock-host:42" );
+
+    response = TestUtils.execute( server, request );
+    assertThat( response.getStatus(), is( 200 ) );
+
+    // The asset is cached now, but the cache must not answer requests that the authorization rejects.
+    authorization.authorized = false;
+    response = TestUtils.execute( server, request );
+    assertThat( response.getStatus(), is( 403 ) );
+    assertThat( response.getContent(), is( "" ) );
+
+    authorization.authorized = true;
+    response = TestUtils.execute( server, request );
+    assertThat( response.getStatus(), is( 200 ) );
+    assertThat( response.getContent(), is( "<html><head></head></html>" ) );
+  }
+
+  private void testCacheSetUp() throws Exception {
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( gatewayConfig.isRewriteCacheEnabled() ).andReturn( true ).anyTimes();
+    EasyMock.expect( gatewayConfig.getRewriteCacheMemorySize() ).andReturn( 1024L * 1024 ).anyTimes();
+    EasyMock.expect( gatewayConfig.getRewriteCacheMaxEntrySize() ).andReturn( 64L * 1024 ).anyTimes();
+    EasyMock.expect( gatewayConfig.getGlobalRulesServices() ).andReturn( Collections.emptyList() ).anyTimes();
+    EasyMock.replay( gatewayConfig );
+    Map<String,String> initParams = new HashMap<>();
+    initParams.put( "response.body", "test-filter-5" );
+    testSetUp( initParams, gatewayConfig );
+  }
+
   /*
    * Test the prefix function
    * @see KNOX-994
@@ -950,6 +1047,48 @@ public class UrlRewriteServletFilterTest {
     assertThat(content, is(rewrittenResponseHtml));
   }
 
+  /* Stands in for the authorization provider of a topology, which runs after the rewrite filter. */
+  private static class AuthorizationFilter implements Filter {
+    boolean authorized = true;
+
+    @Override
+    public void init( FilterConfig filterConfig ) {
+    }
+
+    @Override
+    public void doFilter( ServletRequest request, ServletResponse response, FilterChain chain ) throws IOException, ServletException {
+      if( authorized ) {
+        chain.doFilter( request, response );
+      } else {
+        ((HttpServletResponse)response).setStatus( HttpServletResponse.SC_FORBIDDEN );
+      }
+    }
+
+    @Override
+    public void destroy() {
+    }
+  }
+
+  /* Stands in for the dispatch, which serves cached responses in place of the backend. */
+  private static class DispatchFilter implements Filter {
+    @Override
+    public void init( FilterConfig filterConfig ) {
+    }
+
+    @Override
+    public void doFilter( ServletRequest request, ServletResponse response, FilterChain chain ) throws IOException, ServletException {
+      Object cachedResponse = request.getAttribute( CachedResponse.REQUEST_ATTRIBUTE );
+      if( cachedResponse instanceof CachedResponse && ((CachedResponse)cachedResponse).serve() ) {
+        return;
+      }
+      chain.doFilter( request, response );
+    }
+
+    @Override
+    public void destroy() {
+    }
+  }
+
   private static class SetupFilter implements Filter {
     @Override
     public void init( FilterConfig filterConfig ) {
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.ext;
+
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteRuleProcessorHolder;
+import org.apache.knox.gateway.util.urltemplate.Matcher;
+import org.apache.knox.gateway.util.urltemplate.Parser;
+import org.junit.Test;
+
+import java.net.URISyntaxException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ScopedMatcherTest {
+
+  private static class Holder extends UrlRewriteRuleProcessorHolder {
+    private final String name;
+    private final String scope;
+
+    Holder( String name, String scope ) {
+      this.name = name;
+      this.scope = scope;
+    }
+
+    @Override
+    public String getRuleName() {
+      return name;
+    }
+
+    @Override
+    public String getScope() {
+      return scope;
+    }
+  }
+
+  private static void add( ScopedMatcher matcher, String template, String scope ) throws URISyntaxException {
+    matcher.add( Parser.parseTemplate( template ), new Holder( scope + "/" + template, scope ) );
+  }
+
+  private static String match( ScopedMatcher matcher, String input, String scope ) throws URISyntaxException {
+    Matcher<UrlRewriteRuleProcessorHolder>.Match match = matcher.match( Parser.parseLiteral( input ), scope );
+    return match == null ? null : match.getValue().getRuleName();
+  }
+
+  @Test
+  public void testDispatchByFirstPathSegment() throws URISyntaxException {
+    ScopedMatcher matcher = new ScopedMatcher();
+    add( matcher, "{scheme}://{host}:{port}/webhdfs/{**}", "WEBHDFS" );
+    add( matcher, "{scheme}://{host}/api/{**}", "AMBARI" );
+    add( matcher, "/static/{**}", "UI" );
+    add( matcher, "/static/{**}", ScopedMatcher.GLOBAL_SCOPE );
+
+    assertThat( match( matcher, "http://host:50070/webhdfs/v1/tmp", "WEBHDFS" ), is( "WEBHDFS/{scheme}://{host}:{port}/webhdfs/{**}" ) );
+    assertThat( match( matcher, "http://host:50070/other/v1/tmp", "WEBHDFS" ), nullValue() );
+    assertThat( match( matcher, "http://host/api/v1/clusters", "AMBARI" ), is( "AMBARI/{scheme}://{host}/api/{**}" ) );
+    assertThat( match( matcher, "/static/app.js", "UI" ), is( "UI//static/{**}" ) );
+    assertThat( match( matcher, "/static/app.js", "WEBHDFS" ), is( "GLOBAL//static/{**}" ) );
+    assertThat( match( matcher, "/unknown/app.js", "UI" ), nullValue() );
+  }
+
+  @Test
+  public void testGlobTemplatesAreAlwaysMatched() throws URISyntaxException {
+    ScopedMatcher matcher = new ScopedMatcher();
+    add( matcher, "*://*:*/**/jobhistory/{**}", "JOBHISTORY" );
+    add( matcher, "/static/{**}", "UI" );
+
+    assertThat( match( matcher, "http://host:19888/ws/v1/jobhistory/jobs", "JOBHISTORY" ), is( "JOBHISTORY/*://*:*/**/jobhistory/{**}" ) );
+    assertThat( match( matcher, "/static/app.js", "UI" ), is( "UI//static/{**}" ) );
+    assertThat( match( matcher, "/other/app.js", "UI" ), nullValue() );
+  }
+}
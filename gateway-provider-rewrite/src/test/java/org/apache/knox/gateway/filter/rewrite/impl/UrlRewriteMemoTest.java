@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class UrlRewriteMemoTest {
+
+  @Test
+  public void testRewritesEachValueOncePerRule() {
+    AtomicInteger calls = new AtomicInteger();
+    UrlRewriteMemo memo = new UrlRewriteMemo();
+    for( int i = 0; i < 100; i++ ) {
+      assertThat( memo.rewrite( "/webhdfs/v1", "a", ( value, rule ) -> rule + calls.incrementAndGet() + value ), is( "a1/webhdfs/v1" ) );
+      assertThat( memo.rewrite( "/webhdfs/v1", null, ( value, rule ) -> rule + calls.incrementAndGet() + value ), is( "null2/webhdfs/v1" ) );
+    }
+    assertThat( calls.get(), is( 2 ) );
+  }
+
+  @Test
+  public void testMemoIsBounded() {
+    AtomicInteger calls = new AtomicInteger();
+    UrlRewriteMemo memo = new UrlRewriteMemo();
+    for( int i = 0; i < UrlRewriteMemo.MAX_ENTRIES + 10; i++ ) {
+      memo.rewrite( "/path/" + i, null, ( value, rule ) -> value + calls.incrementAndGet() );
+    }
+    memo.rewrite( "/path/0", null, ( value, rule ) -> value + calls.incrementAndGet() );
+    memo.rewrite( "/path/" + ( UrlRewriteMemo.MAX_ENTRIES + 5 ), null, ( value, rule ) -> value + calls.incrementAndGet() );
+    assertThat( calls.get(), is( UrlRewriteMemo.MAX_ENTRIES + 11 ) );
+  }
+}
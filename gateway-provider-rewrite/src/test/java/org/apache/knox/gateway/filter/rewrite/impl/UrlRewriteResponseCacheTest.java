@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl;
+
+import org.easymock.EasyMock;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class UrlRewriteResponseCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testFreshnessLifetime() {
+    String date = "Tue, 15 Nov 1994 08:12:31 GMT";
+    assertThat( lifetime( "Cache-Control", "public, max-age=60" ), is( 60000L ) );
+    assertThat( lifetime( "Cache-Control", "max-age=60, s-maxage=\"10\"" ), is( 10000L ) );
+    assertThat( lifetime( "Cache-Control", "max-age=0" ), is( 0L ) );
+    assertThat( lifetime( "Cache-Control", "no-store" ), is( 0L ) );
+    assertThat( lifetime( "Cache-Control", "private, max-age=60" ), is( 0L ) );
+    assertThat( lifetime( "Cache-Control", "no-cache" ), is( 0L ) );
+    assertThat( lifetime( "Date", date, "Expires", "Tue, 15 Nov 1994 08:14:31 GMT" ), is( 120000L ) );
+    assertThat( lifetime( "Date", date, "Expires", "0" ), is( 0L ) );
+    assertThat( lifetime( "Date", date, "Last-Modified", "Tue, 15 Nov 1994 08:09:11 GMT" ), is( 20000L ) );
+    assertThat( lifetime( "Date", date, "Last-Modified", "Thu, 15 Nov 1984 08:09:11 GMT" ), is( 24L * 3600 * 1000 ) );
+    assertThat( lifetime( "ETag", "\"v1\"" ), is( 0L ) );
+  }
+
+  @Test
+  public void testOnlyFreshStaticAssetsAreCaptured() {
+    UrlRewriteResponseCache cache = new UrlRewriteResponseCache( 1024, 1024, null, 0 );
+    OutputStream output = new ByteArrayOutputStream();
+    assertThat( cache.capture( "k", response( 200, "text/css", "Cache-Control", "max-age=60" ), output ), notNullValue() );
+    assertThat( cache.capture( "k", response( 200, "application/javascript; charset=UTF-8", "Cache-Control", "max-age=60" ), output ), notNullValue() );
+    assertThat( cache.capture( "k", response( 200, "application/json", "Cache-Control", "max-age=60" ), output ), nullValue() );
+    assertThat( cache.capture( "k", response( 404, "text/css", "Cache-Control", "max-age=60" ), output ), nullValue() );
+    assertThat( cache.capture( "k", response( 200, "text/css", "Cache-Control", "max-age=60", "Vary", "Cookie" ), output ), nullValue() );
+    assertThat( cache.capture( "k", response( 200, "text/css", "Cache-Control", "max-age=60", "Vary", "Accept-Encoding" ), output ), notNullValue() );
+    assertThat( cache.capture( "k", response( 200, "text/css", "Cache-Control", "max-age=60", "Set-Cookie", "a=b" ), output ), nullValue() );
+  }
+
+  @Test
+  public void testEvictedEntriesMoveToDiskAndBack() throws IOException {
+    File dir = folder.newFolder();
+    UrlRewriteResponseCache cache = new UrlRewriteResponseCache( 100, 100, dir.toPath(), 150 );
+    String body = "x".repeat( 60 );
+    store( cache, "1\na", body );
+    store( cache, "1\nb", body );
+    assertThat( cache.getMemoryBytes(), is( 60L ) );
+    assertThat( cache.getDiskBytes(), is( 60L ) );
+    assertThat( dir.list().length, is( 1 ) );
+
+    ByteArrayOutputStream served = new ByteArrayOutputStream();
+    assertThat( cache.serve( "1\na", request( Collections.emptyMap() ), response( served ) ), is( true ) );
+    assertThat( served.toString( StandardCharsets.UTF_8.name() ), is( body ) );
+    // Served from disk, the entry moved back into memory and made room for it.
+    assertThat( cache.getMemoryBytes(), is( 60L ) );
+    assertThat( cache.getDiskBytes(), is( 60L ) );
+
+    store( cache, "2\nc", body );
+    store( cache, "2\nd", body );
+    assertThat( cache.getDiskBytes(), is( 120L ) );
+    assertThat( cache.serve( "1\nz", request( Collections.emptyMap() ), response( served ) ), is( false ) );
+
+    cache.invalidate( 1 );
+    assertThat( cache.getMemoryBytes() + cache.getDiskBytes(), is( 120L ) );
+    assertThat( cache.get( "1\na" ), nullValue() );
+    assertThat( cache.get( "1\nb" ), nullValue() );
+    assertThat( cache.get( "2\nc" ), notNullValue() );
+    assertThat( dir.list().length, is( 1 ) );
+  }
+
+  @Test
+  public void testConditionalRequests() throws IOException {
+    UrlRewriteResponseCache cache = new UrlRewriteResponseCache( 1024, 1024, null, 0 );
+    UrlRewriteResponseCache.Capture capture = cache.capture( "k", response( 200, "text/css",
+        "Cache-Control", "max-age=60", "ETag", "W/\"v1\"", "Last-Modified", "Tue, 15 Nov 1994 08:12:31 GMT" ),
+        new ByteArrayOutputStream() );
+    capture.write( "body".getBytes( StandardCharsets.UTF_8 ) );
+    capture.commit();
+
+    assertThat( status( cache, "If-None-Match", "\"v1\"" ), is( 304 ) );
+    assertThat( status( cache, "If-None-Match", "\"v0\", W/\"v1\"" ), is( 304 ) );
+    assertThat( status( cache, "If-None-Match", "*" ), is( 304 ) );
+    assertThat( status( cache, "If-None-Match", "\"v2\"" ), is( 200 ) );
+    assertThat( status( cache, "If-Modified-Since", "Tue, 15 Nov 1994 08:12:31 GMT" ), is( 304 ) );
+    assertThat( status( cache, "If-Modified-Since", "Tue, 15 Nov 1994 08:12:30 GMT" ), is( 200 ) );
+    // If-None-Match takes precedence over If-Modified-Since.
+    assertThat( status( cache, "If-None-Match", "\"v2\"", "If-Modified-Since", "Tue, 15 Nov 1994 08:12:31 GMT" ), is( 200 ) );
+  }
+
+  @Test
+  public void testRequestsWithCredentialsOrOtherPrincipalsDoNotShareEntries() {
+    HttpServletRequest anonymous = request( "GET", Collections.emptyMap() );
+    assertThat( UrlRewriteResponseCache.key( 1, "sandbox", null, anonymous ), notNullValue() );
+    assertThat( UrlRewriteResponseCache.key( 1, "sandbox", "alice", anonymous ),
+        not( UrlRewriteResponseCache.key( 1, "sandbox", "bob", anonymous ) ) );
+    assertThat( UrlRewriteResponseCache.key( 1, "sandbox", "alice",
+        request( "GET", Collections.singletonMap( "Authorization", "Basic YWxpY2U6c2VjcmV0" ) ) ), nullValue() );
+    assertThat( UrlRewriteResponseCache.key( 1, "sandbox", "alice", request( "POST", Collections.emptyMap() ) ), nullValue() );
+  }
+
+  @Test
+  public void testCacheHitsReplayEndToEndHeaders() throws IOException {
+    UrlRewriteResponseCache cache = new UrlRewriteResponseCache( 1024, 1024, null, 0 );
+    UrlRewriteResponseCache.Capture capture = cache.capture( "k", response( 200, "text/css",
+        "Cache-Control", "max-age=60", "Content-Security-Policy", "default-src 'self'", "X-Frame-Options", "DENY",
+        "Connection", "X-Hop", "X-Hop", "1", "Keep-Alive", "timeout=5", "Content-Length", "4" ),
+        new ByteArrayOutputStream() );
+    capture.write( "body".getBytes( StandardCharsets.UTF_8 ) );
+    capture.commit();
+
+    Map<String,String> replayed = new HashMap<>();
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    response.addHeader( EasyMock.anyString(), EasyMock.anyString() );
+    EasyMock.expectLastCall().andAnswer( () -> {
+      replayed.put( (String)EasyMock.getCurrentArguments()[ 0 ], (String)EasyMock.getCurrentArguments()[ 1 ] );
+      return null;
+    } ).anyTimes();
+    EasyMock.expect( response.getOutputStream() ).andReturn( servletOutputStream( new ByteArrayOutputStream() ) ).anyTimes();
+    EasyMock.replay( response );
+    assertThat( cache.serve( "k", request( Collections.emptyMap() ), response ), is( true ) );
+
+    assertThat( replayed.get( "Cache-Control" ), is( "max-age=60" ) );
+    assertThat( replayed.get( "Content-Security-Policy" ), is( "default-src 'self'" ) );
+    assertThat( replayed.get( "X-Frame-Options" ), is( "DENY" ) );
+    for( String hopByHop : new String[] { "Connection", "X-Hop", "Keep-Alive", "Content-Length" } ) {
+      assertThat( replayed.containsKey( hopByHop ), is( false ) );
+    }
+  }
+
+  private static long lifetime( String... headers ) {
+    return UrlRewriteResponseCache.getFreshnessLifetime( response( 200, "text/css", headers ) );
+  }
+
+  private static void store( UrlRewriteResponseCache cache, String key, String body ) throws IOException {
+    UrlRewriteResponseCache.Capture capture =
+        cache.capture( key, response( 200, "text/css", "Cache-Control", "max-age=60" ), new ByteArrayOutputStream() );
+    capture.write( body.getBytes( StandardCharsets.UTF_8 ) );
+    capture.close();
+    capture.commit();
+  }
+
+  private static int status( UrlRewriteResponseCache cache, String... headers ) throws IOException {
+    Map<String,String> requestHeaders = new HashMap<>();
+    for( int i = 0; i < headers.length; i += 2 ) {
+      requestHeaders.put( headers[ i ], headers[ i + 1 ] );
+    }
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    response.setStatus( EasyMock.anyInt() );
+    int[] status = new int[ 1 ];
+    EasyMock.expectLastCall().andAnswer( () -> {
+      status[ 0 ] = (Integer)EasyMock.getCurrentArguments()[ 0 ];
+      return null;
+    } );
+    EasyMock.expect( response.getOutputStream() ).andReturn( servletOutputStream( new ByteArrayOutputStream() ) ).anyTimes();
+    EasyMock.replay( response );
+    assertThat( cache.serve( "k", request( requestHeaders ), response ), is( true ) );
+    return status[ 0 ];
+  }
+
+  private static HttpServletRequest request( Map<String,String> headers ) {
+    return request( "GET", headers );
+  }
+
+  private static HttpServletRequest request( String method, Map<String,String> headers ) {
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    EasyMock.expect( request.getMethod() ).andReturn( method ).anyTimes();
+    EasyMock.expect( request.getRequestURL() ).andReturn( new StringBuffer( "http://localhost/asset" ) ).anyTimes();
+    for( Map.Entry<String,String> header : headers.entrySet() ) {
+      EasyMock.expect( request.getHeader( header.getKey() ) ).andReturn( header.getValue() ).anyTimes();
+    }
+    EasyMock.replay( request );
+    return request;
+  }
+
+  private static HttpServletResponse response( int status, String contentType, String... headers ) {
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.expect( response.getStatus() ).andReturn( status ).anyTimes();
+    EasyMock.expect( response.getContentType() ).andReturn( contentType ).anyTimes();
+    List<String> names = new ArrayList<>();
+    for( int i = 0; i < headers.length; i += 2 ) {
+      names.add( headers[ i ] );
+    }
+    EasyMock.expect( response.getHeaderNames() ).andReturn( names ).anyTimes();
+    for( int i = 0; i < headers.length; i += 2 ) {
+      EasyMock.expect( response.getHeader( headers[ i ] ) ).andReturn( headers[ i + 1 ] ).anyTimes();
+      EasyMock.expect( response.getHeaders( headers[ i ] ) ).andReturn( Collections.singletonList( headers[ i + 1 ] ) ).anyTimes();
+      EasyMock.expect( response.containsHeader( headers[ i ] ) ).andReturn( true ).anyTimes();
+    }
+    EasyMock.replay( response );
+    return response;
+  }
+
+  private static HttpServletResponse response( ByteArrayOutputStream body ) throws IOException {
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.expect( response.getOutputStream() ).andReturn( servletOutputStream( body ) ).anyTimes();
+    EasyMock.replay( response );
+    return response;
+  }
+
+  private static ServletOutputStream servletOutputStream( ByteArrayOutputStream body ) {
+    return new ServletOutputStream() {
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setWriteListener( WriteListener writeListener ) {
+      }
+
+      @Override
+      public void write( int b ) {
+        body.write( b );
+      }
+    };
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.knox.gateway.filter.rewrite.impl;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteProcessor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteServletContextListener;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteServletFilter;
@@ -28,6 +29,8 @@ import javax.servlet.FilterConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -204,6 +207,170 @@ public class UrlRewriteResponseTest {
     }
   }
 
+  @Test
+  public void testStreamPassthroughResponseKeepsContentLength() throws IOException {
+    UrlRewriteProcessor rewriter = EasyMock.createNiceMock(UrlRewriteProcessor.class);
+    EasyMock.expect(rewriter.getConfig()).andReturn(null).anyTimes();
+
+    ServletContext context = EasyMock.createNiceMock(ServletContext.class);
+    EasyMock.expect(context.getAttribute(UrlRewriteServletContextListener.PROCESSOR_ATTRIBUTE_NAME)).andReturn(rewriter).anyTimes();
+
+    FilterConfig config = EasyMock.createNiceMock(FilterConfig.class);
+    EasyMock.expect(config.getInitParameter(UrlRewriteServletFilter.RESPONSE_BODY_FILTER_PARAM)).andReturn("test-filter").anyTimes();
+    EasyMock.expect(config.getServletContext()).andReturn(context).anyTimes();
+
+    HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.expect(response.getContentType()).andReturn("application/octet-stream").anyTimes();
+    response.setHeader("Content-Length", "4");
+    EasyMock.expectLastCall().once();
+
+    EasyMock.replay(rewriter, context, config, request, response);
+
+    UrlRewriteResponse rewriteResponse = new UrlRewriteResponse(config, request, response);
+    // The dispatch copies the backend Content-Length before the body filter is known
+    rewriteResponse.setHeader("Content-Length", "4");
+
+    byte[] content = new byte[] { 0x1f, (byte) 0x8b, 0x00, 0x01 };
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    rewriteResponse.streamResponse(new ByteArrayInputStream(content), output);
+
+    assertThat(output.toByteArray(), is(content));
+    EasyMock.verify(response);
+  }
+
+  @Test
+  public void testStreamRewrittenResponseDropsContentLength() throws IOException {
+    UrlRewriteProcessor rewriter = EasyMock.createNiceMock(UrlRewriteProcessor.class);
+    EasyMock.expect(rewriter.getConfig()).andReturn(null).anyTimes();
+
+    ServletContext context = EasyMock.createNiceMock(ServletContext.class);
+    EasyMock.expect(context.getAttribute(UrlRewriteServletContextListener.PROCESSOR_ATTRIBUTE_NAME)).andReturn(rewriter).anyTimes();
+
+    FilterConfig config = EasyMock.createNiceMock(FilterConfig.class);
+    EasyMock.expect(config.getInitParameter(UrlRewriteServletFilter.RESPONSE_BODY_FILTER_PARAM)).andReturn("test-filter").anyTimes();
+    EasyMock.expect(config.getServletContext()).andReturn(context).anyTimes();
+
+    HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.expect(response.getContentType()).andReturn("application/json").anyTimes();
+    response.setHeader(EasyMock.eq("Content-Length"), EasyMock.anyString());
+    EasyMock.expectLastCall().andThrow(new AssertionError("Content-Length must not be set for a rewritten body")).anyTimes();
+
+    EasyMock.replay(rewriter, context, config, request, response);
+
+    UrlRewriteResponse rewriteResponse = new UrlRewriteResponse(config, request, response);
+    rewriteResponse.setHeader("Content-Length", "13");
+    testStreamResponse("{\"name\":\"x\"}", rewriteResponse, "");
+  }
+
+  @Test
+  public void testStreamPipelinedCompressedResponse() throws IOException {
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(gatewayConfig.isRewriteCompressionPipelined()).andReturn(true).anyTimes();
+    EasyMock.expect(gatewayConfig.getRewriteCompressionLevel()).andReturn(1).anyTimes();
+    EasyMock.replay(gatewayConfig);
+
+    StringBuilder content = new StringBuilder("[");
+    for (int i = 0; i < 20000; i++) {
+      content.append(i == 0 ? "" : ",").append("{\"name\":\"value-").append(i).append("\"}");
+    }
+    content.append(']');
+
+    for (String encoding : new String[] { "gzip", "deflate" }) {
+      UrlRewriteResponse rewriteResponse = createJsonResponse(gatewayConfig, null, null);
+      rewriteResponse.setHeader("Content-Encoding", encoding);
+      testStreamResponse(content.toString(), rewriteResponse, encoding);
+    }
+  }
+
+  @Test
+  public void testClosingPipelinedInflaterStopsTheStage() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+      for (int i = 0; i < 100000; i++) {
+        gzip.write(("line-" + i + "\n").getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    final boolean[] backendClosed = new boolean[1];
+    InputStream backend = new ByteArrayInputStream(compressed.toByteArray()) {
+      @Override
+      public void close() throws IOException {
+        backendClosed[0] = true;
+        super.close();
+      }
+    };
+
+    InputStream inflated = CompressionPipeline.inflate(backend, true, true);
+    assertThat(inflated.read(new byte[16]), is(16));
+    inflated.close();
+    assertThat(backendClosed[0], is(true));
+  }
+
+  @Test
+  public void testStreamCompressedResponseUncompressedWhenEncodingNotAccepted() throws IOException {
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(gatewayConfig.getRewriteCompressionLevel()).andReturn(-1).anyTimes();
+    EasyMock.expect(gatewayConfig.isRewriteRecompressionSkippedIfNotAccepted()).andReturn(true).anyTimes();
+    EasyMock.replay(gatewayConfig);
+
+    HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.expect(response.getContentType()).andReturn("application/json").anyTimes();
+    response.setHeader("Content-Encoding", "gzip");
+    EasyMock.expectLastCall().once();
+    response.setHeader("Content-Encoding", null);
+    EasyMock.expectLastCall().once();
+
+    UrlRewriteResponse rewriteResponse = createJsonResponse(gatewayConfig, "deflate, gzip;q=0", response);
+    rewriteResponse.setHeader("Content-Encoding", "gzip");
+
+    String content = "{\"name\":\"x\"}";
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(compressed)) {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    rewriteResponse.streamResponse(new ByteArrayInputStream(compressed.toByteArray()), output);
+
+    assertThat(output.toString(StandardCharsets.UTF_8.name()), is(content));
+    EasyMock.verify(response);
+  }
+
+  @Test
+  public void testIsEncodingAccepted() {
+    assertThat(createJsonResponse(null, null, null).isEncodingAccepted("gzip"), is(true));
+    assertThat(createJsonResponse(null, "gzip, deflate, br", null).isEncodingAccepted("gzip"), is(true));
+    assertThat(createJsonResponse(null, "x-gzip", null).isEncodingAccepted("gzip"), is(true));
+    assertThat(createJsonResponse(null, "br;q=1.0, *;q=0.5", null).isEncodingAccepted("deflate"), is(true));
+    assertThat(createJsonResponse(null, "*, gzip;q=0", null).isEncodingAccepted("gzip"), is(false));
+    assertThat(createJsonResponse(null, "GZIP ; q=0.000", null).isEncodingAccepted("gzip"), is(false));
+    assertThat(createJsonResponse(null, "identity", null).isEncodingAccepted("gzip"), is(false));
+  }
+
+  private UrlRewriteResponse createJsonResponse(GatewayConfig gatewayConfig, String acceptEncoding, HttpServletResponse response) {
+    UrlRewriteProcessor rewriter = EasyMock.createNiceMock(UrlRewriteProcessor.class);
+    EasyMock.expect(rewriter.getConfig()).andReturn(null).anyTimes();
+
+    ServletContext context = EasyMock.createNiceMock(ServletContext.class);
+    EasyMock.expect(context.getAttribute(UrlRewriteServletContextListener.PROCESSOR_ATTRIBUTE_NAME)).andReturn(rewriter).anyTimes();
+    EasyMock.expect(context.getAttribute(GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE)).andReturn(gatewayConfig).anyTimes();
+
+    FilterConfig config = EasyMock.createNiceMock(FilterConfig.class);
+    EasyMock.expect(config.getInitParameter(UrlRewriteServletFilter.RESPONSE_BODY_FILTER_PARAM)).andReturn("test-filter").anyTimes();
+    EasyMock.expect(config.getServletContext()).andReturn(context).anyTimes();
+
+    HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    EasyMock.expect(request.getHeader("Accept-Encoding")).andReturn(acceptEncoding).anyTimes();
+
+    if (response == null) {
+      response = EasyMock.createNiceMock(HttpServletResponse.class);
+      EasyMock.expect(response.getContentType()).andReturn("application/json").anyTimes();
+    }
+
+    EasyMock.replay(rewriter, context, config, request, response);
+    return new UrlRewriteResponse(config, request, response);
+  }
+
   private void testStreamResponse(String content, UrlRewriteResponse rewriteResponse, String contentType) throws IOException {
     Path inputFile = Files.createTempFile("input", "test");
     Path outputFile = Files.createTempFile("output", "test");
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl;
+
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteEnvironment;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteProcessor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriter;
+import org.apache.knox.gateway.filter.rewrite.ext.UrlRewriteActionRewriteDescriptorExt;
+import org.apache.knox.gateway.util.urltemplate.Parser;
+import org.apache.knox.gateway.util.urltemplate.Template;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class UrlRewriteRulesModelCacheTest {
+
+  private static final String RULES =
+      "<rules><rule name=\"test-rule\" pattern=\"{*}://{*}:{*}/{**}/?{**}\"><rewrite template=\"test-scheme-output://{host}:{port}/test-path-output/{path}?{query}\"/></rule></rules>";
+
+  @Test
+  public void testIdenticalRulesShareOneDescriptor() throws IOException {
+    UrlRewriteRulesModelCache cache = new UrlRewriteRulesModelCache();
+    UrlRewriteRulesDescriptor first = cache.acquire( RULES.getBytes( StandardCharsets.UTF_8 ) );
+    UrlRewriteRulesDescriptor second = cache.acquire( RULES.getBytes( StandardCharsets.UTF_8 ) );
+    UrlRewriteRulesDescriptor other = cache.acquire( RULES.replace( "test-rule", "other-rule" ).getBytes( StandardCharsets.UTF_8 ) );
+
+    assertThat( first.getRule( "test-rule" ), notNullValue() );
+    assertThat( second, sameInstance( first ) );
+    assertThat( other, not( sameInstance( first ) ) );
+    assertThat( other.getRule( "other-rule" ), notNullValue() );
+    assertThat( cache.size(), is( 2 ) );
+  }
+
+  @Test
+  public void testDescriptorIsDroppedWhenLastTopologyReleasesIt() throws IOException {
+    UrlRewriteRulesModelCache cache = new UrlRewriteRulesModelCache();
+    UrlRewriteRulesDescriptor first = cache.acquire( RULES.getBytes( StandardCharsets.UTF_8 ) );
+    cache.acquire( RULES.getBytes( StandardCharsets.UTF_8 ) );
+
+    cache.release( first );
+    assertThat( cache.size(), is( 1 ) );
+    cache.release( first );
+    assertThat( cache.size(), is( 0 ) );
+    // Releasing a descriptor that is no longer cached is harmless.
+    cache.release( first );
+
+    assertThat( cache.acquire( RULES.getBytes( StandardCharsets.UTF_8 ) ), not( sameInstance( first ) ) );
+  }
+
+  @Test
+  public void testTopologiesSharingADescriptorShareItsParsedTemplates() throws IOException, URISyntaxException {
+    String rules = "<rules><rule name=\"test-rule\" pattern=\"*://*:*/{path=**}?{**}\"><rewrite template=\"test-scheme-output://test-host-output:777/{path}?{**}\"/></rule></rules>";
+    UrlRewriteRulesModelCache cache = new UrlRewriteRulesModelCache();
+    UrlRewriteRulesDescriptor descriptor = cache.acquire( rules.getBytes( StandardCharsets.UTF_8 ) );
+    UrlRewriteActionRewriteDescriptorExt step =
+        (UrlRewriteActionRewriteDescriptorExt)descriptor.getRule( "test-rule" ).steps().get( 0 );
+    Template template = step.parsedTemplate();
+
+    UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
+    EasyMock.replay( environment );
+    Template input = Parser.parseLiteral( "test-scheme-input://test-host:777/test-path-input/a?b=c" );
+    for( int i = 0; i < 2; i++ ) {
+      UrlRewriteProcessor processor = new UrlRewriteProcessor();
+      processor.initialize( environment, cache.acquire( rules.getBytes( StandardCharsets.UTF_8 ) ) );
+      assertThat( processor.rewrite( null, input, UrlRewriter.Direction.IN, null ).toString(),
+          is( "test-scheme-output://test-host-output:777/test-path-input/a?b=c" ) );
+      processor.destroy();
+    }
+    assertThat( step.parsedTemplate(), sameInstance( template ) );
+
+    step.parameter( "other://{host}" );
+    assertThat( step.parsedTemplate().toString(), is( "other://{host}" ) );
+  }
+}
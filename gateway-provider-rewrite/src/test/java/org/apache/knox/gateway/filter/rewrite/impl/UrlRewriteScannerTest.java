@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl;
+
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class UrlRewriteScannerTest {
+
+  private static final UrlRewriteFilterReader TAGGING_READER = ( name, value, rule ) -> "<" + rule + ":" + value + ">";
+
+  @Test
+  public void testLiteralPrefix() {
+    assertThat( UrlRewriteScanner.literalPrefix( Pattern.compile( "/webhdfs/v1" ) ), is( "/webhdfs/v1" ) );
+    assertThat( UrlRewriteScanner.literalPrefix( Pattern.compile( "\\{proxy_root\\}" ) ), is( "{proxy_root}" ) );
+    assertThat( UrlRewriteScanner.literalPrefix( Pattern.compile( "static/templates/.*\\.html" ) ), is( "static/templates/" ) );
+    assertThat( UrlRewriteScanner.literalPrefix( Pattern.compile( "https?://[^/':,]+:[\\d]+" ) ), is( "http" ) );
+    assertThat( UrlRewriteScanner.literalPrefix( Pattern.compile( "jmx\\?qry" ) ), is( "jmx?qry" ) );
+    assertThat( UrlRewriteScanner.literalPrefix( Pattern.compile( "(https?://[^/':,]+:[\\d]+)?/cluster/app" ) ), is( "" ) );
+    assertThat( UrlRewriteScanner.literalPrefix( Pattern.compile( "/jmx|/conf" ) ), is( "" ) );
+    assertThat( UrlRewriteScanner.literalPrefix( Pattern.compile( "\\d+/api" ) ), is( "" ) );
+    assertThat( UrlRewriteScanner.literalPrefix( Pattern.compile( "/api", Pattern.CASE_INSENSITIVE ) ), is( "" ) );
+  }
+
+  @Test
+  public void testLeftmostMatchWinsInOnePass() {
+    UrlRewriteFilterContentDescriptor config = new UrlRewriteFilterContentDescriptorImpl();
+    config.addApply( "/api/v1", "api" );
+    config.addApply( "(https?://[^/':,]+:[\\d]+)?/cluster/app", "app" );
+    config.addApply( "/api", "short" );
+    config.addApply( "/jmx", "jmx" );
+    UrlRewriteScanner scanner = new UrlRewriteScanner( config, TAGGING_READER, new UrlRewriteFilterReader.RegexCompiler() );
+
+    assertThat( scanner.scan( "a('/api/v1/x');b('http://host:8088/cluster/app/1');c('/api/v2');d('/jmx')" ),
+        is( "a('<api:/api/v1>/x');b('<app:http://host:8088/cluster/app>/1');c('<short:/api>/v2');d('<jmx:/jmx>')" ) );
+    assertThat( scanner.scan( "no urls in here" ), is( "no urls in here" ) );
+    assertThat( scanner.scan( "" ), is( "" ) );
+  }
+
+  @Test
+  public void testStreamedScanMatchesAcrossWindows() throws IOException {
+    UrlRewriteFilterContentDescriptor config = new UrlRewriteFilterContentDescriptorImpl();
+    config.addApply( "/webhdfs/v1", "hdfs" );
+    config.addApply( "https?://[^/':,]+:[\\d]+", "host" );
+    StringBuilder input = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for( int i = 0; input.length() < 10 * UrlRewriteScanner.MAX_MATCH; i++ ) {
+      /* a single line, like a minified bundle, with matches at every offset of the window */
+      String padding = "var x" + i + "=" + "y".repeat( i % 37 ) + ";";
+      input.append( padding ).append( "f('/webhdfs/v1/p" ).append( i ).append( "','http://host" ).append( i ).append( ":50070');" );
+      expected.append( padding ).append( "f('<hdfs:/webhdfs/v1>/p" ).append( i ).append( "','<host:http://host" ).append( i ).append( ":50070>');" );
+    }
+
+    UrlRewriteScanner scanner = new UrlRewriteScanner( config, TAGGING_READER, new UrlRewriteFilterReader.RegexCompiler() );
+    StringReader reader = new StringReader( input.toString() );
+    StringBuilder output = new StringBuilder();
+    while( scanner.scan( reader, output ) ) {
+      assertThat( output.length() > 0, is( true ) );
+    }
+    assertThat( output.toString(), is( expected.toString() ) );
+  }
+
+  @Test
+  public void testAnchorsAndLookbehindsSeeThePrecedingContentAcrossWindows() throws IOException {
+    UrlRewriteFilterContentDescriptor config = new UrlRewriteFilterContentDescriptorImpl();
+    config.addApply( "^/start", "start" );
+    config.addApply( "(?<=src=')/static", "static" );
+    config.addApply( "(?m)^/line", "line" );
+    StringBuilder input = new StringBuilder( "/start;" );
+    StringBuilder expected = new StringBuilder( "<start:/start>;" );
+    for( int i = 0; input.length() < 10 * UrlRewriteScanner.MAX_MATCH; i++ ) {
+      /* the same literals without their context land at the start of every window sooner or later */
+      String padding = "x".repeat( i % 53 );
+      input.append( padding ).append( "/start/static/line src='/static' x\n/line" );
+      expected.append( padding ).append( "/start/static/line src='<static:/static>' x\n<line:/line>" );
+    }
+
+    UrlRewriteScanner scanner = new UrlRewriteScanner( config, TAGGING_READER, new UrlRewriteFilterReader.RegexCompiler() );
+    StringReader reader = new StringReader( input.toString() );
+    StringBuilder output = new StringBuilder();
+    while( scanner.scan( reader, output ) ) {
+      assertThat( output.length() > 0, is( true ) );
+    }
+    assertThat( output.toString(), is( expected.toString() ) );
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl.form;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFactory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class FormFilterReaderTest {
+
+  @Test
+  public void testOnlySelectedValuesAreFiltered() throws IOException {
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterContentDescriptor contentConfig = rulesConfig.addFilter( "filter-1" ).addContent( "application/x-www-form-urlencoded" );
+    contentConfig.addApply( "url", "test-rule" );
+
+    String input = "Name=Jonathan+Doe&url=http%3A%2F%2Fhost%3A1%2Fpath&&Formula=a+%2B+b%7e&flag&url=";
+    List<String> filtered = new ArrayList<>();
+    String output = IOUtils.toString( new UpperCaseFormFilterReader( new StringReader( input ), contentConfig, filtered ) );
+    assertThat( output, is( "Name=Jonathan+Doe&url=HTTP%3A%2F%2FHOST%3A1%2FPATH&&Formula=a+%2B+b%7e&flag&url=" ) );
+    assertThat( filtered.toString(), is( "[url:http://host:1/path:test-rule, url::test-rule]" ) );
+  }
+
+  @Test
+  public void testApplyWithoutRuleFiltersTheValue() throws IOException {
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterContentDescriptor contentConfig = rulesConfig.addFilter( "filter-1" ).addContent( "application/x-www-form-urlencoded" );
+    contentConfig.addApply( "x", null );
+
+    String input = "x=http%3A%2F%2Fhost&y=http%3A%2F%2Fhost";
+    List<String> filtered = new ArrayList<>();
+    String output = IOUtils.toString( new UpperCaseFormFilterReader( new StringReader( input ), contentConfig, filtered ) );
+    assertThat( output, is( "x=HTTP%3A%2F%2FHOST&y=http%3A%2F%2Fhost" ) );
+    assertThat( filtered.toString(), is( "[x:http://host:null]" ) );
+  }
+
+  @Test
+  public void testUnchangedValuesAreNotReencoded() throws IOException {
+    String input = "a=%7e%41&b=x%3Dy=z&c=%zz";
+    List<String> filtered = new ArrayList<>();
+    String output = IOUtils.toString( new FormFilterReader( new StringReader( input ), null ) {
+      @Override
+      protected String filterValue( String name, String value, String rule ) {
+        filtered.add( name + ":" + value + ":" + rule );
+        return value;
+      }
+    } );
+    assertThat( output, is( input ) );
+    assertThat( filtered.toString(), is( "[a:~A:*, b:x=y=z:*]" ) );
+  }
+
+  @Test
+  public void testLargeUnselectedValueIsStreamed() throws IOException {
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterContentDescriptor contentConfig = rulesConfig.addFilter( "filter-1" ).addContent( "application/x-www-form-urlencoded" );
+    contentConfig.addApply( "url", "test-rule" );
+
+    StringBuilder blob = new StringBuilder();
+    for( int i = 0; i < 10000; i++ ) {
+      blob.append( "%2F" ).append( i );
+    }
+    String input = "blob=" + blob + "&url=http%3A%2F%2Fhost";
+    List<String> filtered = new ArrayList<>();
+    Reader reader = new UpperCaseFormFilterReader( new StringReader( input ), contentConfig, filtered );
+    char[] chunk = new char[ 1000 ];
+    StringBuilder output = new StringBuilder();
+    int count = reader.read( chunk );
+    while( count >= 0 ) {
+      output.append( chunk, 0, count );
+      count = reader.read( chunk );
+    }
+    assertThat( output.toString(), is( "blob=" + blob + "&url=HTTP%3A%2F%2FHOST" ) );
+    assertThat( filtered.size(), is( 1 ) );
+  }
+
+  @Test
+  public void testReadPairs() throws IOException {
+    FormReader reader = new FormReader( new StringReader( "a=1&&b=x%3D%26&c&=d&" ) );
+    assertPair( reader.getNextPair(), "a", "1" );
+    assertPair( reader.getNextPair(), "b", "x=&" );
+    assertPair( reader.getNextPair(), "c", "" );
+    assertPair( reader.getNextPair(), "", "d" );
+    assertThat( reader.getNextPair(), nullValue() );
+  }
+
+  private static void assertPair( FormPair pair, String name, String value ) {
+    assertThat( pair.getName(), is( name ) );
+    assertThat( pair.getValue(), is( value ) );
+  }
+
+  private static class UpperCaseFormFilterReader extends FormFilterReader {
+    private final List<String> filtered;
+
+    UpperCaseFormFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config, List<String> filtered ) throws IOException {
+      super( reader, config );
+      this.filtered = filtered;
+    }
+
+    @Override
+    protected String filterValue( String name, String value, String rule ) {
+      filtered.add( name + ":" + value + ":" + rule );
+      return value.toUpperCase( Locale.ROOT );
+    }
+  }
+
+}
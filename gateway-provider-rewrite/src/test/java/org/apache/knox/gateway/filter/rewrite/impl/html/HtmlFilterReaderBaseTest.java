@@ -333,6 +333,22 @@ public class HtmlFilterReaderBaseTest {
     assertThat( outputXml, is( expectedOutput ) );
   }
 
+  @Test
+  public void testMatchedStyleText() throws IOException, ParserConfigurationException {
+    Map<String, Map<String, String>> rules = new HashMap<>();
+    Map<String, String> map = new HashMap<>();
+    map.put( "/static/[^)]+", "https://knoxhost:8443/gateway/ui/static/logo.png" );
+    rules.put( "test-rule", map );
+    String inputXml =
+        "<root><style type=\"text/css\">.logo { background: url(/static/logo.png) no-repeat; }</style></root>";
+    UrlRewriteFilterContentDescriptor config = new UrlRewriteFilterContentDescriptorImpl();
+    config.addApply( "/static/[^)]+", "test-rule" );
+    HtmlFilterReaderBase filterReader = new MatchRuleXmlFilterReader( new StringReader( inputXml ), rules, config );
+    String outputXml = new String( IOUtils.toCharArray( filterReader ) );
+    assertThat( outputXml, is(
+        "<root><style type=\"text/css\">.logo { background: url(https://knoxhost:8443/gateway/ui/static/logo.png) no-repeat; }</style></root>" ) );
+  }
+
   @Test
   public void testMRJobHistoryUIJavaScriptText() throws IOException, ParserConfigurationException {
     Map<String, Map<String, String>> rules = new HashMap<>();
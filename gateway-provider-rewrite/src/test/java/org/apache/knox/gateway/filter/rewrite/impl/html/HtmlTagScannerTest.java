@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl.html;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteFilterContentDescriptorImpl;
+import org.junit.Test;
+
+import javax.xml.namespace.QName;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class HtmlTagScannerTest {
+
+  private static final Set<String> URL_ATTRIBUTES = new HashSet<>( Arrays.asList( "href", "src", "action" ) );
+
+  private static class PrefixFilterReader extends HtmlFilterReaderBase {
+    private final List<String> filtered = new ArrayList<>();
+
+    PrefixFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) {
+      super( reader, config, URL_ATTRIBUTES );
+    }
+
+    @Override
+    protected String filterAttribute( QName elementName, QName attributeName, String attributeValue, String ruleName ) {
+      filtered.add( elementName.getLocalPart() + "@" + attributeName.getLocalPart() + "=" + attributeValue + ":" + ruleName );
+      return attributeValue.startsWith( "/" ) ? "/gateway" + attributeValue : attributeValue;
+    }
+
+    @Override
+    protected String filterText( QName elementName, String text, String ruleName ) {
+      filtered.add( elementName.getLocalPart() + ":" + text );
+      return text;
+    }
+
+    @Override
+    public String filterValueString( String name, String value, String ruleName ) {
+      return "/gateway" + value;
+    }
+  }
+
+  /* Hands out the document one char at a time, so that every construct crosses a buffer boundary. */
+  private static class TricklingReader extends FilterReader {
+    TricklingReader( Reader reader ) {
+      super( reader );
+    }
+
+    @Override
+    public int read( char[] buffer, int offset, int count ) throws IOException {
+      return super.read( buffer, offset, Math.min( count, 1 ) );
+    }
+  }
+
+  private static final String PAGE =
+      "<!DOCTYPE html>\n" +
+      "<HTML><head><title>a <b> title</title>\n" +
+      "<link rel=stylesheet HREF=/static/app.css>\n" +
+      "<!-- <a href=\"/commented\"> -- -->\n" +
+      "</head><body class=\"main\" onload='init(\"/x\")'>\n" +
+      "<a title=\"1 > 0\" href = '/app/page?a=1&amp;b=2'>a < b</a><br/>\n" +
+      "<img src=\"http://host/logo.png\" alt=logo/>\n" +
+      "<form action=\"/submit\"><textarea><a href=\"/raw\"></textarea></form>\n" +
+      "<![CDATA[<a href=\"/cdata\">]]>\n" +
+      "<script>if (a < b) { location = \"/script\"; }</script>\n" +
+      "</body></HTML>";
+
+  @Test
+  public void testOnlyUrlAttributesAreFiltered() throws IOException {
+    PrefixFilterReader reader = new PrefixFilterReader( new StringReader( PAGE ), null );
+    String output = IOUtils.toString( reader );
+    assertThat( output, is( PAGE
+        .replace( "HREF=/static/app.css", "HREF=\"/gateway/static/app.css\"" )
+        .replace( "'/app/page", "'/gateway/app/page" )
+        .replace( "\"/submit\"", "\"/gateway/submit\"" ) ) );
+    assertThat( reader.filtered, is( Arrays.asList(
+        "link@HREF=/static/app.css:null",
+        "a@href=/app/page?a=1&amp;b=2:null",
+        "img@src=http://host/logo.png:null",
+        "form@action=/submit:null" ) ) );
+  }
+
+  @Test
+  public void testDocumentSplitAcrossReads() throws IOException {
+    String output = IOUtils.toString( new PrefixFilterReader( new TricklingReader( new StringReader( PAGE ) ), null ) );
+    assertThat( output, is( IOUtils.toString( new PrefixFilterReader( new StringReader( PAGE ), null ) ) ) );
+  }
+
+  @Test
+  public void testSelectorsApplyToOtherAttributesAndInlineContent() throws IOException {
+    UrlRewriteFilterContentDescriptor config = new UrlRewriteFilterContentDescriptorImpl();
+    config.addApply( "/api/[a-z0-9]+", "test-rule" );
+    String input =
+        "<div data-url=\"/api/v1\" data-other=\"/api/v1/x\" id=main>" +
+        "<script type=\"text/javascript\">load(\"/api/data\");</script>" +
+        "<STYLE>.a { background: url(/api/img); }</STYLE >" +
+        "<p>/api/text</p></div>";
+    PrefixFilterReader reader = new PrefixFilterReader( new StringReader( input ), config );
+    String output = IOUtils.toString( reader );
+    assertThat( output, is(
+        "<div data-url=\"/gateway/api/v1\" data-other=\"/api/v1/x\" id=main>" +
+        "<script type=\"text/javascript\">load(\"/gateway/api/data\");</script>" +
+        "<STYLE>.a { background: url(/gateway/api/img); }</STYLE >" +
+        "<p>/api/text</p></div>" ) );
+    assertThat( reader.filtered, is( Arrays.asList( "div@data-url=/api/v1:test-rule" ) ) );
+  }
+
+  @Test
+  public void testUnterminatedConstructs() throws IOException {
+    UrlRewriteFilterContentDescriptor config = new UrlRewriteFilterContentDescriptorImpl();
+    config.addApply( "/api/[a-z0-9]+", "test-rule" );
+    assertThat( IOUtils.toString( new PrefixFilterReader( new StringReader( "<p>1</p><script>x(\"/api/a\")" ), config ) ),
+        is( "<p>1</p><script>x(\"/gateway/api/a\")" ) );
+    assertThat( IOUtils.toString( new PrefixFilterReader( new StringReader( "a <!-- b" ), null ) ), is( "a <!-- b" ) );
+    assertThat( IOUtils.toString( new PrefixFilterReader( new StringReader( "<a href=\"/x" ), null ) ), is( "<a href=\"/gateway/x" ) );
+    assertThat( IOUtils.toString( new PrefixFilterReader( new StringReader( "1 <" ), null ) ), is( "1 <" ) );
+  }
+
+  @Test
+  public void testTagWithUnclosedQuoteIsCopiedAsText() throws IOException {
+    StringBuilder value = new StringBuilder();
+    while( value.length() < 300 * 1024 ) {
+      value.append( "/x " );
+    }
+    String input = "<img src=\"" + value + "<a href=\"/y\">y</a>";
+    PrefixFilterReader reader = new PrefixFilterReader( new StringReader( input ), null );
+    String output = IOUtils.toString( reader );
+    // The tag isn't rewritten, but the tags that follow it still are.
+    assertThat( output, is( "<img src=\"" + value + "<a href=\"/gateway/y\">y</a>" ) );
+    assertThat( reader.filtered.toString(), is( "[a@href=/y:null]" ) );
+  }
+
+}
@@ -115,4 +115,23 @@ public class JavaScriptFilterReaderTest {
         "}).error(network_error_handler(url));\n";
     assertThat( outputJs, is ( expectedOutputJs ) );
   }
+
+  @Test
+  public void testMinifiedJsContentKeepsLineEndings() throws IOException {
+    Map<String, Map<String, String>> rules = new HashMap<>();
+    Map<String, String> map = new HashMap<>();
+    map.put( "/webhdfs/v1", "https://knoxhost:8443/webhdfs/v1" );
+    rules.put( "test-rule", map );
+    StringBuilder inputJs = new StringBuilder( "/* bundle */\r\n" );
+    StringBuilder expectedOutputJs = new StringBuilder( "/* bundle */\r\n" );
+    for( int i = 0; i < 5000; i++ ) {
+      inputJs.append( "function f" ).append( i ).append( "(p){return $.get('/webhdfs/v1'+p);}" );
+      expectedOutputJs.append( "function f" ).append( i ).append( "(p){return $.get('https://knoxhost:8443/webhdfs/v1'+p);}" );
+    }
+    UrlRewriteFilterContentDescriptor config = new UrlRewriteFilterContentDescriptorImpl();
+    config.addApply( "/webhdfs/v1", "test-rule" );
+    JavaScriptFilterReader filterReader = new MatchRuleJsFilterReader( new StringReader( inputJs.toString() ), rules, config );
+    String outputJs = new String( IOUtils.toCharArray( filterReader ) );
+    assertThat( outputJs, is ( expectedOutputJs.toString() ) );
+  }
 }
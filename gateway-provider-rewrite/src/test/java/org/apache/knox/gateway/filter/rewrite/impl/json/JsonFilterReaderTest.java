@@ -352,4 +352,62 @@ public class JsonFilterReaderTest {
     output = IOUtils.toString( filter );
     assertThat( output, is( "{\"test-name\":\"\\b\"}" ) );
   }
+
+  @Test
+  public void testStreamedSelectorsOnNestedArrays() throws Exception {
+    String input = "{\"links\":[{\"href\":\"a\"},{\"href\":\"b\",\"sub\":{\"href\":\"c\"}}],\"other\":\"d\"}";
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/json" );
+    contentConfig.addApply( "$.**.name<href>", "test-rule" );
+
+    JsonFilterReader filter = new TestJsonFilterReader( new StringReader( input ), contentConfig );
+    String output = IOUtils.toString( filter );
+    JsonAssert.with( output ).assertThat( "name<links>[0].name<href>", is( "value:test-rule<a>" ) );
+    JsonAssert.with( output ).assertThat( "name<links>[1].name<href>", is( "value:test-rule<b>" ) );
+    JsonAssert.with( output ).assertThat( "name<links>[1].name<sub>.name<href>", is( "value:test-rule<c>" ) );
+    JsonAssert.with( output ).assertThat( "name<other>", is( "value:null<d>" ) );
+  }
+
+  @Test
+  public void testLargeDocumentIsStreamed() throws Exception {
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/json" );
+    contentConfig.addApply( "$.apps.app[*].trackingUrl", "test-rule" );
+
+    int apps = 50000;
+    StringBuilder input = new StringBuilder( "{\"apps\":{\"app\":[" );
+    for( int i = 0; i < apps; i++ ) {
+      if( i > 0 ) {
+        input.append( ',' );
+      }
+      input.append( "{\"id\":" ).append( i ).append( ",\"trackingUrl\":\"http://host:8088/proxy/" ).append( i ).append( "\"}" );
+    }
+    input.append( "]}}" );
+
+    JsonFilterReader filter = new JsonFilterReader( new StringReader( input.toString() ), contentConfig ) {
+      @Override
+      protected String filterValueString( String name, String value, String rule ) {
+        return rule == null ? value : "https://gateway/" + value.substring( value.lastIndexOf( '/' ) + 1 );
+      }
+    };
+    char[] chunk = new char[ 1024 ];
+    int count;
+    int rewritten = 0;
+    StringBuilder tail = new StringBuilder();
+    while( ( count = filter.read( chunk, 0, chunk.length ) ) != -1 ) {
+      tail.append( chunk, 0, count );
+      int index;
+      while( ( index = tail.indexOf( "https://gateway/" ) ) >= 0 ) {
+        rewritten++;
+        tail.delete( 0, index + 1 );
+      }
+      if( tail.length() > 64 ) {
+        tail.delete( 0, tail.length() - 64 );
+      }
+    }
+    assertThat( rewritten, is( apps ) );
+  }
 }
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl.json;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonPathMatcherTest {
+
+  @Test
+  public void testFieldsAndIndexes() {
+    JsonPathMatcher.Step[] path = path( "apps", "app", 2, "id" );
+    assertEquals( 4, new JsonPathMatcher( "$.apps.app[*].id" ).match( path, 4 ) );
+    assertEquals( 4, new JsonPathMatcher( "$.apps.app[2].id" ).match( path, 4 ) );
+    assertEquals( -1, new JsonPathMatcher( "$.apps.app[0].id" ).match( path, 4 ) );
+    assertEquals( -1, new JsonPathMatcher( "$.apps.id" ).match( path, 4 ) );
+    assertEquals( 2, new JsonPathMatcher( "$.apps.app" ).match( path, 4 ) );
+    assertEquals( 0, new JsonPathMatcher( "$" ).match( path, 4 ) );
+  }
+
+  @Test
+  public void testBracketedFieldNames() {
+    assertEquals( 1, new JsonPathMatcher( "$[fs.defaultFS]" ).match( path( "fs.defaultFS" ), 1 ) );
+    assertEquals( 3, new JsonPathMatcher( "$[Region][*][location]" ).match( path( "Region", 0, "location" ), 3 ) );
+  }
+
+  @Test
+  public void testGlobMatchesShallowestPrefix() {
+    JsonPathMatcher matcher = new JsonPathMatcher( "$.**.href" );
+    assertEquals( 1, matcher.match( path( "href" ), 1 ) );
+    assertEquals( 4, matcher.match( path( "a", 0, "b", "href" ), 4 ) );
+    assertEquals( 2, matcher.match( path( "a", "href", "href" ), 3 ) );
+    assertEquals( -1, matcher.match( path( "a", "b" ), 2 ) );
+    assertEquals( 0, new JsonPathMatcher( "$.**" ).match( path( "a", "b" ), 2 ) );
+  }
+
+  @Test
+  public void testMatchesOnlyStepsInUse() {
+    JsonPathMatcher.Step[] path = path( "a", "b" );
+    assertEquals( -1, new JsonPathMatcher( "$.a.b" ).match( path, 1 ) );
+    assertEquals( 1, new JsonPathMatcher( "$.*" ).match( path, 1 ) );
+  }
+
+  private static JsonPathMatcher.Step[] path( Object... steps ) {
+    JsonPathMatcher.Step[] path = new JsonPathMatcher.Step[ steps.length ];
+    for( int i = 0; i < steps.length; i++ ) {
+      path[ i ] = new JsonPathMatcher.Step();
+      if( steps[ i ] instanceof Integer ) {
+        path[ i ].array = true;
+        path[ i ].index = (Integer)steps[ i ];
+      } else {
+        path[ i ].field = (String)steps[ i ];
+      }
+    }
+    return path;
+  }
+}
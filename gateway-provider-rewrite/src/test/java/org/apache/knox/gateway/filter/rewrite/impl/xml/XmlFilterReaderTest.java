@@ -927,6 +927,43 @@ public class XmlFilterReaderTest {
     assertThat( output, containsString( "<?xml version=\"1.0\" standalone=\"no\"?><document>   <noempty test=\"a\"> </noempty>  <!-- This is the first comment -->   <empty/>   <![CDATA[<xyz>wibble</xyz>]]>   <here>      <moreempty/>       <!-- This is the second comment -->      <![CDATA[<xyz>noop</xyz>]]>   </here></document>"));
   }
 
+  @Test
+  public void testStreamedApplyWithPredicateSelector() throws Exception {
+    String input = "<properties><property name='a' value='value-a'/><property name='b' value='value-b'/></properties>";
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/xml" );
+    contentConfig.addApply( "/properties/property[@value='value-b']", "test-rule" );
+
+    XmlFilterReader filter = new TestXmlFilterReader( new StringReader( input ), contentConfig );
+    String output = IOUtils.toString( filter );
+
+    assertThat( the( output ), hasXPath( "/properties/property[1]/@value", equalTo( "value-a" ) ) );
+    assertThat( the( output ), hasXPath( "/properties/property[2]/@value", equalTo( "attr:test-rule{value-b}" ) ) );
+  }
+
+  @Test
+  public void testLargeDocumentIsStreamed() throws Exception {
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/xml" );
+    contentConfig.addApply( "/configuration/property/value", "test-rule" );
+
+    int properties = 10000;
+    StringBuilder input = new StringBuilder( "<configuration>" );
+    for( int i = 0; i < properties; i++ ) {
+      input.append( "\n  <property><name>name-" ).append( i ).append( "</name><value>value-" ).append( i ).append( "</value></property>" );
+    }
+    input.append( "\n</configuration>" );
+
+    XmlFilterReader filter = new TestXmlFilterReader( new StringReader( input.toString() ), contentConfig );
+    String output = IOUtils.toString( filter );
+
+    assertThat( the( output ), hasXPath( "count(/configuration/property/value[starts-with(text(),'text:test-rule{')])", equalTo( String.valueOf( properties ) ) ) );
+    assertThat( the( output ), hasXPath( "/configuration/property[1]/name/text()", equalTo( "name-0" ) ) );
+  }
+
   @Test
   public void testSpecialTextNodeBugKnox394() throws IOException, ParserConfigurationException, XMLStreamException {
     String inputXml = "<tag>${oozieTemplateMarkup}</tag>";
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl.xml;
+
+import org.junit.Test;
+
+import javax.xml.namespace.QName;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class XmlPathMatcherTest {
+
+  @Test
+  public void testStreamableSubset() {
+    assertTrue( matcher( "/properties/property/value" ).isStreamable() );
+    assertTrue( matcher( "/properties/property/value/text()" ).isStreamable() );
+    assertTrue( matcher( "/TableInfo/Region/@location" ).isStreamable() );
+    assertTrue( matcher( "//property/*/@*" ).isStreamable() );
+    assertTrue( matcher( "@value" ).isStreamable() );
+    assertFalse( matcher( "/properties/property[@name='x']" ).isStreamable() );
+    assertFalse( matcher( "/ns:root" ).isStreamable() );
+    assertFalse( matcher( "/" ).isStreamable() );
+    assertFalse( matcher( "/a/@b/c" ).isStreamable() );
+  }
+
+  @Test
+  public void testSelectsOpenElements() {
+    XmlPathMatcher.Element[] path = path( "properties", "property", "value" );
+    assertTrue( matcher( "/properties/property/value" ).selects( path, 0, 3, null ) );
+    assertTrue( matcher( "/properties/property" ).selects( path, 0, 3, null ) );
+    assertTrue( matcher( "/*/property" ).selects( path, 0, 3, null ) );
+    assertTrue( matcher( "//value" ).selects( path, 0, 3, null ) );
+    assertFalse( matcher( "/properties/value" ).selects( path, 0, 3, null ) );
+    assertFalse( matcher( "/properties/property/value/name" ).selects( path, 0, 3, null ) );
+    assertFalse( matcher( "/properties/property/value" ).selects( path, 0, 2, null ) );
+  }
+
+  @Test
+  public void testSelectsTextAndAttributes() {
+    XmlPathMatcher.Element[] path = path( "properties", "property" );
+    XmlPathMatcher text = matcher( "/properties/property/text()" );
+    assertFalse( text.selects( path, 0, 2, null ) );
+    path[ 1 ].hasText = true;
+    assertTrue( text.selects( path, 0, 2, null ) );
+
+    XmlPathMatcher attribute = matcher( "/properties/property/@value" );
+    assertFalse( attribute.selects( path, 0, 2, null ) );
+    assertFalse( attribute.selects( path, 0, 2, new QName( "name" ) ) );
+    assertTrue( attribute.selects( path, 0, 2, new QName( "value" ) ) );
+    assertFalse( attribute.selects( path, 0, 1, new QName( "value" ) ) );
+  }
+
+  @Test
+  public void testRelativeToScope() {
+    XmlPathMatcher.Element[] path = path( "properties", "property", "value" );
+    assertTrue( matcher( "value" ).selects( path, 2, 3, null ) );
+    assertFalse( matcher( "value" ).selects( path, 1, 3, null ) );
+    assertTrue( matcher( "@name" ).selects( path, 3, 3, new QName( "name" ) ) );
+  }
+
+  @Test
+  public void testNameTestsIgnoreNamespacedElements() {
+    XmlPathMatcher.Element[] path = path( "root" );
+    path[ 0 ].name = new QName( "urn:test", "root" );
+    assertFalse( matcher( "/root" ).selects( path, 0, 1, null ) );
+    assertTrue( matcher( "/*" ).selects( path, 0, 1, null ) );
+  }
+
+  private static XmlPathMatcher matcher( String path ) {
+    return new XmlPathMatcher( path, null );
+  }
+
+  private static XmlPathMatcher.Element[] path( String... names ) {
+    XmlPathMatcher.Element[] path = new XmlPathMatcher.Element[ names.length ];
+    for( int i = 0; i < names.length; i++ ) {
+      path[ i ] = new XmlPathMatcher.Element();
+      path[ i ].name = new QName( names[ i ] );
+    }
+    return path;
+  }
+}
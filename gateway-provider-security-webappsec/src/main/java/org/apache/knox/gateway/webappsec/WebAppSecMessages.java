@@ -17,8 +17,12 @@
  */
 package org.apache.knox.gateway.webappsec;
 
+import org.apache.knox.gateway.i18n.messages.Message;
+import org.apache.knox.gateway.i18n.messages.MessageLevel;
 import org.apache.knox.gateway.i18n.messages.Messages;
 
 @Messages(logger="org.apache.knox.gateway.provider.global.csrf")
 public interface WebAppSecMessages {
+  @Message(level = MessageLevel.DEBUG, text = "Rejecting request to {0}: concurrency limit {1} reached with {2} requests waiting")
+  void rejectingRequestOverConcurrencyLimit(String service, int limit, int waiting);
 }
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.webappsec.bulkhead;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Gateway wide registry of the bulkheads, so that every filter instance of a topology (one per resource)
+ * shares the same topology and service role limits.
+ * <p>
+ * Every filter holds a reference to the bulkheads it uses from its initialization until it is destroyed with
+ * its topology; a bulkhead is dropped once its last reference is released. A bulkhead therefore survives the
+ * redeployment of its topology as long as the new deployment comes up before the old one goes away and the
+ * settings have not changed.
+ */
+public final class Bulkheads {
+  private static final ConcurrentMap<String, Bulkhead> REGISTRY = new ConcurrentHashMap<>();
+
+  private Bulkheads() {
+  }
+
+  /**
+   * @return the topology bulkhead, with a reference taken for the caller, or <code>null</code> if the topology
+   *         is not limited
+   */
+  public static ConcurrencyLimiter getTopologyLimiter(String topology, int maxConcurrent, int minConcurrent,
+                                                      int queueSize, long queueTimeout, String algorithm) {
+    return getLimiter(topology, maxConcurrent, minConcurrent, queueSize, queueTimeout, algorithm);
+  }
+
+  /**
+   * @return the service role bulkhead, with a reference taken for the caller, or <code>null</code> if the
+   *         service role is not limited
+   */
+  public static ConcurrencyLimiter getServiceLimiter(String topology, String serviceRole, int maxConcurrent, int minConcurrent,
+                                                     int queueSize, long queueTimeout, String algorithm) {
+    return getLimiter(getServiceName(topology, serviceRole), maxConcurrent, minConcurrent, queueSize, queueTimeout,
+        algorithm);
+  }
+
+  public static void releaseTopologyLimiter(String topology, ConcurrencyLimiter limiter) {
+    release(topology, limiter);
+  }
+
+  public static void releaseServiceLimiter(String topology, String serviceRole, ConcurrencyLimiter limiter) {
+    release(getServiceName(topology, serviceRole), limiter);
+  }
+
+  static int size() {
+    return REGISTRY.size();
+  }
+
+  private static String getServiceName(String topology, String serviceRole) {
+    return topology + '/' + serviceRole;
+  }
+
+  private static ConcurrencyLimiter getLimiter(String name, int maxConcurrent, int minConcurrent,
+                                               int queueSize, long queueTimeout, String algorithm) {
+    if (maxConcurrent <= 0) {
+      return null;
+    }
+    final ConcurrencyLimiter created = new ConcurrencyLimiter(maxConcurrent, minConcurrent, queueSize, queueTimeout, algorithm);
+    /* references to a bulkhead replaced because of changed settings are simply never released */
+    return REGISTRY.compute(name, (key, existing) ->
+        existing != null && existing.limiter.getSettings().equals(created.getSettings())
+            ? existing.reference()
+            : new Bulkhead(created)).limiter;
+  }
+
+  private static void release(String name, ConcurrencyLimiter limiter) {
+    if (limiter != null) {
+      REGISTRY.computeIfPresent(name, (key, existing) ->
+          existing.limiter != limiter || existing.dereference() > 0 ? existing : null);
+    }
+  }
+
+  /* Only ever modified within the atomic compute operations of the map */
+  private static final class Bulkhead {
+    private final ConcurrencyLimiter limiter;
+    private int references = 1;
+
+    Bulkhead(ConcurrencyLimiter limiter) {
+      this.limiter = limiter;
+    }
+
+    Bulkhead reference() {
+      references++;
+      return this;
+    }
+
+    int dereference() {
+      return --references;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.webappsec.bulkhead;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bulkhead: caps the number of requests processed concurrently and lets a bounded number of
+ * requests wait, for a bounded time, for a permit to be released. Everything beyond that is
+ * rejected right away so that a slow backend cannot tie up every gateway worker thread.
+ */
+public class ConcurrencyLimiter {
+  private final String settings;
+  private final LimitAlgorithm algorithm;
+  private final int queueSize;
+  private final long queueTimeoutNanos;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private int limit;
+  private int inFlight;
+  private int waiting;
+
+  /**
+   * @param maxConcurrent the initial, and highest, concurrency limit
+   * @param minConcurrent the lowest limit an adaptive algorithm may settle on
+   * @param queueSize the number of requests that may wait for a permit
+   * @param queueTimeout the time, in milliseconds, a request may wait for a permit
+   * @param algorithm the name of the {@link LimitAlgorithm}
+   */
+  public ConcurrencyLimiter(int maxConcurrent, int minConcurrent, int queueSize, long queueTimeout, String algorithm) {
+    this.limit = Math.max(1, maxConcurrent);
+    this.queueSize = Math.max(0, queueSize);
+    this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, queueTimeout));
+    this.algorithm = LimitAlgorithm.create(algorithm, Math.max(1, Math.min(minConcurrent, limit)), limit);
+    this.settings = maxConcurrent + "/" + minConcurrent + "/" + queueSize + "/" + queueTimeout + "/" + algorithm;
+  }
+
+  /**
+   * @return <code>true</code> if a permit was obtained and must be given back with {@link #release(long, boolean)},
+   *         <code>false</code> if the request should be rejected
+   */
+  public boolean acquire() throws InterruptedException {
+    lock.lock();
+    try {
+      if (inFlight < limit) {
+        inFlight++;
+        return true;
+      }
+      if (waiting >= queueSize || queueTimeoutNanos == 0) {
+        return false;
+      }
+      waiting++;
+      try {
+        long remaining = queueTimeoutNanos;
+        while (inFlight >= limit) {
+          if (remaining <= 0) {
+            return false;
+          }
+          remaining = released.awaitNanos(remaining);
+        }
+        inFlight++;
+        return true;
+      } finally {
+        waiting--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param rttNanos the time it took to process the request
+   * @param dropped <code>true</code> if the request failed rather than completed
+   */
+  public void release(long rttNanos, boolean dropped) {
+    lock.lock();
+    try {
+      limit = algorithm.update(limit, rttNanos, inFlight, dropped);
+      inFlight--;
+      if (inFlight < limit) {
+        released.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getLimit() {
+    lock.lock();
+    try {
+      return limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getInFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getWaiting() {
+    lock.lock();
+    try {
+      return waiting;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  String getSettings() {
+    return settings;
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.webappsec.bulkhead;
+
+/**
+ * Gradient limit: the ratio between the long term average latency and the latest sample scales the limit
+ * down as soon as requests get slower than usual, while a small headroom of <code>sqrt(limit)</code> lets it
+ * grow again once latency recovers.
+ */
+class GradientLimit implements LimitAlgorithm {
+  private static final double LONG_WINDOW = 100;
+  private static final double SMOOTHING = 0.2;
+  private static final double MIN_GRADIENT = 0.5;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private double longRtt;
+  private double estimatedLimit;
+
+  GradientLimit(int minLimit, int maxLimit) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+  }
+
+  @Override
+  public int update(int limit, long rttNanos, int inFlight, boolean dropped) {
+    if (rttNanos <= 0) {
+      return limit;
+    }
+    if (estimatedLimit == 0) {
+      estimatedLimit = limit;
+    }
+    longRtt = longRtt == 0 ? rttNanos : longRtt + (rttNanos - longRtt) / LONG_WINDOW;
+
+    if (!dropped && inFlight * 2 < estimatedLimit) {
+      /* not enough load to learn anything about the backend */
+      return limit;
+    }
+    final double gradient = dropped ? MIN_GRADIENT : Math.max(MIN_GRADIENT, Math.min(1.0, longRtt / rttNanos));
+    final double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+    estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+    return (int) estimatedLimit;
+  }
+}
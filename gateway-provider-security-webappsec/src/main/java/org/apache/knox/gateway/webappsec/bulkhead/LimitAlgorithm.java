@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.webappsec.bulkhead;
+
+import java.util.Locale;
+
+/**
+ * Estimates the concurrency limit of a bulkhead from the latency of the requests it lets through.
+ * <p>
+ * Implementations are only ever called by their {@link ConcurrencyLimiter} while it holds its lock,
+ * so they need not be thread safe.
+ */
+public interface LimitAlgorithm {
+  String FIXED = "fixed";
+  String VEGAS = "vegas";
+  String GRADIENT = "gradient";
+
+  /**
+   * @param limit the current limit
+   * @param rttNanos the time it took to process the request that just completed
+   * @param inFlight the number of requests in flight when the request completed, including itself
+   * @param dropped <code>true</code> if the request failed rather than completed
+   * @return the new limit
+   */
+  int update(int limit, long rttNanos, int inFlight, boolean dropped);
+
+  /**
+   * @param name one of {@link #FIXED}, {@link #VEGAS} or {@link #GRADIENT}; unknown names fall back to a fixed limit
+   * @param minLimit the lowest limit an adaptive algorithm may settle on
+   * @param maxLimit the highest limit an adaptive algorithm may settle on
+   */
+  static LimitAlgorithm create(String name, int minLimit, int maxLimit) {
+    final String algorithm = name == null ? FIXED : name.trim().toLowerCase(Locale.ROOT);
+    switch (algorithm) {
+      case VEGAS:
+        return new VegasLimit(minLimit, maxLimit);
+      case GRADIENT:
+        return new GradientLimit(minLimit, maxLimit);
+      default:
+        return (limit, rttNanos, inFlight, dropped) -> limit;
+    }
+  }
+}
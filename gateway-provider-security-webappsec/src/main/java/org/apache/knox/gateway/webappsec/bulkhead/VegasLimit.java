@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.webappsec.bulkhead;
+
+/**
+ * TCP Vegas style limit: the queue building up at the backend is estimated as
+ * <code>limit * (1 - minRtt / rtt)</code> and the limit grows while that queue is small and shrinks once
+ * it gets large. The no-load latency is re-learned periodically so a permanently slower backend does not
+ * keep the limit at its floor.
+ */
+class VegasLimit implements LimitAlgorithm {
+  private static final int PROBE_INTERVAL = 1000;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private long rttNoLoad;
+  private int samples;
+
+  VegasLimit(int minLimit, int maxLimit) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+  }
+
+  @Override
+  public int update(int limit, long rttNanos, int inFlight, boolean dropped) {
+    if (rttNanos <= 0) {
+      return limit;
+    }
+    if (++samples >= PROBE_INTERVAL) {
+      samples = 0;
+      rttNoLoad = rttNanos;
+    } else if (rttNoLoad == 0 || rttNanos < rttNoLoad) {
+      rttNoLoad = rttNanos;
+    }
+
+    final int step = Math.max(1, (int) Math.log10(limit));
+    final int newLimit;
+    if (dropped) {
+      newLimit = limit - step;
+    } else if (inFlight * 2 < limit) {
+      /* not enough load to learn anything about the backend */
+      return limit;
+    } else {
+      final int queue = (int) Math.ceil(limit * (1 - (double) rttNoLoad / rttNanos));
+      if (queue <= step) {
+        newLimit = limit + 6 * step;
+      } else if (queue < 3 * step) {
+        newLimit = limit + step;
+      } else if (queue > 6 * step) {
+        newLimit = limit - step;
+      } else {
+        newLimit = limit;
+      }
+    }
+    return Math.max(minLimit, Math.min(maxLimit, newLimit));
+  }
+}
@@ -17,14 +17,17 @@
  */
 package org.apache.knox.gateway.webappsec.deploy;
 
+import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.deploy.DeploymentContext;
 import org.apache.knox.gateway.deploy.ProviderDeploymentContributorBase;
 import org.apache.knox.gateway.descriptor.FilterParamDescriptor;
 import org.apache.knox.gateway.descriptor.ResourceDescriptor;
 import org.apache.knox.gateway.topology.Provider;
 import org.apache.knox.gateway.topology.Service;
+import org.apache.knox.gateway.webappsec.filter.BulkheadFilter;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -55,6 +58,10 @@ public class WebAppSecContributor extends ProviderDeploymentContributorBase {
   private static final String RATE_LIMITING_PREFIX = "rate.limiting";
   private static final String RATE_LIMITING_SUFFIX = "_RATE.LIMITING";
   private static final String RATE_LIMITING_ENABLED = RATE_LIMITING_PREFIX + ".enabled";
+  private static final String BULKHEAD_FILTER_CLASSNAME = "org.apache.knox.gateway.webappsec.filter.BulkheadFilter";
+  private static final String BULKHEAD_PREFIX = "bulkhead.";
+  private static final String BULKHEAD_SUFFIX = "_BULKHEAD";
+  private static final String BULKHEAD_ENABLED = BULKHEAD_PREFIX + "enabled";
   private static final String SECURITY_HEADER_PREFIX = "security.header.";
   private static final String SECURITY_HEADER_ENABLED = SECURITY_HEADER_PREFIX + ".enabled";
   private static final String SECURITY_HEADER_SUFFIX = "_SECURITY.HEADER";
@@ -102,6 +109,16 @@ public class WebAppSecContributor extends ProviderDeploymentContributorBase {
                 .params(params);
       }
 
+      // Bulkheads - per topology and per service concurrency limits
+      params = new ArrayList<>();
+      if (isBulkheadEnabled(context, map)) {
+        provisionBulkheadConfig(context, service, resource, providerParams, params);
+        resource.addFilter().name(getName() + BULKHEAD_SUFFIX)
+                .role(getRole())
+                .impl(BULKHEAD_FILTER_CLASSNAME)
+                .params(params);
+      }
+
       // CORS support
       params = new ArrayList<>();
       String corsEnabled = map.get(CORS_ENABLED);
@@ -181,6 +198,42 @@ public class WebAppSecContributor extends ProviderDeploymentContributorBase {
     }
   }
 
+  private boolean isBulkheadEnabled(DeploymentContext context, Map<String, String> providerParams) {
+    final String bulkheadEnabled = providerParams.get(BULKHEAD_ENABLED);
+    if (bulkheadEnabled != null) {
+      return Boolean.parseBoolean(bulkheadEnabled);
+    }
+    return context.getGatewayConfig() != null && context.getGatewayConfig().isBulkheadEnabled();
+  }
+
+  /*
+   * The gateway-site settings are the defaults for every topology; bulkhead.* provider params override them.
+   */
+  private void provisionBulkheadConfig(DeploymentContext context, Service service, ResourceDescriptor resource,
+                                       Map<String, String> providerParams, List<FilterParamDescriptor> params) {
+    final Map<String, String> config = new LinkedHashMap<>();
+    final GatewayConfig gatewayConfig = context.getGatewayConfig();
+    if (gatewayConfig != null) {
+      config.put(BulkheadFilter.TOPOLOGY_MAX_CONCURRENT_PARAM, String.valueOf(gatewayConfig.getBulkheadTopologyMaxConcurrentRequests()));
+      config.put(BulkheadFilter.SERVICE_MAX_CONCURRENT_PARAM, String.valueOf(gatewayConfig.getBulkheadServiceMaxConcurrentRequests()));
+      config.put(BulkheadFilter.QUEUE_SIZE_PARAM, String.valueOf(gatewayConfig.getBulkheadQueueSize()));
+      config.put(BulkheadFilter.QUEUE_TIMEOUT_PARAM, String.valueOf(gatewayConfig.getBulkheadQueueTimeout()));
+      config.put(BulkheadFilter.LIMIT_ALGORITHM_PARAM, gatewayConfig.getBulkheadLimitAlgorithm());
+    }
+    for (Entry<String, String> entry : providerParams.entrySet()) {
+      if (entry.getKey().startsWith(BULKHEAD_PREFIX) && !BULKHEAD_ENABLED.equals(entry.getKey())) {
+        config.put(entry.getKey().substring(BULKHEAD_PREFIX.length()), entry.getValue());
+      }
+    }
+    config.put(BulkheadFilter.TOPOLOGY_PARAM, context.getTopology().getName());
+    if (service != null) {
+      config.put(BulkheadFilter.SERVICE_ROLE_PARAM, service.getRole());
+    }
+    for (Entry<String, String> entry : config.entrySet()) {
+      params.add(resource.createFilterParam().name(entry.getKey()).value(entry.getValue()));
+    }
+  }
+
   private void provisionConfig(ResourceDescriptor resource, Map<String, String> providerParams,
                                List<FilterParamDescriptor> params, String prefix, boolean cutPrefix, boolean toLowerCase) {
     for (Entry<String, String> entry : providerParams.entrySet()) {
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.webappsec.filter;
+
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.webappsec.WebAppSecMessages;
+import org.apache.knox.gateway.webappsec.bulkhead.Bulkheads;
+import org.apache.knox.gateway.webappsec.bulkhead.ConcurrencyLimiter;
+import org.apache.knox.gateway.webappsec.bulkhead.LimitAlgorithm;
+import org.joda.time.Period;
+import org.joda.time.format.PeriodFormatter;
+import org.joda.time.format.PeriodFormatterBuilder;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * This filter isolates topologies and the services within a topology from each other by
+ * limiting the number of requests each of them may process concurrently. Requests beyond
+ * the limit wait in a bounded queue for a bounded time and are then rejected with a 503
+ * and a Retry-After header, so a hung backend cannot exhaust the gateway's worker threads.
+ * <p>
+ * The filter is contributed by the webappsec provider, so only topologies that configure that provider
+ * are isolated. It holds its bulkheads until it is destroyed along with the topology.
+ */
+public class BulkheadFilter implements Filter {
+  private static final WebAppSecMessages LOG = MessagesFactory.get(WebAppSecMessages.class);
+
+  public static final String TOPOLOGY_PARAM = "topology";
+  public static final String SERVICE_ROLE_PARAM = "service.role";
+  public static final String TOPOLOGY_MAX_CONCURRENT_PARAM = "topology.max.concurrent";
+  public static final String SERVICE_MAX_CONCURRENT_PARAM = "service.max.concurrent";
+  public static final String MIN_CONCURRENT_PARAM = "min.concurrent";
+  public static final String QUEUE_SIZE_PARAM = "queue.size";
+  /* In milliseconds, or with units like the other timeouts of the gateway, e.g. 1m30s500 */
+  public static final String QUEUE_TIMEOUT_PARAM = "queue.timeout";
+  public static final String LIMIT_ALGORITHM_PARAM = "limit.algorithm";
+  public static final String RETRY_AFTER_PARAM = "retry.after";
+
+  private static final String RETRY_AFTER = "Retry-After";
+
+  private String topology;
+  private String serviceRole;
+  private ConcurrencyLimiter topologyLimiter;
+  private ConcurrencyLimiter serviceLimiter;
+  private String serviceName;
+  private String retryAfter = "1";
+
+  @Override
+  public void init(FilterConfig config) throws ServletException {
+    topology = config.getInitParameter(TOPOLOGY_PARAM);
+    serviceRole = config.getInitParameter(SERVICE_ROLE_PARAM);
+    final int minConcurrent = getInt(config, MIN_CONCURRENT_PARAM, 1);
+    final int queueSize = getInt(config, QUEUE_SIZE_PARAM, 16);
+    final long queueTimeout = getTimeout(config, QUEUE_TIMEOUT_PARAM, 1000L);
+    String algorithm = config.getInitParameter(LIMIT_ALGORITHM_PARAM);
+    if (algorithm == null) {
+      algorithm = LimitAlgorithm.FIXED;
+    }
+    final String customRetryAfter = config.getInitParameter(RETRY_AFTER_PARAM);
+    if (customRetryAfter != null) {
+      retryAfter = customRetryAfter.trim();
+    }
+
+    serviceName = topology + "/" + serviceRole;
+    /* parse everything first, so a bad value cannot leave a bulkhead referenced */
+    final int topologyMaxConcurrent = getInt(config, TOPOLOGY_MAX_CONCURRENT_PARAM, 0);
+    final int serviceMaxConcurrent = getInt(config, SERVICE_MAX_CONCURRENT_PARAM, 0);
+    topologyLimiter = Bulkheads.getTopologyLimiter(topology,
+        topologyMaxConcurrent, minConcurrent, queueSize, queueTimeout, algorithm);
+    serviceLimiter = serviceRole == null ? null : Bulkheads.getServiceLimiter(topology, serviceRole,
+        serviceMaxConcurrent, minConcurrent, queueSize, queueTimeout, algorithm);
+  }
+
+  @Override
+  public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+      throws IOException, ServletException {
+    if (!acquire(topologyLimiter)) {
+      reject(response, topologyLimiter);
+      return;
+    }
+    final long start = System.nanoTime();
+    /* a request rejected by the service bulkhead says nothing about the latency of the topology */
+    long rttNanos = 0;
+    boolean dropped = true;
+    try {
+      if (!acquire(serviceLimiter)) {
+        reject(response, serviceLimiter);
+        dropped = false;
+        return;
+      }
+      try {
+        chain.doFilter(request, response);
+        dropped = false;
+      } finally {
+        rttNanos = System.nanoTime() - start;
+        release(serviceLimiter, rttNanos, dropped);
+      }
+    } finally {
+      release(topologyLimiter, rttNanos, dropped);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    Bulkheads.releaseTopologyLimiter(topology, topologyLimiter);
+    topologyLimiter = null;
+    if (serviceRole != null) {
+      Bulkheads.releaseServiceLimiter(topology, serviceRole, serviceLimiter);
+    }
+    serviceLimiter = null;
+  }
+
+  private static boolean acquire(ConcurrencyLimiter limiter) {
+    if (limiter == null) {
+      return true;
+    }
+    try {
+      return limiter.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static void release(ConcurrencyLimiter limiter, long rttNanos, boolean dropped) {
+    if (limiter != null) {
+      limiter.release(rttNanos, dropped);
+    }
+  }
+
+  private void reject(ServletResponse response, ConcurrencyLimiter limiter) throws IOException {
+    LOG.rejectingRequestOverConcurrencyLimit(serviceName, limiter.getLimit(), limiter.getWaiting());
+    final HttpServletResponse httpResponse = (HttpServletResponse) response;
+    httpResponse.setHeader(RETRY_AFTER, retryAfter);
+    httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+  }
+
+  private static int getInt(FilterConfig config, String name, int defaultValue) throws ServletException {
+    final String value = config.getInitParameter(name);
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      throw new ServletException("Invalid value for bulkhead parameter " + name + ": " + value, e);
+    }
+  }
+
+  private static long getTimeout(FilterConfig config, String name, long defaultValue) throws ServletException {
+    final String value = config.getInitParameter(name);
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return parseTimeout(value.trim());
+    } catch (IllegalArgumentException e) {
+      throw new ServletException("Invalid value for bulkhead parameter " + name + ": " + value, e);
+    }
+  }
+
+  private static long parseTimeout(String s) {
+    PeriodFormatter f = new PeriodFormatterBuilder()
+        .appendMinutes().appendSuffix("m", " min")
+        .appendSeconds().appendSuffix("s", " sec")
+        .appendMillis().toFormatter();
+    Period p = Period.parse(s, f);
+    return p.toStandardDuration().getMillis();
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.webappsec;
+
+import org.apache.knox.gateway.webappsec.filter.BulkheadFilter;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Enumeration;
+import java.util.Properties;
+
+public class BulkheadFilterTest {
+
+  @Test
+  public void testRejectsRequestsOverServiceLimit() throws Exception {
+    final Properties props = new Properties();
+    props.put(BulkheadFilter.TOPOLOGY_PARAM, "bulkhead-test");
+    props.put(BulkheadFilter.SERVICE_ROLE_PARAM, "WEBHDFS");
+    props.put(BulkheadFilter.SERVICE_MAX_CONCURRENT_PARAM, "1");
+    props.put(BulkheadFilter.QUEUE_SIZE_PARAM, "0");
+    props.put(BulkheadFilter.RETRY_AFTER_PARAM, "5");
+    final BulkheadFilter filter = new BulkheadFilter();
+    filter.init(new TestFilterConfig(props));
+
+    final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    final HttpServletResponse rejected = EasyMock.createMock(HttpServletResponse.class);
+    rejected.setHeader("Retry-After", "5");
+    rejected.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    final HttpServletResponse accepted = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.replay(request, rejected, accepted);
+
+    final FilterChain rejectedChain = (req, res) -> Assert.fail("The request should have been rejected");
+    /* the outer request holds the only permit while the nested one is processed */
+    final FilterChain chain = (req, res) -> filter.doFilter(request, rejected, rejectedChain);
+    filter.doFilter(request, accepted, chain);
+    EasyMock.verify(rejected);
+
+    final boolean[] called = new boolean[1];
+    filter.doFilter(request, accepted, (req, res) -> called[0] = true);
+    Assert.assertTrue("The permit should have been released", called[0]);
+  }
+
+  @Test(expected = ServletException.class)
+  public void testInvalidLimit() throws Exception {
+    final Properties props = new Properties();
+    props.put(BulkheadFilter.TOPOLOGY_PARAM, "bulkhead-test");
+    props.put(BulkheadFilter.TOPOLOGY_MAX_CONCURRENT_PARAM, "many");
+    new BulkheadFilter().init(new TestFilterConfig(props));
+  }
+
+  @Test
+  public void testQueueTimeoutWithUnits() throws Exception {
+    for (String timeout : new String[] { "250", "2s", "1m30s500" }) {
+      final Properties props = new Properties();
+      props.put(BulkheadFilter.TOPOLOGY_PARAM, "bulkhead-test");
+      props.put(BulkheadFilter.QUEUE_TIMEOUT_PARAM, timeout);
+      final BulkheadFilter filter = new BulkheadFilter();
+      filter.init(new TestFilterConfig(props));
+      filter.destroy();
+    }
+  }
+
+  @Test(expected = ServletException.class)
+  public void testInvalidQueueTimeout() throws Exception {
+    final Properties props = new Properties();
+    props.put(BulkheadFilter.TOPOLOGY_PARAM, "bulkhead-test");
+    props.put(BulkheadFilter.QUEUE_TIMEOUT_PARAM, "soon");
+    new BulkheadFilter().init(new TestFilterConfig(props));
+  }
+
+  static class TestFilterConfig implements FilterConfig {
+    private final Properties props;
+
+    TestFilterConfig(Properties props) {
+      this.props = props;
+    }
+
+    @Override
+    public String getFilterName() {
+      return null;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+      return null;
+    }
+
+    @Override
+    public String getInitParameter(String name) {
+      return props.getProperty(name, null);
+    }
+
+    @Override
+    public Enumeration<String> getInitParameterNames() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.webappsec.bulkhead;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrencyLimiterTest {
+
+  @Test
+  public void testRejectsBeyondLimitWithoutQueue() throws Exception {
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 0, 1000, LimitAlgorithm.FIXED);
+    assertTrue(limiter.acquire());
+    assertTrue(limiter.acquire());
+    assertFalse(limiter.acquire());
+    assertEquals(2, limiter.getInFlight());
+
+    limiter.release(1000, false);
+    assertTrue(limiter.acquire());
+  }
+
+  @Test
+  public void testQueuedRequestTimesOut() throws Exception {
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 50, LimitAlgorithm.FIXED);
+    assertTrue(limiter.acquire());
+    final long start = System.nanoTime();
+    assertFalse(limiter.acquire());
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    assertEquals(0, limiter.getWaiting());
+  }
+
+  @Test(timeout = 10000)
+  public void testQueuedRequestGetsReleasedPermit() throws Exception {
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 10000, LimitAlgorithm.FIXED);
+    assertTrue(limiter.acquire());
+
+    final CountDownLatch acquired = new CountDownLatch(1);
+    final AtomicBoolean result = new AtomicBoolean();
+    final Thread waiter = new Thread(() -> {
+      try {
+        result.set(limiter.acquire());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      acquired.countDown();
+    });
+    waiter.start();
+    while (limiter.getWaiting() == 0) {
+      Thread.sleep(5);
+    }
+    /* the queue is full */
+    assertFalse(limiter.acquire());
+
+    limiter.release(1000, false);
+    assertTrue(acquired.await(5, TimeUnit.SECONDS));
+    assertTrue(result.get());
+    assertEquals(1, limiter.getInFlight());
+  }
+
+  @Test
+  public void testVegasLimitShrinksAsLatencyGrows() throws Exception {
+    assertLimitShrinksAsLatencyGrows(LimitAlgorithm.VEGAS);
+  }
+
+  @Test
+  public void testGradientLimitShrinksAsLatencyGrows() throws Exception {
+    assertLimitShrinksAsLatencyGrows(LimitAlgorithm.GRADIENT);
+  }
+
+  @Test
+  public void testDroppedRequestsShrinkLimit() throws Exception {
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 10, 0, 0, LimitAlgorithm.VEGAS);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(limiter.acquire());
+      limiter.release(1000, true);
+    }
+    assertEquals(10, limiter.getLimit());
+  }
+
+  @Test
+  public void testBulkheadsAreSharedUntilSettingsChange() {
+    final ConcurrencyLimiter first = Bulkheads.getServiceLimiter("sandbox", "WEBHDFS", 10, 1, 5, 100, LimitAlgorithm.FIXED);
+    assertNotNull(first);
+    assertSame(first, Bulkheads.getServiceLimiter("sandbox", "WEBHDFS", 10, 1, 5, 100, LimitAlgorithm.FIXED));
+
+    final ConcurrencyLimiter changed = Bulkheads.getServiceLimiter("sandbox", "WEBHDFS", 20, 1, 5, 100, LimitAlgorithm.FIXED);
+    assertEquals(20, changed.getLimit());
+    assertNull(Bulkheads.getServiceLimiter("sandbox", "WEBHDFS", 0, 1, 5, 100, LimitAlgorithm.FIXED));
+
+    /* the references to the replaced bulkhead do not count for the new one */
+    Bulkheads.releaseServiceLimiter("sandbox", "WEBHDFS", first);
+    Bulkheads.releaseServiceLimiter("sandbox", "WEBHDFS", first);
+    assertSame(changed, Bulkheads.getServiceLimiter("sandbox", "WEBHDFS", 20, 1, 5, 100, LimitAlgorithm.FIXED));
+    Bulkheads.releaseServiceLimiter("sandbox", "WEBHDFS", changed);
+    Bulkheads.releaseServiceLimiter("sandbox", "WEBHDFS", changed);
+  }
+
+  @Test
+  public void testBulkheadsAreDroppedWithTheirLastReference() {
+    final int bulkheads = Bulkheads.size();
+    final ConcurrencyLimiter first = Bulkheads.getTopologyLimiter("released", 10, 1, 5, 100, LimitAlgorithm.FIXED);
+    final ConcurrencyLimiter second = Bulkheads.getTopologyLimiter("released", 10, 1, 5, 100, LimitAlgorithm.FIXED);
+    assertSame(first, second);
+    assertEquals(bulkheads + 1, Bulkheads.size());
+
+    Bulkheads.releaseTopologyLimiter("released", first);
+    assertEquals(bulkheads + 1, Bulkheads.size());
+    Bulkheads.releaseTopologyLimiter("released", second);
+    assertEquals(bulkheads, Bulkheads.size());
+
+    assertNotSame(first, Bulkheads.getTopologyLimiter("released", 10, 1, 5, 100, LimitAlgorithm.FIXED));
+  }
+
+  private void assertLimitShrinksAsLatencyGrows(String algorithm) throws Exception {
+    final ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 5, 0, 0, algorithm);
+    /* keep the limiter saturated, otherwise the samples are ignored */
+    for (int i = 0; i < 100; i++) {
+      assertTrue(limiter.acquire());
+    }
+    long rtt = TimeUnit.MILLISECONDS.toNanos(10);
+    for (int i = 0; i < 500; i++) {
+      limiter.release(rtt, false);
+      /* fails once the limit has dropped below the number of requests in flight */
+      limiter.acquire();
+      if (i > 20) {
+        rtt += TimeUnit.MILLISECONDS.toNanos(1);
+      }
+    }
+    assertTrue(limiter.getLimit() < 50);
+    assertTrue(limiter.getLimit() >= 5);
+  }
+}
@@ -46,6 +46,7 @@ public class WebAppSecContributorTest {
   private static final String XSS_PROTECTION_SUFFIX = "_XSSPROTECTION";
   private static final String STRICT_TRANSPORT_SUFFIX = "_STRICTTRANSPORT";
   private static final String RATE_LIMITING_SUFFIX = "_RATE.LIMITING";
+  private static final String BULKHEAD_SUFFIX = "_BULKHEAD";
 
   private DeploymentContext mockContext;
   private Topology mockTopology;
@@ -227,6 +228,37 @@ public class WebAppSecContributorTest {
     }
   }
 
+  @Test
+  public void testBulkhead() {
+    Map<String, String> providerParams = new HashMap<>();
+    providerParams.put("bulkhead.enabled", "true");
+    providerParams.put("bulkhead.service.max.concurrent", "10");
+    providerParams.put("bulkhead.limit.algorithm", "vegas");
+    mockContributor(providerParams);
+    EasyMock.reset(mockTopology, mockService);
+    EasyMock.expect(mockTopology.getName()).andReturn("sandbox").anyTimes();
+    EasyMock.expect(mockTopology.getProvider(ROLE, NAME)).andReturn(mockProvider).anyTimes();
+    EasyMock.expect(mockService.getRole()).andReturn("WEBHDFS").anyTimes();
+    EasyMock.replay(mockTopology, mockService);
+
+    WebAppSecContributor webAppSecContributor = new WebAppSecContributor();
+    webAppSecContributor.initializeContribution(mockContext);
+    webAppSecContributor.contributeFilter(mockContext, mockProvider, mockService, resourceDescriptor, null);
+
+    Assert.assertEquals(1, resourceDescriptor.filters().size());
+    FilterDescriptor filterDescriptor = resourceDescriptor.filters().get(0);
+    Assert.assertEquals(NAME + BULKHEAD_SUFFIX, filterDescriptor.name());
+    Map<String, String> filterParams = new HashMap<>();
+    for (FilterParamDescriptor filterParamDescriptor : filterDescriptor.params()) {
+      filterParams.put(filterParamDescriptor.name(), filterParamDescriptor.value());
+    }
+    Assert.assertEquals("sandbox", filterParams.get("topology"));
+    Assert.assertEquals("WEBHDFS", filterParams.get("service.role"));
+    Assert.assertEquals("10", filterParams.get("service.max.concurrent"));
+    Assert.assertEquals("vegas", filterParams.get("limit.algorithm"));
+    Assert.assertFalse(filterParams.containsKey("enabled"));
+  }
+
   @Test
   public void testAllFiltersAdded() {
     Map<String, String> providerParams = new HashMap<>();
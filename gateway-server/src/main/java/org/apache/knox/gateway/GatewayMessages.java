@@ -90,6 +90,9 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.INFO, text = "Deploying topology {0} to {1}" )
   void deployingTopology( String clusterName, String warDirName );
 
+  @Message( level = MessageLevel.INFO, text = "Deploying topology {0} in memory" )
+  void deployingTopologyInMemory( String clusterName );
+
   @Message( level = MessageLevel.DEBUG, text = "Deployed topology {0}." )
   void deployedTopology( String clusterName );
 
@@ -108,6 +111,36 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.INFO, text = "Deactivating topology {0}" )
   void deactivatingTopology( String name );
 
+  @Message( level = MessageLevel.INFO, text = "Topology deployment phase {0} of {1} topologies took {2} ms" )
+  void completedTopologyDeploymentPhase( String phase, int topologies, long millis );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to update the modification time of deployment {0}, it may be cleaned up as a backup" )
+  void failedToUpdateDeploymentTimestamp( String deploymentDir );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to calculate the deployment digest of topology {0}, its deployments will not be reused: {1}" )
+  void failedToCalculateDeploymentDigest( String topologyName, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.INFO, text = "Updated the URLs of services {1} of topology {0} without redeploying it" )
+  void updatedTopologyServiceUrls( String topologyName, String roles );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to update the service URLs of topology {0}, redeploying it: {1}" )
+  void failedToUpdateTopologyServiceUrls( String topologyName, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.INFO, text = "Activating topology {0} context {1} on its first request" )
+  void activatingTopologyOnRequest( String topologyName, String contextPath );
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to activate topology {0} on request: {1}" )
+  void failedToActivateTopologyOnRequest( String topologyName, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.ERROR, text = "Activated topology {0} context {1} is unavailable, stopping it" )
+  void activatedTopologyIsUnavailable( String topologyName, String contextPath );
+
+  @Message( level = MessageLevel.INFO, text = "Passivating idle topology {0} context {1}" )
+  void passivatingIdleTopology( String topologyName, String contextPath );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to passivate idle topology {0}: {1}" )
+  void failedToPassivateIdleTopology( String topologyName, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
   @Message( level = MessageLevel.ERROR, text = "Failed to deploy topology {0}: {1}" )
   void failedToDeployTopology( String name, @StackTrace(level=MessageLevel.DEBUG) Throwable e );
 
@@ -325,6 +358,12 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.ERROR, text = "Failed to get map from Json string {0}: {1}" )
   void failedToGetMapFromJsonString( String json, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
 
+  @Message( level = MessageLevel.ERROR, text = "Failed to write the service registry to {0}: {1}" )
+  void failedToPersistServiceRegistry( String fileName, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to render the service registry as JSON: {0}" )
+  void failedToRenderServiceRegistry( @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
   @Message( level = MessageLevel.DEBUG, text = "Successful Knox->Hadoop SPNegotiation authentication for URL: {0}" )
   void successfulSPNegoAuthn(String uri);
 
@@ -418,6 +457,12 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.DEBUG, text = "No rewrite file found in service directory {0}" )
   void noRewriteFileFound(String path);
 
+  @Message( level = MessageLevel.WARN, text = "Invalid rewrite compression level {0}, it must be between -1 and 9; using the default level" )
+  void invalidRewriteCompressionLevel(int level);
+
+  @Message( level = MessageLevel.DEBUG, text = "Loaded {0} service definitions from {1}, {2} of which had to be parsed" )
+  void loadedServiceDefinitions(int count, String path, int parsed);
+
   @Message( level = MessageLevel.DEBUG, text = "Added Service definition name: {0}, role : {1}, version : {2}" )
   void addedServiceDefinition(String serviceName, String serviceRole, String version);
 
@@ -542,6 +587,18 @@ public interface GatewayMessages {
   @Message(level = MessageLevel.INFO, text = "Stopped monitoring {0}")
   void stoppedMonitor(String monitorName);
 
+  @Message(level = MessageLevel.DEBUG, text = "Monitoring {0} for file system events in directory {1}")
+  void watchingDirectory(String monitorName, String directory);
+
+  @Message(level = MessageLevel.INFO, text = "Polling {0} every {1} ms in directory {2}")
+  void pollingDirectory(String monitorName, long interval, String directory);
+
+  @Message(level = MessageLevel.WARN, text = "Unable to watch directory {1} for file system events, falling back to polling {0}: {2}")
+  void failedToWatchDirectory(String monitorName, String directory, String errorMessage);
+
+  @Message(level = MessageLevel.ERROR, text = "Error while checking {0} for changes: {1}")
+  void failedToCheckDirectory(String monitorName, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
   @Message( level = MessageLevel.ERROR, text = "Error registering listener for remote configuration path {0} : {1}" )
   void errorAddingRemoteConfigurationListenerForPath(String path,
                                                      @StackTrace( level = MessageLevel.DEBUG ) Exception e);
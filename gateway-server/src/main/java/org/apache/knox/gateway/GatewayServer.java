@@ -30,11 +30,19 @@ import org.apache.knox.gateway.audit.log4j.audit.AuditConstants;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.config.GatewayConfigurationException;
 import org.apache.knox.gateway.config.impl.GatewayConfigImpl;
+import org.apache.knox.gateway.deploy.ArchiveWebAppContext;
 import org.apache.knox.gateway.deploy.DeploymentException;
 import org.apache.knox.gateway.deploy.DeploymentFactory;
+import org.apache.knox.gateway.deploy.TopologyDeploymentDiff;
+import org.apache.knox.gateway.deploy.TopologyDeploymentDigest;
+import org.apache.knox.gateway.deploy.TopologyDeploymentExecutor;
+import org.apache.knox.gateway.deploy.TopologyDeploymentStatistics;
+import org.apache.knox.gateway.deploy.TopologyDeploymentStatistics.Phase;
+import org.apache.knox.gateway.dispatch.HttpClientConnectionPoolRegistry;
 import org.apache.knox.gateway.filter.CorrelationHandler;
 import org.apache.knox.gateway.filter.HSTSHandler;
 import org.apache.knox.gateway.filter.PortMappingHelperHandler;
+import org.apache.knox.gateway.filter.TopologyActivationHandler;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
 import org.apache.knox.gateway.services.GatewayServices;
@@ -46,6 +54,7 @@ import org.apache.knox.gateway.services.security.SSLService;
 import org.apache.knox.gateway.services.topology.TopologyService;
 import org.apache.knox.gateway.services.topology.impl.GatewayStatusService;
 import org.apache.knox.gateway.topology.Application;
+import org.apache.knox.gateway.topology.Service;
 import org.apache.knox.gateway.topology.Topology;
 import org.apache.knox.gateway.topology.TopologyEvent;
 import org.apache.knox.gateway.topology.TopologyListener;
@@ -77,6 +86,8 @@ import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.webapp.Configuration;
 import org.eclipse.jetty.webapp.WebAppContext;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ArchiveAsset;
+import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.exporter.ExplodedExporter;
 import org.jboss.shrinkwrap.api.spec.EnterpriseArchive;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
@@ -120,6 +131,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -131,6 +143,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 import static org.apache.knox.gateway.config.impl.GatewayConfigImpl.RELOADABLE_CONFIG_FILENAME;
@@ -159,10 +172,16 @@ public class GatewayServer {
   private TopologyService monitor;
   private TopologyListener listener;
   private Map<String, WebAppContext> deployments;
+  // Only set when the topologies are started on their first request.
+  private TopologyActivationHandler activationHandler;
+  // Stops the idle contexts, apart from the refresh of the configuration so neither waits for the other.
+  private ScheduledExecutorService passivationExecutor;
   private AtomicBoolean stopped = new AtomicBoolean(false);
   private GatewayStatusService gatewayStatusService;
 
   private final Set<String> inactiveTopologies = new HashSet<>();
+  // The topologies that are currently deployed, by name; only used while handling topology events.
+  private final Map<String, Topology> deployedTopologies = new HashMap<>();
 
   public static void main( String[] args ) {
     try {
@@ -505,6 +524,7 @@ public class GatewayServer {
       final GatewayConfig config,
       final GatewayServices services,
       final ContextHandlerCollection contexts,
+      final TopologyActivationHandler activationHandler,
       final Map<String, Integer> topologyPortMap) {
 
     final Map<String, Handler> contextToHandlerMap = new HashMap<>();
@@ -521,7 +541,12 @@ public class GatewayServer {
     logHandler.setRequestLog( new AccessHandler() );
 
     TraceHandler traceHandler = new TraceHandler();
-    traceHandler.setHandler( contexts );
+    if( activationHandler == null ) {
+      traceHandler.setHandler( contexts );
+    } else {
+      activationHandler.setHandler( contexts );
+      traceHandler.setHandler( activationHandler );
+    }
     traceHandler.setTracedBodyFilter( System.getProperty( "org.apache.knox.gateway.trace.body.status.filter" ) );
 
     CorrelationHandler correlationHandler = new CorrelationHandler();
@@ -658,8 +683,14 @@ public class GatewayServer {
      // A map to keep track of current deployments by cluster name.
     deployments = new ConcurrentHashMap<>();
 
+    if( config.isTopologyLazyActivationEnabled() ) {
+      activationHandler = new TopologyActivationHandler( config.getTopologyLazyActivationIdleTimeout() );
+    }
+
     // Create Jetty.
     createJetty();
+    // The contexts of the topologies deployed at startup are started before Jetty, so they need their server.
+    contexts.setServer( jetty );
 
     // Add Annotations processing into the Jetty server to support JSPs
     Configuration.ClassList classlist = Configuration.ClassList.setServerDefault( jetty );
@@ -703,7 +734,7 @@ public class GatewayServer {
     // log WARN message and continue
     checkMappedTopologiesExist(topologyPortMap, deployedTopologyList);
 
-    final HandlerCollection handlers = createHandlers( config, services, contexts, topologyPortMap);
+    final HandlerCollection handlers = createHandlers( config, services, contexts, activationHandler, topologyPortMap);
 
      // Check whether a topology wants dedicated port,
      // if yes then we create a connector that listens on the provided port.
@@ -746,6 +777,12 @@ public class GatewayServer {
 
     cleanupTopologyDeployments();
 
+    if( activationHandler != null && config.getTopologyLazyActivationIdleTimeout() > 0 ) {
+      long period = Math.min( config.getTopologyLazyActivationIdleTimeout(), TimeUnit.MINUTES.toMillis( 1 ) );
+      passivationExecutor = Executors.newSingleThreadScheduledExecutor();
+      passivationExecutor.scheduleWithFixedDelay( activationHandler::passivateIdleContexts, period, period, TimeUnit.MILLISECONDS );
+    }
+
     // Start the topology monitor.
     monitor.startMonitor();
 
@@ -792,8 +829,12 @@ public class GatewayServer {
         log.stoppingGateway();
         services.stop();
         monitor.stopMonitor();
+        if( passivationExecutor != null ) {
+          passivationExecutor.shutdown();
+        }
         jetty.stop();
         jetty.join();
+        HttpClientConnectionPoolRegistry.getInstance().shutdown();
         log.stoppedGateway();
         stopped.set(true);
       } catch (Exception e) {
@@ -867,14 +908,24 @@ public class GatewayServer {
   }
 
   private WebAppContext createWebAppContext( Topology topology, File warFile, String warPath ) {
+    WebAppContext context = createWebAppContext( topology, new WebAppContext(), warPath );
+    context.setWar( warFile.getAbsolutePath() );
+    context.setTempDirectory( FileUtils.getFile( warFile, "META-INF", "temp" ) );
+    return context;
+  }
+
+  private WebAppContext createWebAppContext( Topology topology, WebArchive war, String warPath ) {
+    // Jetty creates the temporary directory of the context itself and removes it once the context is stopped.
+    return createWebAppContext( topology, new ArchiveWebAppContext( war ), warPath );
+  }
+
+  private WebAppContext createWebAppContext( Topology topology, WebAppContext context, String warPath ) {
     String topoName = topology.getName();
-    WebAppContext context = new WebAppContext();
     String contextPath;
     contextPath = "/" + Urls.trimLeadingAndTrailingSlashJoin( config.getGatewayPath(), topoName, warPath );
     context.setContextPath( contextPath );
     SessionCookieConfig sessionCookieConfig = context.getServletContext().getSessionCookieConfig();
     sessionCookieConfig.setName(KNOXSESSIONCOOKIENAME);
-    context.setWar( warFile.getAbsolutePath() );
     context.setAttribute( GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE, topoName );
     context.setAttribute( "org.apache.knox.gateway.frontend.uri", getFrontendUri( context, config ) );
     context.setAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE, config );
@@ -883,7 +934,6 @@ public class GatewayServer {
     context.setAttribute(
         "org.eclipse.jetty.server.webapp.ContainerIncludeJarPattern",
         ".*/[^/]*servlet-api-[^/]*\\.jar$|.*/javax.servlet.jsp.jstl-.*\\.jar$|.*/[^/]*taglibs.*\\.jar$" );
-    context.setTempDirectory( FileUtils.getFile( warFile, "META-INF", "temp" ) );
     context.setErrorHandler( createErrorHandler() );
     context.setInitParameter("org.eclipse.jetty.servlet.Default.dirAllowed", "false");
     ClassLoader jspClassLoader = new URLClassLoader(new URL[0], this.getClass().getClassLoader());
@@ -970,7 +1020,7 @@ public class GatewayServer {
     createArchiveTempDir( warDir );
   }
 
-  private synchronized void internalActivateTopology( Topology topology, File topoDir ) {
+  private synchronized void internalActivateTopology( Topology topology, File topoDir, List<WebAppContext> starting ) {
     final String name = topology.getName();
 
     // Add the topology to the inactive set until it has been activated
@@ -980,18 +1030,39 @@ public class GatewayServer {
     File[] files = topoDir.listFiles( new RegexFilenameFilter( "%.*" ) );
     if( files != null ) {
       for( File file : files ) {
-        internalActivateArchive( topology, file );
+        internalActivateArchive( topology, file, starting );
       }
     }
+  }
 
-    // Remove the topology from the inactive set
-    removeInactiveTopology(name);
+  private synchronized void internalActivateTopology( Topology topology, EnterpriseArchive ear, List<WebAppContext> starting ) {
+    final String name = topology.getName();
+
+    // Add the topology to the inactive set until it has been activated
+    addInactiveTopology(name);
+
+    log.activatingTopology(name);
+    for( org.jboss.shrinkwrap.api.Node node : ear.getContent().values() ) {
+      Asset asset = node.getAsset();
+      if( asset instanceof ArchiveAsset ) {
+        internalActivateArchive( topology, ((ArchiveAsset)asset).getArchive().as( WebArchive.class ), starting );
+      }
+    }
   }
 
-  private synchronized void internalActivateArchive( Topology topology, File warDir ) {
+  private synchronized void internalActivateArchive( Topology topology, File warDir, List<WebAppContext> starting ) {
     log.activatingTopologyArchive( topology.getName(), warDir.getName() );
+    internalActivateContext( topology, warDir.getName(), warPath -> createWebAppContext( topology, warDir, warPath ), starting );
+  }
+
+  private synchronized void internalActivateArchive( Topology topology, WebArchive war, List<WebAppContext> starting ) {
+    log.activatingTopologyArchive( topology.getName(), war.getName() );
+    internalActivateContext( topology, war.getName(), warPath -> createWebAppContext( topology, war, warPath ), starting );
+  }
+
+  private void internalActivateContext( Topology topology, String archiveName, Function<String, WebAppContext> createContext, List<WebAppContext> starting ) {
     try {
-      WebAppContext newContext = createWebAppContext( topology, warDir, Urls.decode( warDir.getName() ) );
+      WebAppContext newContext = createContext.apply( Urls.decode( archiveName ) );
       WebAppContext oldContext = deployments.get( newContext.getContextPath() );
       deployments.put( newContext.getContextPath(), newContext );
       if( oldContext != null ) {
@@ -999,13 +1070,16 @@ public class GatewayServer {
       }
       contexts.addHandler( newContext );
 
-      processApplicationPathAliases(warDir, topology);
+      processApplicationPathAliases(archiveName, createContext);
 
-      if( contexts.isRunning() && !newContext.isRunning() ) {
-        newContext.start();
-        if(!newContext.isAvailable()) {
-          throw newContext.getUnavailableException();
-        }
+      if( activationHandler != null ) {
+        // Started on its first request, so Jetty must not start it.
+        contexts.unmanage( newContext );
+        activationHandler.register( topology.getName(), newContext );
+      } else if( !newContext.isRunning() ) {
+        // Started, several topologies at once, once all the topologies of the event have been activated. That
+        // includes the topologies deployed at startup, which are started before Jetty itself is.
+        starting.add( newContext );
       }
 
     } catch( Throwable e ) {
@@ -1014,12 +1088,26 @@ public class GatewayServer {
     }
   }
 
-  private void processApplicationPathAliases(File warDir, Topology topology) {
+  private void internalStartContexts( Topology topology, List<WebAppContext> starting ) {
+    for( WebAppContext context : starting ) {
+      try {
+        context.start();
+        if(!context.isAvailable()) {
+          throw context.getUnavailableException();
+        }
+      } catch( Throwable e ) {
+        auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.FAILURE );
+        log.failedToDeployTopology( topology.getName(), e );
+      }
+    }
+  }
+
+  private void processApplicationPathAliases(String archiveName, Function<String, WebAppContext> createContext) {
     final Map<String, Collection<String>> applicationPathAliases = config.getApplicationPathAliases();
     applicationPathAliases.forEach((appName, aliases) -> {
-      if (warDir.getName().contains(appName) && !aliases.isEmpty()) {
+      if (archiveName.contains(appName) && !aliases.isEmpty()) {
         aliases.forEach(alias -> {
-          WebAppContext aliasContext = createWebAppContext(topology, warDir, alias);
+          WebAppContext aliasContext = createContext.apply(alias);
           contexts.addHandler(aliasContext);
         });
       }
@@ -1075,6 +1163,9 @@ public class GatewayServer {
       for( WebAppContext context : deactivate ) {
         String contextPath = context.getContextPath();
         deployments.remove( contextPath );
+        if( activationHandler != null ) {
+          activationHandler.unregister( context );
+        }
         contexts.removeHandler( context );
         try {
           context.stop();
@@ -1093,22 +1184,85 @@ public class GatewayServer {
     @Override
     public void handleTopologyEvent( List<TopologyEvent> events ) {
       synchronized ( GatewayServer.this ) {
+        File deployDir = calculateAbsoluteDeploymentsDir();
+        List<TopologyDeployment> created = new ArrayList<>();
+        TopologyDeploymentDigest digest = null;
         for( TopologyEvent event : events ) {
           Topology topology = event.getTopology();
-          File deployDir = calculateAbsoluteDeploymentsDir();
           if( event.getType().equals( TopologyEvent.Type.DELETED ) ) {
             handleDeleteDeployment(topology, deployDir);
-          } else {
-            handleCreateDeployment(topology, deployDir);
+          } else if( !updateServiceUrls( event ) ) {
+            if( digest == null ) {
+              digest = new TopologyDeploymentDigest( config, getBuildVersion(), getBuildHash() );
+            }
+            created.add( new TopologyDeployment( topology, calculateDeploymentDir( topology, digest ) ) );
           }
         }
+        if( !created.isEmpty() ) {
+          handleCreateDeployments( created, deployDir );
+        }
       }
     }
 
+    /*
+     * An update that only changes the URLs of services is applied to the running deployment, so the topology keeps
+     * its filter chains, connection pools and caches. The dispatches look the URLs up in the service registry.
+     */
+    private boolean updateServiceUrls(TopologyEvent event) {
+      Topology topology = event.getTopology();
+      Topology deployed = deployedTopologies.get( topology.getName() );
+      if( !event.getType().equals( TopologyEvent.Type.UPDATED ) || deployed == null
+          || !config.isTopologyIncrementalRedeployEnabled() ) {
+        return false;
+      }
+      Map<String, List<String>> changed = TopologyDeploymentDiff.getChangedServiceUrls( deployed, topology );
+      ServiceRegistry sr = getGatewayServices().getService( ServiceType.SERVICE_REGISTRY_SERVICE );
+      // Without any change the topology was touched, which is how a redeployment is requested.
+      if( changed == null || changed.isEmpty() || sr == null || !isDeploymentAvailable( topology ) ) {
+        return false;
+      }
+      try {
+        for( Map.Entry<String, List<String>> service : changed.entrySet() ) {
+          String regCode = sr.getRegistrationCode( topology.getName() );
+          if( !sr.registerService( regCode, topology.getName(), service.getKey(), service.getValue() ) ) {
+            throw new DeploymentException( "Failed to register the URLs of service " + service.getKey() );
+          }
+        }
+      } catch( Exception e ) {
+        log.failedToUpdateTopologyServiceUrls( topology.getName(), e );
+        return false;
+      }
+      deployedTopologies.put( topology.getName(), topology );
+      auditor.audit( Action.REDEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.SUCCESS );
+      log.updatedTopologyServiceUrls( topology.getName(), changed.keySet().toString() );
+      TopologyDeploymentStatistics.getInstance().recordServiceUrlUpdate();
+      prewarmConnectionPools( topology );
+      return true;
+    }
+
+    private boolean isDeploymentAvailable(Topology topology) {
+      String topoPath = "/" + Urls.trimLeadingAndTrailingSlashJoin( config.getGatewayPath(), topology.getName() );
+      boolean deployed = false;
+      for( WebAppContext context : deployments.values() ) {
+        String contextPath = context.getContextPath();
+        if( contextPath.equals( topoPath ) || contextPath.startsWith( topoPath + "/" ) ) {
+          // Contexts that are started on their first request pick up the new URLs when they are started.
+          boolean pending = activationHandler != null && activationHandler.isRegistered( context ) && !context.isStarted();
+          if( !context.isAvailable() && !pending ) {
+            return false;
+          }
+          deployed = true;
+        }
+      }
+      return deployed;
+    }
+
     private void handleDeleteDeployment(Topology topology, File deployDir) {
       log.deletingTopology( topology.getName() );
+      deployedTopologies.remove( topology.getName() );
       File[] files = deployDir.listFiles( new RegexFilenameFilter( topology.getName() + "\\.(war|topo)\\.[0-9A-Fa-f]+" ) );
-      if( files != null ) {
+      // Topologies deployed in memory don't leave anything in the deployment directory.
+      if( files != null || config.isTopologyDeploymentInMemory() ) {
         auditor.audit(Action.UNDEPLOY, topology.getName(), ResourceType.TOPOLOGY,
           ActionOutcome.UNAVAILABLE);
         internalDeactivateTopology( topology );
@@ -1116,17 +1270,68 @@ public class GatewayServer {
         // Since it is being deleted, then no longer consider it as only inactive
         removeInactiveTopology(topology.getName());
 
-        for( File file : files ) {
-          log.deletingDeployment( file.getAbsolutePath() );
-          FileUtils.deleteQuietly( file );
+        if( files != null ) {
+          for( File file : files ) {
+            log.deletingDeployment( file.getAbsolutePath() );
+            FileUtils.deleteQuietly( file );
+          }
+        }
+      }
+    }
+
+    /*
+     * The topologies are deployed in phases. Generating the archives and starting the web application contexts,
+     * which is where the time goes, is done for several topologies at once, while everything that changes the
+     * Jetty handlers or the registered services is done one topology at a time, in the order of the events.
+     */
+    private void handleCreateDeployments(List<TopologyDeployment> created, File deployDir) {
+      final int parallelism = config.getTopologyDeploymentParallelism();
+
+      long start = System.nanoTime();
+      for( TopologyDeployment deployment : created ) {
+        prepareDeployment( deployment );
+      }
+      // Topologies with the same name share their deployment directory, so those are generated one after the other.
+      Map<String, List<TopologyDeployment>> byName = new LinkedHashMap<>();
+      for( TopologyDeployment deployment : created ) {
+        byName.computeIfAbsent( deployment.topology.getName(), name -> new ArrayList<>() ).add( deployment );
+      }
+      TopologyDeploymentExecutor.invokeAll( parallelism, byName.values(), sameName -> {
+        for( TopologyDeployment deployment : sameName ) {
+          generateDeployment( deployment, deployDir );
         }
+        return null;
+      } );
+      recordDeploymentPhase( Phase.GENERATE, created.size(), start );
+
+      start = System.nanoTime();
+      for( TopologyDeployment deployment : created ) {
+        activateDeployment( deployment );
+      }
+      recordDeploymentPhase( Phase.ACTIVATE, created.size(), start );
+
+      start = System.nanoTime();
+      TopologyDeploymentExecutor.invokeAll( parallelism, created, deployment -> {
+        if( deployment.failure == null ) {
+          internalStartContexts( deployment.topology, deployment.starting );
+        }
+        return null;
+      } );
+      recordDeploymentPhase( Phase.START, created.size(), start );
+      if( !contexts.isRunning() ) {
+        handOverStartedContexts( created );
+      }
+
+      for( TopologyDeployment deployment : created ) {
+        completeDeployment( deployment, deployDir );
       }
     }
 
-    private void handleCreateDeployment(Topology topology, File deployDir) {
+    private void prepareDeployment(TopologyDeployment deployment) {
+      Topology topology = deployment.topology;
       try {
-        File topoDir = calculateDeploymentDir( topology );
-        if( !topoDir.exists() ) {
+        deployment.inMemory = isDeployedInMemory( topology );
+        if( deployment.inMemory || !deployment.topoDir.exists() ) {
           auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE );
 
 //          KNOX-564 - Topology should fail to deploy with no providers configured.
@@ -1135,34 +1340,157 @@ public class GatewayServer {
             throw new DeploymentException("No providers found inside topology.");
           }
 
-          log.deployingTopology( topology.getName(), topoDir.getAbsolutePath() );
-          internalDeactivateTopology( topology ); // KNOX-152
-
-          EnterpriseArchive ear = DeploymentFactory.createDeployment( config, topology );
-          if( !deployDir.exists() && !deployDir.mkdirs() ) {
-            throw new DeploymentException( "Failed to create topology deployment temporary directory: " + deployDir.getAbsolutePath() );
-          }
-          File tmp = ear.as( ExplodedExporter.class ).exportExploded( deployDir, topoDir.getName() + ".tmp" );
-          if( !tmp.renameTo( topoDir ) ) {
-            FileUtils.deleteQuietly( tmp );
-            throw new DeploymentException( "Failed to create topology deployment directory: " + topoDir.getAbsolutePath() );
+          if( deployment.inMemory ) {
+            log.deployingTopologyInMemory( topology.getName() );
+          } else {
+            log.deployingTopology( topology.getName(), deployment.topoDir.getAbsolutePath() );
           }
-          internalDeployApplications( topology, topoDir );
-          internalActivateTopology( topology, topoDir );
-          log.deployedTopology( topology.getName());
+          internalDeactivateTopology( topology ); // KNOX-152
+          deployment.generate = true;
         } else {
           auditor.audit( Action.REDEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE );
-          log.redeployingTopology( topology.getName(), topoDir.getAbsolutePath() );
-          internalActivateTopology( topology, topoDir );
+          log.redeployingTopology( topology.getName(), deployment.topoDir.getAbsolutePath() );
+          // The cleanup keeps the most recently modified deployments, which must include the one in use.
+          if( !deployment.topoDir.setLastModified( System.currentTimeMillis() ) ) {
+            log.failedToUpdateDeploymentTimestamp( deployment.topoDir.getAbsolutePath() );
+          }
+        }
+        TopologyDeploymentStatistics.getInstance().recordDeployment( !deployment.generate );
+      } catch( Throwable e ) {
+        deployment.fail( e );
+      }
+    }
+
+    private void generateDeployment(TopologyDeployment deployment, File deployDir) {
+      if( !deployment.generate || deployment.failure != null ) {
+        return;
+      }
+      try {
+        File topoDir = deployment.topoDir;
+        EnterpriseArchive ear = DeploymentFactory.createDeployment( config, deployment.topology );
+        if( deployment.inMemory ) {
+          deployment.archive = ear;
+          return;
+        }
+        if( !deployDir.exists() && !deployDir.mkdirs() && !deployDir.isDirectory() ) {
+          throw new DeploymentException( "Failed to create topology deployment temporary directory: " + deployDir.getAbsolutePath() );
+        }
+        File tmp = ear.as( ExplodedExporter.class ).exportExploded( deployDir, topoDir.getName() + ".tmp" );
+        if( !tmp.renameTo( topoDir ) ) {
+          FileUtils.deleteQuietly( tmp );
+          throw new DeploymentException( "Failed to create topology deployment directory: " + topoDir.getAbsolutePath() );
+        }
+      } catch( Throwable e ) {
+        deployment.fail( e );
+      }
+    }
+
+    private void activateDeployment(TopologyDeployment deployment) {
+      if( deployment.failure != null ) {
+        return;
+      }
+      try {
+        if( deployment.archive != null ) {
+          internalActivateTopology( deployment.topology, deployment.archive, deployment.starting );
+          return;
+        }
+        if( deployment.generate ) {
+          internalDeployApplications( deployment.topology, deployment.topoDir );
+        }
+        internalActivateTopology( deployment.topology, deployment.topoDir, deployment.starting );
+      } catch( Throwable e ) {
+        deployment.fail( e );
+      }
+    }
+
+    private void completeDeployment(TopologyDeployment deployment, File deployDir) {
+      Topology topology = deployment.topology;
+      if( deployment.failure != null ) {
+        deployedTopologies.remove( topology.getName() );
+        auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.FAILURE );
+        log.failedToDeployTopology( topology.getName(), deployment.failure );
+        return;
+      }
+      try {
+        // Remove the topology from the inactive set
+        removeInactiveTopology( topology.getName() );
+        deployedTopologies.put( topology.getName(), topology );
+        if( deployment.generate ) {
+          log.deployedTopology( topology.getName() );
+        } else {
           log.redeployedTopology( topology.getName() );
         }
         cleanupTopologyDeployments( deployDir, topology );
+        prewarmConnectionPools( topology );
         gatewayStatusService.onTopologyReady(topology.getName());
       } catch( Throwable e ) {
         auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.FAILURE );
         log.failedToDeployTopology( topology.getName(), e );
       }
     }
+
+    /*
+     * Applications are exploded and have their web.xml overrides merged on disk, so topologies with applications
+     * are always deployed to the deployment directory.
+     */
+    private boolean isDeployedInMemory(Topology topology) {
+      return config.isTopologyDeploymentInMemory()
+          && ( topology.getApplications() == null || topology.getApplications().isEmpty() );
+    }
+
+    /*
+     * Jetty would otherwise start the contexts of the topologies deployed at startup itself, one at a time, when it
+     * is started. It leaves the contexts that are running alone, unless they are managed, and then stops them with
+     * everything else.
+     */
+    private void handOverStartedContexts(List<TopologyDeployment> created) {
+      for( TopologyDeployment deployment : created ) {
+        for( WebAppContext context : deployment.starting ) {
+          if( context.isRunning() ) {
+            contexts.manage( context );
+          } else {
+            contexts.unmanage( context );
+          }
+        }
+      }
+    }
+
+    private void recordDeploymentPhase(Phase phase, int topologies, long start) {
+      long millis = TopologyDeploymentStatistics.getInstance().record( phase, topologies, System.nanoTime() - start );
+      log.completedTopologyDeploymentPhase( phase.name(), topologies, millis );
+    }
+  }
+
+  private static class TopologyDeployment {
+    private final Topology topology;
+    private final File topoDir;
+    private final List<WebAppContext> starting = new ArrayList<>();
+    private boolean generate;
+    private boolean inMemory;
+    private EnterpriseArchive archive;
+    private Throwable failure;
+
+    TopologyDeployment(Topology topology, File topoDir) {
+      this.topology = topology;
+      this.topoDir = topoDir;
+    }
+
+    void fail(Throwable e) {
+      failure = e;
+    }
+  }
+
+  private void prewarmConnectionPools( Topology topology ) {
+    int connections = config.getHttpClientConnectionPoolPrewarmConnections();
+    if( config.isHttpClientConnectionPoolShared() && connections > 0 ) {
+      Map<String, List<String>> urls = new HashMap<>();
+      for( Service service : topology.getServices() ) {
+        if( service.getUrls() != null ) {
+          urls.computeIfAbsent( service.getRole(), role -> new ArrayList<>() ).addAll( service.getUrls() );
+        }
+      }
+      HttpClientConnectionPoolRegistry.getInstance().prewarm( urls, connections );
+    }
   }
 
   private File createArchiveTempDir( File warDir ) {
@@ -1193,16 +1521,21 @@ public class GatewayServer {
     return calculateAbsoluteDeploymentsDir( config );
   }
 
-  private File calculateDeploymentDir( Topology topology ) {
-    return new File( calculateAbsoluteDeploymentsDir(), calculateDeploymentName( topology ) );
+  private File calculateDeploymentDir( Topology topology, TopologyDeploymentDigest digest ) {
+    return new File( calculateAbsoluteDeploymentsDir(), calculateDeploymentName( topology, digest ) );
   }
 
   private String calculateDeploymentExtension() {
     return TOPOLOGY_EXTENSION;
   }
 
-  private String calculateDeploymentName( Topology topology ) {
-    return topology.getName() + calculateDeploymentExtension() + Long.toHexString( topology.getTimestamp() );
+  private String calculateDeploymentName( Topology topology, TopologyDeploymentDigest digest ) {
+    // Named after the content the deployment is generated from, an existing deployment is reused until that changes.
+    String name = digest.calculate( topology );
+    if( name == null ) {
+      name = Long.toHexString( topology.getTimestamp() );
+    }
+    return topology.getName() + calculateDeploymentExtension() + name;
   }
 
   private static void checkAddressAvailability( InetSocketAddress address ) throws IOException {
@@ -51,15 +51,16 @@ import org.eclipse.jetty.util.UrlEncoded;
  * This class ignores the request body when accessing the parameters (since KNOX as a proxy doesn't care about the payload either),
  * and it only cares about the query string.
  *
+ * The query string is only parsed once a parameter is actually asked for, which most requests never do.
+ *
  */
 public class UrlEncodedFormRequest extends HttpServletRequestWrapper {
   private static final GatewayMessages LOG = MessagesFactory.get(GatewayMessages.class);
-  private final MultiMap<String> queryParams;
+  private MultiMap<String> queryParams;
 
   public UrlEncodedFormRequest(HttpServletRequest request) throws IOException {
     super(request);
     LOG.wrappingRequestToUrlEncodedFormRequest(request.getRequestURI());
-    this.queryParams = parseQueryString(request.getQueryString());
   }
 
   public static boolean isUrlEncodedForm(ServletRequest request) {
@@ -67,6 +68,13 @@ public class UrlEncodedFormRequest extends HttpServletRequestWrapper {
     return contentType != null && contentType.startsWith("application/x-www-form-urlencoded");
   }
 
+  private MultiMap<String> getQueryParams() {
+    if (queryParams == null) {
+      queryParams = parseQueryString(getQueryString());
+    }
+    return queryParams;
+  }
+
   private MultiMap<String> parseQueryString(String queryString) {
     MultiMap<String> params = new MultiMap<>();
     if (queryString != null) {
@@ -77,7 +85,7 @@ public class UrlEncodedFormRequest extends HttpServletRequestWrapper {
 
   @Override
   public String getParameter(String name) {
-    return queryParams.getValue(name, 0);
+    return getQueryParams().getValue(name, 0);
   }
 
   @Override
@@ -87,12 +95,12 @@ public class UrlEncodedFormRequest extends HttpServletRequestWrapper {
 
   @Override
   public Map<String, String[]> getParameterMap() {
-    return queryParams.toStringArrayMap();
+    return getQueryParams().toStringArrayMap();
   }
 
   @Override
   public Enumeration<String> getParameterNames() {
-    final Iterator<String> iterator = queryParams.keySet().iterator();
+    final Iterator<String> iterator = getQueryParams().keySet().iterator();
     return new Enumeration<String>() {
       @Override
       public boolean hasMoreElements() {
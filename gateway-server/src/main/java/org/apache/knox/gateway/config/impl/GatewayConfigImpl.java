@@ -39,7 +39,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.zip.Deflater;
 
 import org.apache.commons.codec.digest.HmacAlgorithms;
 import org.apache.commons.io.FilenameUtils;
@@ -135,6 +138,41 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   private static final String HTTP_CLIENT_CONNECTION_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.connectionTimeout";
   private static final String HTTP_CLIENT_SOCKET_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.socketTimeout";
   private static final String HTTP_CLIENT_COOKIE_SPEC = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.cookieSpec";
+  private static final String HTTP_CLIENT_PREEMPTIVE_SPNEGO = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.spnego.preemptive";
+  private static final String HTTP_CLIENT_POOL_SHARED = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.pool.shared";
+  private static final String HTTP_CLIENT_POOL_MAX_TOTAL = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.pool.maxTotal";
+  private static final String HTTP_CLIENT_POOL_IDLE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.pool.idleTimeout";
+  private static final String HTTP_CLIENT_POOL_ORIGIN_MAX_CONNECTIONS = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.pool.origin.maxConnections";
+  private static final String HTTP_CLIENT_POOL_ORIGIN_IDLE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.pool.origin.idleTimeout";
+  private static final String HTTP_CLIENT_POOL_PREWARM_CONNECTIONS = GATEWAY_CONFIG_FILE_PREFIX + ".httpclient.pool.prewarm.connections";
+  private static final String BULKHEAD_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".bulkhead.enabled";
+  private static final String BULKHEAD_TOPOLOGY_MAX_CONCURRENT = GATEWAY_CONFIG_FILE_PREFIX + ".bulkhead.topology.max.concurrent";
+  private static final String BULKHEAD_SERVICE_MAX_CONCURRENT = GATEWAY_CONFIG_FILE_PREFIX + ".bulkhead.service.max.concurrent";
+  private static final String BULKHEAD_QUEUE_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".bulkhead.queue.size";
+  private static final String BULKHEAD_QUEUE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".bulkhead.queue.timeout";
+  private static final String BULKHEAD_LIMIT_ALGORITHM = GATEWAY_CONFIG_FILE_PREFIX + ".bulkhead.limit.algorithm";
+  private static final String REWRITE_COMPRESSION_PIPELINED = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.compression.pipelined";
+  private static final String REWRITE_COMPRESSION_LEVEL = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.compression.level";
+  private static final String REWRITE_COMPRESSION_SKIP_UNACCEPTED = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.compression.skip.unaccepted";
+  private static final String REWRITE_CACHE_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.cache.enabled";
+  private static final String REWRITE_CACHE_MEMORY_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.cache.memory.size";
+  private static final String REWRITE_CACHE_MAX_ENTRY_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.cache.max.entry.size";
+  private static final String REWRITE_CACHE_DISK_DIR = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.cache.disk.dir";
+  private static final String REWRITE_CACHE_DISK_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.cache.disk.size";
+  private static final String REWRITE_PROFILING_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.profiling.enabled";
+  private static final String REWRITE_PROFILING_SAMPLE_RATE = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.profiling.sample.rate";
+  private static final String REWRITE_HTML_SCANNER_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.html.scanner.enabled";
+  private static final String REWRITE_HTML_SCANNER_ATTRIBUTES = GATEWAY_CONFIG_FILE_PREFIX + ".rewrite.html.scanner.attributes";
+  private static final String TOPOLOGY_DEPLOYMENT_PARALLELISM = GATEWAY_CONFIG_FILE_PREFIX + ".topology.deployment.parallelism";
+  private static final String TOPOLOGY_DEPLOYMENT_IN_MEMORY = GATEWAY_CONFIG_FILE_PREFIX + ".topology.deployment.in.memory";
+  private static final String TOPOLOGY_INCREMENTAL_REDEPLOY_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".topology.incremental.redeploy.enabled";
+  private static final String TOPOLOGY_LAZY_ACTIVATION_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".topology.lazy.activation.enabled";
+  private static final String TOPOLOGY_LAZY_ACTIVATION_IDLE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".topology.lazy.activation.idle.timeout";
+  private static final String TOPOLOGY_MONITOR_EVENTS_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".topology.monitor.events.enabled";
+  private static final String TOPOLOGY_MONITOR_POLL_INTERVAL = GATEWAY_CONFIG_FILE_PREFIX + ".topology.monitor.poll.interval";
+  private static final String TOPOLOGY_MONITOR_DEBOUNCE_TIME = GATEWAY_CONFIG_FILE_PREFIX + ".topology.monitor.debounce.time";
+  private static final long DEFAULT_TOPOLOGY_MONITOR_POLL_INTERVAL = 5000L;
+  private static final long DEFAULT_TOPOLOGY_MONITOR_DEBOUNCE_TIME = 500L;
   private static final String THREAD_POOL_MAX = GATEWAY_CONFIG_FILE_PREFIX + ".threadpool.max";
   public static final String HTTP_SERVER_REQUEST_BUFFER = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.requestBuffer";
   public static final String HTTP_SERVER_REQUEST_HEADER_BUFFER = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.requestHeaderBuffer";
@@ -391,10 +429,61 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public static final String STRICT_TRANSPORT_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".strict.transport.enabled";
   public static final String STRICT_TRANSPORT_OPTION = GATEWAY_CONFIG_FILE_PREFIX + ".strict.transport.option";
 
+  // The values read by the hot paths, parsed once for each version of the configuration
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+  private final AtomicInteger version = new AtomicInteger();
+
   public GatewayConfigImpl() {
     init();
   }
 
+  @Override
+  public void set(String name, String value, String source) {
+    super.set(name, value, source);
+    invalidateSnapshot();
+  }
+
+  @Override
+  public synchronized void unset(String name) {
+    super.unset(name);
+    invalidateSnapshot();
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    invalidateSnapshot();
+  }
+
+  @Override
+  public synchronized void reloadConfiguration() {
+    super.reloadConfiguration();
+    if (invalidateSnapshot()) {
+      // Publishes the new values right away, rather than on the next request
+      snapshot();
+    }
+  }
+
+  /* Returns false when called by the constructor of the super class, before this one is initialized */
+  private boolean invalidateSnapshot() {
+    if (version == null) {
+      return false;
+    }
+    version.incrementAndGet();
+    return true;
+  }
+
+  private Snapshot snapshot() {
+    final int current = version.get();
+    Snapshot values = snapshot.get();
+    if (values == null || values.version != current) {
+      // Changes made while the snapshot is being built change the version again, so it gets built anew
+      values = new Snapshot(this, current);
+      snapshot.set(values);
+    }
+    return values;
+  }
+
   private String getVar( String variableName, String defaultValue ) {
     String value = get( variableName );
     if( value == null ) {
@@ -483,6 +572,9 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 
     initGatewayHomeDir( lastFileUrl );
 
+    // parse the settings read for every request once, at load time
+    snapshot();
+
     // log whether the scoping cookies to the gateway.path feature is enabled
     log.cookieScopingFeatureEnabled(isCookieScopingToPathEnabled());
   }
@@ -587,7 +679,7 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 
   @Override
   public String getGatewayPath() {
-    return get( HTTP_PATH, DEFAULT_HTTP_PATH );
+    return snapshot().gatewayPath;
   }
 
   @Override
@@ -633,12 +725,12 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 
   @Override
   public boolean isSSLEnabled() {
-    return Boolean.parseBoolean(get( SSL_ENABLED, "true" ));
+    return snapshot().sslEnabled;
   }
 
   @Override
   public boolean isHadoopKerberosSecured() {
-    return Boolean.parseBoolean(get( HADOOP_KERBEROS_SECURED, "false" ));
+    return snapshot().hadoopKerberosSecured;
   }
 
   @Override
@@ -658,8 +750,7 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 
   @Override
   public String getDefaultTopologyName() {
-    String name = get(GATEWAY_DEFAULT_TOPOLOGY_NAME_PARAM);
-    return name != null ? name : GATEWAY_DEFAULT_TOPOLOGY_NAME;
+    return snapshot().defaultTopologyName;
   }
 
   @Override
@@ -761,7 +852,7 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 
   @Override
   public boolean isXForwardedEnabled() {
-    return Boolean.parseBoolean(get( XFORWARDED_ENABLED, "true" ));
+    return snapshot().xForwardedEnabled;
   }
 
   @Override
@@ -771,7 +862,7 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 
   @Override
   public int getHttpClientMaxConnections() {
-    return getInt( HTTP_CLIENT_MAX_CONNECTION, 32 );
+    return snapshot().httpClientMaxConnections;
   }
 
   @Override
@@ -836,32 +927,27 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 
   @Override
   public int getThreadPoolMax() {
-    int i = getInt( THREAD_POOL_MAX, 254 );
-    // Testing has shown that a value lower than 5 prevents Jetty from servicing request.
-    if( i < 5 ) {
-      i = 5;
-    }
-    return i;
+    return snapshot().threadPoolMax;
   }
 
   @Override
   public int getHttpServerRequestBuffer() {
-    return getInt( HTTP_SERVER_REQUEST_BUFFER, 16 * 1024 );
+    return snapshot().httpServerRequestBuffer;
   }
 
   @Override
   public int getHttpServerRequestHeaderBuffer() {
-    return getInt( HTTP_SERVER_REQUEST_HEADER_BUFFER, 8 * 1024 );
+    return snapshot().httpServerRequestHeaderBuffer;
   }
 
   @Override
   public int getHttpServerResponseBuffer() {
-    return getInt( HTTP_SERVER_RESPONSE_BUFFER, 32 * 1024 );
+    return snapshot().httpServerResponseBuffer;
   }
 
   @Override
   public int getHttpServerResponseHeaderBuffer() {
-    return getInt( HTTP_SERVER_RESPONSE_HEADER_BUFFER, 8 * 1024 );
+    return snapshot().httpServerResponseHeaderBuffer;
   }
 
   @Override
@@ -1040,47 +1126,50 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 
   @Override
   public int getWebsocketMaxTextMessageSize() {
-    return getInt( WEBSOCKET_MAX_TEXT_MESSAGE_SIZE, DEFAULT_WEBSOCKET_MAX_TEXT_MESSAGE_SIZE);
+    return snapshot().websocketMaxTextMessageSize;
   }
 
   @Override
   public int getWebsocketMaxBinaryMessageSize() {
-    return getInt( WEBSOCKET_MAX_BINARY_MESSAGE_SIZE, DEFAULT_WEBSOCKET_MAX_BINARY_MESSAGE_SIZE);
+    return snapshot().websocketMaxBinaryMessageSize;
   }
 
   @Override
   public int getWebsocketMaxTextMessageBufferSize() {
-    return getInt( WEBSOCKET_MAX_TEXT_MESSAGE_BUFFER_SIZE, DEFAULT_WEBSOCKET_MAX_TEXT_MESSAGE_BUFFER_SIZE);
+    return snapshot().websocketMaxTextMessageBufferSize;
   }
 
   @Override
   public int getWebsocketMaxBinaryMessageBufferSize() {
-    return getInt( WEBSOCKET_MAX_BINARY_MESSAGE_BUFFER_SIZE, DEFAULT_WEBSOCKET_MAX_BINARY_MESSAGE_BUFFER_SIZE);
+    return snapshot().websocketMaxBinaryMessageBufferSize;
   }
 
   @Override
   public int getWebsocketInputBufferSize() {
-    return getInt( WEBSOCKET_INPUT_BUFFER_SIZE, DEFAULT_WEBSOCKET_INPUT_BUFFER_SIZE);
+    return snapshot().websocketInputBufferSize;
   }
 
   @Override
   public int getWebsocketAsyncWriteTimeout() {
-    return getInt( WEBSOCKET_ASYNC_WRITE_TIMEOUT, DEFAULT_WEBSOCKET_ASYNC_WRITE_TIMEOUT);
+    return snapshot().websocketAsyncWriteTimeout;
   }
 
   @Override
   public int getWebsocketIdleTimeout() {
-    return getInt( WEBSOCKET_IDLE_TIMEOUT, DEFAULT_WEBSOCKET_IDLE_TIMEOUT);
+    return snapshot().websocketIdleTimeout;
   }
 
   @Override
   public int getWebsocketMaxWaitBufferCount() {
-    return getInt( WEBSOCKET_MAX_WAIT_BUFFER_COUNT, DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT);
+    return snapshot().websocketMaxWaitBufferCount;
   }
 
   @Override
   public Map<String, Integer> getGatewayPortMappings() {
+    return snapshot().gatewayPortMappings;
+  }
 
+  private Map<String, Integer> loadGatewayPortMappings() {
     final Map<String, Integer> result = new ConcurrentHashMap<>();
     final Map<String, String> properties = getValByRegex(GATEWAY_PORT_MAPPING_REGEX);
 
@@ -1093,13 +1182,12 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
       }
     }
 
-    return Collections.unmodifiableMap(result);
+    return result;
   }
 
   @Override
   public boolean isGatewayPortMappingEnabled() {
-    final String result = get( GATEWAY_PORT_MAPPING_ENABLED, Boolean.toString(DEFAULT_GATEWAY_PORT_MAPPING_ENABLED));
-    return Boolean.parseBoolean(result);
+    return snapshot().gatewayPortMappingEnabled;
   }
 
   private static long parseNetworkTimeout(String s ) {
@@ -1113,8 +1201,7 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 
   @Override
   public boolean isCookieScopingToPathEnabled() {
-    return Boolean.parseBoolean(get(COOKIE_SCOPING_ENABLED,
-        Boolean.toString(DEFAULT_COOKIE_SCOPING_FEATURE_ENABLED)));
+    return snapshot().cookieScopingToPathEnabled;
   }
 
   @Override
@@ -1417,7 +1504,7 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 
   @Override
   public String getKnoxTokenHashAlgorithm() {
-    return get(KNOX_TOKEN_HASH_ALGORITHM, HmacAlgorithms.HMAC_SHA_256.getName());
+    return snapshot().knoxTokenHashAlgorithm;
   }
 
   @Override
@@ -1479,7 +1566,7 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 
   @Override
   public boolean isGatewayServerIncomingXForwardedSupportEnabled() {
-    return getBoolean(KNOX_INCOMING_XFORWARDED_ENABLED, true);
+    return snapshot().gatewayServerIncomingXForwardedSupportEnabled;
   }
 
   @Override
@@ -1543,12 +1630,12 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 
   @Override
   public int getJettyMaxFormContentSize() {
-    return getInt(JETTY_MAX_FORM_CONTENT_SIZE, ContextHandler.DEFAULT_MAX_FORM_CONTENT_SIZE);
+    return snapshot().jettyMaxFormContentSize;
   }
 
   @Override
   public int getJettyMaxFormKeys() {
-    return getInt(JETTY_MAX_FORM_KEYS, ContextHandler.DEFAULT_MAX_FORM_KEYS);
+    return snapshot().jettyMaxFormKeys;
   }
 
   @Override
@@ -1701,6 +1788,205 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return get(HTTP_CLIENT_COOKIE_SPEC);
   }
 
+  @Override
+  public boolean isHttpClientPreemptiveSpnegoEnabled() {
+    return getBoolean(HTTP_CLIENT_PREEMPTIVE_SPNEGO, false);
+  }
+
+  @Override
+  public boolean isHttpClientConnectionPoolShared() {
+    return getBoolean(HTTP_CLIENT_POOL_SHARED, false);
+  }
+
+  @Override
+  public int getHttpClientConnectionPoolMaxTotal() {
+    return getInt(HTTP_CLIENT_POOL_MAX_TOTAL, 0);
+  }
+
+  @Override
+  public long getHttpClientConnectionPoolIdleTimeout() {
+    return getLong(HTTP_CLIENT_POOL_IDLE_TIMEOUT, TimeUnit.MINUTES.toMillis(1));
+  }
+
+  @Override
+  public Map<String, Integer> getHttpClientConnectionPoolOriginMaxConnections() {
+    final Map<String, Integer> result = new HashMap<>();
+    getOriginSettings(HTTP_CLIENT_POOL_ORIGIN_MAX_CONNECTIONS).forEach((origin, value) -> result.put(origin, Integer.parseInt(value)));
+    return result;
+  }
+
+  @Override
+  public Map<String, Long> getHttpClientConnectionPoolOriginIdleTimeouts() {
+    final Map<String, Long> result = new HashMap<>();
+    getOriginSettings(HTTP_CLIENT_POOL_ORIGIN_IDLE_TIMEOUT).forEach((origin, value) -> result.put(origin, Long.parseLong(value)));
+    return result;
+  }
+
+  /*
+   * Origin settings are comma separated lists of origin=value pairs, e.g. https://nn1.example.com:9871=64
+   */
+  private Map<String, String> getOriginSettings(String name) {
+    final Map<String, String> settings = new HashMap<>();
+    for (String setting : getTrimmedStringCollection(name)) {
+      final int separator = setting.lastIndexOf('=');
+      if (separator > 0) {
+        settings.put(setting.substring(0, separator).trim(), setting.substring(separator + 1).trim());
+      }
+    }
+    return settings;
+  }
+
+  @Override
+  public int getHttpClientConnectionPoolPrewarmConnections() {
+    return getInt(HTTP_CLIENT_POOL_PREWARM_CONNECTIONS, 0);
+  }
+
+  @Override
+  public boolean isBulkheadEnabled() {
+    return getBoolean(BULKHEAD_ENABLED, false);
+  }
+
+  @Override
+  public int getBulkheadTopologyMaxConcurrentRequests() {
+    return getInt(BULKHEAD_TOPOLOGY_MAX_CONCURRENT, 0);
+  }
+
+  @Override
+  public int getBulkheadServiceMaxConcurrentRequests() {
+    return getInt(BULKHEAD_SERVICE_MAX_CONCURRENT, 0);
+  }
+
+  @Override
+  public int getBulkheadQueueSize() {
+    return getInt(BULKHEAD_QUEUE_SIZE, 16);
+  }
+
+  @Override
+  public long getBulkheadQueueTimeout() {
+    long t = 1000L;
+    String s = get(BULKHEAD_QUEUE_TIMEOUT);
+    if (s != null) {
+      try {
+        t = parseNetworkTimeout(s);
+      } catch (Exception e) {
+        // Ignore it and use the default.
+      }
+    }
+    return t;
+  }
+
+  @Override
+  public String getBulkheadLimitAlgorithm() {
+    return get(BULKHEAD_LIMIT_ALGORITHM, "fixed");
+  }
+
+  @Override
+  public boolean isRewriteCompressionPipelined() {
+    return getBoolean(REWRITE_COMPRESSION_PIPELINED, false);
+  }
+
+  @Override
+  public int getRewriteCompressionLevel() {
+    final int level = getInt(REWRITE_COMPRESSION_LEVEL, Deflater.DEFAULT_COMPRESSION);
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      log.invalidRewriteCompressionLevel(level);
+      return Deflater.DEFAULT_COMPRESSION;
+    }
+    return level;
+  }
+
+  @Override
+  public boolean isRewriteRecompressionSkippedIfNotAccepted() {
+    return getBoolean(REWRITE_COMPRESSION_SKIP_UNACCEPTED, false);
+  }
+
+  @Override
+  public boolean isRewriteCacheEnabled() {
+    return getBoolean(REWRITE_CACHE_ENABLED, false);
+  }
+
+  @Override
+  public long getRewriteCacheMemorySize() {
+    return getLong(REWRITE_CACHE_MEMORY_SIZE, 64L * 1024 * 1024);
+  }
+
+  @Override
+  public long getRewriteCacheMaxEntrySize() {
+    return getLong(REWRITE_CACHE_MAX_ENTRY_SIZE, 2L * 1024 * 1024);
+  }
+
+  @Override
+  public String getRewriteCacheDiskDir() {
+    return get(REWRITE_CACHE_DISK_DIR, null);
+  }
+
+  @Override
+  public long getRewriteCacheDiskSize() {
+    return getLong(REWRITE_CACHE_DISK_SIZE, 256L * 1024 * 1024);
+  }
+
+  @Override
+  public boolean isRewriteProfilingEnabled() {
+    return getBoolean(REWRITE_PROFILING_ENABLED, false);
+  }
+
+  @Override
+  public int getRewriteProfilingSampleRate() {
+    return getInt(REWRITE_PROFILING_SAMPLE_RATE, 100);
+  }
+
+  @Override
+  public boolean isRewriteHtmlScannerEnabled() {
+    return getBoolean(REWRITE_HTML_SCANNER_ENABLED, false);
+  }
+
+  @Override
+  public Set<String> getRewriteHtmlScannerAttributes() {
+    final String value = get(REWRITE_HTML_SCANNER_ATTRIBUTES, DEFAULT_REWRITE_HTML_SCANNER_ATTRIBUTES);
+    return new HashSet<>(Arrays.asList(value.trim().toLowerCase(Locale.ROOT).split("\\s*,\\s*")));
+  }
+
+  @Override
+  public int getTopologyDeploymentParallelism() {
+    return Math.max(1, getInt(TOPOLOGY_DEPLOYMENT_PARALLELISM, Math.min(Runtime.getRuntime().availableProcessors(), 8)));
+  }
+
+  @Override
+  public boolean isTopologyDeploymentInMemory() {
+    return getBoolean(TOPOLOGY_DEPLOYMENT_IN_MEMORY, false);
+  }
+
+  @Override
+  public boolean isTopologyIncrementalRedeployEnabled() {
+    return getBoolean(TOPOLOGY_INCREMENTAL_REDEPLOY_ENABLED, true);
+  }
+
+  @Override
+  public boolean isTopologyLazyActivationEnabled() {
+    return getBoolean(TOPOLOGY_LAZY_ACTIVATION_ENABLED, false);
+  }
+
+  @Override
+  public long getTopologyLazyActivationIdleTimeout() {
+    return Math.max(0L, getLong(TOPOLOGY_LAZY_ACTIVATION_IDLE_TIMEOUT, 0L));
+  }
+
+  @Override
+  public boolean isTopologyMonitorEventsEnabled() {
+    return getBoolean(TOPOLOGY_MONITOR_EVENTS_ENABLED, true);
+  }
+
+  @Override
+  public long getTopologyMonitorPollInterval() {
+    final long pollInterval = getLong(TOPOLOGY_MONITOR_POLL_INTERVAL, DEFAULT_TOPOLOGY_MONITOR_POLL_INTERVAL);
+    return pollInterval > 0 ? pollInterval : DEFAULT_TOPOLOGY_MONITOR_POLL_INTERVAL;
+  }
+
+  @Override
+  public long getTopologyMonitorDebounceTime() {
+    return Math.max(0L, getLong(TOPOLOGY_MONITOR_DEBOUNCE_TIME, DEFAULT_TOPOLOGY_MONITOR_DEBOUNCE_TIME));
+  }
+
   @Override
   public String getBannerText() {
     return get(UI_BANNER_TEXT, "");
@@ -1796,4 +2082,70 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public boolean getGroupUIServicesOnHomepage() {
     return getBoolean(KNOX_HOMEPAGE_GROUP_UI_SERVICES, DEFAULT_GROUP_UI_SERVICES);
   }
+
+  /**
+   * The typed values of the settings read for every request, so that those don't need to be looked up,
+   * substituted and parsed each time. A snapshot is immutable; a new one is built whenever the
+   * configuration changes.
+   */
+  private static final class Snapshot {
+    final int version;
+    final String gatewayPath;
+    final boolean sslEnabled;
+    final boolean hadoopKerberosSecured;
+    final String defaultTopologyName;
+    final boolean xForwardedEnabled;
+    final int httpClientMaxConnections;
+    final int threadPoolMax;
+    final int httpServerRequestBuffer;
+    final int httpServerRequestHeaderBuffer;
+    final int httpServerResponseBuffer;
+    final int httpServerResponseHeaderBuffer;
+    final int websocketMaxTextMessageSize;
+    final int websocketMaxBinaryMessageSize;
+    final int websocketMaxTextMessageBufferSize;
+    final int websocketMaxBinaryMessageBufferSize;
+    final int websocketInputBufferSize;
+    final int websocketAsyncWriteTimeout;
+    final int websocketIdleTimeout;
+    final int websocketMaxWaitBufferCount;
+    final boolean gatewayPortMappingEnabled;
+    final boolean cookieScopingToPathEnabled;
+    final String knoxTokenHashAlgorithm;
+    final boolean gatewayServerIncomingXForwardedSupportEnabled;
+    final int jettyMaxFormContentSize;
+    final int jettyMaxFormKeys;
+    final Map<String, Integer> gatewayPortMappings;
+
+    Snapshot(GatewayConfigImpl config, int version) {
+      this.version = version;
+      gatewayPath = config.get(HTTP_PATH, DEFAULT_HTTP_PATH);
+      sslEnabled = Boolean.parseBoolean(config.get(SSL_ENABLED, "true"));
+      hadoopKerberosSecured = Boolean.parseBoolean(config.get(HADOOP_KERBEROS_SECURED, "false"));
+      defaultTopologyName = config.get(GATEWAY_DEFAULT_TOPOLOGY_NAME_PARAM, GATEWAY_DEFAULT_TOPOLOGY_NAME);
+      xForwardedEnabled = Boolean.parseBoolean(config.get(XFORWARDED_ENABLED, "true"));
+      httpClientMaxConnections = config.getInt(HTTP_CLIENT_MAX_CONNECTION, 32);
+      // Testing has shown that a value lower than 5 prevents Jetty from servicing request.
+      threadPoolMax = Math.max(config.getInt(THREAD_POOL_MAX, 254), 5);
+      httpServerRequestBuffer = config.getInt(HTTP_SERVER_REQUEST_BUFFER, 16 * 1024);
+      httpServerRequestHeaderBuffer = config.getInt(HTTP_SERVER_REQUEST_HEADER_BUFFER, 8 * 1024);
+      httpServerResponseBuffer = config.getInt(HTTP_SERVER_RESPONSE_BUFFER, 32 * 1024);
+      httpServerResponseHeaderBuffer = config.getInt(HTTP_SERVER_RESPONSE_HEADER_BUFFER, 8 * 1024);
+      websocketMaxTextMessageSize = config.getInt(WEBSOCKET_MAX_TEXT_MESSAGE_SIZE, DEFAULT_WEBSOCKET_MAX_TEXT_MESSAGE_SIZE);
+      websocketMaxBinaryMessageSize = config.getInt(WEBSOCKET_MAX_BINARY_MESSAGE_SIZE, DEFAULT_WEBSOCKET_MAX_BINARY_MESSAGE_SIZE);
+      websocketMaxTextMessageBufferSize = config.getInt(WEBSOCKET_MAX_TEXT_MESSAGE_BUFFER_SIZE, DEFAULT_WEBSOCKET_MAX_TEXT_MESSAGE_BUFFER_SIZE);
+      websocketMaxBinaryMessageBufferSize = config.getInt(WEBSOCKET_MAX_BINARY_MESSAGE_BUFFER_SIZE, DEFAULT_WEBSOCKET_MAX_BINARY_MESSAGE_BUFFER_SIZE);
+      websocketInputBufferSize = config.getInt(WEBSOCKET_INPUT_BUFFER_SIZE, DEFAULT_WEBSOCKET_INPUT_BUFFER_SIZE);
+      websocketAsyncWriteTimeout = config.getInt(WEBSOCKET_ASYNC_WRITE_TIMEOUT, DEFAULT_WEBSOCKET_ASYNC_WRITE_TIMEOUT);
+      websocketIdleTimeout = config.getInt(WEBSOCKET_IDLE_TIMEOUT, DEFAULT_WEBSOCKET_IDLE_TIMEOUT);
+      websocketMaxWaitBufferCount = config.getInt(WEBSOCKET_MAX_WAIT_BUFFER_COUNT, DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT);
+      gatewayPortMappingEnabled = Boolean.parseBoolean(config.get(GATEWAY_PORT_MAPPING_ENABLED, Boolean.toString(DEFAULT_GATEWAY_PORT_MAPPING_ENABLED)));
+      cookieScopingToPathEnabled = Boolean.parseBoolean(config.get(COOKIE_SCOPING_ENABLED, Boolean.toString(DEFAULT_COOKIE_SCOPING_FEATURE_ENABLED)));
+      knoxTokenHashAlgorithm = config.get(KNOX_TOKEN_HASH_ALGORITHM, HmacAlgorithms.HMAC_SHA_256.getName());
+      gatewayServerIncomingXForwardedSupportEnabled = config.getBoolean(KNOX_INCOMING_XFORWARDED_ENABLED, true);
+      jettyMaxFormContentSize = config.getInt(JETTY_MAX_FORM_CONTENT_SIZE, ContextHandler.DEFAULT_MAX_FORM_CONTENT_SIZE);
+      jettyMaxFormKeys = config.getInt(JETTY_MAX_FORM_KEYS, ContextHandler.DEFAULT_MAX_FORM_KEYS);
+      gatewayPortMappings = Collections.unmodifiableMap(config.loadGatewayPortMappings());
+    }
+  }
 }
@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.resource.Resource;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.Asset;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A read-only Jetty resource backed by the content of a ShrinkWrap archive, which lets a web application be
+ * served straight from the archive generated for a topology without exporting it to the file system first.
+ * <p>
+ * The URLs of the resources carry their own stream handler, so they can be opened without registering a
+ * protocol with the JVM. They can't be recreated from their string form or their URI though, which is what the
+ * servlet context does to hand out resources as URLs. With an export directory, a resource that is asked for its
+ * URI is therefore copied into that directory once, and its URI is the one of the copy.
+ */
+public class ArchiveResource extends Resource {
+  static final String PROTOCOL = "knox-archive";
+
+  private final Archive<?> archive;
+  private final ArchivePath path;
+  private final ArchiveStreamHandler handler;
+  private final long lastModified;
+
+  public ArchiveResource(Archive<?> archive) {
+    this(archive, null);
+  }
+
+  /**
+   * @param exportDir supplies the directory resources are copied into when they are asked for their URI, or
+   *                  <code>null</code> while there is none yet
+   */
+  public ArchiveResource(Archive<?> archive, Supplier<File> exportDir) {
+    this(archive, ArchivePaths.root(), new ArchiveStreamHandler(archive, exportDir), System.currentTimeMillis());
+  }
+
+  private ArchiveResource(Archive<?> archive, ArchivePath path, ArchiveStreamHandler handler, long lastModified) {
+    this.archive = archive;
+    this.path = path;
+    this.handler = handler;
+    this.lastModified = lastModified;
+  }
+
+  @Override
+  public boolean isContainedIn(Resource resource) {
+    return false;
+  }
+
+  @Override
+  public void close() {
+    // There is nothing to release; the archive is owned by the deployment.
+  }
+
+  @Override
+  public boolean exists() {
+    return isRoot() || archive.contains(path);
+  }
+
+  @Override
+  public boolean isDirectory() {
+    if (isRoot()) {
+      return true;
+    }
+    Node node = archive.get(path);
+    return node != null && node.getAsset() == null;
+  }
+
+  @Override
+  public long lastModified() {
+    return exists() ? lastModified : 0L;
+  }
+
+  @Override
+  public long length() {
+    Asset asset = getAsset(archive, path);
+    if (asset == null) {
+      return exists() ? 0L : -1L;
+    }
+    // The content of a deployed archive doesn't change, so every asset is only read once to learn its length.
+    Long length = handler.lengths.get(path);
+    if (length == null) {
+      length = 0L;
+      byte[] buffer = new byte[8192];
+      try (InputStream input = asset.openStream()) {
+        for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+          length += read;
+        }
+      } catch (IOException e) {
+        return -1L;
+      }
+      handler.lengths.put(path, length);
+    }
+    return length;
+  }
+
+  @Override
+  public URL getURL() {
+    try {
+      String file = URIUtil.encodePath(isDirectory() && !isRoot() ? path.get() + "/" : path.get());
+      return new URL(PROTOCOL, handler.getAuthority(), -1, file, handler);
+    } catch (MalformedURLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public URI getURI() {
+    File exportDir = handler.exportDir == null ? null : handler.exportDir.get();
+    if (exportDir == null || !exists()) {
+      return super.getURI();
+    }
+    try {
+      return export(new File(exportDir, "archive")).toURI();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private File export(File dir) throws IOException {
+    File file = isRoot() ? dir : new File(dir, path.get().substring(1));
+    if (isDirectory()) {
+      Files.createDirectories(file.toPath());
+    } else if (!file.exists()) {
+      Files.createDirectories(file.getParentFile().toPath());
+      // Copied next to the target and moved, as other requests may look for the same resource at the same time.
+      Path copy = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+      try (InputStream input = getInputStream()) {
+        Files.copy(input, copy, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(copy, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(copy);
+      }
+    }
+    return file;
+  }
+
+  @Override
+  public File getFile() {
+    return null;
+  }
+
+  @Override
+  public String getName() {
+    return path.get();
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    Asset asset = getAsset(archive, path);
+    if (asset == null) {
+      throw new FileNotFoundException(getName());
+    }
+    return asset.openStream();
+  }
+
+  @Override
+  public ReadableByteChannel getReadableByteChannel() throws IOException {
+    return Channels.newChannel(getInputStream());
+  }
+
+  @Override
+  public boolean delete() {
+    return false;
+  }
+
+  @Override
+  public boolean renameTo(Resource destination) {
+    return false;
+  }
+
+  @Override
+  public String[] list() {
+    if (!isDirectory()) {
+      return null;
+    }
+    Node directory = archive.get(path);
+    if (directory == null) {
+      return new String[0];
+    }
+    List<String> names = new ArrayList<>();
+    for (Node child : directory.getChildren()) {
+      String name = child.getPath().get();
+      name = name.substring(name.lastIndexOf('/') + 1);
+      names.add(child.getAsset() == null ? name + "/" : name);
+    }
+    return names.toArray(new String[0]);
+  }
+
+  @Override
+  public Resource addPath(String subPath) throws MalformedURLException {
+    if (subPath == null) {
+      throw new MalformedURLException("null path");
+    }
+    String canonical = URIUtil.canonicalPath(subPath);
+    if (canonical == null) {
+      throw new MalformedURLException(subPath);
+    }
+    // Directories are addressed with a trailing slash by Jetty, but not by ShrinkWrap.
+    while (canonical.endsWith("/")) {
+      canonical = canonical.substring(0, canonical.length() - 1);
+    }
+    if (canonical.isEmpty()) {
+      return this;
+    }
+    return new ArchiveResource(archive, ArchivePaths.create(path, canonical), handler, lastModified);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof ArchiveResource)) {
+      return false;
+    }
+    ArchiveResource resource = (ArchiveResource) other;
+    return archive == resource.archive && path.equals(resource.path);
+  }
+
+  @Override
+  public int hashCode() {
+    return System.identityHashCode(archive) * 31 + path.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return getURL().toString();
+  }
+
+  private boolean isRoot() {
+    return ArchivePaths.root().equals(path);
+  }
+
+  private static Asset getAsset(Archive<?> archive, ArchivePath path) {
+    Node node = archive.get(path);
+    return node == null ? null : node.getAsset();
+  }
+
+  /* Shared by all the resources of an archive */
+  private static class ArchiveStreamHandler extends URLStreamHandler {
+    private final Archive<?> archive;
+    private final Supplier<File> exportDir;
+    private final Map<ArchivePath, Long> lengths = new ConcurrentHashMap<>();
+
+    ArchiveStreamHandler(Archive<?> archive, Supplier<File> exportDir) {
+      this.archive = archive;
+      this.exportDir = exportDir;
+    }
+
+    String getAuthority() {
+      return Integer.toHexString(System.identityHashCode(archive));
+    }
+
+    @Override
+    protected URLConnection openConnection(URL url) {
+      return new URLConnection(url) {
+        @Override
+        public void connect() {
+          connected = true;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+          ArchivePath path = ArchivePaths.create(URIUtil.decodePath(url.getPath()));
+          Asset asset = getAsset(archive, path);
+          if (asset == null) {
+            throw new FileNotFoundException(url.toString());
+          }
+          return asset.openStream();
+        }
+      };
+    }
+  }
+}
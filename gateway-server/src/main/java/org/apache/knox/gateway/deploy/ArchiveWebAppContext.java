@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import org.eclipse.jetty.webapp.WebAppContext;
+import org.jboss.shrinkwrap.api.Archive;
+
+/**
+ * A web application context that serves a web archive generated for a topology from memory.
+ * <p>
+ * The servlet context hands out resources as URLs made from their URI, which only works for protocols known to
+ * the JVM, so the resources looked up that way, such as the descriptors read by the providers, are copied into
+ * the temporary directory of the context. Everything else is read from the archive.
+ */
+public class ArchiveWebAppContext extends WebAppContext {
+
+  public ArchiveWebAppContext(Archive<?> archive) {
+    super();
+    setBaseResource(new ArchiveResource(archive, this::getTempDirectory));
+    setExtractWAR(false);
+  }
+}
@@ -75,6 +75,7 @@ public abstract class DeploymentFactory {
   private static GatewayServices gatewayServices;
 
   private static Map<String,Map<String,Map<Version, ServiceDeploymentContributor>>> SERVICE_CONTRIBUTOR_MAP;
+  private static Set<ServiceDeploymentContributor> serviceDefinitionContributors;
   static {
     loadServiceContributors();
   }
@@ -553,7 +554,7 @@ public abstract class DeploymentFactory {
 
   public static ServiceDeploymentContributor getServiceContributor( String role, String name, Version version ) {
     ServiceDeploymentContributor contributor = null;
-    Map<String,Map<Version, ServiceDeploymentContributor>> nameMap = SERVICE_CONTRIBUTOR_MAP.get( role );
+    Map<String,Map<Version, ServiceDeploymentContributor>> nameMap = getServiceContributorMap().get( role );
     if( nameMap != null && !nameMap.isEmpty()) {
       Map<Version, ServiceDeploymentContributor> versionMap;
       if ( name == null ) {
@@ -700,22 +701,49 @@ public abstract class DeploymentFactory {
     return null;
   }
 
-  private static void loadStacksServiceContributors( GatewayConfig config ) {
+  /*
+   * The loader only parses the service definitions again when they changed, and hands out the same contributors
+   * otherwise, so that the contributors, and anything derived from them, stay the same from one deployment to the
+   * next.
+   */
+  static void loadStacksServiceContributors( GatewayConfig config ) {
     String stacks = config.getGatewayServicesDir();
+    Set<ServiceDeploymentContributor> deploymentContributors = ServiceDefinitionsLoader.loadServiceDefinitionDeploymentContributors(new File(stacks));
+    synchronized( DeploymentFactory.class ) {
+      if( deploymentContributors.equals( serviceDefinitionContributors ) ) {
+        return;
+      }
+    }
     log.usingServicesDirectory(stacks);
-    File stacksDir = new File(stacks);
-    Set<ServiceDeploymentContributor> deploymentContributors = ServiceDefinitionsLoader.loadServiceDefinitionDeploymentContributors(stacksDir);
-    addServiceDeploymentContributors(deploymentContributors.iterator());
+    // Topologies may be deployed concurrently, so the contributors are added to a copy that replaces the map in use.
+    Map<String,Map<String,Map<Version, ServiceDeploymentContributor>>> contributorMap = new HashMap<>();
+    synchronized( DeploymentFactory.class ) {
+      for( Map.Entry<String,Map<String,Map<Version, ServiceDeploymentContributor>>> role : SERVICE_CONTRIBUTOR_MAP.entrySet() ) {
+        Map<String,Map<Version, ServiceDeploymentContributor>> nameMap = new HashMap<>();
+        for( Map.Entry<String,Map<Version, ServiceDeploymentContributor>> name : role.getValue().entrySet() ) {
+          nameMap.put( name.getKey(), new TreeMap<>( name.getValue() ) );
+        }
+        contributorMap.put( role.getKey(), nameMap );
+      }
+      addServiceDeploymentContributors(contributorMap, deploymentContributors.iterator());
+      SERVICE_CONTRIBUTOR_MAP = contributorMap;
+      serviceDefinitionContributors = deploymentContributors;
+    }
+  }
+
+  private static synchronized Map<String,Map<String,Map<Version, ServiceDeploymentContributor>>> getServiceContributorMap() {
+    return SERVICE_CONTRIBUTOR_MAP;
   }
 
   private static void loadServiceContributors() {
     SERVICE_CONTRIBUTOR_MAP = new HashMap<>();
     ServiceLoader<ServiceDeploymentContributor> loader = ServiceLoader.load( ServiceDeploymentContributor.class );
     Iterator<ServiceDeploymentContributor> contributors = loader.iterator();
-    addServiceDeploymentContributors(contributors);
+    addServiceDeploymentContributors(SERVICE_CONTRIBUTOR_MAP, contributors);
   }
 
-   private static void addServiceDeploymentContributors(Iterator<ServiceDeploymentContributor> contributors) {
+   private static void addServiceDeploymentContributors(Map<String,Map<String,Map<Version, ServiceDeploymentContributor>>> contributorMap,
+                                                        Iterator<ServiceDeploymentContributor> contributors) {
       while( contributors.hasNext() ) {
         ServiceDeploymentContributor contributor = contributors.next();
         if( contributor.getName() == null ) {
@@ -730,10 +758,10 @@ public abstract class DeploymentFactory {
           log.ignoringServiceContributorWithMissingVersion(contributor.getClass().getName());
           continue;
         }
-        Map<String,Map<Version, ServiceDeploymentContributor>> nameMap = SERVICE_CONTRIBUTOR_MAP.get( contributor.getRole() );
+        Map<String,Map<Version, ServiceDeploymentContributor>> nameMap = contributorMap.get( contributor.getRole() );
         if( nameMap == null ) {
           nameMap = new HashMap<>();
-          SERVICE_CONTRIBUTOR_MAP.put( contributor.getRole(), nameMap );
+          contributorMap.put( contributor.getRole(), nameMap );
         }
         Map<Version, ServiceDeploymentContributor> versionMap = nameMap.get(contributor.getName());
         if (versionMap == null) {
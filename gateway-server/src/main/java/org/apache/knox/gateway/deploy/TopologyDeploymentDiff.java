@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import org.apache.knox.gateway.topology.Application;
+import org.apache.knox.gateway.topology.Provider;
+import org.apache.knox.gateway.topology.Service;
+import org.apache.knox.gateway.topology.Topology;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compares a deployed topology with a new version of it, to find out whether the new version can be applied
+ * to the running deployment without generating a new one.
+ * <p>
+ * That is the case when nothing but the URLs of some services changed. The filter chains of a deployment
+ * don't depend on those URLs: the dispatches find them in the service registry for every request. Services
+ * with a custom dispatch and services the HA provider is configured for are the exception, as those get
+ * their URLs when the deployment is started.
+ */
+public final class TopologyDeploymentDiff {
+  static final String HA_PROVIDER_ROLE = "ha";
+
+  private TopologyDeploymentDiff() {
+  }
+
+  /**
+   * @return the new URLs of the services whose URLs changed, by role, or <code>null</code> if anything else
+   *         changed, in which case the topology has to be redeployed
+   */
+  public static Map<String, List<String>> getChangedServiceUrls(Topology deployed, Topology updated) {
+    if (!Objects.equals(deployed.getName(), updated.getName())
+        || deployed.getRedeployTime() != updated.getRedeployTime()
+        || !Objects.equals(deployed.getDefaultServicePath(), updated.getDefaultServicePath())
+        || !sameProviders(deployed.getProviders(), updated.getProviders())
+        || !sameApplications(deployed.getApplications(), updated.getApplications())
+        || deployed.getServices().size() != updated.getServices().size()) {
+      return null;
+    }
+    final Map<String, Service> deployedServices = new HashMap<>();
+    for (Service service : deployed.getServices()) {
+      if (deployedServices.put(getKey(service), service) != null) {
+        return null;
+      }
+    }
+    final Map<String, List<String>> changed = new LinkedHashMap<>();
+    for (Service service : updated.getServices()) {
+      final Service previous = deployedServices.get(getKey(service));
+      if (previous == null
+          || !Objects.equals(previous.getParams(), service.getParams())
+          || previous.getDispatch() != null || service.getDispatch() != null) {
+        return null;
+      }
+      if (!sameUrls(previous.getUrls(), service.getUrls())) {
+        if (changed.put(service.getRole(), service.getUrls()) != null || isHaEnabled(updated, service.getRole())) {
+          return null;
+        }
+      }
+    }
+    return changed;
+  }
+
+  private static String getKey(Service service) {
+    return service.getRole() + '/' + service.getName() + '/' + service.getVersion();
+  }
+
+  private static boolean sameProviders(Collection<Provider> deployed, Collection<Provider> updated) {
+    return deployed.size() == updated.size() && new HashSet<>(deployed).equals(new HashSet<>(updated));
+  }
+
+  private static boolean sameApplications(Collection<Application> deployed, Collection<Application> updated) {
+    if (deployed.size() != updated.size()) {
+      return false;
+    }
+    final List<Application> remaining = new ArrayList<>(updated);
+    for (Application application : deployed) {
+      // Application relies on the equality of services, which includes the URLs.
+      if (!remaining.remove(application)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean sameUrls(List<String> deployed, List<String> updated) {
+    final List<String> left = new ArrayList<>(deployed);
+    final List<String> right = new ArrayList<>(updated);
+    Collections.sort(left);
+    Collections.sort(right);
+    return left.equals(right);
+  }
+
+  private static boolean isHaEnabled(Topology topology, String role) {
+    for (Provider provider : topology.getProviders()) {
+      if (HA_PROVIDER_ROLE.equals(provider.getRole()) && provider.isEnabled()
+          && provider.getParams().containsKey(role)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
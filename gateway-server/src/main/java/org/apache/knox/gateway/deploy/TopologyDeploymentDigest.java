@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.knox.gateway.GatewayMessages;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.deploy.impl.ServiceDefinitionDeploymentContributor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFactory;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.service.definition.CustomDispatch;
+import org.apache.knox.gateway.service.definition.ServiceDefinition;
+import org.apache.knox.gateway.topology.Application;
+import org.apache.knox.gateway.topology.Param;
+import org.apache.knox.gateway.topology.Provider;
+import org.apache.knox.gateway.topology.Service;
+import org.apache.knox.gateway.topology.Topology;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+/**
+ * Calculates a digest of everything a topology deployment is generated from: the parsed topology, which includes
+ * the resolved provider configuration, the definitions of the services it uses, the applications it deploys, the
+ * gateway configuration and the gateway build. Naming deployments after the digest rather than after the
+ * timestamp of the topology file lets a deployment be reused for as long as none of those changed, across
+ * restarts and rewrites of the topology file with the same content.
+ * <p>
+ * What all the deployments have in common is digested, and the service definitions are loaded, when the digest
+ * is created, so a digest is created once for a batch of deployments and used for all of them.
+ */
+public final class TopologyDeploymentDigest {
+
+  private static final GatewayMessages log = MessagesFactory.get(GatewayMessages.class);
+
+  private static final JAXBContext jaxbContext = getJAXBContext();
+
+  /* Service definitions only change by being replaced, so their digests are kept for as long as they are in use */
+  private static final Map<ServiceDeploymentContributor, byte[]> serviceDigests = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private static final int DIGEST_LENGTH = 8;
+
+  private final GatewayConfig config;
+  private final byte[] gatewayDigest;
+
+  public TopologyDeploymentDigest(GatewayConfig config, String buildVersion, String buildHash) {
+    this.config = config;
+    // The same service definitions the deployments will be generated from
+    DeploymentFactory.loadStacksServiceContributors(config);
+    final MessageDigest digest = newDigest();
+    update(digest, buildVersion);
+    update(digest, buildHash);
+    updateConfig(digest, config);
+    gatewayDigest = digest.digest();
+  }
+
+  private static JAXBContext getJAXBContext() {
+    try {
+      return JAXBContext.newInstance(ServiceDefinition.class);
+    } catch (JAXBException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the hex encoded digest of the deployment of the topology, or <code>null</code> if it could not be
+   *         calculated, in which case its deployments cannot be reused
+   */
+  public String calculate(Topology topology) {
+    try {
+      final MessageDigest digest = newDigest();
+      digest.update(gatewayDigest);
+      updateTopology(digest, topology);
+      updateServices(digest, topology);
+      updateApplications(digest, topology);
+      return Hex.encodeHexString(Arrays.copyOf(digest.digest(), DIGEST_LENGTH));
+    } catch (IOException | RuntimeException e) {
+      log.failedToCalculateDeploymentDigest(topology.getName(), e);
+      return null;
+    }
+  }
+
+  private static void updateTopology(MessageDigest digest, Topology topology) {
+    update(digest, topology.getName());
+    update(digest, topology.getDefaultServicePath());
+    update(digest, String.valueOf(topology.isGenerated()));
+    update(digest, String.valueOf(topology.getRedeployTime()));
+    update(digest, topology.getProviders().size());
+    for (Provider provider : topology.getProviders()) {
+      update(digest, provider.getRole());
+      update(digest, provider.getName());
+      update(digest, String.valueOf(provider.isEnabled()));
+      update(digest, provider.getParamsList());
+    }
+    update(digest, topology.getServices().size());
+    for (Service service : topology.getServices()) {
+      update(digest, service);
+    }
+    update(digest, topology.getApplications().size());
+    for (Application application : topology.getApplications()) {
+      update(digest, application);
+    }
+  }
+
+  private static void update(MessageDigest digest, Service service) {
+    update(digest, service.getRole());
+    update(digest, service.getName());
+    update(digest, String.valueOf(service.getVersion()));
+    update(digest, String.valueOf(service.getUrls()));
+    update(digest, service.getParamsList());
+    final CustomDispatch dispatch = service.getDispatch();
+    if (dispatch == null) {
+      update(digest, -1);
+    } else {
+      update(digest, dispatch.getContributorName());
+      update(digest, dispatch.getHaContributorName());
+      update(digest, dispatch.getClassName());
+      update(digest, dispatch.getHaClassName());
+      update(digest, dispatch.getHttpClientFactory());
+      update(digest, String.valueOf(dispatch.getUseTwoWaySsl()));
+      update(digest, String.valueOf(dispatch.getParams()));
+    }
+  }
+
+  private static void update(MessageDigest digest, Collection<Param> params) {
+    update(digest, params.size());
+    for (Param param : params) {
+      update(digest, param.getName());
+      update(digest, param.getValue());
+    }
+  }
+
+  private static void updateServices(MessageDigest digest, Topology topology) throws IOException {
+    final List<ServiceDeploymentContributor> contributors = new ArrayList<>();
+    for (Service service : topology.getServices()) {
+      ServiceDeploymentContributor contributor =
+          DeploymentFactory.getServiceContributor(service.getRole(), service.getName(), service.getVersion());
+      if (contributor != null && !contributors.contains(contributor)) {
+        contributors.add(contributor);
+      }
+    }
+    for (ServiceDeploymentContributor contributor : contributors) {
+      byte[] serviceDigest = serviceDigests.get(contributor);
+      if (serviceDigest == null) {
+        serviceDigest = calculate(contributor);
+        serviceDigests.put(contributor, serviceDigest);
+      }
+      digest.update(serviceDigest);
+    }
+  }
+
+  private static byte[] calculate(ServiceDeploymentContributor contributor) throws IOException {
+    final MessageDigest digest = newDigest();
+    update(digest, contributor.getClass().getName());
+    update(digest, contributor.getRole());
+    update(digest, contributor.getName());
+    update(digest, String.valueOf(contributor.getVersion()));
+    if (contributor instanceof ServiceDefinitionDeploymentContributor) {
+      final ServiceDefinitionDeploymentContributor definition = (ServiceDefinitionDeploymentContributor) contributor;
+      final StringWriter writer = new StringWriter();
+      try {
+        jaxbContext.createMarshaller().marshal(definition.getServiceDefinition(), writer);
+      } catch (JAXBException e) {
+        throw new IOException(e);
+      }
+      if (definition.getServiceRules() != null) {
+        UrlRewriteRulesDescriptorFactory.store(definition.getServiceRules(), "xml", writer);
+      }
+      update(digest, writer.toString());
+    }
+    return digest.digest();
+  }
+
+  private void updateApplications(MessageDigest digest, Topology topology) {
+    final File appsDir = new File(config.getGatewayApplicationsDir());
+    for (Application application : topology.getApplications()) {
+      update(digest, application.getName());
+      final File appDir = new File(appsDir, application.getName());
+      if (appDir.isDirectory()) {
+        // The size and modification time of the files identify the version of an application well enough
+        // without reading all of it.
+        final Map<String, String> files = new TreeMap<>();
+        for (File file : FileUtils.listFiles(appDir, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE)) {
+          files.put(file.getAbsolutePath(), file.length() + ":" + file.lastModified());
+        }
+        update(digest, files.toString());
+      }
+    }
+  }
+
+  private static void updateConfig(MessageDigest digest, GatewayConfig config) {
+    if (config instanceof Iterable) {
+      final Map<String, String> properties = new TreeMap<>();
+      for (Object entry : (Iterable<?>) config) {
+        if (entry instanceof Map.Entry) {
+          properties.put(String.valueOf(((Map.Entry<?, ?>) entry).getKey()), String.valueOf(((Map.Entry<?, ?>) entry).getValue()));
+        }
+      }
+      update(digest, properties.toString());
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    final byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    // Prefixing the length keeps consecutive values from running into each other.
+    update(digest, bytes.length);
+    digest.update(bytes);
+  }
+
+  private static void update(MessageDigest digest, int value) {
+    digest.update(new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value });
+  }
+}
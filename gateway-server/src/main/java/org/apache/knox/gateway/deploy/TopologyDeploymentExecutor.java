@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs the per topology steps of a deployment phase on a bounded pool of threads that only lives as long as
+ * the phase, so a gateway with many topologies does not load, generate and start them one at a time.
+ * Phases still run one after the other; only the topologies within a phase are handled concurrently.
+ */
+public final class TopologyDeploymentExecutor {
+
+  private TopologyDeploymentExecutor() {
+  }
+
+  /**
+   * Applies the task to every item, using up to the given number of threads.
+   * <p>
+   * The task is expected to handle the failures of a single item itself, so that one broken topology does not
+   * fail the others. A runtime exception that escapes a task is rethrown once all the items have been handled.
+   *
+   * @return the results of the task, in the order of the items
+   */
+  @SuppressWarnings("PMD.DoNotUseThreads") // the pool is shut down before returning
+  public static <T, R> List<R> invokeAll(int parallelism, Collection<T> items, Function<T, R> task) {
+    final List<R> results = new ArrayList<>(items.size());
+    if (parallelism <= 1 || items.size() <= 1) {
+      for (T item : items) {
+        results.add(task.apply(item));
+      }
+      return results;
+    }
+
+    // Deployment contributors and ShrinkWrap look up their extensions through the context class loader, which
+    // the pool threads would otherwise not share with the gateway thread.
+    final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    final List<Callable<R>> callables = new ArrayList<>(items.size());
+    for (T item : items) {
+      callables.add(() -> {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+          return task.apply(item);
+        } finally {
+          thread.setContextClassLoader(previous);
+        }
+      });
+    }
+    final ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, items.size()));
+    try {
+      for (Future<R> future : pool.invokeAll(callables)) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DeploymentException("Interrupted while deploying topologies", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new DeploymentException("Failed to deploy topologies", e);
+    } finally {
+      pool.shutdown();
+    }
+    return results;
+  }
+}
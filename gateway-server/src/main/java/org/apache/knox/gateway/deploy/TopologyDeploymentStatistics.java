@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gateway wide timing of the phases topologies go through when they are deployed, starting with the
+ * deployment of all the topologies at gateway startup, and counts of the deployments that were generated,
+ * of those that were reused and of the updates that were applied to running deployments.
+ */
+public class TopologyDeploymentStatistics implements MetricSet {
+  private static final TopologyDeploymentStatistics INSTANCE = new TopologyDeploymentStatistics();
+
+  static final String METRICS_PREFIX = "topology.deployment";
+
+  public enum Phase {
+    /** Reading, parsing and validating the topology files */
+    LOAD,
+    /** Creating the deployment archives and exporting them to the deployments directory */
+    GENERATE,
+    /** Replacing the web application contexts of the topologies */
+    ACTIVATE,
+    /** Starting the web application contexts */
+    START
+  }
+
+  private final Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+  private final LongAdder reused = new LongAdder();
+  private final LongAdder generated = new LongAdder();
+  private final LongAdder updated = new LongAdder();
+
+  public static TopologyDeploymentStatistics getInstance() {
+    return INSTANCE;
+  }
+
+  /* Visible for testing; everything else should share the gateway wide instance */
+  TopologyDeploymentStatistics() {
+    for (Phase phase : Phase.values()) {
+      timers.put(phase, new Timer());
+    }
+  }
+
+  /**
+   * Records one run of a phase for a batch of topologies.
+   *
+   * @return the duration of the run in milliseconds
+   */
+  public long record(Phase phase, int topologies, long nanos) {
+    final Timer timer = timers.get(phase);
+    timer.runs.increment();
+    timer.topologies.add(topologies);
+    timer.nanos.add(nanos);
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  /**
+   * Records whether the deployment of a topology was generated or an existing one, generated from the same
+   * content, was reused.
+   */
+  public void recordDeployment(boolean reuse) {
+    if (reuse) {
+      reused.increment();
+    } else {
+      generated.increment();
+    }
+  }
+
+  /**
+   * Records an update of the service URLs of a topology that was applied without redeploying it.
+   */
+  public void recordServiceUrlUpdate() {
+    updated.increment();
+  }
+
+  @Override
+  public Map<String, Metric> getMetrics() {
+    final Map<String, Metric> metrics = new HashMap<>();
+    for (Map.Entry<Phase, Timer> entry : timers.entrySet()) {
+      final String phase = entry.getKey().name().toLowerCase(Locale.ROOT);
+      final Timer timer = entry.getValue();
+      metrics.put(MetricRegistry.name(METRICS_PREFIX, phase, "runs"), (Gauge<Long>) timer.runs::sum);
+      metrics.put(MetricRegistry.name(METRICS_PREFIX, phase, "topologies"), (Gauge<Long>) timer.topologies::sum);
+      metrics.put(MetricRegistry.name(METRICS_PREFIX, phase, "time-ms"),
+          (Gauge<Long>) () -> TimeUnit.NANOSECONDS.toMillis(timer.nanos.sum()));
+    }
+    metrics.put(MetricRegistry.name(METRICS_PREFIX, "reused"), (Gauge<Long>) reused::sum);
+    metrics.put(MetricRegistry.name(METRICS_PREFIX, "generated"), (Gauge<Long>) generated::sum);
+    metrics.put(MetricRegistry.name(METRICS_PREFIX, "updated"), (Gauge<Long>) updated::sum);
+    return metrics;
+  }
+
+  private static final class Timer {
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder topologies = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+  }
+}
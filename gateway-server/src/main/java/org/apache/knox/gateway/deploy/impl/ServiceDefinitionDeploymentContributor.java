@@ -73,15 +73,24 @@ public class ServiceDefinitionDeploymentContributor extends ServiceDeploymentCon
    */
   private static final String SERVICE_CONTEXT = "serviceContext";
 
-  private ServiceDefinition serviceDefinition;
+  // Shared by the topologies deployed in parallel, see ServiceDefinitionsLoader, so they are only read here.
+  private final ServiceDefinition serviceDefinition;
 
-  private UrlRewriteRulesDescriptor serviceRules;
+  private final UrlRewriteRulesDescriptor serviceRules;
 
   public ServiceDefinitionDeploymentContributor(ServiceDefinition serviceDefinition, UrlRewriteRulesDescriptor serviceRules) {
     this.serviceDefinition = serviceDefinition;
     this.serviceRules = serviceRules;
   }
 
+  public ServiceDefinition getServiceDefinition() {
+    return serviceDefinition;
+  }
+
+  public UrlRewriteRulesDescriptor getServiceRules() {
+    return serviceRules;
+  }
+
   @Override
   public String getRole() {
     return serviceDefinition.getRole();
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter;
+
+import org.eclipse.jetty.server.HttpOutput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+
+/**
+ * Hands pass through response bodies to {@link HttpOutput#sendContent(java.nio.channels.ReadableByteChannel)},
+ * which fills buffers taken from the connector's buffer pool and writes them to the endpoint, bypassing the
+ * servlet output stream and the buffered copy of the generic fallback.
+ * <p>
+ * The body is an {@link InputStream}, so {@link Channels#newChannel(InputStream)} still copies each read through
+ * a small (8K) transfer array on its way into the pooled buffer; what is saved is the extra buffering on the
+ * servlet side, not every heap copy.
+ */
+public class JettyResponseStreamer implements ContainerResponseStreamer {
+
+  @Override
+  public boolean stream( InputStream input, OutputStream output ) throws IOException {
+    if( output instanceof HttpOutput ) {
+      ((HttpOutput) output).sendContent( Channels.newChannel( input ) );
+      return true;
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter;
+
+import org.apache.knox.gateway.GatewayMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts the web application contexts of topologies when they receive their first request, rather than when
+ * the topologies are deployed, and optionally stops them again once they have been idle for a while.
+ * <p>
+ * The contexts stay in the context collection, and so in the routing of the requests and the port mappings,
+ * whether they are started or not; Jetty skips the contexts that are not started. Requests that arrive while
+ * a context is being started or stopped wait for that to complete. A context that fails to start is only
+ * started again after a delay, in the meantime its requests are answered as if it wasn't deployed.
+ */
+public class TopologyActivationHandler extends HandlerWrapper {
+  private static final GatewayMessages LOG = MessagesFactory.get(GatewayMessages.class);
+
+  // Marks a context that is being stopped; requests arriving meanwhile leave the count of requests negative.
+  private static final int PASSIVATING = -(1 << 30);
+
+  // Bounds of the delay before a context that failed to start is started again, which doubles on each failure.
+  private static final long MIN_RETRY_DELAY = TimeUnit.SECONDS.toMillis(1);
+  private static final long MAX_RETRY_DELAY = TimeUnit.MINUTES.toMillis(5);
+
+  private final long idleTimeout;
+  private final ConcurrentMap<String, LazyContext> lazyContexts = new ConcurrentHashMap<>();
+
+  /**
+   * @param idleTimeout the time in milliseconds after which a context that has not received any request is
+   *                    stopped, or 0 to keep the contexts started once they have been
+   */
+  public TopologyActivationHandler(long idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * Registers a context that is not started yet, to be started on its first request. The context must not be
+   * managed by its parent, as its parent would start it.
+   */
+  public void register(String topologyName, ContextHandler context) {
+    lazyContexts.put(context.getContextPath(), new LazyContext(topologyName, context));
+  }
+
+  public void unregister(ContextHandler context) {
+    final LazyContext lazyContext = lazyContexts.get(context.getContextPath());
+    if (lazyContext != null && lazyContext.context == context) {
+      lazyContexts.remove(context.getContextPath(), lazyContext);
+    }
+  }
+
+  public boolean isRegistered(ContextHandler context) {
+    final LazyContext lazyContext = lazyContexts.get(context.getContextPath());
+    return lazyContext != null && lazyContext.context == context;
+  }
+
+  @Override
+  public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+      throws IOException, ServletException {
+    final LazyContext lazyContext = lazyContexts.isEmpty() ? null : find(target);
+    if (lazyContext == null) {
+      super.handle(target, baseRequest, request, response);
+      return;
+    }
+    lazyContext.enter();
+    try {
+      super.handle(target, baseRequest, request, response);
+    } finally {
+      lazyContext.exit();
+    }
+  }
+
+  /**
+   * Stops the contexts that have not received any request for longer than the idle timeout.
+   */
+  public void passivateIdleContexts() {
+    if (idleTimeout > 0) {
+      final long now = System.currentTimeMillis();
+      for (LazyContext lazyContext : lazyContexts.values()) {
+        lazyContext.passivate(now);
+      }
+    }
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    // The contexts are not managed by their parent, which doesn't stop them either.
+    for (LazyContext lazyContext : lazyContexts.values()) {
+      lazyContext.passivate(Long.MAX_VALUE);
+    }
+    super.doStop();
+  }
+
+  /* The context with the longest context path the target starts with */
+  private LazyContext find(String target) {
+    LazyContext found = null;
+    int end = target.indexOf('/', 1);
+    while (true) {
+      final LazyContext lazyContext = lazyContexts.get(end < 0 ? target : target.substring(0, end));
+      if (lazyContext != null) {
+        found = lazyContext;
+      }
+      if (end < 0) {
+        return found;
+      }
+      end = target.indexOf('/', end + 1);
+    }
+  }
+
+  private final class LazyContext {
+    private final String topologyName;
+    private final ContextHandler context;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicLong lastRequest = new AtomicLong(System.currentTimeMillis());
+    // Guarded by this
+    private long retryDelay;
+    private long nextAttempt;
+
+    LazyContext(String topologyName, ContextHandler context) {
+      this.topologyName = topologyName;
+      this.context = context;
+    }
+
+    void enter() {
+      if (requests.incrementAndGet() <= 0 || !context.isStarted()) {
+        // Waits for the context to be stopped, if that is what is going on, and starts it.
+        synchronized (this) {
+          if (!context.isStarted()) {
+            activate();
+          }
+        }
+      }
+    }
+
+    void exit() {
+      lastRequest.set(System.currentTimeMillis());
+      requests.decrementAndGet();
+    }
+
+    private void activate() {
+      final long now = System.currentTimeMillis();
+      if (now < nextAttempt) {
+        return;
+      }
+      LOG.activatingTopologyOnRequest(topologyName, context.getContextPath());
+      try {
+        context.start();
+        if (context.isAvailable()) {
+          retryDelay = 0;
+          return;
+        }
+        // Started, but e.g. a filter failed to initialize, so it is stopped to be started again later.
+        LOG.activatedTopologyIsUnavailable(topologyName, context.getContextPath());
+        context.stop();
+      } catch (Exception e) {
+        LOG.failedToActivateTopologyOnRequest(topologyName, e);
+      }
+      retryDelay = retryDelay == 0 ? MIN_RETRY_DELAY : Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+      nextAttempt = now + retryDelay;
+    }
+
+    synchronized void passivate(long now) {
+      if (!context.isStarted() || now - lastRequest.get() < idleTimeout || !requests.compareAndSet(0, PASSIVATING)) {
+        return;
+      }
+      try {
+        LOG.passivatingIdleTopology(topologyName, context.getContextPath());
+        context.stop();
+      } catch (Exception e) {
+        LOG.failedToPassivateIdleTopology(topologyName, e);
+      } finally {
+        requests.addAndGet(-PASSIVATING);
+      }
+    }
+  }
+}
@@ -26,6 +26,9 @@ import com.codahale.metrics.jvm.JvmAttributeGaugeSet;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
 import org.apache.knox.gateway.GatewayMessages;
 import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.deploy.TopologyDeploymentStatistics;
+import org.apache.knox.gateway.dispatch.BackendAuthCookieCache;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteStatistics;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.ServiceLifecycleException;
 import org.apache.knox.gateway.services.metrics.InstrumentationProvider;
@@ -74,6 +77,7 @@ public class DefaultMetricsService implements MetricsService {
       loadInstrumentationProviders();
       loadAndInitReporters(config);
       registerJvmMetricSets();
+      registerGatewayMetricSets();
     }
   }
 
@@ -105,6 +109,12 @@ public class DefaultMetricsService implements MetricsService {
     metrics.registerAll(new MemoryUsageGaugeSet());
   }
 
+  private void registerGatewayMetricSets() {
+    metrics.registerAll(BackendAuthCookieCache.getInstance());
+    metrics.registerAll(UrlRewriteStatistics.getInstance());
+    metrics.registerAll(TopologyDeploymentStatistics.getInstance());
+  }
+
   @Override
   public void start() throws ServiceLifecycleException {
     if (config.isMetricsEnabled()) {
@@ -17,6 +17,7 @@
  */
 package org.apache.knox.gateway.services.metrics.impl.instr;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.httpclient.HttpClientMetricNameStrategy;
 import com.codahale.metrics.httpclient.InstrumentedHttpRequestExecutor;
@@ -24,7 +25,10 @@ import org.apache.http.Header;
 import org.apache.http.HttpRequest;
 import org.apache.http.RequestLine;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.knox.gateway.dispatch.HttpClientConnectionPoolRegistry;
 import org.apache.knox.gateway.services.metrics.InstrumentationProvider;
 import org.apache.knox.gateway.services.metrics.MetricsContext;
 import org.apache.knox.gateway.services.metrics.impl.DefaultMetricsService;
@@ -38,7 +42,7 @@ public class InstrHttpClientBuilderProvider implements
   @Override
   public HttpClientBuilder getInstrumented(MetricsContext metricsContext) {
     MetricRegistry registry = (MetricRegistry) metricsContext.getProperty(DefaultMetricsService.METRICS_REGISTRY);
-    return  HttpClientBuilder.create().setRequestExecutor(new InstrumentedHttpRequestExecutor(registry, TOPOLOGY_URL_AND_METHOD));
+    return new InstrumentedHttpClientBuilder(registry).setRequestExecutor(new InstrumentedHttpRequestExecutor(registry, TOPOLOGY_URL_AND_METHOD));
   }
 
   @Override
@@ -46,6 +50,36 @@ public class InstrHttpClientBuilderProvider implements
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Registers the lease gauges of the shared connection pool a client is built with.
+   */
+  private static class InstrumentedHttpClientBuilder extends HttpClientBuilder {
+    private final MetricRegistry registry;
+
+    InstrumentedHttpClientBuilder(MetricRegistry registry) {
+      this.registry = registry;
+    }
+
+    @Override
+    public HttpClientBuilder setConnectionManager(HttpClientConnectionManager connManager) {
+      if (connManager instanceof PoolingHttpClientConnectionManager) {
+        final PoolingHttpClientConnectionManager pool = (PoolingHttpClientConnectionManager) connManager;
+        final String poolName = HttpClientConnectionPoolRegistry.getInstance().getPoolName(pool);
+        if (poolName != null) {
+          registry.<Gauge<Integer>>gauge(MetricRegistry.name("httpclient", "pool", poolName, "leased"),
+              () -> () -> pool.getTotalStats().getLeased());
+          registry.<Gauge<Integer>>gauge(MetricRegistry.name("httpclient", "pool", poolName, "available"),
+              () -> () -> pool.getTotalStats().getAvailable());
+          registry.<Gauge<Integer>>gauge(MetricRegistry.name("httpclient", "pool", poolName, "lease-waiting"),
+              () -> () -> pool.getTotalStats().getPending());
+          registry.<Gauge<Integer>>gauge(MetricRegistry.name("httpclient", "pool", poolName, "max"),
+              () -> () -> pool.getTotalStats().getMax());
+        }
+      }
+      return super.setConnectionManager(connManager);
+    }
+  }
+
   private static final HttpClientMetricNameStrategy TOPOLOGY_URL_AND_METHOD = new HttpClientMetricNameStrategy() {
     @Override
     public String getNameFor(String name, HttpRequest request) {
@@ -80,7 +80,7 @@ public class DefaultServiceRegistryService implements ServiceRegistry, Service {
   }
 
   @Override
-  public void removeClusterServices(String clusterName) {
+  public synchronized void removeClusterServices(String clusterName) {
     registry.remove(clusterName);
   }
 
@@ -96,25 +96,20 @@ public class DefaultServiceRegistryService implements ServiceRegistry, Service {
     // part one is the code and part two is the signature
     boolean verified = crypto.verify("SHA256withRSA", parts[0], Base64.decodeBase64(parts[1]));
     if (verified) {
-      Map<String,RegEntry> clusterServices = registry.get(clusterName);
-      if (clusterServices == null) {
-        synchronized(this) {
-          clusterServices = new HashMap<>();
-          registry.put(clusterName, clusterServices);
-        }
-      }
       RegEntry regEntry = new RegEntry();
       regEntry.setClusterName(clusterName);
       regEntry.setServiceName(serviceName);
       regEntry.setUrls(urls);
-      clusterServices.put(serviceName , regEntry);
-      String json = renderAsJsonString(registry);
-      try {
-        FileUtils.write(new File(registryFileName), json, StandardCharsets.UTF_8);
-        rc = true;
-      } catch (IOException e) {
-        // log appropriately
-        e.printStackTrace(); //TODO: I18N
+      // Topologies may be deployed concurrently, so registering a service and persisting the registry is atomic.
+      synchronized(this) {
+        registry.computeIfAbsent(clusterName, name -> new HashMap<>()).put(serviceName , regEntry);
+        String json = renderAsJsonString(registry);
+        try {
+          FileUtils.write(new File(registryFileName), json, StandardCharsets.UTF_8);
+          rc = true;
+        } catch (IOException e) {
+          LOG.failedToPersistServiceRegistry(registryFileName, e);
+        }
       }
     }
 
@@ -130,7 +125,7 @@ public class DefaultServiceRegistryService implements ServiceRegistry, Service {
       json = mapper.writeValueAsString(registry);
 
     } catch ( JsonProcessingException e ) {
-      e.printStackTrace(); //TODO: I18N
+      LOG.failedToRenderServiceRegistry( e );
     }
     return json;
   }
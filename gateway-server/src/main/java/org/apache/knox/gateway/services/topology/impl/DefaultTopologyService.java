@@ -22,7 +22,6 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.io.monitor.FileAlterationListener;
 import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
-import org.apache.commons.io.monitor.FileAlterationMonitor;
 import org.apache.commons.io.monitor.FileAlterationObserver;
 import org.apache.knox.gateway.GatewayMessages;
 import org.apache.knox.gateway.GatewayServer;
@@ -33,6 +32,9 @@ import org.apache.knox.gateway.audit.api.Auditor;
 import org.apache.knox.gateway.audit.api.ResourceType;
 import org.apache.knox.gateway.audit.log4j.audit.AuditConstants;
 import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.deploy.TopologyDeploymentExecutor;
+import org.apache.knox.gateway.deploy.TopologyDeploymentStatistics;
+import org.apache.knox.gateway.deploy.TopologyDeploymentStatistics.Phase;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.service.definition.ServiceDefinition;
 import org.apache.knox.gateway.service.definition.ServiceDefinitionChangeListener;
@@ -84,6 +86,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DefaultTopologyService extends FileAlterationListenerAdaptor implements TopologyService, TopologyMonitor,
     TopologyProvider, FileFilter, FileAlterationListener, ServiceDefinitionChangeListener {
@@ -99,7 +102,10 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
   public static final List<String> SUPPORTED_TOPOLOGY_FILE_EXTENSIONS = Collections.unmodifiableList(Arrays.asList("xml", "conf"));
 
   private static final GatewayMessages log = MessagesFactory.get(GatewayMessages.class);
-  private final Map<String, FileAlterationMonitor> monitors = new ConcurrentHashMap<>();
+  private final Map<String, DirectoryMonitor> monitors = new ConcurrentHashMap<>();
+  // Whether the topologies directory is being checked for changes, and whether some have been found so far
+  private final AtomicBoolean checkingTopologies = new AtomicBoolean();
+  private final AtomicBoolean topologiesChanged = new AtomicBoolean();
   private File topologiesDirectory;
   private File sharedProvidersDirectory;
   private File descriptorsDirectory;
@@ -258,17 +264,10 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
     return configDir.getAbsoluteFile();
   }
 
-  private void initListener(String monitorName, FileAlterationMonitor monitor, File directory, FileFilter filter, FileAlterationListener listener) {
-    monitors.put(monitorName, monitor);
-    FileAlterationObserver observer = new FileAlterationObserver(directory, filter);
-    observer.addListener(listener);
-    monitor.addObserver(observer);
-  }
-
   private void initListener(String monitorName, File directory, FileFilter filter, FileAlterationListener listener) {
-    // Increasing the monitoring interval to 5 seconds as profiling has shown
-    // this is rather expensive in terms of generated garbage objects.
-    initListener(monitorName, new FileAlterationMonitor(5000L), directory, filter, listener);
+    monitors.put(monitorName, new DirectoryMonitor(monitorName, directory, filter, listener,
+        config.getTopologyMonitorPollInterval(), config.getTopologyMonitorDebounceTime(),
+        config.isTopologyMonitorEventsEnabled()));
   }
 
   private Map<File, Topology> loadTopologies(File directory) {
@@ -276,28 +275,43 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
     if (directory.isDirectory() && directory.canRead()) {
       File[] existingTopologies = directory.listFiles(this);
       if (existingTopologies != null) {
-        for (File file : existingTopologies) {
-          try {
-            Topology loadTopology = loadTopology(file);
-            if (null != loadTopology) {
-              map.put(file, loadTopology);
-            } else {
-              auditor.audit(Action.LOAD, file.getAbsolutePath(), ResourceType.TOPOLOGY,
-                      ActionOutcome.FAILURE);
-              log.failedToLoadTopology(file.getAbsolutePath());
-            }
-          } catch (Exception e) {
-            // Maybe it makes sense to throw exception
-            auditor.audit(Action.LOAD, file.getAbsolutePath(), ResourceType.TOPOLOGY,
-                    ActionOutcome.FAILURE);
-            log.failedToLoadTopology(file.getAbsolutePath(), e);
+        final long start = System.nanoTime();
+        final List<File> files = Arrays.asList(existingTopologies);
+        final List<Topology> loaded = TopologyDeploymentExecutor.invokeAll(getDeploymentParallelism(), files, this::loadTopologyOrAudit);
+        for (int i = 0; i < files.size(); i++) {
+          if (loaded.get(i) != null) {
+            map.put(files.get(i), loaded.get(i));
           }
         }
+        final long millis = TopologyDeploymentStatistics.getInstance().record(Phase.LOAD, files.size(), System.nanoTime() - start);
+        log.completedTopologyDeploymentPhase(Phase.LOAD.name(), files.size(), millis);
       }
     }
     return map;
   }
 
+  private Topology loadTopologyOrAudit(File file) {
+    try {
+      Topology loadTopology = loadTopology(file);
+      if (null == loadTopology) {
+        auditor.audit(Action.LOAD, file.getAbsolutePath(), ResourceType.TOPOLOGY,
+                ActionOutcome.FAILURE);
+        log.failedToLoadTopology(file.getAbsolutePath());
+      }
+      return loadTopology;
+    } catch (Exception e) {
+      // Maybe it makes sense to throw exception
+      auditor.audit(Action.LOAD, file.getAbsolutePath(), ResourceType.TOPOLOGY,
+              ActionOutcome.FAILURE);
+      log.failedToLoadTopology(file.getAbsolutePath(), e);
+    }
+    return null;
+  }
+
+  private int getDeploymentParallelism() {
+    return config == null ? 1 : config.getTopologyDeploymentParallelism();
+  }
+
   public void setAliasService(AliasService as) {
     this.aliasService = as;
   }
@@ -540,7 +554,7 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
   @Override
   public void startMonitor() throws Exception {
     // Start the local configuration monitors
-    for (Entry<String, FileAlterationMonitor> monitor : monitors.entrySet()) {
+    for (Entry<String, DirectoryMonitor> monitor : monitors.entrySet()) {
       monitor.getValue().start();
       log.startedMonitor(monitor.getKey());
     }
@@ -569,7 +583,7 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
   @Override
   public void stopMonitor() throws Exception {
     // Stop the local configuration monitors
-    for (Entry<String, FileAlterationMonitor> monitor : monitors.entrySet()) {
+    for (Entry<String, DirectoryMonitor> monitor : monitors.entrySet()) {
       monitor.getValue().stop();
       log.stoppedMonitor(monitor.getKey());
     }
@@ -604,7 +618,25 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
 
   @Override
   public void onFileChange(File file) {
-    reloadTopologies();
+    if (checkingTopologies.get()) {
+      // All the changes found in a check of the directory are reloaded at once, when the check is complete
+      topologiesChanged.set(true);
+    } else {
+      reloadTopologies();
+    }
+  }
+
+  @Override
+  public void onStart(FileAlterationObserver observer) {
+    checkingTopologies.set(true);
+  }
+
+  @Override
+  public void onStop(FileAlterationObserver observer) {
+    checkingTopologies.set(false);
+    if (topologiesChanged.getAndSet(false)) {
+      reloadTopologies();
+    }
   }
 
   @Override
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.topology.impl;
+
+import org.apache.commons.io.monitor.FileAlterationListener;
+import org.apache.commons.io.monitor.FileAlterationObserver;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.knox.gateway.GatewayMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Monitors the files of a directory for changes, notifying a {@link FileAlterationListener} of them.
+ * <p>
+ * The directory is watched for file system events, and only checked for changes once some have been
+ * received; the directory is polled instead on file systems that don't support such events, or when that
+ * has been configured. Events that follow each other within the debounce time are handled together, so the
+ * listener is notified of a burst of changes in a single check of the directory, between its
+ * {@link FileAlterationListener#onStart(FileAlterationObserver)} and
+ * {@link FileAlterationListener#onStop(FileAlterationObserver)} notifications.
+ */
+public class DirectoryMonitor {
+  private static final GatewayMessages LOG = MessagesFactory.get(GatewayMessages.class);
+
+  private final String name;
+  private final File directory;
+  private final FileAlterationObserver observer;
+  private final long pollInterval;
+  private final long debounce;
+  private final AtomicBoolean watchable;
+  private final AtomicBoolean running = new AtomicBoolean();
+  private ExecutorService executor;
+
+  /**
+   * @param pollInterval the time in milliseconds between two checks of the directory when it is polled, which
+   *                     also bounds the time a burst of events can delay the check of the directory
+   * @param debounce     the time in milliseconds to wait for further events before checking the directory
+   * @param watch        whether to watch the directory for file system events, rather than to poll it
+   */
+  public DirectoryMonitor(String name, File directory, FileFilter filter, FileAlterationListener listener,
+                          long pollInterval, long debounce, boolean watch) {
+    this.name = name;
+    this.directory = directory;
+    this.observer = new FileAlterationObserver(directory, filter);
+    this.observer.addListener(listener);
+    this.pollInterval = pollInterval;
+    this.debounce = debounce;
+    this.watchable = new AtomicBoolean(watch);
+  }
+
+  public FileAlterationObserver getObserver() {
+    return observer;
+  }
+
+  @SuppressWarnings("PMD.DoNotUseThreads")
+  public synchronized void start() throws Exception {
+    if (running.compareAndSet(false, true)) {
+      observer.initialize();
+      executor = Executors.newSingleThreadExecutor(
+          new BasicThreadFactory.Builder().namingPattern("DirectoryMonitor-%d").daemon(true).build());
+      executor.execute(this::run);
+    }
+  }
+
+  public synchronized void stop() throws Exception {
+    if (running.compareAndSet(true, false)) {
+      executor.shutdownNow();
+      executor.awaitTermination(pollInterval, TimeUnit.MILLISECONDS);
+      observer.destroy();
+    }
+  }
+
+  private void run() {
+    WatchService watchService = watch();
+    if (watchService == null) {
+      LOG.pollingDirectory(name, pollInterval, directory.getAbsolutePath());
+    } else {
+      // Catches the changes made since the monitor was started, before the directory was being watched
+      check();
+    }
+    try {
+      while (running.get()) {
+        if (watchService == null) {
+          TimeUnit.MILLISECONDS.sleep(pollInterval);
+          // The directory may have been created meanwhile
+          watchService = watch();
+        } else if (!awaitChanges(watchService)) {
+          // The directory has been removed, or can't be accessed anymore
+          close(watchService);
+          watchService = null;
+          LOG.pollingDirectory(name, pollInterval, directory.getAbsolutePath());
+        }
+        check();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      // The monitor has been stopped
+    } finally {
+      close(watchService);
+    }
+  }
+
+  private WatchService watch() {
+    if (!watchable.get() || !directory.isDirectory()) {
+      return null;
+    }
+    WatchService watchService = null;
+    try {
+      watchService = directory.toPath().getFileSystem().newWatchService();
+      directory.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+      LOG.watchingDirectory(name, directory.getAbsolutePath());
+      return watchService;
+    } catch (IOException | UnsupportedOperationException e) {
+      watchable.set(false);
+      close(watchService);
+      LOG.failedToWatchDirectory(name, directory.getAbsolutePath(), e.getMessage());
+      return null;
+    }
+  }
+
+  /* Waits for the next burst of events, and returns whether the directory is still being watched */
+  private boolean awaitChanges(WatchService watchService) throws InterruptedException {
+    boolean valid = drain(watchService.take());
+    final long deadline = System.currentTimeMillis() + pollInterval;
+    long now = System.currentTimeMillis();
+    while (valid && now < deadline) {
+      final WatchKey key = watchService.poll(Math.min(debounce, deadline - now), TimeUnit.MILLISECONDS);
+      if (key == null) {
+        break;
+      }
+      valid = drain(key);
+      now = System.currentTimeMillis();
+    }
+    return valid;
+  }
+
+  /* The events themselves don't matter, including overflows, as the whole directory is checked anyway */
+  private static boolean drain(WatchKey key) {
+    key.pollEvents();
+    return key.reset();
+  }
+
+  private void check() {
+    try {
+      observer.checkAndNotify();
+    } catch (Exception e) {
+      LOG.failedToCheckDirectory(name, e);
+    }
+  }
+
+  private static void close(WatchService watchService) {
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        // Nothing left to release
+      }
+    }
+  }
+}
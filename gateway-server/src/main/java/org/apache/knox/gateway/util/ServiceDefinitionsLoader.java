@@ -17,6 +17,7 @@
  */
 package org.apache.knox.gateway.util;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.filefilter.TrueFileFilter;
@@ -26,6 +27,7 @@ import org.apache.knox.gateway.deploy.impl.ServiceDefinitionDeploymentContributo
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFactory;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.service.definition.Route;
 import org.apache.knox.gateway.service.definition.ServiceDefinition;
 import org.apache.knox.gateway.service.definition.ServiceDefinitionComparator;
 import org.apache.knox.gateway.service.definition.ServiceDefinitionPair;
@@ -34,6 +36,7 @@ import org.apache.knox.gateway.service.definition.ServiceDefinitionPairComparato
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Unmarshaller;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -42,20 +45,38 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ServiceDefinitionsLoader {
-  private static final JAXBContext jaxbContext = getJAXBContext();
-
   private static final GatewayMessages log = MessagesFactory.get(GatewayMessages.class);
 
   private static final String SERVICE_FILE_NAME = "service";
 
   private static final String REWRITE_FILE = "rewrite.xml";
 
+  /*
+   * The definitions parsed from each service file, which are only parsed again when the content of the service
+   * file or of the rewrite file next to it changed. The registry, the deployment contributors and the topology
+   * service all share them, and so do the topologies deployed in parallel, so they are read only: the lists of
+   * a parsed service definition can't be modified, and the rewrite rules must not be.
+   */
+  private static final Map<String, ParsedServiceDefinition> PARSED = new ConcurrentHashMap<>();
+
+  /* Only built once a service definition has to be parsed */
+  private static final class JAXBContextHolder {
+    private static final JAXBContext INSTANCE = getJAXBContext();
+  }
+
   private static JAXBContext getJAXBContext() {
     try {
       return JAXBContext.newInstance(ServiceDefinition.class);
@@ -66,43 +87,128 @@ public class ServiceDefinitionsLoader {
 
   private static Unmarshaller createUnmarshaller() {
     try {
-      return jaxbContext.createUnmarshaller();
+      return JAXBContextHolder.INSTANCE.createUnmarshaller();
     } catch (JAXBException e) {
       throw new RuntimeException("Could not create unmarshaller", e);
     }
   }
 
+  /**
+   * The contributors are the same instances from one call to the next as long as their service definitions
+   * didn't change. They, their service definitions and rewrite rules are shared, and must not be modified.
+   */
   public static Set<ServiceDeploymentContributor> loadServiceDefinitionDeploymentContributors(File servicesDir) {
     final Set<ServiceDeploymentContributor> contributors = new HashSet<>();
-    loadServiceDefinitions(servicesDir).forEach(
-        serviceDefinitionPair -> contributors.add(new ServiceDefinitionDeploymentContributor(serviceDefinitionPair.getService(), serviceDefinitionPair.getRewriteRules())));
+    loadParsedServiceDefinitions(servicesDir).forEach(parsed -> contributors.add(parsed.contributor));
     return contributors;
   }
 
+  /**
+   * The service definitions and their rewrite rules are shared with every other caller, and must not be modified.
+   */
   public static Set<ServiceDefinitionPair> loadServiceDefinitions(File servicesDir) {
     final Set<ServiceDefinitionPair> serviceDefinitions = new TreeSet<>(new ServiceDefinitionPairComparator());
+    loadParsedServiceDefinitions(servicesDir).forEach(parsed -> serviceDefinitions.add(parsed.serviceDefinition));
+    return serviceDefinitions;
+  }
+
+  private static List<ParsedServiceDefinition> loadParsedServiceDefinitions(File servicesDir) {
+    final List<ParsedServiceDefinition> serviceDefinitions = new ArrayList<>();
     if (servicesDir.exists() && servicesDir.isDirectory()) {
-      final Unmarshaller unmarshaller = createUnmarshaller();
-      getFileList(servicesDir).forEach(serviceFile -> {
+      Unmarshaller unmarshaller = null;
+      final Set<String> loaded = new HashSet<>();
+      int parsedCount = 0;
+      for (File serviceFile : getFileList(servicesDir)) {
+        final String path = serviceFile.getAbsolutePath();
         try {
-          serviceDefinitions.add(loadServiceDefinition(unmarshaller, serviceFile));
-        } catch (FileNotFoundException e) {
-          log.failedToFindServiceDefinitionFile(serviceFile.getAbsolutePath(), e);
+          final byte[] content = Files.readAllBytes(serviceFile.toPath());
+          final byte[] rewriteContent = readRewriteFile(serviceFile.getParentFile());
+          final byte[] fingerprint = getFingerprint(content, rewriteContent);
+          ParsedServiceDefinition parsed = PARSED.get(path);
+          if (parsed == null || !MessageDigest.isEqual(parsed.fingerprint, fingerprint)) {
+            if (unmarshaller == null) {
+              unmarshaller = createUnmarshaller();
+            }
+            parsed = new ParsedServiceDefinition(fingerprint,
+                loadServiceDefinition(unmarshaller, serviceFile, content, rewriteContent));
+            PARSED.put(path, parsed);
+            parsedCount++;
+          }
+          serviceDefinitions.add(parsed);
+          loaded.add(path);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+          log.failedToFindServiceDefinitionFile(path, e);
         } catch (IOException | JAXBException e) {
-          log.failedToLoadServiceDefinition(serviceFile.getAbsolutePath(), e);
+          log.failedToLoadServiceDefinition(path, e);
         }
-      });
+      }
+      // Forgets the service files which were removed, or can't be loaded anymore
+      final String prefix = servicesDir.getAbsolutePath() + File.separator;
+      PARSED.keySet().removeIf(path -> path.startsWith(prefix) && !loaded.contains(path));
+      log.loadedServiceDefinitions(serviceDefinitions.size(), servicesDir.getAbsolutePath(), parsedCount);
     }
-
     return serviceDefinitions;
   }
 
-  private static ServiceDefinitionPair loadServiceDefinition(Unmarshaller unmarshaller, File serviceFile) throws IOException, JAXBException {
-    try (InputStream inputStream = Files.newInputStream(serviceFile.toPath())) {
-      final ServiceDefinition service = (ServiceDefinition) unmarshaller.unmarshal(serviceFile);
-      final UrlRewriteRulesDescriptor rewriteRules = loadRewriteRules(serviceFile.getParentFile());
-      return new ServiceDefinitionPair(service, rewriteRules);
+  private static ServiceDefinitionPair loadServiceDefinition(Unmarshaller unmarshaller, File serviceFile, byte[] content,
+      byte[] rewriteContent) throws JAXBException {
+    final ServiceDefinition service = (ServiceDefinition) unmarshaller.unmarshal(new ByteArrayInputStream(content));
+    makeReadOnly(service);
+    final File serviceDir = serviceFile.getParentFile();
+    UrlRewriteRulesDescriptor rewriteRules = null;
+    if (rewriteContent == null) {
+      log.noRewriteFileFound(serviceDir.getAbsolutePath());
+    } else {
+      try (Reader reader = new InputStreamReader(new ByteArrayInputStream(rewriteContent), StandardCharsets.UTF_8)) {
+        rewriteRules = UrlRewriteRulesDescriptorFactory.load("xml", reader);
+      } catch (IOException e) {
+        log.failedToLoadRewriteFile(new File(serviceDir, REWRITE_FILE).getAbsolutePath(), e);
+      }
     }
+    return new ServiceDefinitionPair(service, rewriteRules);
+  }
+
+  private static void makeReadOnly(ServiceDefinition service) {
+    if (service.getRoutes() != null) {
+      for (Route route : service.getRoutes()) {
+        route.setRewrites(readOnly(route.getRewrites()));
+        route.setPolicies(readOnly(route.getPolicies()));
+      }
+    }
+    service.setRoutes(readOnly(service.getRoutes()));
+    service.setPolicies(readOnly(service.getPolicies()));
+    service.setTestURLs(readOnly(service.getTestURLs()));
+    if (service.getMetadata() != null) {
+      service.getMetadata().setSamples(readOnly(service.getMetadata().getSamples()));
+    }
+  }
+
+  private static <T> List<T> readOnly(List<T> list) {
+    return list == null ? null : Collections.unmodifiableList(list);
+  }
+
+  /* The rewrite file is read along with the service file, so that its content is fingerprinted and parsed once */
+  private static byte[] readRewriteFile(File serviceDir) throws IOException {
+    final File rewriteFile = new File(serviceDir, REWRITE_FILE);
+    try {
+      return rewriteFile.exists() ? Files.readAllBytes(rewriteFile.toPath()) : null;
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  /*
+   * Hashes the content of the service file and of the rewrite file loaded along with it, as edits don't
+   * necessarily change the size of the files or their modification time.
+   */
+  private static byte[] getFingerprint(byte[] content, byte[] rewriteContent) {
+    final MessageDigest digest = DigestUtils.getSha256Digest();
+    digest.update(content);
+    if (rewriteContent != null) {
+      digest.update((byte) 0);
+      digest.update(rewriteContent);
+    }
+    return digest.digest();
   }
 
   public static Set<ServiceDefinition> getServiceDefinitions(File servicesDir) {
@@ -153,4 +259,16 @@ public class ServiceDefinitionsLoader {
     log.noRewriteFileFound(servicesDir.getAbsolutePath());
     return null;
   }
+
+  private static final class ParsedServiceDefinition {
+    private final byte[] fingerprint;
+    private final ServiceDefinitionPair serviceDefinition;
+    private final ServiceDeploymentContributor contributor;
+
+    ParsedServiceDefinition(byte[] fingerprint, ServiceDefinitionPair serviceDefinition) {
+      this.fingerprint = fingerprint;
+      this.serviceDefinition = serviceDefinition;
+      this.contributor = new ServiceDefinitionDeploymentContributor(serviceDefinition.getService(), serviceDefinition.getRewriteRules());
+    }
+  }
 }
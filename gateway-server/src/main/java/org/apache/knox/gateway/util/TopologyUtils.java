@@ -31,23 +31,24 @@ import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
 
 public final class TopologyUtils {
 
-  private static final DigesterLoader digesterLoader = newLoader(new KnoxFormatXmlTopologyRules(),
-                                                                 new AmbariFormatXmlTopologyRules());
+  // Neither the loader nor the rules modules are thread safe; one per thread lets topologies be parsed concurrently.
+  private static final ThreadLocal<DigesterLoader> digesterLoader =
+      ThreadLocal.withInitial(() -> newLoader(new KnoxFormatXmlTopologyRules(), new AmbariFormatXmlTopologyRules()));
 
 
-  public static synchronized Topology parse(final String content) throws IOException, SAXException {
+  public static Topology parse(final String content) throws IOException, SAXException {
     Topology result;
 
-    TopologyBuilder builder = digesterLoader.newDigester().parse(new StringReader(content));
+    TopologyBuilder builder = digesterLoader.get().newDigester().parse(new StringReader(content));
     result = builder.build();
 
     return result;
   }
 
-  public static synchronized Topology parse(final InputStream content) throws IOException, SAXException {
+  public static Topology parse(final InputStream content) throws IOException, SAXException {
     Topology result;
 
-    TopologyBuilder builder = digesterLoader.newDigester().parse(content);
+    TopologyBuilder builder = digesterLoader.get().newDigester().parse(content);
     result = builder.build();
 
     return result;
@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.knox.test.mock.MockHttpServletRequest;
@@ -57,6 +58,23 @@ public class UrlEncodedFormRequestTest {
     assertNull(wrappedRequest.getParameterValues("unknown"));
   }
 
+  @Test
+  public void testQueryStringIsParsedOnFirstParameterAccess() throws Exception {
+    AtomicInteger queryStringReads = new AtomicInteger();
+    MockHttpServletRequest originalRequest = new MockHttpServletRequest() {
+      @Override
+      public String getQueryString() {
+        queryStringReads.incrementAndGet();
+        return "a=1";
+      }
+    };
+    UrlEncodedFormRequest wrappedRequest = new UrlEncodedFormRequest(originalRequest);
+    assertEquals(0, queryStringReads.get());
+    assertEquals("1", wrappedRequest.getParameter("a"));
+    assertArrayEquals(new String[]{"1"}, wrappedRequest.getParameterValues("a"));
+    assertEquals(1, queryStringReads.get());
+  }
+
   private static MockHttpServletRequest makeRequest(String body, String queryString) {
     MockHttpServletRequest request = new MockHttpServletRequest() {
       private boolean parametersExtracted;
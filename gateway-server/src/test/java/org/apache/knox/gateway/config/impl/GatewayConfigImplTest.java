@@ -768,4 +768,40 @@ public class GatewayConfigImplTest {
       System.clearProperty("KNOX_GATEWAY_CONF_DIR");
     }
   }
+
+  @Test
+  public void testHotPathSettingsFollowConfigurationChanges() throws Exception {
+    File dir = folder.newFolder("conf");
+    File reloadableFile = new File(dir, "gateway-reloadable.xml");
+    writeReloadableProperty(reloadableFile, GatewayConfig.HADOOP_KERBEROS_SECURED, "true");
+
+    try {
+      System.setProperty("KNOX_GATEWAY_CONF_DIR", dir.getAbsolutePath());
+      GatewayConfigImpl config = new GatewayConfigImpl();
+      assertThat(config.isHadoopKerberosSecured(), is(true));
+
+      writeReloadableProperty(reloadableFile, GatewayConfig.HADOOP_KERBEROS_SECURED, "false");
+      config.reloadConfiguration();
+      assertThat(config.isHadoopKerberosSecured(), is(false));
+
+      assertThat(config.getGatewayPortMappings().isEmpty(), is(true));
+      config.setInt(GatewayConfigImpl.GATEWAY_PORT_MAPPING_PREFIX + "sandbox", 9443);
+      assertThat(config.getGatewayPortMappings().get("sandbox"), is(9443));
+      config.unset(GatewayConfigImpl.GATEWAY_PORT_MAPPING_PREFIX + "sandbox");
+      assertThat(config.getGatewayPortMappings().isEmpty(), is(true));
+    } finally {
+      System.clearProperty("KNOX_GATEWAY_CONF_DIR");
+    }
+  }
+
+  private static void writeReloadableProperty(File file, String name, String value) throws Exception {
+    try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
+      writer.println("<configuration>");
+      writer.println("  <property>");
+      writer.println("    <name>" + name + "</name>");
+      writer.println("    <value>" + value + "</value>");
+      writer.println("  </property>");
+      writer.println("</configuration>");
+    }
+  }
 }
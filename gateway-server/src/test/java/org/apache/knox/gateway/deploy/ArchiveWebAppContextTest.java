@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.resource.Resource;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+
+public class ArchiveWebAppContextTest {
+
+  private static final String WEB_XML =
+      "<web-app xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\" version=\"3.1\">"
+          + "<servlet><servlet-name>resource</servlet-name>"
+          + "<servlet-class>" + ResourceServlet.class.getName() + "</servlet-class></servlet>"
+          + "<servlet-mapping><servlet-name>resource</servlet-name><url-pattern>/*</url-pattern></servlet-mapping>"
+          + "</web-app>";
+
+  @Test
+  public void testResourcesAreReadFromTheArchive() throws Exception {
+    Resource root = new ArchiveResource(createWebArchive());
+    assertThat(root.exists(), is(true));
+    assertThat(root.isDirectory(), is(true));
+    assertThat(Arrays.asList(root.list()), containsInAnyOrder("WEB-INF/"));
+
+    Resource webInf = root.addPath("/WEB-INF/");
+    assertThat(webInf.isDirectory(), is(true));
+    assertThat(Arrays.asList(webInf.list()), containsInAnyOrder("web.xml", "greeting.txt"));
+
+    Resource greeting = webInf.addPath("greeting.txt");
+    assertThat(greeting.exists(), is(true));
+    assertThat(greeting.isDirectory(), is(false));
+    assertThat(greeting.length(), is(5L));
+    assertThat(greeting, is(root.addPath("/WEB-INF/greeting.txt")));
+    try (InputStream input = greeting.getURL().openStream()) {
+      assertThat(IOUtils.toString(input, StandardCharsets.UTF_8), is("hello"));
+    }
+
+    Resource missing = root.addPath("/WEB-INF/missing.xml");
+    assertThat(missing.exists(), is(false));
+    assertThat(missing.list(), nullValue());
+    assertThat(missing.length(), is(-1L));
+  }
+
+  @Test
+  public void testWebApplicationIsServedFromTheArchive() throws Exception {
+    Server server = new Server();
+    LocalConnector connector = new LocalConnector(server);
+    server.addConnector(connector);
+    ArchiveWebAppContext context = new ArchiveWebAppContext(createWebArchive());
+    context.setContextPath("/gateway/sandbox");
+    server.setHandler(context);
+    server.start();
+    try {
+      String response = connector.getResponse("GET /gateway/sandbox/anything HTTP/1.0\r\n\r\n");
+      assertThat(response, containsString("200 OK"));
+      assertThat(response, containsString("stream=hello url=hello missing=true"));
+    } finally {
+      server.stop();
+    }
+  }
+
+  private static WebArchive createWebArchive() {
+    WebArchive war = ShrinkWrap.create(WebArchive.class, "%2F");
+    war.setWebXML(new StringAsset(WEB_XML));
+    war.addAsWebInfResource(new StringAsset("hello"), "greeting.txt");
+    return war;
+  }
+
+  public static class ResourceServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+      String stream;
+      try (InputStream input = getServletContext().getResourceAsStream("/WEB-INF/greeting.txt")) {
+        stream = IOUtils.toString(input, StandardCharsets.UTF_8);
+      }
+      URL url = getServletContext().getResource("/WEB-INF/greeting.txt");
+      String content;
+      try (InputStream input = url.openStream()) {
+        content = IOUtils.toString(input, StandardCharsets.UTF_8);
+      }
+      boolean missing = getServletContext().getResource("/WEB-INF/missing.xml") == null;
+      response.setContentType("text/plain");
+      response.getWriter().write("stream=" + stream + " url=" + content + " missing=" + missing);
+    }
+  }
+}
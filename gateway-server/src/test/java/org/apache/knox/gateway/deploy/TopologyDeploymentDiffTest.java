@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import org.apache.knox.gateway.service.definition.CustomDispatch;
+import org.apache.knox.gateway.topology.Param;
+import org.apache.knox.gateway.topology.Provider;
+import org.apache.knox.gateway.topology.Service;
+import org.apache.knox.gateway.topology.Topology;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TopologyDeploymentDiffTest {
+
+  @Test
+  public void testOnlyChangedServiceUrlsAreReported() {
+    Topology deployed = topology("http://nn1:50070/webhdfs", "http://rm1:8088/ws");
+    Topology updated = topology("http://nn1:50070/webhdfs", "http://rm2:8088/ws");
+    Map<String, List<String>> changed = TopologyDeploymentDiff.getChangedServiceUrls(deployed, updated);
+    assertThat(changed, is(Collections.singletonMap("RESOURCEMANAGER", Collections.singletonList("http://rm2:8088/ws"))));
+
+    // The same URLs in another order are no change.
+    deployed.getServices().iterator().next().setUrls(Arrays.asList("http://nn1:50070/webhdfs", "http://nn2:50070/webhdfs"));
+    updated = topology("http://nn1:50070/webhdfs", "http://rm1:8088/ws");
+    updated.getServices().iterator().next().setUrls(Arrays.asList("http://nn2:50070/webhdfs", "http://nn1:50070/webhdfs"));
+    assertThat(TopologyDeploymentDiff.getChangedServiceUrls(deployed, updated).isEmpty(), is(true));
+  }
+
+  @Test
+  public void testOtherChangesRequireARedeployment() {
+    Topology deployed = topology("http://nn1:50070/webhdfs", "http://rm1:8088/ws");
+
+    Topology updated = topology("http://nn1:50070/webhdfs", "http://rm2:8088/ws");
+    updated.getProviders().iterator().next().addParam(new Param("main.ldapRealm", "other"));
+    assertThat(TopologyDeploymentDiff.getChangedServiceUrls(deployed, updated), nullValue());
+
+    updated = topology("http://nn1:50070/webhdfs", "http://rm2:8088/ws");
+    updated.getServices().iterator().next().getParams().put("replayBufferSize", "8");
+    assertThat(TopologyDeploymentDiff.getChangedServiceUrls(deployed, updated), nullValue());
+
+    updated = topology("http://nn1:50070/webhdfs", "http://rm2:8088/ws");
+    updated.getServices().iterator().next().addDispatch(new CustomDispatch());
+    assertThat(TopologyDeploymentDiff.getChangedServiceUrls(deployed, updated), nullValue());
+
+    updated = topology("http://nn1:50070/webhdfs", "http://rm2:8088/ws");
+    Provider ha = new Provider();
+    ha.setRole("ha");
+    ha.setName("HaProvider");
+    ha.setEnabled(true);
+    ha.addParam(new Param("RESOURCEMANAGER", "enabled=true"));
+    updated.addProvider(ha);
+    deployed.addProvider(ha);
+    assertThat(TopologyDeploymentDiff.getChangedServiceUrls(deployed, updated), nullValue());
+  }
+
+  private static Topology topology(String webhdfs, String resourceManager) {
+    Topology topology = new Topology();
+    topology.setName("sandbox");
+    Provider authentication = new Provider();
+    authentication.setRole("authentication");
+    authentication.setName("ShiroProvider");
+    authentication.setEnabled(true);
+    topology.addProvider(authentication);
+    topology.addService(service("WEBHDFS", webhdfs));
+    topology.addService(service("RESOURCEMANAGER", resourceManager));
+    return topology;
+  }
+
+  private static Service service(String role, String url) {
+    Service service = new Service();
+    service.setRole(role);
+    service.addUrl(url);
+    return service;
+  }
+}
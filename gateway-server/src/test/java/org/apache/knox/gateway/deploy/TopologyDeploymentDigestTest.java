@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import org.apache.knox.gateway.GatewayTestConfig;
+import org.apache.knox.gateway.topology.Param;
+import org.apache.knox.gateway.topology.Provider;
+import org.apache.knox.gateway.topology.Service;
+import org.apache.knox.gateway.topology.Topology;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TopologyDeploymentDigestTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testDigestOnlyChangesWithTheContent() throws Exception {
+    GatewayTestConfig config = config();
+    String digest = new TopologyDeploymentDigest(config, "1.0", "abc").calculate(topology("v1"));
+    assertThat(digest.matches("[0-9a-f]{16}"), is(true));
+
+    // Loading the same content again changes the timestamp of the topology but not the digest.
+    Topology topology = topology("v1");
+    topology.setTimestamp(topology.getTimestamp() + 1000);
+    assertThat(new TopologyDeploymentDigest(config, "1.0", "abc").calculate(topology), is(digest));
+
+    assertThat(new TopologyDeploymentDigest(config, "1.1", "abc").calculate(topology), not(digest));
+    config.set("gateway.test.property", "changed");
+    assertThat(new TopologyDeploymentDigest(config, "1.0", "abc").calculate(topology), not(digest));
+    config.unset("gateway.test.property");
+    topology.setRedeployTime(1);
+    assertThat(new TopologyDeploymentDigest(config, "1.0", "abc").calculate(topology), not(digest));
+  }
+
+  @Test
+  public void testDigestCoversProvidersAndServices() throws Exception {
+    TopologyDeploymentDigest digest = new TopologyDeploymentDigest(config(), "1.0", "abc");
+    String original = digest.calculate(topology("v1"));
+
+    assertThat(digest.calculate(topology("v2")), not(original));
+
+    Topology topology = topology("v1");
+    topology.getServices().iterator().next().setUrls(Collections.singletonList("http://other:50070/webhdfs"));
+    assertThat(digest.calculate(topology), not(original));
+
+    topology = topology("v1");
+    topology.getProviders().iterator().next().setEnabled(false);
+    assertThat(digest.calculate(topology), not(original));
+  }
+
+  private GatewayTestConfig config() throws Exception {
+    GatewayTestConfig config = new GatewayTestConfig();
+    config.setGatewayServicesDir(folder.newFolder().getAbsolutePath());
+    config.setGatewayApplicationsDir(folder.getRoot().getAbsolutePath());
+    return config;
+  }
+
+  private static Topology topology(String paramValue) {
+    Topology topology = new Topology();
+    topology.setName("sandbox");
+    topology.setTimestamp(1000L);
+    Provider provider = new Provider();
+    provider.setRole("authentication");
+    provider.setName("ShiroProvider");
+    provider.setEnabled(true);
+    provider.addParam(param("main.ldapRealm", paramValue));
+    topology.addProvider(provider);
+    Service service = new Service();
+    service.setRole("WEBHDFS");
+    service.setUrls(Collections.singletonList("http://localhost:50070/webhdfs"));
+    topology.addService(service);
+    return topology;
+  }
+
+  private static Param param(String name, String value) {
+    Param param = new Param();
+    param.setName(name);
+    param.setValue(value);
+    return param;
+  }
+}
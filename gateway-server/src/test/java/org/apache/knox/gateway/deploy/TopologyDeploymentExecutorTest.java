@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import org.apache.knox.test.TestUtils;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TopologyDeploymentExecutorTest {
+
+  @Test(timeout = TestUtils.SHORT_TIMEOUT)
+  public void testResultsKeepTheOrderOfTheItems() {
+    List<String> results = TopologyDeploymentExecutor.invokeAll(4, Arrays.asList("a", "b", "c", "d", "e"), String::toUpperCase);
+    assertThat(results, is(Arrays.asList("A", "B", "C", "D", "E")));
+  }
+
+  @Test(timeout = TestUtils.SHORT_TIMEOUT)
+  public void testItemsAreHandledConcurrentlyWithTheCallersClassLoader() {
+    final ClassLoader previous = Thread.currentThread().getContextClassLoader();
+    final ClassLoader classLoader = new URLClassLoader(new URL[0], previous);
+    final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    // Every item waits for the other one, which only completes if they run at the same time.
+    final CountDownLatch latch = new CountDownLatch(2);
+    Thread.currentThread().setContextClassLoader(classLoader);
+    try {
+      List<ClassLoader> results = TopologyDeploymentExecutor.invokeAll(2, Arrays.asList("a", "b"), item -> {
+        threads.add(Thread.currentThread());
+        latch.countDown();
+        try {
+          assertThat(latch.await(TestUtils.SHORT_TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return Thread.currentThread().getContextClassLoader();
+      });
+      assertThat(threads.size(), is(2));
+      assertThat(results.get(0), sameInstance(classLoader));
+      assertThat(results.get(1), sameInstance(classLoader));
+    } finally {
+      Thread.currentThread().setContextClassLoader(previous);
+    }
+  }
+
+  @Test(timeout = TestUtils.SHORT_TIMEOUT)
+  public void testFailureIsRethrown() {
+    try {
+      TopologyDeploymentExecutor.invokeAll(2, Arrays.asList("a", "b"), item -> {
+        if ("b".equals(item)) {
+          throw new DeploymentException("Failed to deploy " + item);
+        }
+        return item;
+      });
+      fail("Expected the failure of the second item");
+    } catch (DeploymentException e) {
+      assertThat(e.getMessage(), is("Failed to deploy b"));
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TopologyActivationHandlerTest {
+
+  @Test
+  public void testContextsAreStartedOnRequestAndStoppedWhenIdle() throws Exception {
+    Server server = new Server();
+    LocalConnector connector = new LocalConnector(server);
+    server.addConnector(connector);
+    ContextHandlerCollection contexts = new ContextHandlerCollection();
+    TopologyActivationHandler activationHandler = new TopologyActivationHandler(1);
+    activationHandler.setHandler(contexts);
+    server.setHandler(activationHandler);
+
+    ContextHandler root = context("/gateway/sandbox", "root");
+    ContextHandler application = context("/gateway/sandbox/app", "application");
+    for (ContextHandler context : new ContextHandler[] { root, application }) {
+      contexts.addHandler(context);
+      contexts.unmanage(context);
+      activationHandler.register("sandbox", context);
+    }
+    server.start();
+    try {
+      assertThat(root.isStarted(), is(false));
+      assertThat(application.isStarted(), is(false));
+
+      assertThat(connector.getResponse("GET /gateway/sandbox/app/index.html HTTP/1.0\r\n\r\n"), containsString("application"));
+      assertThat(application.isStarted(), is(true));
+      assertThat(root.isStarted(), is(false));
+
+      assertThat(connector.getResponse("GET /gateway/sandbox/webhdfs/v1 HTTP/1.0\r\n\r\n"), containsString("root"));
+      assertThat(root.isStarted(), is(true));
+
+      Thread.sleep(10);
+      activationHandler.passivateIdleContexts();
+      assertThat(root.isStarted(), is(false));
+      assertThat(application.isStarted(), is(false));
+
+      assertThat(connector.getResponse("GET /gateway/sandbox/ HTTP/1.0\r\n\r\n"), containsString("root"));
+      assertThat(root.isStarted(), is(true));
+    } finally {
+      server.stop();
+    }
+    assertThat(root.isStarted(), is(false));
+  }
+
+  @Test
+  public void testContextsThatFailToStartAreNotStartedOnEveryRequest() throws Exception {
+    Server server = new Server();
+    LocalConnector connector = new LocalConnector(server);
+    server.addConnector(connector);
+    ContextHandlerCollection contexts = new ContextHandlerCollection();
+    TopologyActivationHandler activationHandler = new TopologyActivationHandler(0);
+    activationHandler.setHandler(contexts);
+    server.setHandler(activationHandler);
+
+    AtomicInteger starts = new AtomicInteger();
+    ContextHandler failing = new ContextHandler("/gateway/sandbox") {
+      @Override
+      protected void doStart() throws Exception {
+        starts.incrementAndGet();
+        throw new IllegalStateException("failing");
+      }
+    };
+    contexts.addHandler(failing);
+    contexts.unmanage(failing);
+    activationHandler.register("sandbox", failing);
+    server.start();
+    try {
+      assertThat(connector.getResponse("GET /gateway/sandbox/ HTTP/1.0\r\n\r\n"), containsString("404"));
+      assertThat(connector.getResponse("GET /gateway/sandbox/ HTTP/1.0\r\n\r\n"), containsString("404"));
+      assertThat(starts.get(), is(1));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testContextsThatStartUnavailableAreStoppedAndNotStartedOnEveryRequest() throws Exception {
+    Server server = new Server();
+    LocalConnector connector = new LocalConnector(server);
+    server.addConnector(connector);
+    ContextHandlerCollection contexts = new ContextHandlerCollection();
+    TopologyActivationHandler activationHandler = new TopologyActivationHandler(0);
+    activationHandler.setHandler(contexts);
+    server.setHandler(activationHandler);
+
+    AtomicInteger starts = new AtomicInteger();
+    // Like a context with a filter that fails to initialize.
+    ContextHandler unavailable = new ContextHandler("/gateway/sandbox") {
+      @Override
+      protected void doStart() throws Exception {
+        starts.incrementAndGet();
+        super.doStart();
+        setAvailable(false);
+      }
+    };
+    contexts.addHandler(unavailable);
+    contexts.unmanage(unavailable);
+    activationHandler.register("sandbox", unavailable);
+    server.start();
+    try {
+      assertThat(connector.getResponse("GET /gateway/sandbox/ HTTP/1.0\r\n\r\n"), containsString("404"));
+      assertThat(unavailable.isStarted(), is(false));
+      assertThat(connector.getResponse("GET /gateway/sandbox/ HTTP/1.0\r\n\r\n"), containsString("404"));
+      assertThat(starts.get(), is(1));
+    } finally {
+      server.stop();
+    }
+  }
+
+  private static ContextHandler context(String contextPath, String body) {
+    ContextHandler context = new ContextHandler(contextPath);
+    context.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+          throws IOException {
+        baseRequest.setHandled(true);
+        response.getWriter().write(body);
+      }
+    });
+    return context;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.topology.impl;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
+import org.apache.commons.io.monitor.FileAlterationObserver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class DirectoryMonitorTest {
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testBurstOfChangesIsNotifiedInASingleCheck() throws Exception {
+    final File directory = folder.newFolder("descriptors");
+    final BatchListener listener = new BatchListener();
+    // The poll interval is long enough for the changes to be noticed through events only
+    final DirectoryMonitor monitor =
+        new DirectoryMonitor("descriptors", directory, TrueFileFilter.INSTANCE, listener, 60000L, 500L, true);
+    monitor.start();
+    try {
+      for (int i = 0; i < 20; i++) {
+        FileUtils.writeStringToFile(new File(directory, "descriptor-" + i + ".json"), "{}", StandardCharsets.UTF_8);
+      }
+      final List<String> batch = listener.batches.poll(30, TimeUnit.SECONDS);
+      assertThat(batch.size(), is(20));
+
+      FileUtils.deleteQuietly(new File(directory, "descriptor-0.json"));
+      assertThat(listener.batches.poll(30, TimeUnit.SECONDS).size(), is(1));
+    } finally {
+      monitor.stop();
+    }
+  }
+
+  @Test
+  public void testChangesAreNoticedWhenPolling() throws Exception {
+    final File directory = folder.newFolder("topologies");
+    final BatchListener listener = new BatchListener();
+    final DirectoryMonitor monitor =
+        new DirectoryMonitor("topologies", directory, TrueFileFilter.INSTANCE, listener, 50L, 500L, false);
+    monitor.start();
+    try {
+      FileUtils.writeStringToFile(new File(directory, "sandbox.xml"), "<topology/>", StandardCharsets.UTF_8);
+      assertThat(listener.batches.poll(30, TimeUnit.SECONDS).size(), is(1));
+    } finally {
+      monitor.stop();
+    }
+  }
+
+  /* Collects the files changed in each check of the directory that found any change */
+  private static class BatchListener extends FileAlterationListenerAdaptor {
+    final BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+    private List<String> changes;
+
+    @Override
+    public void onStart(FileAlterationObserver observer) {
+      changes = new ArrayList<>();
+    }
+
+    @Override
+    public void onFileCreate(File file) {
+      changes.add(file.getName());
+    }
+
+    @Override
+    public void onFileChange(File file) {
+      changes.add(file.getName());
+    }
+
+    @Override
+    public void onFileDelete(File file) {
+      changes.add(file.getName());
+    }
+
+    @Override
+    public void onStop(FileAlterationObserver observer) {
+      if (!changes.isEmpty()) {
+        batches.add(changes);
+      }
+    }
+  }
+}
@@ -17,19 +17,29 @@
  */
 package org.apache.knox.gateway.util;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.knox.gateway.deploy.ServiceDeploymentContributor;
+import org.apache.knox.gateway.service.definition.Route;
 import org.apache.knox.gateway.service.definition.ServiceDefinition;
 import org.apache.knox.gateway.service.definition.ServiceDefinitionComparator;
+import org.apache.knox.gateway.service.definition.ServiceDefinitionPair;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class ServiceDefinitionsLoaderTest {
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
 
   @Test
   public void testServiceDefinitionLoading() {
@@ -57,4 +67,48 @@ public class ServiceDefinitionsLoaderTest {
     final Set<ServiceDefinition> serviceDefinitions = ServiceDefinitionsLoader.getServiceDefinitions(new File(url.getFile()));
     Assert.assertTrue(CollectionUtils.isSorted(serviceDefinitions, new ServiceDefinitionComparator()));
   }
+
+  @Test
+  public void shouldOnlyParseChangedServiceDefinitionsAgain() throws Exception {
+    final File servicesDir = folder.newFolder("services");
+    FileUtils.copyDirectory(new File(ClassLoader.getSystemResource("services").getFile()), servicesDir);
+
+    final Map<String, ServiceDefinitionPair> loaded = byName(ServiceDefinitionsLoader.loadServiceDefinitions(servicesDir));
+    Assert.assertEquals(2, loaded.size());
+    final Map<String, ServiceDefinitionPair> reloaded = byName(ServiceDefinitionsLoader.loadServiceDefinitions(servicesDir));
+    Assert.assertSame(loaded.get("foo"), reloaded.get("foo"));
+    Assert.assertSame(loaded.get("bar"), reloaded.get("bar"));
+
+    Assert.assertEquals(ServiceDefinitionsLoader.loadServiceDefinitionDeploymentContributors(servicesDir),
+        ServiceDefinitionsLoader.loadServiceDefinitionDeploymentContributors(servicesDir));
+
+    // Changing the rewrite rules of foo only parses foo again, even if neither its size nor its time changed
+    final File rewriteFile = new File(servicesDir, "foo/1.0.0/rewrite.xml");
+    final long lastModified = rewriteFile.lastModified();
+    final String rules = FileUtils.readFileToString(rewriteFile, StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(rewriteFile, rules.replace("FOO/foo/inbound", "FOO/foo/in-path"), StandardCharsets.UTF_8);
+    Assert.assertTrue(rewriteFile.setLastModified(lastModified));
+    final Map<String, ServiceDefinitionPair> changed = byName(ServiceDefinitionsLoader.loadServiceDefinitions(servicesDir));
+    Assert.assertNotSame(loaded.get("foo"), changed.get("foo"));
+    Assert.assertNotNull(changed.get("foo").getRewriteRules());
+    Assert.assertSame(loaded.get("bar"), changed.get("bar"));
+
+    FileUtils.deleteDirectory(new File(servicesDir, "bar"));
+    Assert.assertEquals(Set.of("foo"), byName(ServiceDefinitionsLoader.loadServiceDefinitions(servicesDir)).keySet());
+  }
+
+  @Test
+  public void shouldHandOutReadOnlyServiceDefinitions() throws Exception {
+    final URL url = ClassLoader.getSystemResource("services");
+    final ServiceDefinition foo = byName(ServiceDefinitionsLoader.loadServiceDefinitions(new File(url.getFile()))).get("foo").getService();
+    Assert.assertEquals(2, foo.getRoutes().size());
+    Assert.assertThrows(UnsupportedOperationException.class, () -> foo.getRoutes().add(new Route()));
+    Assert.assertThrows(UnsupportedOperationException.class, () -> foo.getRoutes().get(0).getRewrites().clear());
+  }
+
+  private static Map<String, ServiceDefinitionPair> byName(Set<ServiceDefinitionPair> serviceDefinitions) {
+    final Map<String, ServiceDefinitionPair> byName = new HashMap<>();
+    serviceDefinitions.forEach(serviceDefinition -> byName.put(serviceDefinition.getService().getName(), serviceDefinition));
+    return byName;
+  }
 }
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.service.admin;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.MediaType.APPLICATION_XML;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlElementWrapper;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteStatistics;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+@Api(value = "rewriteStatistics",  description = "The Knox Admin API to interact with rewrite rule statistics.")
+@Path("/api/v1")
+public class RewriteStatisticsResource {
+
+  private final UrlRewriteStatistics statistics;
+
+  public RewriteStatisticsResource() {
+    this(UrlRewriteStatistics.getInstance());
+  }
+
+  RewriteStatisticsResource(UrlRewriteStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  @ApiOperation(value="Get rewrite rule statistics", notes="Get the attempts, hits, estimated time spent and output of the rewrite rules, and the bodies rewritten by each stream filter, of the topologies that are profiled. Rules are listed by the time spent in them, most expensive first.", response=RewriteStatistics.class)
+  @GET
+  @Produces({ APPLICATION_JSON, APPLICATION_XML })
+  @Path("rewrite/statistics")
+  public RewriteStatistics getRewriteStatistics(
+      @ApiParam(value="Only the statistics of this topology") @QueryParam("topology") String topology,
+      @ApiParam(value="Only the rules that never rewrote a URL") @QueryParam("unused") boolean unused) {
+    final RewriteStatistics result = new RewriteStatistics();
+    for (UrlRewriteStatistics.Topology topologyStatistics : statistics.getTopologies()) {
+      if (topology != null && !topology.equals(topologyStatistics.getName())) {
+        continue;
+      }
+      for (UrlRewriteStatistics.Rule rule : topologyStatistics.getRules()) {
+        if (!unused || rule.getHits() == 0) {
+          result.rules.add(new RuleStatistics(topologyStatistics.getName(), rule));
+        }
+      }
+      for (UrlRewriteStatistics.Stream stream : topologyStatistics.getStreams()) {
+        result.streams.add(new StreamStatistics(topologyStatistics.getName(), stream));
+      }
+    }
+    result.rules.sort(Comparator.comparingLong(RuleStatistics::getEstimatedTimeNanos).reversed()
+        .thenComparing(RuleStatistics::getTopology).thenComparing(RuleStatistics::getRule));
+    result.streams.sort(Comparator.comparingLong(StreamStatistics::getTimeMillis).reversed()
+        .thenComparing(StreamStatistics::getTopology).thenComparing(StreamStatistics::getMimeType));
+    return result;
+  }
+
+  @XmlAccessorType(XmlAccessType.NONE)
+  public static class RuleStatistics {
+
+    @XmlElement
+    private String topology;
+
+    @XmlElement
+    private String rule;
+
+    @XmlElement
+    private long attempts;
+
+    @XmlElement
+    private long hits;
+
+    @XmlElement
+    private long samples;
+
+    @XmlElement
+    private long estimatedTimeNanos;
+
+    @XmlElement
+    private long estimatedBytes;
+
+    // having a no-argument constructor is required by JAXB
+    public RuleStatistics() {
+    }
+
+    RuleStatistics(String topology, UrlRewriteStatistics.Rule rule) {
+      this.topology = topology;
+      this.rule = rule.getName();
+      this.attempts = rule.getAttempts();
+      this.hits = rule.getHits();
+      this.samples = rule.getSamples();
+      this.estimatedTimeNanos = rule.getEstimatedNanos();
+      this.estimatedBytes = rule.getEstimatedBytes();
+    }
+
+    public String getTopology() {
+      return topology;
+    }
+
+    public String getRule() {
+      return rule;
+    }
+
+    public long getAttempts() {
+      return attempts;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getSamples() {
+      return samples;
+    }
+
+    public long getEstimatedTimeNanos() {
+      return estimatedTimeNanos;
+    }
+
+    public long getEstimatedBytes() {
+      return estimatedBytes;
+    }
+  }
+
+  @XmlAccessorType(XmlAccessType.NONE)
+  public static class StreamStatistics {
+
+    @XmlElement
+    private String topology;
+
+    @XmlElement
+    private String mimeType;
+
+    @XmlElement
+    private long bodies;
+
+    @XmlElement
+    private long bytes;
+
+    @XmlElement
+    private long timeMillis;
+
+    // having a no-argument constructor is required by JAXB
+    public StreamStatistics() {
+    }
+
+    StreamStatistics(String topology, UrlRewriteStatistics.Stream stream) {
+      this.topology = topology;
+      this.mimeType = stream.getMimeType();
+      this.bodies = stream.getBodies();
+      this.bytes = stream.getBytes();
+      this.timeMillis = TimeUnit.NANOSECONDS.toMillis(stream.getNanos());
+    }
+
+    public String getTopology() {
+      return topology;
+    }
+
+    public String getMimeType() {
+      return mimeType;
+    }
+
+    public long getBodies() {
+      return bodies;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public long getTimeMillis() {
+      return timeMillis;
+    }
+  }
+
+  @XmlRootElement(name = "rewriteStatistics")
+  @XmlAccessorType(XmlAccessType.FIELD)
+  public static class RewriteStatistics {
+
+    @XmlElement(name = "rule")
+    @XmlElementWrapper(name = "rules")
+    private List<RuleStatistics> rules = new ArrayList<>();
+
+    @XmlElement(name = "stream")
+    @XmlElementWrapper(name = "streams")
+    private List<StreamStatistics> streams = new ArrayList<>();
+
+    public List<RuleStatistics> getRules() {
+      return rules;
+    }
+
+    public List<StreamStatistics> getStreams() {
+      return streams;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.service.admin;
+
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteStatistics;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+public class RewriteStatisticsResourceTest {
+
+  private final UrlRewriteStatistics statistics = UrlRewriteStatistics.getInstance();
+  private final UrlRewriteStatistics.Topology sandbox = statistics.addTopology("sandbox", 1);
+  private final UrlRewriteStatistics.Topology other = statistics.addTopology("other", 1);
+
+  @After
+  public void tearDown() {
+    statistics.removeTopology(sandbox.getName(), sandbox);
+    statistics.removeTopology(other.getName(), other);
+  }
+
+  @Test
+  public void testRulesAreListedMostExpensiveFirst() {
+    sandbox.getRule("WEBHDFS/webhdfs/outbound").record(true, 3000, 40);
+    sandbox.getRule("YARNUI/yarn/outbound/apps").record(true, 9000, 60);
+    sandbox.getRule("HBASEUI/hbase/outbound/unused");
+    sandbox.getStream("text/html").record(1024, 5000000);
+    other.getRule("WEBHDFS/webhdfs/outbound").record(false, 1000, 0);
+
+    RewriteStatisticsResource resource = new RewriteStatisticsResource(statistics);
+    RewriteStatisticsResource.RewriteStatistics result = resource.getRewriteStatistics("sandbox", false);
+    assertThat(rules(result.getRules()), contains(
+        "sandbox:YARNUI/yarn/outbound/apps", "sandbox:WEBHDFS/webhdfs/outbound", "sandbox:HBASEUI/hbase/outbound/unused"));
+    assertThat(result.getRules().get(0).getEstimatedBytes(), is(60L));
+    assertThat(result.getStreams().size(), is(1));
+    assertThat(result.getStreams().get(0).getBytes(), is(1024L));
+    assertThat(result.getStreams().get(0).getTimeMillis(), is(5L));
+
+    result = resource.getRewriteStatistics(null, true);
+    List<String> unused = rules(result.getRules());
+    assertThat(unused.contains("sandbox:HBASEUI/hbase/outbound/unused"), is(true));
+    assertThat(unused.contains("other:WEBHDFS/webhdfs/outbound"), is(true));
+    assertThat(unused.contains("sandbox:WEBHDFS/webhdfs/outbound"), is(false));
+  }
+
+  private static List<String> rules(List<RewriteStatisticsResource.RuleStatistics> rules) {
+    return rules.stream().map(rule -> rule.getTopology() + ":" + rule.getRule()).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.hdfs.dispatch;
+
+/**
+ * A single HTTP byte range (<code>bytes=first-last</code>, <code>bytes=first-</code> or <code>bytes=-suffix</code>).
+ * Multiple ranges are not supported; such requests are served as if no range had been asked for. An open
+ * ended range has a negative last position; a suffix range has a negative first position and keeps the
+ * length of the suffix as its last.
+ */
+final class ByteRange {
+  private static final String BYTES_UNIT = "bytes=";
+
+  private static final long UNSPECIFIED = -1L;
+
+  private final long first;
+  private final long last;
+
+  private ByteRange(long first, long last) {
+    this.first = first;
+    this.last = last;
+  }
+
+  /**
+   * @param header the value of the Range request header, may be <code>null</code>
+   * @return the parsed range or <code>null</code> if the header is absent, malformed or asks for more than one range
+   */
+  static ByteRange parse(String header) {
+    if (header == null) {
+      return null;
+    }
+    final String value = header.trim();
+    if (!value.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length()) || value.indexOf(',') >= 0) {
+      return null;
+    }
+    final String spec = value.substring(BYTES_UNIT.length()).trim();
+    final int dash = spec.indexOf('-');
+    if (dash < 0) {
+      return null;
+    }
+    try {
+      final String firstValue = spec.substring(0, dash).trim();
+      final String lastValue = spec.substring(dash + 1).trim();
+      if (firstValue.isEmpty()) {
+        /* suffix range, the last n bytes */
+        final long suffix = Long.parseLong(lastValue);
+        return suffix > 0 ? new ByteRange(UNSPECIFIED, suffix) : null;
+      }
+      final long first = Long.parseLong(firstValue);
+      final long last = lastValue.isEmpty() ? UNSPECIFIED : Long.parseLong(lastValue);
+      if (first < 0 || (last != UNSPECIFIED && last < first)) {
+        return null;
+      }
+      return new ByteRange(first, last);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  long getFirst() {
+    return first;
+  }
+
+  long getLast() {
+    return last;
+  }
+
+  long getLength() {
+    return last - first + 1;
+  }
+
+  /**
+   * @param length the length of the whole content or a negative value if it is not known
+   * @return the Content-Range header value for the given part of the content
+   */
+  static String toContentRange(long first, long last, long length) {
+    return "bytes " + first + '-' + last + '/' + (length < 0 ? "*" : Long.toString(length));
+  }
+
+  static String unsatisfiable(long length) {
+    return "bytes */" + length;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.hdfs.dispatch;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.knox.gateway.config.Configure;
+import org.apache.knox.gateway.config.Default;
+import org.apache.knox.gateway.dispatch.DefaultDispatch;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Dispatch of the WebHDFS requests the NameNode redirected to a DataNode.
+ * <p>
+ * Ranged and, if enabled, large <code>OPEN</code> requests are served by {@link WebHdfsOpenDownloader};
+ * everything else is dispatched as usual.
+ */
+public class DataNodeDispatch extends DefaultDispatch {
+
+  private final WebHdfsOpenDownloader downloader = new WebHdfsOpenDownloader();
+
+  @Configure
+  protected void setRangeRequestsEnabled(@Default("true") boolean enabled) {
+    downloader.setRangeRequestsEnabled(enabled);
+  }
+
+  @Configure
+  protected void setParallelDownloadThreads(@Default("1") int threads) {
+    downloader.setParallelDownloadThreads(threads);
+  }
+
+  @Configure
+  protected void setParallelDownloadChunkSize(@Default("8192") int size) {
+    downloader.setParallelDownloadChunkSize(size);
+  }
+
+  @Configure
+  protected void setDownloadRetries(@Default("2") int retries) {
+    downloader.setDownloadRetries(retries);
+  }
+
+  @Override
+  public void doGet(URI url, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    HttpGet method = new HttpGet(url);
+    copyRequestHeaderFields(method, request);
+    if (!downloader.download(getHttpClient(), method, request, response, this::writeResponse,
+        inboundResponse -> writeOutboundResponse(method, request, response, inboundResponse))) {
+      executeRequestWrapper(method, request, response);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.hdfs.dispatch;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounds the memory all parallel downloads of the gateway may use for buffered chunks. The budget is kept in
+ * KB so that it fits the permits of a {@link Semaphore}; a chunk larger than the whole budget takes all of it.
+ */
+class DownloadBudget {
+  private static final int KB = 1024;
+
+  private final Semaphore permits;
+  private final int capacity;
+
+  DownloadBudget(long bytes) {
+    this.capacity = (int) Math.max(1L, Math.min(Integer.MAX_VALUE, bytes / KB));
+    this.permits = new Semaphore(capacity);
+  }
+
+  int getPermits(int bytes) {
+    return (int) Math.min(capacity, ((long) bytes + KB - 1) / KB);
+  }
+
+  boolean tryAcquire(int count) {
+    return permits.tryAcquire(count);
+  }
+
+  void acquire(int count) throws InterruptedIOException {
+    try {
+      permits.acquire(count);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.getMessage());
+    }
+  }
+
+  void release(int count) {
+    permits.release(count);
+  }
+
+  int available() {
+    return permits.availablePermits();
+  }
+}
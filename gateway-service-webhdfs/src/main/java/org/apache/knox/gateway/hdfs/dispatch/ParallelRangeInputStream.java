@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.hdfs.dispatch;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads a byte range of a file as fixed size chunks fetched concurrently from the backend and hands
+ * them out strictly in order.
+ * <p>
+ * At most <code>window</code> chunks are in flight (or buffered) at any time, and every one of them has to
+ * be covered by the gateway wide {@link DownloadBudget} first. A download that holds no chunk waits for the
+ * budget; one that already holds chunks only fetches ahead while the budget allows, so downloads never wait
+ * for each other while holding buffers. Each chunk is fetched through a {@link ResumableRangeInputStream}
+ * so a broken transfer only re-reads what is missing from that chunk, and closing this stream aborts the
+ * chunks still being fetched.
+ */
+class ParallelRangeInputStream extends InputStream {
+  private final WebHdfsOpenDownloader.RangeOpener opener;
+  private final ExecutorService executor;
+  private final DownloadBudget budget;
+  private final int chunkSize;
+  private final int window;
+  private final int maxRetries;
+  private final long end;
+  private final Deque<Chunk> pending = new ArrayDeque<>();
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private InputStream initial;
+  private long nextOffset;
+  private Chunk current;
+  private byte[] currentContent;
+  private int currentPosition;
+
+  /*
+   * The initial stream, if any, is already open at the offset and is used for the first chunk.
+   */
+  ParallelRangeInputStream(WebHdfsOpenDownloader.RangeOpener opener, InputStream initial, ExecutorService executor,
+                           DownloadBudget budget, long offset, long length, int chunkSize, int window,
+                           int maxRetries) {
+    this.opener = opener;
+    this.initial = initial;
+    this.executor = executor;
+    this.budget = budget;
+    this.nextOffset = offset;
+    this.end = offset + length;
+    this.chunkSize = chunkSize;
+    this.window = window;
+    this.maxRetries = maxRetries;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!ensureCurrent()) {
+      return -1;
+    }
+    return currentContent[currentPosition++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    if (!ensureCurrent()) {
+      return -1;
+    }
+    final int read = Math.min(length, currentContent.length - currentPosition);
+    System.arraycopy(currentContent, currentPosition, buffer, offset, read);
+    currentPosition += read;
+    return read;
+  }
+
+  /*
+   * Chunks being fetched are aborted, those not started yet are skipped, and their budget is given back.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed.getAndSet(true)) {
+      return;
+    }
+    releaseCurrent();
+    for (Chunk chunk : pending) {
+      chunk.abort();
+      budget.release(chunk.permits);
+    }
+    pending.clear();
+    if (initial != null) {
+      initial.close();
+      initial = null;
+    }
+    nextOffset = end;
+  }
+
+  private boolean ensureCurrent() throws IOException {
+    if (currentContent != null && currentPosition < currentContent.length) {
+      return true;
+    }
+    releaseCurrent();
+    fill(pending.isEmpty());
+    if (pending.isEmpty()) {
+      return false;
+    }
+    current = pending.removeFirst();
+    currentContent = await(current);
+    currentPosition = 0;
+    fill(false);
+    return true;
+  }
+
+  /*
+   * Waits for the budget of the next chunk only if this download holds none of it.
+   */
+  private void fill(boolean wait) throws IOException {
+    while (pending.size() < window && nextOffset < end && !closed.get()) {
+      final long offset = nextOffset;
+      final int length = (int) Math.min(chunkSize, end - offset);
+      final int permits = budget.getPermits(length);
+      if (wait && pending.isEmpty()) {
+        budget.acquire(permits);
+      } else if (!budget.tryAcquire(permits)) {
+        return;
+      }
+      final Chunk chunk = new Chunk(offset, length, permits, initial);
+      initial = null;
+      pending.addLast(chunk);
+      chunk.future = executor.submit(chunk);
+      nextOffset += length;
+    }
+  }
+
+  private void releaseCurrent() {
+    if (current != null) {
+      budget.release(current.permits);
+      current = null;
+      currentContent = null;
+    }
+  }
+
+  private byte[] await(Chunk chunk) throws IOException {
+    try {
+      return chunk.future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw new InterruptedIOException(e.getMessage());
+    } catch (ExecutionException e) {
+      close();
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private final class Chunk implements Callable<byte[]> {
+    private final long offset;
+    private final int length;
+    private final int permits;
+    private final AtomicReference<InputStream> initialStream;
+    private final AtomicReference<ResumableRangeInputStream> stream = new AtomicReference<>();
+    private Future<byte[]> future;
+
+    Chunk(long offset, int length, int permits, InputStream initialStream) {
+      this.offset = offset;
+      this.length = length;
+      this.permits = permits;
+      this.initialStream = new AtomicReference<>(initialStream);
+    }
+
+    @Override
+    public byte[] call() throws IOException {
+      final ResumableRangeInputStream input =
+          new ResumableRangeInputStream(opener, initialStream.getAndSet(null), offset, length, maxRetries);
+      stream.set(input);
+      try {
+        if (closed.get()) {
+          throw new InterruptedIOException("Download aborted at offset " + offset);
+        }
+        final byte[] content = new byte[length];
+        int received = 0;
+        while (received < length) {
+          final int read = input.read(content, received, length - received);
+          if (read < 0) {
+            throw new EOFException("Premature end of content at offset " + (offset + received));
+          }
+          received += read;
+        }
+        return content;
+      } finally {
+        input.close();
+      }
+    }
+
+    /* Aborts the backend exchange of a chunk being fetched; a chunk not started yet does not start at all */
+    void abort() {
+      final ResumableRangeInputStream input = stream.get();
+      if (input != null) {
+        input.close();
+      }
+      final InputStream unused = initialStream.getAndSet(null);
+      if (unused != null) {
+        try {
+          unused.close();
+        } catch (IOException e) {
+          // The stream is being discarded anyway.
+        }
+      }
+    }
+  }
+}
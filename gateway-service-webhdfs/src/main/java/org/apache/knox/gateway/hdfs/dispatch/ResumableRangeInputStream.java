@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.hdfs.dispatch;
+
+import org.apache.knox.gateway.hdfs.i18n.WebHdfsMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads a byte range of a file and, when the transfer from the backend breaks, re-opens it at the
+ * first byte not yet received instead of failing the whole download.
+ * <p>
+ * The stream may be closed from another thread to abort a transfer in progress; the blocked read then
+ * fails instead of being resumed.
+ */
+class ResumableRangeInputStream extends InputStream {
+  private static final WebHdfsMessages LOG = MessagesFactory.get(WebHdfsMessages.class);
+
+  private final WebHdfsOpenDownloader.RangeOpener opener;
+  private final int maxRetries;
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private final AtomicReference<InputStream> stream = new AtomicReference<>();
+  private long position;
+  private long remaining;
+  private int retries;
+
+  ResumableRangeInputStream(WebHdfsOpenDownloader.RangeOpener opener, long offset, long length, int maxRetries) {
+    this(opener, null, offset, length, maxRetries);
+  }
+
+  /*
+   * The initial stream, if any, must start at the offset; it may hold more than length bytes.
+   */
+  ResumableRangeInputStream(WebHdfsOpenDownloader.RangeOpener opener, InputStream initial, long offset, long length,
+                            int maxRetries) {
+    this.opener = opener;
+    this.stream.set(initial);
+    this.position = offset;
+    this.remaining = length;
+    this.maxRetries = maxRetries;
+  }
+
+  @Override
+  public int read() throws IOException {
+    final byte[] single = new byte[1];
+    final int read = read(single, 0, 1);
+    return read < 0 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    if (remaining <= 0 || closed.get()) {
+      return -1;
+    }
+    while (true) {
+      try {
+        final InputStream current = open();
+        final int read = current.read(buffer, offset, (int) Math.min(length, remaining));
+        if (read < 0) {
+          throw new EOFException("Premature end of content at offset " + position);
+        }
+        position += read;
+        remaining -= read;
+        return read;
+      } catch (IOException e) {
+        closeStream();
+        if (closed.get()) {
+          throw new InterruptedIOException("Download aborted at offset " + position);
+        }
+        if (++retries > maxRetries) {
+          throw e;
+        }
+        LOG.resumingWebHdfsDownload(position, e);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    closed.set(true);
+    closeStream();
+  }
+
+  private InputStream open() throws IOException {
+    InputStream current = stream.get();
+    if (current == null) {
+      current = opener.open(position, remaining);
+      stream.set(current);
+      /* closed while opening, make sure the new exchange is aborted too */
+      if (closed.get()) {
+        closeStream();
+        throw new InterruptedIOException("Download aborted at offset " + position);
+      }
+    }
+    return current;
+  }
+
+  private void closeStream() {
+    final InputStream current = stream.getAndSet(null);
+    if (current != null) {
+      try {
+        current.close();
+      } catch (IOException e) {
+        // The stream is being discarded anyway.
+      }
+    }
+  }
+}
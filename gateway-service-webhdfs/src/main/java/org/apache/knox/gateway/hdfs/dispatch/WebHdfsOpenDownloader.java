@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.hdfs.dispatch;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.util.EntityUtils;
+import org.apache.knox.gateway.hdfs.i18n.WebHdfsMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the WebHDFS <code>OPEN</code> requests the NameNode redirected to a DataNode that either carry an
+ * HTTP <code>Range</code> header or are eligible for a parallel download.
+ * <p>
+ * The requests reach the gateway through the DataNode route, so the usual DATANODE rewriting and dispatch
+ * still apply; the range is mapped onto the WebHDFS <code>offset</code>/<code>length</code> parameters of the
+ * DataNode URL. The DataNode answers with the length of what it serves, which is all that is needed to build
+ * the response, so no <code>GETFILESTATUS</code> round trip is made. The content is read either as a single
+ * resumable stream or, when parallel downloads are enabled, as several chunks fetched concurrently from the
+ * DataNode and reassembled in order. Suffix ranges and requests that already specify a length are left to the
+ * regular dispatch. Anything but a successful answer of the DataNode is passed on to the client as it is, rather
+ * than asking the DataNode again through the regular dispatch.
+ * <p>
+ * Parallel downloads of all topologies share a bounded thread pool and a budget for buffered chunks of an
+ * eighth of the heap.
+ */
+class WebHdfsOpenDownloader {
+  private static final WebHdfsMessages LOG = MessagesFactory.get(WebHdfsMessages.class);
+
+  static final String OP_PARAM = "op";
+  static final String OFFSET_PARAM = "offset";
+  static final String LENGTH_PARAM = "length";
+  static final String OPEN_OP = "OPEN";
+
+  private static final String BYTES_RANGE_UNIT = "bytes";
+  private static final String CONTENT_TYPE = "application/octet-stream";
+
+  private static final int MAX_FETCH_THREADS = Math.max(8, 4 * Runtime.getRuntime().availableProcessors());
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+  private static final ExecutorService EXECUTOR = createExecutor();
+  private static final DownloadBudget BUDGET = new DownloadBudget(Runtime.getRuntime().maxMemory() / 8);
+
+  /**
+   * Opens a byte range of the file; the returned stream aborts the backend exchange when closed early.
+   */
+  @FunctionalInterface
+  interface RangeOpener {
+    InputStream open(long offset, long length) throws IOException;
+  }
+
+  @FunctionalInterface
+  interface ResponseWriter {
+    void write(HttpServletRequest request, HttpServletResponse response, InputStream stream) throws IOException;
+  }
+
+  /**
+   * Writes a response of the DataNode the way the regular dispatch does, and releases it.
+   */
+  @FunctionalInterface
+  interface ResponseForwarder {
+    void forward(HttpResponse response) throws IOException;
+  }
+
+  private final ExecutorService executor;
+  private final DownloadBudget budget;
+  private boolean rangeRequestsEnabled = true;
+  private int parallelDownloadThreads = 1;
+  private int parallelDownloadChunkSize = 8 * 1024 * 1024;
+  private int downloadRetries = 2;
+
+  WebHdfsOpenDownloader() {
+    this(EXECUTOR, BUDGET);
+  }
+
+  /* Visible for testing; everything else should share the gateway wide pool and budget */
+  WebHdfsOpenDownloader(ExecutorService executor, DownloadBudget budget) {
+    this.executor = executor;
+    this.budget = budget;
+  }
+
+  void setRangeRequestsEnabled(boolean rangeRequestsEnabled) {
+    this.rangeRequestsEnabled = rangeRequestsEnabled;
+  }
+
+  void setParallelDownloadThreads(int parallelDownloadThreads) {
+    this.parallelDownloadThreads = Math.max(1, parallelDownloadThreads);
+  }
+
+  /* size in KB to match the other dispatch buffer size parameters */
+  void setParallelDownloadChunkSize(int parallelDownloadChunkSize) {
+    if (parallelDownloadChunkSize > 0) {
+      this.parallelDownloadChunkSize = parallelDownloadChunkSize * 1024;
+    }
+  }
+
+  void setDownloadRetries(int downloadRetries) {
+    this.downloadRetries = Math.max(0, downloadRetries);
+  }
+
+  boolean isParallelDownloadEnabled() {
+    return parallelDownloadThreads > 1;
+  }
+
+  /**
+   * @return <code>true</code> if the response has been written, <code>false</code> if the request should
+   * go through the regular dispatch
+   */
+  boolean download(HttpClient client, HttpUriRequest outboundRequest, HttpServletRequest inboundRequest,
+                   HttpServletResponse outboundResponse, ResponseWriter writer, ResponseForwarder forwarder)
+      throws IOException {
+    final URI url = outboundRequest.getURI();
+    final List<NameValuePair> params = new URIBuilder(url).getQueryParams();
+    if (!OPEN_OP.equalsIgnoreCase(getParameter(params, OP_PARAM)) || getParameter(params, LENGTH_PARAM) != null) {
+      return false;
+    }
+    final ByteRange range = rangeRequestsEnabled ? ByteRange.parse(inboundRequest.getHeader(HttpHeaders.RANGE)) : null;
+    if ((range == null && !isParallelDownloadEnabled()) || (range != null && range.getFirst() < 0)) {
+      return false;
+    }
+    final long base;
+    try {
+      final String offset = getParameter(params, OFFSET_PARAM);
+      base = offset == null ? 0L : Long.parseLong(offset);
+    } catch (NumberFormatException e) {
+      return false;
+    }
+
+    /* relative to the content the client addressed, which starts at the offset the NameNode redirected to */
+    final long first = range == null ? 0L : range.getFirst();
+    final long requested = range == null || range.getLast() < 0 ? -1L : range.getLength();
+    final Header[] headers = getForwardedHeaders(outboundRequest);
+    final HttpResponse opened;
+    try {
+      opened = execute(client, url, headers, base + first, requested);
+    } catch (IOException | URISyntaxException e) {
+      LOG.failedToOpenWebHdfsRange(url.toString(), e);
+      return false;
+    }
+    final HttpEntity entity = opened.getEntity();
+    final long length = entity == null ? -1L : entity.getContentLength();
+    /* the DataNode answers an error whatever the range, and without a range the request was the client's own */
+    if (opened.getStatusLine().getStatusCode() != HttpStatus.SC_OK || (length < 0 && range == null)) {
+      forwarder.forward(opened);
+      return true;
+    }
+    if (length < 0) {
+      release(opened);
+      return false;
+    }
+    /* the DataNode served up to the end of the file, so its length is known */
+    final boolean toEnd = requested < 0 || length < requested;
+
+    if (range != null) {
+      if (length == 0) {
+        release(opened);
+        outboundResponse.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        outboundResponse.setHeader(HttpHeaders.CONTENT_RANGE, ByteRange.unsatisfiable(first));
+        return true;
+      }
+      outboundResponse.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+      outboundResponse.setHeader(HttpHeaders.CONTENT_RANGE,
+          ByteRange.toContentRange(first, first + length - 1, toEnd ? first + length : -1L));
+    } else {
+      outboundResponse.setStatus(HttpServletResponse.SC_OK);
+    }
+
+    final InputStream content = content(opened);
+    final RangeOpener opener = (start, count) -> open(client, url, headers, start, count);
+    final boolean parallel = isParallelDownloadEnabled() && length > parallelDownloadChunkSize;
+    LOG.servingWebHdfsDownload(url.toString(), base + first, length, parallel ? parallelDownloadThreads : 1);
+    outboundResponse.setContentType(CONTENT_TYPE);
+    outboundResponse.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_RANGE_UNIT);
+    outboundResponse.setHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(length));
+    try (InputStream stream = parallel
+        ? new ParallelRangeInputStream(opener, content, executor, budget, base + first, length,
+            parallelDownloadChunkSize, parallelDownloadThreads, downloadRetries)
+        : new ResumableRangeInputStream(opener, content, base + first, length, downloadRetries)) {
+      writer.write(inboundRequest, outboundResponse, stream);
+    }
+    return true;
+  }
+
+  InputStream open(HttpClient client, URI url, Header[] headers, long offset, long length) throws IOException {
+    final HttpResponse response;
+    try {
+      response = execute(client, url, headers, offset, length);
+    } catch (URISyntaxException e) {
+      throw new IOException(e);
+    }
+    final int status = response.getStatusLine().getStatusCode();
+    if (status != HttpStatus.SC_OK || response.getEntity() == null) {
+      release(response);
+      throw new IOException("Unexpected status " + status + " reading " + length + " bytes at offset " + offset);
+    }
+    return content(response);
+  }
+
+  /*
+   * Reads the range from the DataNode; a negative length reads up to the end of the file.
+   */
+  private static HttpResponse execute(HttpClient client, URI url, Header[] headers, long offset, long length)
+      throws IOException, URISyntaxException {
+    final URIBuilder builder = new URIBuilder(url);
+    final List<NameValuePair> params = new ArrayList<>();
+    for (NameValuePair param : builder.getQueryParams()) {
+      if (!OFFSET_PARAM.equalsIgnoreCase(param.getName()) && !LENGTH_PARAM.equalsIgnoreCase(param.getName())) {
+        params.add(param);
+      }
+    }
+    builder.setParameters(params).addParameter(OFFSET_PARAM, Long.toString(offset));
+    if (length >= 0) {
+      builder.addParameter(LENGTH_PARAM, Long.toString(length));
+    }
+    final HttpGet request = new HttpGet(builder.build());
+    request.setHeaders(headers);
+    return client.execute(request);
+  }
+
+  private static InputStream content(HttpResponse response) throws IOException {
+    return new FilterInputStream(response.getEntity().getContent()) {
+      @Override
+      public void close() throws IOException {
+        WebHdfsOpenDownloader.close(response);
+      }
+    };
+  }
+
+  private static String getParameter(List<NameValuePair> params, String name) {
+    for (NameValuePair param : params) {
+      if (name.equalsIgnoreCase(param.getName())) {
+        return param.getValue();
+      }
+    }
+    return null;
+  }
+
+  private static Header[] getForwardedHeaders(HttpUriRequest outboundRequest) {
+    final List<Header> headers = new ArrayList<>();
+    for (Header header : outboundRequest.getAllHeaders()) {
+      if (!HttpHeaders.RANGE.equalsIgnoreCase(header.getName())) {
+        headers.add(header);
+      }
+    }
+    return headers.toArray(new Header[0]);
+  }
+
+  /* Drains a small response so that its connection can be reused */
+  private static void release(HttpResponse response) throws IOException {
+    try {
+      EntityUtils.consume(response.getEntity());
+    } finally {
+      close(response);
+    }
+  }
+
+  /*
+   * Closing the response (rather than its content) releases the connection without draining the rest
+   * of a large body that is no longer needed.
+   */
+  private static void close(HttpResponse response) throws IOException {
+    if (response instanceof Closeable) {
+      ((Closeable) response).close();
+    } else {
+      EntityUtils.consume(response.getEntity());
+    }
+  }
+
+  private static ExecutorService createExecutor() {
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_FETCH_THREADS, MAX_FETCH_THREADS,
+        60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+          final Thread thread = new Thread(runnable, "webhdfs-download-" + THREAD_COUNT.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
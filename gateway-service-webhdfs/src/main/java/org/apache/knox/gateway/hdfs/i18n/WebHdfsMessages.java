@@ -30,4 +30,13 @@ public interface WebHdfsMessages extends HaDispatchMessages {
 
   @Message(level = MessageLevel.INFO, text = "Received an error from a node in SafeMode: {0}")
    void errorReceivedFromSafeModeNode(@StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.DEBUG, text = "Serving WebHDFS download of {0}: {2} bytes at offset {1} using {3} concurrent fetches")
+   void servingWebHdfsDownload(String url, long offset, long length, int fetches);
+
+  @Message(level = MessageLevel.WARN, text = "Failed to open {0} for a ranged download, using the regular dispatch: {1}")
+   void failedToOpenWebHdfsRange(String url, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.INFO, text = "Resuming WebHDFS download at offset {0} after: {1}")
+   void resumingWebHdfsDownload(long offset, @StackTrace(level = MessageLevel.DEBUG) Exception e);
 }
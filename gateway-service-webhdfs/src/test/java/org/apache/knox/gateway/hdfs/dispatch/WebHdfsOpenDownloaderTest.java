@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.hdfs.dispatch;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WebHdfsOpenDownloaderTest {
+  private static final String DATANODE_URL =
+      "http://datanode:50075/webhdfs/v1/tmp/file?op=OPEN&namenoderpcaddress=namenode:8020&offset=0";
+  private static final long BUDGET = 1024 * 1024;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final DownloadBudget budget = new DownloadBudget(BUDGET);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testParseByteRange() {
+    ByteRange range = ByteRange.parse("bytes=2-5");
+    assertEquals(2, range.getFirst());
+    assertEquals(5, range.getLast());
+    assertEquals(4, range.getLength());
+
+    range = ByteRange.parse("bytes=7-");
+    assertEquals(7, range.getFirst());
+    assertEquals(-1, range.getLast());
+
+    range = ByteRange.parse("bytes=-3");
+    assertEquals(-1, range.getFirst());
+    assertEquals(3, range.getLast());
+
+    assertEquals("bytes 2-5/10", ByteRange.toContentRange(2, 5, 10));
+    assertEquals("bytes 2-5/*", ByteRange.toContentRange(2, 5, -1));
+    assertNull(ByteRange.parse(null));
+    assertNull(ByteRange.parse("bytes=0-1,4-5"));
+    assertNull(ByteRange.parse("bytes=5-2"));
+    assertNull(ByteRange.parse("items=0-1"));
+    assertNull(ByteRange.parse("bytes=a-b"));
+  }
+
+  @Test
+  public void testRangeIsMappedOntoOffsetAndLength() throws Exception {
+    final byte[] content = content(10);
+    final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    EasyMock.expectLastCall().once();
+    /* the DataNode served all that was asked for, so the length of the file is not known */
+    response.setHeader("Content-Range", "bytes 2-5/*");
+    EasyMock.expectLastCall().once();
+    response.setHeader("Content-Length", "4");
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(response);
+
+    final FakeDataNode dataNode = new FakeDataNode(content, 0);
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertTrue(downloader().download(dataNode.client(), new HttpGet(DATANODE_URL), request("bytes=2-5"), response,
+        (req, res, stream) -> copy(stream, output), null));
+
+    assertArrayEquals(Arrays.copyOfRange(content, 2, 6), output.toByteArray());
+    assertEquals(1, dataNode.requests.get());
+    EasyMock.verify(response);
+  }
+
+  @Test
+  public void testRangeIsRelativeToTheRedirectedOffset() throws Exception {
+    final byte[] content = content(10);
+    final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    response.setHeader("Content-Range", "bytes 1-3/4");
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(response);
+
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertTrue(downloader().download(new FakeDataNode(content, 0).client(),
+        new HttpGet(DATANODE_URL.replace("offset=0", "offset=6")), request("bytes=1-"), response,
+        (req, res, stream) -> copy(stream, output), null));
+
+    assertArrayEquals(Arrays.copyOfRange(content, 7, 10), output.toByteArray());
+    EasyMock.verify(response);
+  }
+
+  @Test
+  public void testRangePastTheEndIsNotSatisfiable() throws Exception {
+    final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    EasyMock.expectLastCall().once();
+    response.setHeader("Content-Range", "bytes */10");
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(response);
+
+    assertTrue(downloader().download(new FakeDataNode(content(10), 0).client(), new HttpGet(DATANODE_URL),
+        request("bytes=10-20"), response, null, null));
+    EasyMock.verify(response);
+  }
+
+  @Test
+  public void testParallelDownloadReassemblesChunksInOrder() throws Exception {
+    final byte[] content = content(10 * 1024 + 17);
+    final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    response.setStatus(HttpServletResponse.SC_OK);
+    EasyMock.expectLastCall().once();
+    response.setHeader("Content-Length", Integer.toString(content.length));
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(response);
+
+    final WebHdfsOpenDownloader downloader = downloader();
+    downloader.setParallelDownloadThreads(3);
+    downloader.setParallelDownloadChunkSize(1);
+    final FakeDataNode dataNode = new FakeDataNode(content, 0);
+
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertTrue(downloader.download(dataNode.client(), new HttpGet(DATANODE_URL), request(null), response,
+        (req, res, stream) -> copy(stream, output), null));
+
+    assertArrayEquals(content, output.toByteArray());
+    /* the first chunk is read from the request that told the length of the file */
+    assertEquals(11, dataNode.requests.get());
+    assertEquals(BUDGET / 1024, budget.available());
+    EasyMock.verify(response);
+  }
+
+  @Test
+  public void testBrokenTransferIsResumed() throws Exception {
+    final byte[] content = content(4096);
+    final FakeDataNode dataNode = new FakeDataNode(content, 1);
+
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertTrue(downloader().download(dataNode.client(), new HttpGet(DATANODE_URL), request("bytes=0-"),
+        EasyMock.createNiceMock(HttpServletResponse.class), (req, res, stream) -> copy(stream, output), null));
+
+    assertArrayEquals(content, output.toByteArray());
+    assertEquals(2, dataNode.requests.get());
+  }
+
+  @Test
+  public void testCloseAbortsChunksInFlight() throws Exception {
+    final CountDownLatch opened = new CountDownLatch(2);
+    final CountDownLatch aborted = new CountDownLatch(2);
+    final WebHdfsOpenDownloader.RangeOpener opener = (offset, length) -> {
+      if (offset == 0) {
+        return new ByteArrayInputStream(new byte[(int) length]);
+      }
+      opened.countDown();
+      return new StalledInputStream(aborted);
+    };
+
+    final ParallelRangeInputStream stream =
+        new ParallelRangeInputStream(opener, null, executor, budget, 0, 3 * 1024, 1024, 3, 0);
+    assertEquals(0, stream.read());
+    assertTrue(opened.await(10, TimeUnit.SECONDS));
+
+    stream.close();
+    assertTrue(aborted.await(10, TimeUnit.SECONDS));
+    assertEquals(BUDGET / 1024, budget.available());
+  }
+
+  @Test
+  public void testRequestsWithoutRangeUseTheRegularDispatch() throws Exception {
+    final HttpClient client = EasyMock.createMock(HttpClient.class);
+    EasyMock.replay(client);
+    final WebHdfsOpenDownloader downloader = downloader();
+
+    assertFalse(downloader.download(client, new HttpGet(DATANODE_URL), request(null), null, null, null));
+    assertFalse(downloader.download(client, new HttpGet(DATANODE_URL + "&length=5"), request("bytes=0-1"), null, null, null));
+    assertFalse(downloader.download(client, new HttpGet(DATANODE_URL.replace("OPEN", "GETFILESTATUS")), request("bytes=0-1"), null, null, null));
+    /* suffix ranges need the length of the file */
+    assertFalse(downloader.download(client, new HttpGet(DATANODE_URL), request("bytes=-5"), null, null, null));
+    EasyMock.verify(client);
+  }
+
+  @Test
+  public void testErrorsOfTheDataNodeAreForwardedWithoutAskingAgain() throws Exception {
+    final BasicHttpResponse forbidden = new BasicHttpResponse(HttpVersion.HTTP_1_1, 403, "Forbidden");
+    final HttpClient client = EasyMock.createMock(HttpClient.class);
+    EasyMock.expect(client.execute(EasyMock.anyObject(HttpUriRequest.class))).andReturn(forbidden).once();
+    EasyMock.replay(client);
+
+    final List<HttpResponse> forwarded = new ArrayList<>();
+    assertTrue(downloader().download(client, new HttpGet(DATANODE_URL), request("bytes=2-5"),
+        EasyMock.createNiceMock(HttpServletResponse.class), null, forwarded::add));
+
+    assertEquals(Collections.singletonList(forbidden), forwarded);
+    EasyMock.verify(client);
+  }
+
+  private WebHdfsOpenDownloader downloader() {
+    return new WebHdfsOpenDownloader(executor, budget);
+  }
+
+  private static HttpServletRequest request(String range) {
+    final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    EasyMock.expect(request.getHeader("Range")).andReturn(range).anyTimes();
+    EasyMock.replay(request);
+    return request;
+  }
+
+  private static byte[] content(int length) {
+    final byte[] content = new byte[length];
+    for (int i = 0; i < length; i++) {
+      content[i] = (byte) (i * 31);
+    }
+    return content;
+  }
+
+  private static void copy(InputStream input, ByteArrayOutputStream output) throws IOException {
+    final byte[] buffer = new byte[700];
+    int read;
+    while ((read = input.read(buffer)) != -1) {
+      output.write(buffer, 0, read);
+    }
+  }
+
+  /*
+   * Answers OPEN on the DataNode with the requested part of the content, like the DataNode declaring its
+   * length; the first failures transfers break half way.
+   */
+  private static class FakeDataNode {
+    private final byte[] content;
+    private final AtomicInteger failures;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    FakeDataNode(byte[] content, int failures) {
+      this.content = content;
+      this.failures = new AtomicInteger(failures);
+    }
+
+    HttpClient client() throws IOException {
+      final HttpClient client = EasyMock.createNiceMock(HttpClient.class);
+      EasyMock.expect(client.execute(EasyMock.anyObject(HttpUriRequest.class)))
+          .andAnswer(() -> answer((HttpUriRequest) EasyMock.getCurrentArguments()[0])).anyTimes();
+      EasyMock.replay(client);
+      return client;
+    }
+
+    private HttpResponse answer(HttpUriRequest request) throws Exception {
+      final URI uri = request.getURI();
+      final List<NameValuePair> params = new URIBuilder(uri).getQueryParams();
+      assertEquals("OPEN", value(params, "op"));
+      assertNotNull(value(params, "namenoderpcaddress"));
+      requests.incrementAndGet();
+      final int offset = Math.min(content.length, Integer.parseInt(value(params, "offset")));
+      final String length = value(params, "length");
+      final int available = content.length - offset;
+      final int served = length == null ? available : Math.min(available, Integer.parseInt(length));
+      final int sent = failures.getAndDecrement() > 0 ? served / 2 : served;
+
+      final BasicHttpEntity entity = new BasicHttpEntity();
+      entity.setContent(new ByteArrayInputStream(content, offset, sent));
+      entity.setContentLength(served);
+      final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+      response.setEntity(entity);
+      return response;
+    }
+
+    private static String value(List<NameValuePair> params, String name) {
+      return params.stream().filter(p -> p.getName().equals(name)).map(NameValuePair::getValue).findFirst().orElse(null);
+    }
+  }
+
+  /*
+   * A transfer that never delivers anything until it is aborted.
+   */
+  private static class StalledInputStream extends InputStream {
+    private final CountDownLatch aborted;
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    StalledInputStream(CountDownLatch aborted) {
+      this.aborted = aborted;
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        closed.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new IOException("Aborted");
+    }
+
+    @Override
+    public void close() {
+      if (closed.getCount() > 0) {
+        closed.countDown();
+        aborted.countDown();
+      }
+    }
+  }
+}
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -1177,6 +1178,171 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return null;
   }
 
+  @Override
+  public boolean isHttpClientPreemptiveSpnegoEnabled() {
+    return false;
+  }
+
+  @Override
+  public boolean isHttpClientConnectionPoolShared() {
+    return false;
+  }
+
+  @Override
+  public int getHttpClientConnectionPoolMaxTotal() {
+    return 0;
+  }
+
+  @Override
+  public long getHttpClientConnectionPoolIdleTimeout() {
+    return TimeUnit.MINUTES.toMillis(1);
+  }
+
+  @Override
+  public Map<String, Integer> getHttpClientConnectionPoolOriginMaxConnections() {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public Map<String, Long> getHttpClientConnectionPoolOriginIdleTimeouts() {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public int getHttpClientConnectionPoolPrewarmConnections() {
+    return 0;
+  }
+
+  @Override
+  public boolean isBulkheadEnabled() {
+    return false;
+  }
+
+  @Override
+  public int getBulkheadTopologyMaxConcurrentRequests() {
+    return 0;
+  }
+
+  @Override
+  public int getBulkheadServiceMaxConcurrentRequests() {
+    return 0;
+  }
+
+  @Override
+  public int getBulkheadQueueSize() {
+    return 16;
+  }
+
+  @Override
+  public long getBulkheadQueueTimeout() {
+    return 1000L;
+  }
+
+  @Override
+  public String getBulkheadLimitAlgorithm() {
+    return "fixed";
+  }
+
+  @Override
+  public boolean isRewriteCompressionPipelined() {
+    return false;
+  }
+
+  @Override
+  public int getRewriteCompressionLevel() {
+    return -1;
+  }
+
+  @Override
+  public boolean isRewriteRecompressionSkippedIfNotAccepted() {
+    return false;
+  }
+
+  @Override
+  public boolean isRewriteCacheEnabled() {
+    return false;
+  }
+
+  @Override
+  public long getRewriteCacheMemorySize() {
+    return 64L * 1024 * 1024;
+  }
+
+  @Override
+  public long getRewriteCacheMaxEntrySize() {
+    return 2L * 1024 * 1024;
+  }
+
+  @Override
+  public String getRewriteCacheDiskDir() {
+    return null;
+  }
+
+  @Override
+  public long getRewriteCacheDiskSize() {
+    return 256L * 1024 * 1024;
+  }
+
+  @Override
+  public boolean isRewriteProfilingEnabled() {
+    return false;
+  }
+
+  @Override
+  public int getRewriteProfilingSampleRate() {
+    return 100;
+  }
+
+  @Override
+  public boolean isRewriteHtmlScannerEnabled() {
+    return false;
+  }
+
+  @Override
+  public Set<String> getRewriteHtmlScannerAttributes() {
+    return new HashSet<>(Arrays.asList(DEFAULT_REWRITE_HTML_SCANNER_ATTRIBUTES.split(",")));
+  }
+
+  @Override
+  public int getTopologyDeploymentParallelism() {
+    return 1;
+  }
+
+  @Override
+  public boolean isTopologyDeploymentInMemory() {
+    return false;
+  }
+
+  @Override
+  public boolean isTopologyIncrementalRedeployEnabled() {
+    return true;
+  }
+
+  @Override
+  public boolean isTopologyLazyActivationEnabled() {
+    return false;
+  }
+
+  @Override
+  public long getTopologyLazyActivationIdleTimeout() {
+    return 0L;
+  }
+
+  @Override
+  public boolean isTopologyMonitorEventsEnabled() {
+    return true;
+  }
+
+  @Override
+  public long getTopologyMonitorPollInterval() {
+    return 5000L;
+  }
+
+  @Override
+  public long getTopologyMonitorDebounceTime() {
+    return 500L;
+  }
+
   @Override
   public String getBannerText() {
     return null;
@@ -106,6 +106,18 @@ public interface SpiGatewayMessages {
   @Message( level = MessageLevel.DEBUG, text = "Using two way SSL in {0}" )
   void usingTwoWaySsl(String serviceRole);
 
+  @Message( level = MessageLevel.DEBUG, text = "Using preemptive SPNEGO authentication in {0}" )
+  void usingPreemptiveSpnego(String serviceRole);
+
+  @Message( level = MessageLevel.INFO, text = "Created shared HTTP client connection pool {0}" )
+  void createdSharedConnectionPool(String poolName);
+
+  @Message( level = MessageLevel.WARN, text = "Ignoring connection pool settings for invalid origin {0}" )
+  void invalidConnectionPoolOrigin(String origin);
+
+  @Message( level = MessageLevel.WARN, text = "Failed to pre-warm connection to {0} : {1}" )
+  void failedToPrewarmConnection(String origin, @StackTrace(level=MessageLevel.DEBUG) Exception e);
+
   @Message( level = MessageLevel.DEBUG, text = "Adding outbound header {0} and value {1}" )
   void addedOutboundheader(String header, String value);
 
@@ -32,4 +32,7 @@ public interface SpiGatewayResources {
   @Resource( text="Response status: {0}" )
   String responseStatus( int status );
 
+  @Resource( text="Served a cached response" )
+  String servedCachedResponse();
+
 }
@@ -122,6 +122,9 @@ public interface GatewayConfig {
   String DEFAULT_API_SERVICES_VIEW_VERSION = "v1";
   boolean DEFAULT_GROUP_UI_SERVICES = false;
 
+  String DEFAULT_REWRITE_HTML_SCANNER_ATTRIBUTES =
+      "href,src,action,formaction,data,cite,poster,background,codebase,longdesc,usemap,manifest";
+
   String DEPLOYMENT_PATH_ALIAS = ".path.alias.";
 
   // LDAP Service Configuration
@@ -1009,6 +1012,197 @@ public interface GatewayConfig {
    */
   String getHttpClientCookieSpec();
 
+  /**
+   * @return <code>true</code> if the dispatch HTTP clients should send the SPNEGO token preemptively to a
+   *         Kerberos secured backend for which no valid auth cookie is cached; <code>false</code> otherwise
+   */
+  boolean isHttpClientPreemptiveSpnegoEnabled();
+
+  /**
+   * @return <code>true</code> if the dispatch HTTP clients should lease their connections from the gateway wide
+   *         connection pools shared by all topologies; <code>false</code> if every client owns a dedicated pool
+   */
+  boolean isHttpClientConnectionPoolShared();
+
+  /**
+   * @return the upper bound of the connections held by each shared connection pool; a non positive value means
+   *         the bound is the sum of the connections requested by the clients sharing the pool
+   */
+  int getHttpClientConnectionPoolMaxTotal();
+
+  /**
+   * @return the time, in milliseconds, after which idle connections are evicted from the shared connection pools;
+   *         a non positive value disables eviction
+   */
+  long getHttpClientConnectionPoolIdleTimeout();
+
+  /**
+   * @return the maximum number of pooled connections per backend origin (e.g. <code>https://nn.example.com:9871</code>)
+   *         overriding the per origin default of the shared connection pools
+   */
+  Map<String, Integer> getHttpClientConnectionPoolOriginMaxConnections();
+
+  /**
+   * @return the time, in milliseconds, pooled connections to a backend origin may stay idle before they are evicted
+   *         from the shared connection pools
+   */
+  Map<String, Long> getHttpClientConnectionPoolOriginIdleTimeouts();
+
+  /**
+   * @return the number of connections opened in advance to each backend origin of a deployed topology
+   */
+  int getHttpClientConnectionPoolPrewarmConnections();
+
+  /**
+   * @return <code>true</code> if request concurrency should be limited per topology and per service role in the
+   *         topologies using the webappsec provider, unless the provider configuration says otherwise
+   */
+  boolean isBulkheadEnabled();
+
+  /**
+   * @return the default maximum number of requests a topology may process concurrently; a non positive value means
+   *         no limit
+   */
+  int getBulkheadTopologyMaxConcurrentRequests();
+
+  /**
+   * @return the default maximum number of requests a single service of a topology may process concurrently; a non
+   *         positive value means no limit
+   */
+  int getBulkheadServiceMaxConcurrentRequests();
+
+  /**
+   * @return the default number of requests that may wait for a concurrency permit before requests are rejected
+   */
+  int getBulkheadQueueSize();
+
+  /**
+   * @return the default time, in milliseconds, a request may wait for a concurrency permit before it is rejected
+   */
+  long getBulkheadQueueTimeout();
+
+  /**
+   * @return the default concurrency limit algorithm: <code>fixed</code>, or the adaptive <code>vegas</code> and
+   *         <code>gradient</code> algorithms which lower the limit as the observed latency grows
+   */
+  String getBulkheadLimitAlgorithm();
+
+  /**
+   * @return <code>true</code> if decompressing, rewriting and recompressing a compressed response body should run
+   *         as a pipeline of stages on separate threads rather than one after the other on the request thread
+   */
+  boolean isRewriteCompressionPipelined();
+
+  /**
+   * @return the compression level, 0 to 9 or -1 for the default, used when a rewritten response body is compressed
+   *         again
+   */
+  int getRewriteCompressionLevel();
+
+  /**
+   * @return <code>true</code> if a compressed response body that gets rewritten should be sent uncompressed when the
+   *         client did not say it accepts the encoding
+   */
+  boolean isRewriteRecompressionSkippedIfNotAccepted();
+
+  /**
+   * @return <code>true</code> if rewritten static UI assets, such as scripts, style sheets and HTML pages, may be
+   *         cached and served again without a request to the backend for as long as the backend says they are fresh
+   */
+  boolean isRewriteCacheEnabled();
+
+  /**
+   * @return the maximum number of bytes of rewritten responses the rewrite cache keeps in memory
+   */
+  long getRewriteCacheMemorySize();
+
+  /**
+   * @return the size, in bytes, of the largest rewritten response the rewrite cache stores
+   */
+  long getRewriteCacheMaxEntrySize();
+
+  /**
+   * @return the directory entries evicted from memory by the rewrite cache are moved to, or <code>null</code> if
+   *         evicted entries are dropped
+   */
+  String getRewriteCacheDiskDir();
+
+  /**
+   * @return the maximum number of bytes of rewritten responses the rewrite cache keeps on disk
+   */
+  long getRewriteCacheDiskSize();
+
+  /**
+   * @return <code>true</code> if the attempts, hits, time spent and output of every rewrite rule should be recorded
+   */
+  boolean isRewriteProfilingEnabled();
+
+  /**
+   * @return the N of the one in N rule invocations whose time spent and output size are measured when rewrite
+   *         profiling is enabled; attempts and hits are always counted
+   */
+  int getRewriteProfilingSampleRate();
+
+  /**
+   * @return <code>true</code> if HTML response bodies should be rewritten by the streaming tag scanner, which only
+   *         rewrites the values of URL attributes and of the attributes selected by the rewrite filter, rather than by
+   *         the full HTML parser
+   */
+  boolean isRewriteHtmlScannerEnabled();
+
+  /**
+   * @return the lower case names of the URL attributes whose values the HTML tag scanner rewrites
+   */
+  Set<String> getRewriteHtmlScannerAttributes();
+
+  /**
+   * @return the number of threads that load, generate and start topology deployments concurrently; 1 deploys the
+   *         topologies one at a time
+   */
+  int getTopologyDeploymentParallelism();
+
+  /**
+   * @return <code>true</code> if the web archives of topologies without applications are served from memory
+   *         instead of being exported to the deployment directory
+   */
+  boolean isTopologyDeploymentInMemory();
+
+  /**
+   * @return <code>true</code> if updates of a topology that only change the URLs of services are applied to the
+   *         running deployment instead of redeploying the topology
+   */
+  boolean isTopologyIncrementalRedeployEnabled();
+
+  /**
+   * @return <code>true</code> if the topologies are started on their first request rather than when they are
+   *         deployed
+   */
+  boolean isTopologyLazyActivationEnabled();
+
+  /**
+   * @return the time in milliseconds after which a topology that was started on request and has not received
+   *         any request since is stopped again, or 0 to keep it started
+   */
+  long getTopologyLazyActivationIdleTimeout();
+
+  /**
+   * @return whether the topologies, descriptors and shared provider configurations directories are watched for
+   *         file system events, rather than polled for changes
+   */
+  boolean isTopologyMonitorEventsEnabled();
+
+  /**
+   * @return the time in milliseconds between two checks of the topologies, descriptors and shared provider
+   *         configurations directories when they are polled for changes
+   */
+  long getTopologyMonitorPollInterval();
+
+  /**
+   * @return the time in milliseconds to wait for further file system events before applying the changes made
+   *         to the topologies, descriptors and shared provider configurations directories
+   */
+  long getTopologyMonitorDebounceTime();
+
   /**
    * @return a text that should be displayed on all Knox UIs within the banner on the top.
    */
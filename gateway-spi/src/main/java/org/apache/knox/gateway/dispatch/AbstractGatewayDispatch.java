@@ -17,9 +17,9 @@
  */
 package org.apache.knox.gateway.dispatch;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.knox.gateway.filter.GatewayResponse;
+import org.apache.knox.gateway.filter.PassthroughResponseStreamer;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.logging.log4j.ThreadContext;
@@ -28,7 +28,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
@@ -53,9 +52,7 @@ public abstract class AbstractGatewayDispatch implements Dispatch {
     if (response instanceof GatewayResponse) {
       ((GatewayResponse) response).streamResponse(stream);
     } else {
-      try(OutputStream output = response.getOutputStream()) {
-        IOUtils.copy(stream, output);
-      }
+      PassthroughResponseStreamer.stream(stream, response.getOutputStream());
     }
   }
 
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import org.apache.http.HttpHost;
+import org.apache.http.cookie.Cookie;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gateway wide cache of the authentication cookies (<code>hadoop.auth</code>, <code>hive.server2.auth</code>
+ * and <code>impala.auth</code>) issued by the backend services to Knox.
+ * <p>
+ * The cache is shared by every {@link HadoopAuthCookieStore}, so an auth cookie obtained by the dispatch of one
+ * topology is reused by the dispatches of all the other topologies proxying the same backend, and only a single
+ * SPNEGO challenge round-trip is required per backend and cookie lifetime. Cookies are kept per backend origin
+ * (scheme, host and port), since backends running on the same host, such as the NameNode and the ResourceManager,
+ * issue cookies with the same name and domain, and within an origin by their scope (domain, path and name).
+ * <p>
+ * All operations are lock free; readers never block writers.
+ */
+public class BackendAuthCookieCache implements MetricSet {
+  private static final BackendAuthCookieCache INSTANCE = new BackendAuthCookieCache();
+
+  static final String METRICS_PREFIX = "backend.auth-cookies";
+
+  /* Hadoop's AuthenticationToken serializes the expiration time as e=<millis since epoch> */
+  private static final String EXPIRES_ATTRIBUTE = "e=";
+  private static final char ATTRIBUTE_SEPARATOR = '&';
+
+  private static final String HTTP = "http";
+  private static final String HTTPS = "https";
+
+  /* The cookies of each backend origin, keyed by their scope */
+  private final ConcurrentMap<String, ConcurrentMap<String, Cookie>> cookies = new ConcurrentHashMap<>();
+  private final LongAdder challenges = new LongAdder();
+  private final LongAdder preemptiveNegotiations = new LongAdder();
+
+  public static BackendAuthCookieCache getInstance() {
+    return INSTANCE;
+  }
+
+  /* Visible for testing; everything else should share the gateway wide instance */
+  BackendAuthCookieCache() {
+  }
+
+  /**
+   * @return the origin (scheme, host and port) of a backend, which the cookies it issued are kept for
+   */
+  static String getOrigin(HttpHost host) {
+    final String scheme = Objects.toString(host.getSchemeName(), HTTP).toLowerCase(Locale.ROOT);
+    int port = host.getPort();
+    if (port < 0) {
+      port = HTTPS.equals(scheme) ? 443 : 80;
+    }
+    return scheme + "://" + host.getHostName().toLowerCase(Locale.ROOT) + ':' + port;
+  }
+
+  void put(String origin, Cookie cookie) {
+    cookies.computeIfAbsent(origin, key -> new ConcurrentHashMap<>()).put(getScope(cookie), cookie);
+  }
+
+  /**
+   * Removes a cookie, unless it has been replaced by another one in the meantime.
+   */
+  void remove(String origin, Cookie cookie) {
+    final ConcurrentMap<String, Cookie> originCookies = cookies.get(origin);
+    if (originCookies != null) {
+      originCookies.remove(getScope(cookie), cookie);
+    }
+  }
+
+  List<Cookie> getCookies(String origin) {
+    final ConcurrentMap<String, Cookie> originCookies = cookies.get(origin);
+    return originCookies == null ? new ArrayList<>() : new ArrayList<>(originCookies.values());
+  }
+
+  boolean clearExpired(String origin, Date date) {
+    final ConcurrentMap<String, Cookie> originCookies = cookies.get(origin);
+    return originCookies != null && originCookies.values().removeIf(cookie -> cookie.isExpired(date));
+  }
+
+  int size() {
+    int size = 0;
+    for (Map<String, Cookie> originCookies : cookies.values()) {
+      size += originCookies.size();
+    }
+    return size;
+  }
+
+  /**
+   * @param origin the backend origin, see {@link #getOrigin(HttpHost)}
+   * @param date the point in time to check the expiration against
+   * @return <code>true</code> if there is at least one unexpired auth cookie issued by the given backend
+   */
+  boolean hasValidCookie(String origin, Date date) {
+    final ConcurrentMap<String, Cookie> originCookies = cookies.get(origin);
+    if (originCookies != null) {
+      for (Cookie cookie : originCookies.values()) {
+        if (!cookie.isExpired(date)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  void recordChallenge() {
+    challenges.increment();
+  }
+
+  void recordPreemptiveNegotiation() {
+    preemptiveNegotiations.increment();
+  }
+
+  long getChallengeCount() {
+    return challenges.sum();
+  }
+
+  long getPreemptiveNegotiationCount() {
+    return preemptiveNegotiations.sum();
+  }
+
+  @Override
+  public Map<String, Metric> getMetrics() {
+    final Map<String, Metric> metrics = new HashMap<>();
+    metrics.put(MetricRegistry.name(METRICS_PREFIX, "cached"), (Gauge<Integer>) this::size);
+    metrics.put(MetricRegistry.name(METRICS_PREFIX, "spnego-challenges"), (Gauge<Long>) this::getChallengeCount);
+    metrics.put(MetricRegistry.name(METRICS_PREFIX, "spnego-preemptive"), (Gauge<Long>) this::getPreemptiveNegotiationCount);
+    return metrics;
+  }
+
+  /**
+   * Parses the expiration time out of a Hadoop style auth cookie value
+   * (e.g. <code>u=knox&amp;p=knox/host@EXAMPLE.COM&amp;t=kerberos&amp;e=1517900515610&amp;s=...</code>).
+   *
+   * @param value the cookie value, optionally enclosed in double quotes
+   * @return the expiration time in milliseconds since epoch or <code>-1</code> if the value does not carry one
+   */
+  static long parseExpiration(String value) {
+    if (value == null) {
+      return -1L;
+    }
+    int start = value.startsWith("\"") ? 1 : 0;
+    while (start < value.length()) {
+      int end = value.indexOf(ATTRIBUTE_SEPARATOR, start);
+      if (end < 0) {
+        end = value.endsWith("\"") ? value.length() - 1 : value.length();
+      }
+      if (value.startsWith(EXPIRES_ATTRIBUTE, start)) {
+        try {
+          return Long.parseLong(value.substring(start + EXPIRES_ATTRIBUTE.length(), end));
+        } catch (NumberFormatException e) {
+          return -1L;
+        }
+      }
+      start = end + 1;
+    }
+    return -1L;
+  }
+
+  static String getScope(Cookie cookie) {
+    return Objects.toString(cookie.getDomain(), "").toLowerCase(Locale.ROOT)
+        + '|' + Objects.toString(cookie.getPath(), "/")
+        + '|' + cookie.getName();
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import java.io.IOException;
+
+/**
+ * A response a filter ahead of the dispatch can answer a request with in place of the backend, e.g. from a
+ * cache. The filter puts it in the {@link #REQUEST_ATTRIBUTE} request attribute rather than answering the
+ * request itself, so that the request still has to pass the identity assertion and authorization policies of
+ * the service, and the {@link GatewayDispatchFilter} answers the request with it instead of dispatching it.
+ */
+@FunctionalInterface
+public interface CachedResponse {
+  String REQUEST_ATTRIBUTE = CachedResponse.class.getName();
+
+  /**
+   * @return <code>true</code> if the response has been written, <code>false</code> if the request has to be
+   *         dispatched after all
+   */
+  boolean serve() throws IOException;
+}
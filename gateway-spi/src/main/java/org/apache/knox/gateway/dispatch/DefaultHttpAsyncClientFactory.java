@@ -29,7 +29,9 @@ import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
 import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.knox.gateway.SpiGatewayMessages;
 import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.ServiceType;
 import org.apache.knox.gateway.services.metrics.MetricsService;
@@ -38,6 +40,7 @@ import javax.net.ssl.SSLContext;
 import javax.servlet.FilterConfig;
 
 public class DefaultHttpAsyncClientFactory extends DefaultHttpClientFactory implements HttpAsyncClientFactory {
+    private static final SpiGatewayMessages LOG = MessagesFactory.get(SpiGatewayMessages.class);
 
     @Override
     public HttpAsyncClient createAsyncHttpClient(FilterConfig filterConfig) {
@@ -67,9 +70,17 @@ public class DefaultHttpAsyncClientFactory extends DefaultHttpClientFactory impl
                     .register(AuthSchemes.SPNEGO, new KnoxSpnegoAuthSchemeFactory(true))
                     .build();
 
+            BackendAuthCookieCache authCookieCache = BackendAuthCookieCache.getInstance();
+            HadoopAuthCookieStore cookieStore = new HadoopAuthCookieStore(gatewayConfig, authCookieCache);
             builder.setDefaultAuthSchemeRegistry(authSchemeRegistry)
-                    .setDefaultCookieStore(new HadoopAuthCookieStore(gatewayConfig))
-                    .setDefaultCredentialsProvider(credentialsProvider);
+                    .setDefaultCookieStore(cookieStore)
+                    .setDefaultCredentialsProvider(credentialsProvider)
+                    .setTargetAuthenticationStrategy(new ChallengeCountingAuthenticationStrategy(authCookieCache))
+                    .addInterceptorFirst(new CookieOriginInterceptor(cookieStore));
+            if (gatewayConfig != null && gatewayConfig.isHttpClientPreemptiveSpnegoEnabled()) {
+                LOG.usingPreemptiveSpnego(serviceRole);
+                builder.addInterceptorFirst(new PreemptiveSpnegoInterceptor(authCookieCache));
+            }
         } else {
             builder.setDefaultCookieStore(new DefaultHttpAsyncClientFactory.NoCookieStore());
         }
@@ -40,12 +40,19 @@ import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.metrics.MetricsService;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.HttpResponse;
 import org.apache.http.ProtocolException;
+import org.apache.http.auth.AUTH;
+import org.apache.http.auth.AuthScheme;
 import org.apache.http.auth.AuthSchemeProvider;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
+import org.apache.http.auth.MalformedChallengeException;
+import org.apache.http.client.AuthCache;
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
@@ -54,6 +61,7 @@ import org.apache.http.client.RedirectStrategy;
 import org.apache.http.client.config.AuthSchemes;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
@@ -63,6 +71,8 @@ import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.TargetAuthenticationStrategy;
+import org.apache.http.message.BasicHeader;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContexts;
 import org.joda.time.Period;
@@ -93,8 +103,19 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
       builder = HttpClients.custom();
     }
 
-    SSLContext sslContext = createSSLContext(services, filterConfig, serviceRole);
-    setSSLSocketFactory(sslContext, filterConfig, builder);
+    final boolean sharedConnectionPool = gatewayConfig != null && gatewayConfig.isHttpClientConnectionPoolShared();
+    HttpClientConnectionPoolRegistry.Registration registration = null;
+    if (sharedConnectionPool) {
+      boolean twoWaySsl = Boolean.parseBoolean(filterConfig.getInitParameter(PARAMETER_USE_TWO_WAY_SSL));
+      registration = HttpClientConnectionPoolRegistry.getInstance().register(gatewayConfig, twoWaySsl,
+          () -> createSSLContext(services, filterConfig, serviceRole), getMaxConnections(filterConfig), serviceRole);
+      builder.setConnectionManager(registration.getConnectionManager());
+      // The pool outlives the client, see HttpClientConnectionPoolRegistry
+      builder.setConnectionManagerShared(true);
+    } else {
+      SSLContext sslContext = createSSLContext(services, filterConfig, serviceRole);
+      setSSLSocketFactory(sslContext, filterConfig, builder);
+    }
 
     if (Boolean.parseBoolean(System.getProperty(GatewayConfig.HADOOP_KERBEROS_SECURED))) {
       CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
@@ -104,14 +125,26 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
           .register(AuthSchemes.SPNEGO, new KnoxSpnegoAuthSchemeFactory(true))
           .build();
 
+      BackendAuthCookieCache authCookieCache = BackendAuthCookieCache.getInstance();
+      HadoopAuthCookieStore cookieStore = new HadoopAuthCookieStore(gatewayConfig, authCookieCache);
       builder.setDefaultAuthSchemeRegistry(authSchemeRegistry)
-          .setDefaultCookieStore(new HadoopAuthCookieStore(gatewayConfig))
-          .setDefaultCredentialsProvider(credentialsProvider);
+          .setDefaultCookieStore(cookieStore)
+          .setDefaultCredentialsProvider(credentialsProvider)
+          .setTargetAuthenticationStrategy(new ChallengeCountingAuthenticationStrategy(authCookieCache))
+          .addInterceptorFirst(new CookieOriginInterceptor(cookieStore));
+      if (gatewayConfig != null && gatewayConfig.isHttpClientPreemptiveSpnegoEnabled()) {
+        LOG.usingPreemptiveSpnego(serviceRole);
+        builder.addInterceptorFirst(new PreemptiveSpnegoInterceptor(authCookieCache));
+      }
     } else {
       builder.setDefaultCookieStore(new NoCookieStore());
     }
 
-    builder.setKeepAliveStrategy( DefaultConnectionKeepAliveStrategy.INSTANCE );
+    if (sharedConnectionPool) {
+      builder.setKeepAliveStrategy( HttpClientConnectionPoolRegistry.getInstance().getKeepAliveStrategy() );
+    } else {
+      builder.setKeepAliveStrategy( DefaultConnectionKeepAliveStrategy.INSTANCE );
+    }
     builder.setConnectionReuseStrategy( DefaultConnectionReuseStrategy.INSTANCE );
     builder.setRedirectStrategy( new NeverRedirectStrategy() );
     builder.setRetryHandler( new NeverRetryHandler() );
@@ -135,6 +168,10 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
       builder.setRetryHandler(new DefaultHttpRequestRetryHandler(retryCount,
           retryNonIdempotent));
     }
+    if (registration != null) {
+      // Gives the capacity back to the shared pool once the dispatch closes the client on undeploy
+      return new PooledHttpClient(builder.build(), registration);
+    }
     return builder.build();
   }
 
@@ -300,6 +337,114 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
     }
   }
 
+  /**
+   * Makes the HTTP client use the view of the auth cookie store for the origin of the request, so that only the
+   * cookies issued by the backend the request is sent to are sent along, and the cookies in its response are
+   * kept for that backend.
+   */
+  protected static class CookieOriginInterceptor implements HttpRequestInterceptor {
+    private final HadoopAuthCookieStore cookieStore;
+
+    CookieOriginInterceptor(HadoopAuthCookieStore cookieStore) {
+      this.cookieStore = cookieStore;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+      final HttpClientContext clientContext = HttpClientContext.adapt(context);
+      final HttpHost target = clientContext.getTargetHost();
+      if (target != null) {
+        clientContext.setCookieStore(cookieStore.forOrigin(BackendAuthCookieCache.getOrigin(target)));
+      }
+    }
+  }
+
+  /**
+   * Primes the request context with an initiated SPNEGO scheme when there is no valid backend auth cookie,
+   * so the Negotiate token is sent along with the first request instead of waiting for the 401 challenge.
+   */
+  protected static class PreemptiveSpnegoInterceptor implements HttpRequestInterceptor {
+    private final BackendAuthCookieCache authCookieCache;
+
+    PreemptiveSpnegoInterceptor(BackendAuthCookieCache authCookieCache) {
+      this.authCookieCache = authCookieCache;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+      final HttpClientContext clientContext = HttpClientContext.adapt(context);
+      final HttpHost target = clientContext.getTargetHost();
+      if (target == null || clientContext.getAuthCache() != null
+          || authCookieCache.hasValidCookie(BackendAuthCookieCache.getOrigin(target), new Date())) {
+        return;
+      }
+      final KnoxSpnegoAuthScheme scheme = new KnoxSpnegoAuthScheme(true);
+      try {
+        // An empty Negotiate challenge moves the scheme into the state in which it generates the initial token
+        scheme.processChallenge(new BasicHeader(AUTH.WWW_AUTH, AuthSchemes.SPNEGO));
+      } catch (MalformedChallengeException e) {
+        return;
+      }
+      clientContext.setAuthCache(new SingleHostAuthCache(target, scheme));
+      authCookieCache.recordPreemptiveNegotiation();
+    }
+  }
+
+  /*
+   * BasicAuthCache only retains serializable schemes, which SPNEGO schemes are not. The scheme is only served
+   * to the backend origin it was initiated for, the same host on another port or scheme is another backend.
+   */
+  private static class SingleHostAuthCache implements AuthCache {
+    private final String origin;
+    private AuthScheme scheme;
+
+    SingleHostAuthCache(HttpHost host, AuthScheme scheme) {
+      this.origin = BackendAuthCookieCache.getOrigin(host);
+      this.scheme = scheme;
+    }
+
+    @Override
+    public void put(HttpHost host, AuthScheme authScheme) {
+      // no op, the cache only ever serves the preemptive scheme
+    }
+
+    @Override
+    public AuthScheme get(HttpHost host) {
+      return origin.equals(BackendAuthCookieCache.getOrigin(host)) ? scheme : null;
+    }
+
+    @Override
+    public void remove(HttpHost host) {
+      scheme = null;
+    }
+
+    @Override
+    public void clear() {
+      scheme = null;
+    }
+  }
+
+  /**
+   * Counts the backend authentication challenges, i.e. the extra round-trips the shared auth cookies
+   * and preemptive SPNEGO are meant to save.
+   */
+  protected static class ChallengeCountingAuthenticationStrategy extends TargetAuthenticationStrategy {
+    private final BackendAuthCookieCache authCookieCache;
+
+    ChallengeCountingAuthenticationStrategy(BackendAuthCookieCache authCookieCache) {
+      this.authCookieCache = authCookieCache;
+    }
+
+    @Override
+    public boolean isAuthenticationRequested(HttpHost authhost, HttpResponse response, HttpContext context) {
+      final boolean requested = super.isAuthenticationRequested(authhost, response, context);
+      if (requested) {
+        authCookieCache.recordChallenge();
+      }
+      return requested;
+    }
+  }
+
   private static class NeverRetryHandler implements HttpRequestRetryHandler {
     @Override
     public boolean retryRequest( IOException exception, int executionCount, HttpContext context ) {
@@ -20,9 +20,17 @@ package org.apache.knox.gateway.dispatch;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.knox.gateway.SpiGatewayMessages;
+import org.apache.knox.gateway.SpiGatewayResources;
+import org.apache.knox.gateway.audit.api.Action;
+import org.apache.knox.gateway.audit.api.ActionOutcome;
+import org.apache.knox.gateway.audit.api.AuditServiceFactory;
+import org.apache.knox.gateway.audit.api.Auditor;
+import org.apache.knox.gateway.audit.api.ResourceType;
+import org.apache.knox.gateway.audit.log4j.audit.AuditConstants;
 import org.apache.knox.gateway.config.ConfigurationInjectorBuilder;
 import org.apache.knox.gateway.filter.AbstractGatewayFilter;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
 import org.apache.knox.gateway.util.RegExUtils;
 import org.apache.knox.gateway.util.WhitelistUtils;
 
@@ -45,6 +53,9 @@ public class GatewayDispatchFilter extends AbstractGatewayFilter {
   private static final Map<String, Adapter> METHOD_ADAPTERS = createMethodAdapters();
 
   protected static final SpiGatewayMessages LOG = MessagesFactory.get(SpiGatewayMessages.class);
+  private static final SpiGatewayResources RES = ResourcesFactory.get(SpiGatewayResources.class);
+  private static final Auditor auditor = AuditServiceFactory.getAuditService().getAuditor(AuditConstants.DEFAULT_AUDITOR_NAME,
+      AuditConstants.KNOX_SERVICE_NAME, AuditConstants.KNOX_COMPONENT_NAME);
 
   private final Object lock = new Object();
 
@@ -120,6 +131,9 @@ public class GatewayDispatchFilter extends AbstractGatewayFilter {
     Adapter adapter = METHOD_ADAPTERS.get(method);
     if (adapter != null) {
       if (isDispatchAllowed(request)) {
+        if (serveCachedResponse(request)) {
+          return;
+        }
         try {
           adapter.doMethod(getDispatch(), request, response);
         } catch (URISyntaxException e) {
@@ -133,6 +147,17 @@ public class GatewayDispatchFilter extends AbstractGatewayFilter {
     }
   }
 
+  /* Once the request passed all the policies of the service, see CachedResponse */
+  private boolean serveCachedResponse(HttpServletRequest request) throws IOException {
+    final Object cachedResponse = request.getAttribute(CachedResponse.REQUEST_ATTRIBUTE);
+    if (cachedResponse instanceof CachedResponse && ((CachedResponse) cachedResponse).serve()) {
+      auditor.audit(Action.DISPATCH, request.getRequestURL().toString(), ResourceType.URI, ActionOutcome.SUCCESS,
+          RES.servedCachedResponse());
+      return true;
+    }
+    return false;
+  }
+
   private boolean isDispatchAllowed(HttpServletRequest request) {
     boolean isAllowed = true;
 
@@ -22,28 +22,57 @@ import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.http.client.CookieStore;
 import org.apache.http.cookie.Cookie;
-import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.cookie.BasicClientCookie;
 import org.apache.knox.gateway.SpiGatewayMessages;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 
-public class HadoopAuthCookieStore extends BasicCookieStore {
+/**
+ * Cookie store that only accepts the auth cookies issued to Knox by the backend services.
+ * <p>
+ * Accepted cookies are kept in the gateway wide {@link BackendAuthCookieCache} rather than per HTTP client,
+ * so every dispatch of every topology shares them without contending on a monitor. The cookies are kept for
+ * the backend origin which issued them: the HTTP client uses the view of the store for the origin of each
+ * request, see {@link #forOrigin(String)}. The store itself only sees the cookies of the origins its client
+ * sent requests to, and only clears the cookies its client accepted.
+ */
+public class HadoopAuthCookieStore implements CookieStore {
   private static final SpiGatewayMessages LOG = MessagesFactory.get(SpiGatewayMessages.class);
 
   private static final String HADOOP_AUTH_COOKIE_NAME = "hadoop.auth";
   private static final String HIVE_SERVER2_AUTH_COOKIE_NAME = "hive.server2.auth";
   private static final String IMPALA_AUTH_COOKIE_NAME = "impala.auth";
 
+  private static final char ORIGIN_SEPARATOR = '|';
+
   private static String knoxPrincipal;
   private static String shortKnoxPrincipal;
 
+  /* The origin of the cookies added outside of a request to a backend */
+  private static final String UNKNOWN_ORIGIN = "";
+
+  private final BackendAuthCookieCache cache;
+  private final ConcurrentMap<String, CookieStore> origins = new ConcurrentHashMap<>();
+  /* The cookies accepted through this store, by origin and cookie scope */
+  private final ConcurrentMap<String, Cookie> added = new ConcurrentHashMap<>();
+
   HadoopAuthCookieStore(GatewayConfig config) {
+    this(config, BackendAuthCookieCache.getInstance());
+  }
+
+  HadoopAuthCookieStore(GatewayConfig config, BackendAuthCookieCache cache) {
+    this.cache = cache;
     // Read knoxPrincipal from krb5 login jaas config file
     String krb5Config = config.getKerberosLoginConfig();
     if (krb5Config != null && !krb5Config.isEmpty()) {
@@ -65,13 +94,63 @@ public class HadoopAuthCookieStore extends BasicCookieStore {
     }
   }
 
+  /**
+   * @param origin the origin of a backend, see {@link BackendAuthCookieCache#getOrigin(org.apache.http.HttpHost)}
+   * @return the view of this store holding the cookies of the given backend
+   */
+  public CookieStore forOrigin(String origin) {
+    return origins.computeIfAbsent(origin, OriginCookieStore::new);
+  }
+
   @Override
   public void addCookie(Cookie cookie) {
+    forOrigin(UNKNOWN_ORIGIN).addCookie(cookie);
+  }
+
+  @Override
+  public List<Cookie> getCookies() {
+    final List<Cookie> cookies = new ArrayList<>();
+    for (String origin : origins.keySet()) {
+      cookies.addAll(cache.getCookies(origin));
+    }
+    return cookies;
+  }
+
+  @Override
+  public boolean clearExpired(Date date) {
+    boolean cleared = false;
+    if (date != null) {
+      for (String origin : origins.keySet()) {
+        cleared |= cache.clearExpired(origin, date);
+      }
+    }
+    return cleared;
+  }
+
+  @Override
+  public void clear() {
+    clear(null);
+  }
+
+  /* Clears the cookies accepted through this store from the given origin, or from all of them */
+  private void clear(String origin) {
+    for (Map.Entry<String, Cookie> entry : added.entrySet()) {
+      final String key = entry.getKey();
+      final String cookieOrigin = key.substring(0, key.indexOf(ORIGIN_SEPARATOR));
+      if (origin == null || origin.equals(cookieOrigin)) {
+        cache.remove(cookieOrigin, entry.getValue());
+        added.remove(key, entry.getValue());
+      }
+    }
+  }
+
+  private void addCookie(String origin, Cookie cookie) {
     // Only add the cookie if it is an auth cookie and belongs to Knox
     if (isAuthCookie(cookie) && isKnoxCookie(cookie)) {
       Wrapper wrapper = new Wrapper(cookie);
       LOG.acceptingServiceCookie(wrapper);
-      super.addCookie(wrapper);
+      cache.put(origin, wrapper);
+      added.put(origin + ORIGIN_SEPARATOR + BackendAuthCookieCache.getScope(wrapper), wrapper);
     }
   }
 
@@ -99,13 +178,44 @@ public class HadoopAuthCookieStore extends BasicCookieStore {
     return result;
   }
 
+  /* The cookies of a single backend origin */
+  private class OriginCookieStore implements CookieStore {
+    private final String origin;
+
+    OriginCookieStore(String origin) {
+      this.origin = origin;
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+      HadoopAuthCookieStore.this.addCookie(origin, cookie);
+    }
+
+    @Override
+    public List<Cookie> getCookies() {
+      return cache.getCookies(origin);
+    }
+
+    @Override
+    public boolean clearExpired(Date date) {
+      return date != null && cache.clearExpired(origin, date);
+    }
+
+    @Override
+    public void clear() {
+      HadoopAuthCookieStore.this.clear(origin);
+    }
+  }
+
   private static class Wrapper extends BasicClientCookie {
     private static final String DELEGATE_STR = "delegate";
     private final Cookie delegate;
+    private final long expiration;
 
     Wrapper(Cookie delegate ) {
       super(delegate.getName(), delegate.getValue());
       this.delegate = delegate;
+      this.expiration = BackendAuthCookieCache.parseExpiration(delegate.getValue());
     }
 
     @Override
@@ -148,9 +258,18 @@ public class HadoopAuthCookieStore extends BasicCookieStore {
       return delegate.getCommentURL();
     }
 
+    /**
+     * Returns the earlier of the cookie's own expiry date and the expiration time embedded in the
+     * token (the <code>e=</code> field), since the backend rejects the token once the latter has passed
+     * even when the cookie is a session cookie.
+     */
     @Override
     public Date getExpiryDate() {
-      return delegate.getExpiryDate();
+      Date expiryDate = delegate.getExpiryDate();
+      if (expiration >= 0 && (expiryDate == null || expiration < expiryDate.getTime())) {
+        expiryDate = new Date(expiration);
+      }
+      return expiryDate;
     }
 
     @Override
@@ -185,7 +304,7 @@ public class HadoopAuthCookieStore extends BasicCookieStore {
 
     @Override
     public boolean isExpired( Date date ) {
-      return delegate.isExpired( date );
+      return delegate.isExpired( date ) || (expiration >= 0 && expiration <= date.getTime());
     }
 
     @Override
@@ -0,0 +1,418 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.knox.gateway.SpiGatewayMessages;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.fips.FipsConnectionManagerFactory;
+import org.apache.knox.gateway.fips.FipsUtils;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Gateway wide registry of the connection pools used by the dispatch HTTP clients.
+ * <p>
+ * Clients with the same TLS settings share a single {@link PoolingHttpClientConnectionManager} (and therefore a
+ * single {@link SSLContext} whose session cache allows TLS sessions to be resumed), which keeps one pool per backend
+ * origin. So ten topologies proxying the same NameNode lease their connections from the same per-origin pool instead
+ * of maintaining ten of them.
+ * <p>
+ * Per origin pool sizes and idle timeouts may be configured in gateway-site; idle and expired connections of all pools
+ * are evicted by a single background thread.
+ */
+public class HttpClientConnectionPoolRegistry {
+  private static final SpiGatewayMessages LOG = MessagesFactory.get(SpiGatewayMessages.class);
+
+  private static final HttpClientConnectionPoolRegistry INSTANCE = new HttpClientConnectionPoolRegistry();
+
+  private static final long EVICTION_INTERVAL_MS = TimeUnit.SECONDS.toMillis(5);
+  private static final int PREWARM_CONNECT_TIMEOUT_MS = (int) TimeUnit.SECONDS.toMillis(10);
+
+  private final ConcurrentMap<String, Pool> pools = new ConcurrentHashMap<>();
+  private final AtomicReference<Map<String, Long>> originIdleTimeouts = new AtomicReference<>(Collections.emptyMap());
+  private final AtomicLong idleTimeout = new AtomicLong(-1L);
+  private ScheduledExecutorService evictor;
+  private ExecutorService prewarmer;
+
+  public static HttpClientConnectionPoolRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /* Visible for testing; everything else should share the gateway wide instance */
+  HttpClientConnectionPoolRegistry() {
+  }
+
+  /**
+   * Registers a client with the shared connection manager for the given TLS settings, creating it on first use,
+   * and grows its capacity by the number of connections the calling client would have had in a dedicated pool.
+   * The capacity is given back when the registration is closed, which the client has to do when it is closed.
+   *
+   * @param config             the gateway configuration holding the pool policies
+   * @param twoWaySsl          whether the client authenticates with the gateway identity
+   * @param sslContextSupplier creates the {@link SSLContext} for a new pool; may supply <code>null</code>
+   * @param maxConnections     the maximum number of connections per origin requested by the client
+   * @param serviceRole        the role of the service the client dispatches to, used to prewarm the pool
+   * @return the registration of the client, holding the shared connection manager; clients must be built with
+   *         <code>setConnectionManagerShared(true)</code>
+   */
+  public synchronized Registration register(GatewayConfig config,
+                                            boolean twoWaySsl,
+                                            Supplier<SSLContext> sslContextSupplier,
+                                            int maxConnections,
+                                            String serviceRole) {
+    final boolean fips = FipsUtils.isFipsEnabledWithBCProvider();
+    final String name = (twoWaySsl ? "two-way-ssl" : "default") + (fips ? "-fips" : "");
+    Pool pool = pools.get(name);
+    if (pool == null) {
+      pool = new Pool(name, createConnectionManager(sslContextSupplier.get(), maxConnections, fips));
+      pools.put(name, pool);
+      configure(config);
+      LOG.createdSharedConnectionPool(name);
+    }
+    final Registration registration = new Registration(pool, maxConnections, serviceRole);
+    pool.configuredMaxTotal = config.getHttpClientConnectionPoolMaxTotal();
+    pool.registrations.add(registration);
+    pool.resize();
+    applyOriginLimits(pool.manager, config.getHttpClientConnectionPoolOriginMaxConnections());
+    return registration;
+  }
+
+  private synchronized void release(Registration registration) {
+    final Pool pool = registration.pool;
+    if (pool.registrations.remove(registration)) {
+      pool.resize();
+    }
+  }
+
+  /**
+   * @param manager a connection manager
+   * @return the name of the shared pool the manager belongs to or <code>null</code> if it is not a shared one
+   */
+  public String getPoolName(PoolingHttpClientConnectionManager manager) {
+    for (Pool pool : pools.values()) {
+      if (pool.manager == manager) {
+        return pool.name;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Keep alive strategy that caps the time a pooled connection may stay idle by the configured per origin idle
+   * timeout, if any.
+   *
+   * @return the keep alive strategy to be used by the clients sharing the pools
+   */
+  public ConnectionKeepAliveStrategy getKeepAliveStrategy() {
+    return this::getKeepAliveDuration;
+  }
+
+  /**
+   * Opens, and returns to the pools, up to <code>connections</code> connections to the origin of each given URL,
+   * so the first requests routed to a freshly deployed topology do not pay for the TCP and TLS handshakes. The
+   * URLs of a service are warmed in the pools its clients are registered with, or in the default pool if no
+   * client of the service has been registered yet. Connections are established in the background; failures are
+   * logged and otherwise ignored.
+   *
+   * @param urls        the backend URLs, by service role
+   * @param connections the number of connections to open per origin
+   */
+  public void prewarm(Map<String, ? extends Collection<String>> urls, int connections) {
+    if (connections <= 0) {
+      return;
+    }
+    final Pool defaultPool = pools.get(FipsUtils.isFipsEnabledWithBCProvider() ? "default-fips" : "default");
+    for (Map.Entry<String, ? extends Collection<String>> service : urls.entrySet()) {
+      final Set<Pool> servicePools = getPools(service.getKey());
+      if (servicePools.isEmpty() && defaultPool != null) {
+        servicePools.add(defaultPool);
+      }
+      for (Pool pool : servicePools) {
+        prewarm(pool, service.getValue(), connections);
+      }
+    }
+  }
+
+  private synchronized Set<Pool> getPools(String serviceRole) {
+    final Set<Pool> servicePools = new HashSet<>();
+    for (Pool pool : pools.values()) {
+      for (Registration registration : pool.registrations) {
+        if (Objects.equals(serviceRole, registration.serviceRole)) {
+          servicePools.add(pool);
+          break;
+        }
+      }
+    }
+    return servicePools;
+  }
+
+  private void prewarm(Pool pool, Collection<String> urls, int connections) {
+    for (String url : urls) {
+      final HttpRoute route;
+      try {
+        final URI uri = URI.create(url);
+        route = createRoute(new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme()));
+      } catch (IllegalArgumentException e) {
+        continue;
+      }
+      final int count = Math.min(connections, pool.manager.getMaxPerRoute(route));
+      for (int i = 0; i < count; i++) {
+        getPrewarmer().execute(() -> openConnection(pool.manager, route));
+      }
+    }
+  }
+
+  public synchronized void shutdown() {
+    if (evictor != null) {
+      evictor.shutdownNow();
+      evictor = null;
+    }
+    if (prewarmer != null) {
+      prewarmer.shutdownNow();
+      prewarmer = null;
+    }
+    for (Pool pool : pools.values()) {
+      pool.manager.shutdown();
+    }
+    pools.clear();
+  }
+
+  private void configure(GatewayConfig config) {
+    idleTimeout.set(config.getHttpClientConnectionPoolIdleTimeout());
+    originIdleTimeouts.set(normalize(config.getHttpClientConnectionPoolOriginIdleTimeouts()));
+    if (evictor == null) {
+      evictor = Executors.newSingleThreadScheduledExecutor(daemon("httpclient-pool-evictor"));
+      evictor.scheduleWithFixedDelay(this::evict, EVICTION_INTERVAL_MS, EVICTION_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void evict() {
+    for (Pool pool : pools.values()) {
+      pool.manager.closeExpiredConnections();
+      if (idleTimeout.get() > 0) {
+        pool.manager.closeIdleConnections(idleTimeout.get(), TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  private long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+    long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+    final HttpHost target = HttpClientContext.adapt(context).getTargetHost();
+    final Map<String, Long> timeouts = originIdleTimeouts.get();
+    if (target != null && !timeouts.isEmpty()) {
+      final Long originIdleTimeout = timeouts.get(toOrigin(createRoute(target).getTargetHost()));
+      if (originIdleTimeout != null && originIdleTimeout > 0 && (duration < 0 || originIdleTimeout < duration)) {
+        duration = originIdleTimeout;
+      }
+    }
+    return duration;
+  }
+
+  private static PoolingHttpClientConnectionManager createConnectionManager(SSLContext sslContext, int maxConnections,
+                                                                            boolean fips) {
+    if (fips) {
+      return FipsConnectionManagerFactory.createConnectionManager(sslContext, maxConnections);
+    }
+    final SSLConnectionSocketFactory sslSocketFactory = sslContext != null
+        ? new SSLConnectionSocketFactory(sslContext)
+        : SSLConnectionSocketFactory.getSocketFactory();
+    final PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(
+        RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", sslSocketFactory)
+            .build());
+    manager.setDefaultMaxPerRoute(maxConnections);
+    return manager;
+  }
+
+  private static void applyOriginLimits(PoolingHttpClientConnectionManager manager, Map<String, Integer> limits) {
+    for (Map.Entry<String, Integer> limit : limits.entrySet()) {
+      try {
+        manager.setMaxPerRoute(createRoute(HttpHost.create(limit.getKey())), limit.getValue());
+      } catch (IllegalArgumentException e) {
+        LOG.invalidConnectionPoolOrigin(limit.getKey());
+      }
+    }
+  }
+
+  private static void openConnection(PoolingHttpClientConnectionManager manager, HttpRoute route) {
+    final HttpClientContext context = HttpClientContext.create();
+    HttpClientConnection connection = null;
+    try {
+      final ConnectionRequest request = manager.requestConnection(route, null);
+      connection = request.get(PREWARM_CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      if (!connection.isOpen()) {
+        manager.connect(connection, route, PREWARM_CONNECT_TIMEOUT_MS, context);
+        manager.routeComplete(connection, route, context);
+      }
+    } catch (Exception e) {
+      LOG.failedToPrewarmConnection(route.getTargetHost().toURI(), e);
+      if (connection != null) {
+        try {
+          connection.shutdown();
+        } catch (IOException ioe) {
+          // The connection will not be returned to the pool anyway
+        }
+      }
+    } finally {
+      if (connection != null) {
+        manager.releaseConnection(connection, null, -1, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /* Mirrors DefaultRoutePlanner for direct routes, so limits apply to the routes the clients actually use */
+  private static HttpRoute createRoute(HttpHost host) {
+    HttpHost target = host;
+    if (target.getPort() <= 0) {
+      try {
+        target = new HttpHost(target.getHostName(), DefaultSchemePortResolver.INSTANCE.resolve(target),
+            target.getSchemeName());
+      } catch (Exception e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+    return new HttpRoute(target, null, "https".equalsIgnoreCase(target.getSchemeName()));
+  }
+
+  private static String toOrigin(HttpHost host) {
+    return host.toURI().toLowerCase(Locale.ROOT);
+  }
+
+  private static Map<String, Long> normalize(Map<String, Long> timeouts) {
+    final Map<String, Long> normalized = new HashMap<>();
+    for (Map.Entry<String, Long> timeout : timeouts.entrySet()) {
+      try {
+        normalized.put(toOrigin(createRoute(HttpHost.create(timeout.getKey())).getTargetHost()), timeout.getValue());
+      } catch (IllegalArgumentException e) {
+        LOG.invalidConnectionPoolOrigin(timeout.getKey());
+      }
+    }
+    return normalized;
+  }
+
+  private synchronized ExecutorService getPrewarmer() {
+    if (prewarmer == null) {
+      prewarmer = Executors.newFixedThreadPool(4, daemon("httpclient-pool-prewarmer"));
+    }
+    return prewarmer;
+  }
+
+  private static ThreadFactory daemon(String name) {
+    return runnable -> {
+      final Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * The registration of a client with a shared pool, which gives its capacity back to the pool once closed.
+   */
+  public final class Registration implements Closeable {
+    private final Pool pool;
+    private final int maxConnections;
+    private final String serviceRole;
+
+    Registration(Pool pool, int maxConnections, String serviceRole) {
+      this.pool = pool;
+      this.maxConnections = maxConnections;
+      this.serviceRole = serviceRole;
+    }
+
+    public PoolingHttpClientConnectionManager getConnectionManager() {
+      return pool.manager;
+    }
+
+    @Override
+    public void close() {
+      release(this);
+    }
+  }
+
+  private static class Pool {
+    private final String name;
+    private final PoolingHttpClientConnectionManager manager;
+    private final List<Registration> registrations = new ArrayList<>();
+    private int configuredMaxTotal;
+
+    Pool(String name, PoolingHttpClientConnectionManager manager) {
+      this.name = name;
+      this.manager = manager;
+    }
+
+    /*
+     * Every registered client adds the capacity its dedicated pool would have had, bounded by the configured
+     * maximum, and the per origin default is the largest one requested. A pool no client is registered with
+     * anymore keeps its limits, but closes its idle connections.
+     */
+    void resize() {
+      if (registrations.isEmpty()) {
+        manager.closeIdleConnections(0L, TimeUnit.MILLISECONDS);
+        return;
+      }
+      int maxTotal = 0;
+      int maxPerRoute = 0;
+      for (Registration registration : registrations) {
+        maxTotal += registration.maxConnections;
+        maxPerRoute = Math.max(maxPerRoute, registration.maxConnections);
+      }
+      manager.setMaxTotal(configuredMaxTotal > 0 ? Math.min(maxTotal, configuredMaxTotal) : maxTotal);
+      manager.setDefaultMaxPerRoute(maxPerRoute);
+    }
+  }
+}
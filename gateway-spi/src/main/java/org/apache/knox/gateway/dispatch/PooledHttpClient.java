@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+/**
+ * Client leasing its connections from a shared pool, which releases its registration with the pool when closed.
+ */
+class PooledHttpClient extends CloseableHttpClient {
+  private final CloseableHttpClient delegate;
+  private final HttpClientConnectionPoolRegistry.Registration registration;
+
+  PooledHttpClient(CloseableHttpClient delegate, HttpClientConnectionPoolRegistry.Registration registration) {
+    this.delegate = delegate;
+    this.registration = registration;
+  }
+
+  @Override
+  protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+      throws IOException, ClientProtocolException {
+    return delegate.execute(target, request, context);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      delegate.close();
+    } finally {
+      registration.close();
+    }
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public HttpParams getParams() {
+    return delegate.getParams();
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public ClientConnectionManager getConnectionManager() {
+    return delegate.getConnectionManager();
+  }
+}
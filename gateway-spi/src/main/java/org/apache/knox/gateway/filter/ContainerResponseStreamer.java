@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Streams a response body using the native API of the servlet container, if the output belongs to it.
+ * Implementations are discovered with the {@link java.util.ServiceLoader}; see {@link PassthroughResponseStreamer}.
+ */
+public interface ContainerResponseStreamer {
+
+  /**
+   * @param input the body to stream
+   * @param output the response output
+   * @return <code>true</code> if the body has been streamed and the output completed, <code>false</code> if the
+   *         output does not belong to the container and nothing has been done
+   * @throws IOException if streaming the body fails
+   */
+  boolean stream( InputStream input, OutputStream output ) throws IOException;
+
+}
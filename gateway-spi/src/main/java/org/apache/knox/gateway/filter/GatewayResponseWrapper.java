@@ -17,7 +17,6 @@
  */
 package org.apache.knox.gateway.filter;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.knox.gateway.util.MimeTypes;
 
 import jakarta.activation.MimeType;
@@ -60,7 +59,6 @@ public abstract class GatewayResponseWrapper extends HttpServletResponseWrapper
 
   @Override
   public void streamResponse( InputStream input, OutputStream output ) throws IOException {
-    IOUtils.copy(input, output);
-    output.close();
+    PassthroughResponseStreamer.stream( input, output );
   }
 }
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Streams a response body that is not going to be rewritten straight to the client.
+ * <p>
+ * The body is handed to the first {@link ContainerResponseStreamer} that accepts the output, which lets the servlet
+ * container write it from its own pooled buffers (the gateway server registers one for Jetty). Any other output
+ * stream falls back to a plain buffered copy.
+ * <p>
+ * In both cases the output is closed (completed) once the input is exhausted.
+ */
+public final class PassthroughResponseStreamer {
+
+  // Only used by the fallback copy; containers use the buffer size configured for them.
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final List<ContainerResponseStreamer> CONTAINER_STREAMERS = loadContainerStreamers();
+
+  private PassthroughResponseStreamer() {
+  }
+
+  public static void stream( InputStream input, OutputStream output ) throws IOException {
+    for( ContainerResponseStreamer streamer : CONTAINER_STREAMERS ) {
+      if( streamer.stream( input, output ) ) {
+        return;
+      }
+    }
+    try {
+      IOUtils.copy( input, output, BUFFER_SIZE );
+    } finally {
+      output.close();
+    }
+  }
+
+  private static List<ContainerResponseStreamer> loadContainerStreamers() {
+    List<ContainerResponseStreamer> streamers = new ArrayList<>();
+    ServiceLoader.load( ContainerResponseStreamer.class ).forEach( streamers::add );
+    return Collections.unmodifiableList( streamers );
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.http.HttpHost;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BackendAuthCookieCacheTest {
+  private static final String NAMENODE = "http://host.example.com:50070";
+  private static final String RESOURCEMANAGER = "http://host.example.com:8088";
+
+  @Test
+  public void testParseExpiration() {
+    assertEquals(1517900515610L,
+        BackendAuthCookieCache.parseExpiration("u=knox&p=knox/host@EXAMPLE.COM&t=kerberos&e=1517900515610&s=HpSXUOhoXR/2wXrsgPz5lSbNuf8="));
+    assertEquals(1517900515610L, BackendAuthCookieCache.parseExpiration("\"u=knox&t=kerberos&e=1517900515610\""));
+    assertEquals(1517900515610L, BackendAuthCookieCache.parseExpiration("e=1517900515610&u=knox"));
+    assertEquals(-1L, BackendAuthCookieCache.parseExpiration("u=knox&t=kerberos&s=abc="));
+    assertEquals(-1L, BackendAuthCookieCache.parseExpiration("u=knox&e=never"));
+    assertEquals(-1L, BackendAuthCookieCache.parseExpiration(""));
+    assertEquals(-1L, BackendAuthCookieCache.parseExpiration(null));
+  }
+
+  @Test
+  public void testGetOrigin() {
+    assertEquals("http://nn1.example.com:50070", BackendAuthCookieCache.getOrigin(new HttpHost("NN1.example.com", 50070)));
+    assertEquals("https://nn1.example.com:443", BackendAuthCookieCache.getOrigin(new HttpHost("nn1.example.com", -1, "https")));
+    assertEquals("http://nn1.example.com:80", BackendAuthCookieCache.getOrigin(new HttpHost("nn1.example.com")));
+  }
+
+  @Test
+  public void testCookiesAreKeyedByOriginAndScope() {
+    BackendAuthCookieCache cache = new BackendAuthCookieCache();
+    cache.put(NAMENODE, cookie("hadoop.auth", "first", "host.example.com"));
+    cache.put(NAMENODE, cookie("hadoop.auth", "second", "host.example.com"));
+    cache.put(NAMENODE, cookie("hive.server2.auth", "third", "host.example.com"));
+    // Another backend on the same host issues a cookie with the same name and domain
+    cache.put(RESOURCEMANAGER, cookie("hadoop.auth", "fourth", "host.example.com"));
+    assertEquals(3, cache.size());
+    assertEquals(2, cache.getCookies(NAMENODE).size());
+    assertEquals("fourth", cache.getCookies(RESOURCEMANAGER).get(0).getValue());
+  }
+
+  @Test
+  public void testRemoveOnlyRemovesTheSameCookie() {
+    BackendAuthCookieCache cache = new BackendAuthCookieCache();
+    BasicClientCookie first = cookie("hadoop.auth", "first", "host.example.com");
+    cache.put(NAMENODE, first);
+    cache.put(NAMENODE, cookie("hadoop.auth", "second", "host.example.com"));
+    cache.remove(NAMENODE, first);
+    assertEquals("second", cache.getCookies(NAMENODE).get(0).getValue());
+  }
+
+  @Test
+  public void testHasValidCookie() {
+    BackendAuthCookieCache cache = new BackendAuthCookieCache();
+    BasicClientCookie cookie = cookie("hadoop.auth", "u=knox", ".example.com");
+    cookie.setExpiryDate(new Date(System.currentTimeMillis() + 60000L));
+    cache.put(NAMENODE, cookie);
+
+    assertTrue(cache.hasValidCookie(NAMENODE, new Date()));
+    assertFalse(cache.hasValidCookie(RESOURCEMANAGER, new Date()));
+    assertFalse(cache.hasValidCookie(NAMENODE, new Date(System.currentTimeMillis() + 120000L)));
+  }
+
+  @Test
+  public void testChallengeMetrics() {
+    BackendAuthCookieCache cache = new BackendAuthCookieCache();
+    cache.recordChallenge();
+    cache.recordChallenge();
+    cache.recordPreemptiveNegotiation();
+    assertEquals(2L, cache.getChallengeCount());
+    assertEquals(1L, cache.getPreemptiveNegotiationCount());
+    assertEquals(3, cache.getMetrics().size());
+  }
+
+  private static BasicClientCookie cookie(String name, String value, String domain) {
+    BasicClientCookie cookie = new BasicClientCookie(name, value);
+    cookie.setDomain(domain);
+    cookie.setPath("/");
+    return cookie;
+  }
+}
@@ -28,9 +28,13 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import org.apache.http.HttpHost;
+import org.apache.http.client.AuthCache;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.message.BasicHttpRequest;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.ServiceType;
@@ -59,6 +63,7 @@ public class DefaultHttpClientFactoryTest {
 
     GatewayConfig gatewayConfig = createMock(GatewayConfig.class);
     expect(gatewayConfig.isMetricsEnabled()).andReturn(false).once();
+    expect(gatewayConfig.isHttpClientConnectionPoolShared()).andReturn(false).once();
     expect(gatewayConfig.getHttpClientMaxConnections()).andReturn(32).once();
     expect(gatewayConfig.getHttpClientConnectionTimeout()).andReturn(20000).once();
     expect(gatewayConfig.getHttpClientSocketTimeout()).andReturn(20000).once();
@@ -248,6 +253,7 @@ public class DefaultHttpClientFactoryTest {
 
     GatewayConfig gatewayConfig = createMock(GatewayConfig.class);
     expect(gatewayConfig.isMetricsEnabled()).andReturn(false).anyTimes();
+    expect(gatewayConfig.isHttpClientConnectionPoolShared()).andReturn(false).anyTimes();
     expect(gatewayConfig.getHttpClientMaxConnections()).andReturn(32).anyTimes();
     expect(gatewayConfig.getHttpClientConnectionTimeout()).andReturn(20000).anyTimes();
     expect(gatewayConfig.getHttpClientSocketTimeout()).andReturn(20000).anyTimes();
@@ -293,4 +299,19 @@ public class DefaultHttpClientFactoryTest {
 
     verify(keystoreService, gatewayConfig, gatewayServices, servletContext, filterConfigSafe, filterConfigUnSafe);
   }
+
+  @Test
+  public void testPreemptiveSpnegoSchemeIsOnlyUsedForItsBackendOrigin() throws Exception {
+    HttpClientContext context = HttpClientContext.create();
+    HttpHost target = new HttpHost("nn1.example.com", 50070);
+    context.setAttribute(HttpClientContext.HTTP_TARGET_HOST, target);
+    new DefaultHttpClientFactory.PreemptiveSpnegoInterceptor(new BackendAuthCookieCache())
+        .process(new BasicHttpRequest("GET", "/webhdfs/v1"), context);
+
+    AuthCache authCache = context.getAuthCache();
+    assertNotNull(authCache.get(new HttpHost("NN1.example.com", 50070)));
+    assertNull(authCache.get(new HttpHost("nn1.example.com", 50075)));
+    assertNull(authCache.get(new HttpHost("nn1.example.com", 50070, "https")));
+    assertNull(authCache.get(new HttpHost("nn2.example.com", 50070)));
+  }
 }
@@ -33,6 +33,7 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 
 public class GatewayDispatchFilterTest {
@@ -67,6 +68,69 @@ public class GatewayDispatchFilterTest {
   }
 
 
+  /*
+   * A cached response left by a filter ahead of the dispatch answers the request in place of the dispatch.
+   */
+  @Test
+  public void testCachedResponseIsServedInPlaceOfTheDispatch() throws Exception {
+    final boolean[] served = new boolean[1];
+    CachedResponse cachedResponse = () -> {
+      served[0] = true;
+      return true;
+    };
+
+    Dispatch dispatch = EasyMock.createMock(Dispatch.class);
+    EasyMock.replay(dispatch);
+
+    GatewayDispatchFilter gdf = new GatewayDispatchFilter();
+    gdf.setDispatch(dispatch);
+    HttpServletResponse response = new TestHttpServletResponse();
+    gdf.doFilter(createCachedResponseRequest(cachedResponse), response, null);
+
+    assertTrue(served[0]);
+    EasyMock.verify(dispatch);
+  }
+
+  /*
+   * A cached response that turns out not to be servable leaves the request to the dispatch.
+   */
+  @Test
+  public void testCachedResponseThatIsNotServedIsDispatched() throws Exception {
+    HttpServletRequest request = createCachedResponseRequest(() -> false);
+    HttpServletResponse response = new TestHttpServletResponse();
+
+    Dispatch dispatch = EasyMock.createNiceMock(Dispatch.class);
+    dispatch.doGet(null, request, response);
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(dispatch);
+
+    GatewayDispatchFilter gdf = new GatewayDispatchFilter();
+    gdf.setDispatch(dispatch);
+    gdf.doFilter(request, response, null);
+
+    EasyMock.verify(dispatch);
+  }
+
+  private HttpServletRequest createCachedResponseRequest(CachedResponse cachedResponse) {
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getDispatchWhitelistServices()).andReturn(Collections.emptyList()).anyTimes();
+    EasyMock.replay(config);
+
+    ServletContext sc = EasyMock.createNiceMock(ServletContext.class);
+    EasyMock.expect(sc.getAttribute("org.apache.knox.gateway.config")).andReturn(config).anyTimes();
+    EasyMock.replay(sc);
+
+    HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    EasyMock.expect(request.getMethod()).andReturn("GET").anyTimes();
+    EasyMock.expect(request.getServerName()).andReturn("localhost").anyTimes();
+    EasyMock.expect(request.getRequestURL()).andReturn(new StringBuffer("https://localhost:8443/gateway/sandbox/ui/app.js")).anyTimes();
+    EasyMock.expect(request.getAttribute(CachedResponse.REQUEST_ATTRIBUTE)).andReturn(cachedResponse).anyTimes();
+    EasyMock.expect(request.getServletContext()).andReturn(sc).anyTimes();
+    EasyMock.replay(request);
+    return request;
+  }
+
+
   /*
    * If the dispatch service is not configured to honor the whitelist, the dispatching should be permitted.
    */
@@ -27,6 +27,7 @@ import java.io.File;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.Date;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -60,25 +61,25 @@ public class HadoopAuthCookieStoreTest {
     EasyMock.expect(gatewayConfig.getKerberosLoginConfig()).andReturn(krb5LoginConf.getAbsolutePath()).anyTimes();
     EasyMock.replay(gatewayConfig);
 
-    store = new HadoopAuthCookieStore(gatewayConfig);
+    store = new HadoopAuthCookieStore(gatewayConfig, new BackendAuthCookieCache());
     store.addCookie( new BasicClientCookie( "hadoop.auth", rawValue ) );
     cookies = store.getCookies();
     cookie = cookies.get( 0 );
     assertThat( cookie.getValue(), is(quotedValue) );
 
-    store = new HadoopAuthCookieStore(gatewayConfig);
+    store = new HadoopAuthCookieStore(gatewayConfig, new BackendAuthCookieCache());
     store.addCookie( new BasicClientCookie( "hadoop.auth", quotedValue ) );
     cookies = store.getCookies();
     cookie = cookies.get( 0 );
     assertThat( cookie.getValue(), is(quotedValue) );
 
-    store = new HadoopAuthCookieStore(gatewayConfig);
+    store = new HadoopAuthCookieStore(gatewayConfig, new BackendAuthCookieCache());
     store.addCookie( new BasicClientCookie( "hadoop.auth", null ) );
     cookies = store.getCookies();
     assertNotNull(cookies);
     assertTrue(cookies.isEmpty());
 
-    store = new HadoopAuthCookieStore(gatewayConfig);
+    store = new HadoopAuthCookieStore(gatewayConfig, new BackendAuthCookieCache());
     store.addCookie( new BasicClientCookie( "hadoop.auth", "" ) );
     cookies = store.getCookies();
     assertNotNull(cookies);
@@ -129,6 +130,74 @@ public class HadoopAuthCookieStoreTest {
     doTestKnoxCookieInclusion("u=knox&t=kerberos&e=1517900515610&s=HpSXUOhoXR/2wXrsgPz5lSbNuf8=");
   }
 
+  @Test
+  public void testCookiesAreSharedAcrossStores() {
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock(GatewayConfig.class);
+    File krb5LoginConf = createTestKrb5LoginConfigFile();
+    assertNotNull(krb5LoginConf);
+    EasyMock.expect(gatewayConfig.getKerberosLoginConfig()).andReturn(krb5LoginConf.getAbsolutePath()).anyTimes();
+    EasyMock.replay(gatewayConfig);
+
+    BackendAuthCookieCache cache = new BackendAuthCookieCache();
+    HadoopAuthCookieStore first = new HadoopAuthCookieStore(gatewayConfig, cache);
+    HadoopAuthCookieStore second = new HadoopAuthCookieStore(gatewayConfig, cache);
+
+    BasicClientCookie cookie = new BasicClientCookie("hadoop.auth", "u=knox&t=kerberos&e=" + Long.MAX_VALUE + "&s=abc=");
+    cookie.setDomain("host.example.com");
+    first.forOrigin("http://host.example.com:50070").addCookie(cookie);
+
+    assertThat(second.forOrigin("http://host.example.com:50070").getCookies().size(), is(1));
+    // Another backend on the same host doesn't get the cookie
+    assertTrue(second.forOrigin("http://host.example.com:8088").getCookies().isEmpty());
+    assertTrue(cache.hasValidCookie("http://host.example.com:50070", new Date()));
+    assertFalse(cache.hasValidCookie("http://host.example.com:8088", new Date()));
+  }
+
+  @Test
+  public void testStoreOnlySeesAndClearsItsOwnCookies() {
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock(GatewayConfig.class);
+    File krb5LoginConf = createTestKrb5LoginConfigFile();
+    assertNotNull(krb5LoginConf);
+    EasyMock.expect(gatewayConfig.getKerberosLoginConfig()).andReturn(krb5LoginConf.getAbsolutePath()).anyTimes();
+    EasyMock.replay(gatewayConfig);
+
+    BackendAuthCookieCache cache = new BackendAuthCookieCache();
+    HadoopAuthCookieStore first = new HadoopAuthCookieStore(gatewayConfig, cache);
+    HadoopAuthCookieStore second = new HadoopAuthCookieStore(gatewayConfig, cache);
+
+    first.forOrigin("http://nn.example.com:50070").addCookie(
+        new BasicClientCookie("hadoop.auth", "u=knox&t=kerberos&e=" + Long.MAX_VALUE + "&s=abc="));
+    second.forOrigin("http://rm.example.com:8088").addCookie(
+        new BasicClientCookie("hadoop.auth", "u=knox&t=kerberos&e=" + Long.MAX_VALUE + "&s=def="));
+
+    assertThat(first.getCookies().size(), is(1));
+    assertThat(second.getCookies().size(), is(1));
+
+    first.clear();
+    assertTrue(first.getCookies().isEmpty());
+    assertThat(second.getCookies().size(), is(1));
+  }
+
+  @Test
+  public void testCookieExpiresWithToken() {
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock(GatewayConfig.class);
+    File krb5LoginConf = createTestKrb5LoginConfigFile();
+    assertNotNull(krb5LoginConf);
+    EasyMock.expect(gatewayConfig.getKerberosLoginConfig()).andReturn(krb5LoginConf.getAbsolutePath()).anyTimes();
+    EasyMock.replay(gatewayConfig);
+
+    HadoopAuthCookieStore store = new HadoopAuthCookieStore(gatewayConfig, new BackendAuthCookieCache());
+    store.addCookie(new BasicClientCookie("hadoop.auth", "u=knox&t=kerberos&e=1517900515610&s=HpSXUOhoXR/2wXrsgPz5lSbNuf8="));
+
+    Cookie cookie = store.getCookies().get(0);
+    assertThat(cookie.getExpiryDate(), is(new Date(1517900515610L)));
+    assertTrue(cookie.isExpired(new Date(1517900515610L)));
+    assertFalse(cookie.isExpired(new Date(1517900515609L)));
+
+    assertTrue(store.clearExpired(new Date()));
+    assertTrue(store.getCookies().isEmpty());
+  }
+
   private void doTestKnoxCookieInclusion(final String cookieValue) {
     GatewayConfig gatewayConfig = EasyMock.createNiceMock(GatewayConfig.class);
     File krb5LoginConf = createTestKrb5LoginConfigFile();
@@ -140,7 +209,7 @@ public class HadoopAuthCookieStoreTest {
   }
 
   private void doTestKnoxCookieInclusion(final GatewayConfig gatewayConfig, final String cookieValue) {
-    HadoopAuthCookieStore store = new HadoopAuthCookieStore(gatewayConfig);
+    HadoopAuthCookieStore store = new HadoopAuthCookieStore(gatewayConfig, new BackendAuthCookieCache());
     store.addCookie(new BasicClientCookie("hadoop.auth", cookieValue));
     List<Cookie> cookies = store.getCookies();
     assertNotNull(cookies);
@@ -152,7 +221,7 @@ public class HadoopAuthCookieStoreTest {
     GatewayConfig gConf = EasyMock.createNiceMock(GatewayConfig.class);
     EasyMock.replay(gConf);
 
-    HadoopAuthCookieStore store = new HadoopAuthCookieStore(gConf);
+    HadoopAuthCookieStore store = new HadoopAuthCookieStore(gConf, new BackendAuthCookieCache());
     store.addCookie(new BasicClientCookie("hadoop.auth", cookieValue));
     List<Cookie> cookies = store.getCookies();
     assertNotNull(cookies);
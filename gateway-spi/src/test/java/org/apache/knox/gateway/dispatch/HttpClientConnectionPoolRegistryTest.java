@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class HttpClientConnectionPoolRegistryTest {
+
+  private final HttpClientConnectionPoolRegistry registry = new HttpClientConnectionPoolRegistry();
+
+  @After
+  public void tearDown() {
+    registry.shutdown();
+  }
+
+  @Test
+  public void testPoolsAreSharedPerTlsSettings() {
+    GatewayConfig config = createConfig(0);
+
+    PoolingHttpClientConnectionManager first = getConnectionManager(config, false, 32);
+    PoolingHttpClientConnectionManager second = getConnectionManager(config, false, 64);
+    PoolingHttpClientConnectionManager twoWay = getConnectionManager(config, true, 32);
+
+    assertSame(first, second);
+    assertNotSame(first, twoWay);
+    assertEquals(96, first.getMaxTotal());
+    assertEquals(64, first.getDefaultMaxPerRoute());
+    assertEquals("default", registry.getPoolName(first));
+    assertEquals("two-way-ssl", registry.getPoolName(twoWay));
+    assertNull(registry.getPoolName(new PoolingHttpClientConnectionManager()));
+  }
+
+  @Test
+  public void testMaxTotalIsBounded() {
+    GatewayConfig config = createConfig(50);
+
+    getConnectionManager(config, false, 32);
+    PoolingHttpClientConnectionManager manager = getConnectionManager(config, false, 32);
+
+    assertEquals(50, manager.getMaxTotal());
+  }
+
+  @Test
+  public void testClosedRegistrationsGiveCapacityBack() {
+    GatewayConfig config = createConfig(0);
+
+    HttpClientConnectionPoolRegistry.Registration first = registry.register(config, false, () -> null, 32, "WEBHDFS");
+    HttpClientConnectionPoolRegistry.Registration second = registry.register(config, false, () -> null, 64, "HIVE");
+    PoolingHttpClientConnectionManager manager = first.getConnectionManager();
+    assertEquals(96, manager.getMaxTotal());
+    assertEquals(64, manager.getDefaultMaxPerRoute());
+
+    second.close();
+    assertEquals(32, manager.getMaxTotal());
+    assertEquals(32, manager.getDefaultMaxPerRoute());
+
+    // Closing twice must not give the capacity of another client back
+    second.close();
+    assertEquals(32, manager.getMaxTotal());
+
+    HttpClientConnectionPoolRegistry.Registration third = registry.register(config, false, () -> null, 16, "HIVE");
+    assertSame(manager, third.getConnectionManager());
+    assertEquals(48, manager.getMaxTotal());
+    assertEquals(32, manager.getDefaultMaxPerRoute());
+  }
+
+  @Test
+  public void testOriginLimits() {
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getHttpClientConnectionPoolOriginMaxConnections())
+        .andReturn(Collections.singletonMap("https://nn.example.com:9871", 4)).anyTimes();
+    EasyMock.expect(config.getHttpClientConnectionPoolOriginIdleTimeouts()).andReturn(Collections.emptyMap()).anyTimes();
+    EasyMock.replay(config);
+
+    PoolingHttpClientConnectionManager manager = getConnectionManager(config, false, 32);
+
+    assertEquals(4, manager.getMaxPerRoute(new HttpRoute(new HttpHost("nn.example.com", 9871, "https"), null, true)));
+    assertEquals(32, manager.getMaxPerRoute(new HttpRoute(new HttpHost("rm.example.com", 8088, "http"))));
+  }
+
+  private PoolingHttpClientConnectionManager getConnectionManager(GatewayConfig config, boolean twoWaySsl,
+                                                                  int maxConnections) {
+    return registry.register(config, twoWaySsl, () -> null, maxConnections, "WEBHDFS").getConnectionManager();
+  }
+
+  private static GatewayConfig createConfig(int maxTotal) {
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getHttpClientConnectionPoolMaxTotal()).andReturn(maxTotal).anyTimes();
+    EasyMock.expect(config.getHttpClientConnectionPoolOriginMaxConnections()).andReturn(Collections.emptyMap()).anyTimes();
+    EasyMock.expect(config.getHttpClientConnectionPoolOriginIdleTimeouts()).andReturn(Collections.emptyMap()).anyTimes();
+    EasyMock.replay(config);
+    return config;
+  }
+}
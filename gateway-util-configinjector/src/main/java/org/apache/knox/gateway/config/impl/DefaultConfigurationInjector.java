@@ -28,28 +28,49 @@ import org.apache.knox.gateway.config.Optional;
 import org.apache.knox.gateway.config.spi.ConfigurationInjector;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
 
 public class DefaultConfigurationInjector implements ConfigurationInjector {
 
   private static ConvertUtilsBean2 DEFAULT_CONVERTER = new ConvertUtilsBean2();
 
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  // The members to inject are found once per class rather than for every instance configured.
+  // A ClassValue doesn't keep the classes of undeployed topologies from being unloaded.
+  private static final ClassValue<List<Binding>> BINDINGS = new ClassValue<List<Binding>>() {
+    @Override
+    protected List<Binding> computeValue( Class<?> type ) {
+      return createBindings( type );
+    }
+  };
+
   @Override
   public void configure( Object target, ConfigurationAdapter adapter, ConfigurationBinding binding )
       throws ConfigurationException {
-    Class type = target.getClass();
-    while( type != null ) {
-      injectClass( type, target, adapter, binding );
-      type = type.getSuperclass();
+    for( Binding member : getBindings( target.getClass() ) ) {
+      member.inject( this, target, adapter, binding );
     }
   }
 
-  private void injectClass( Class type, Object target, ConfigurationAdapter config, ConfigurationBinding binding )
-      throws ConfigurationException {
+  static List<Binding> getBindings( Class<?> type ) {
+    return BINDINGS.get( type );
+  }
+
+  /* The bindings of the class followed by those of its superclasses, in the order they are injected */
+  private static List<Binding> createBindings( Class<?> type ) {
+    List<Binding> bindings = new ArrayList<>();
     Field[] fields = type.getDeclaredFields();
     Arrays.sort(fields, new Comparator<Field>() {
       @Override
@@ -64,82 +85,80 @@ public class DefaultConfigurationInjector implements ConfigurationInjector {
       };
     });
     for( Field field : fields ) {
-      injectFieldValue( field, target, config, binding );
+      Configure annotation = field.getAnnotation( Configure.class );
+      if( annotation != null ) {
+        bindings.add( new FieldBinding( field ) );
+      }
     }
     Method[] methods = type.getDeclaredMethods();
     for( Method method : methods ) {
-      injectMethodValue( method, target, config, binding );
+      Configure methodTag = method.getAnnotation( Configure.class );
+      if( methodTag != null ) {
+        bindings.add( new MethodBinding( method ) );
+      }
+    }
+    if( type.getSuperclass() != null ) {
+      bindings.addAll( getBindings( type.getSuperclass() ) );
     }
+    return Collections.unmodifiableList( bindings );
   }
 
-  private void injectFieldValue( Field field, Object target, ConfigurationAdapter adapter, ConfigurationBinding binding )
+  private void injectFieldValue( FieldBinding field, Object target, ConfigurationAdapter adapter, ConfigurationBinding binding )
       throws ConfigurationException {
-    Configure annotation = field.getAnnotation( Configure.class );
-    if( annotation != null ) {
-      Alias alias = field.getAnnotation( Alias.class );
-      String name = getConfigName( field, alias );
-      String bind = getBindName( target, name, binding );
-      Object value = retrieveValue( target, bind, name, field.getType(), adapter );
-      if( value == null ) {
-        Optional optional = field.getAnnotation( Optional.class );
-        if( optional == null ) {
-          throw new ConfigurationException( String.format( Locale.ROOT,
-              "Failed to find configuration for %s bound to %s of %s via %s",
-              bind, name, target.getClass().getName(), adapter.getClass().getName() ) );
-        }
-      } else {
-        try {
-          // In JDK 17, setAccessible is restricted for non-reflection code and may throw InaccessibleObjectException.
-          // Use canAccess to check accessibility, and handle exceptions accordingly.
-          if (!field.canAccess(target)) {
-            field.setAccessible(true); // This may still fail if running with strong encapsulation.
-          }
-          field.set( target, value );
-        } catch( Exception e ) {
-          throw new ConfigurationException( String.format( Locale.ROOT,
-              "Failed to inject field configuration property %s of %s",
-              name, target.getClass().getName() ), e );
+    String name = field.name;
+    String bind = getBindName( target, name, binding );
+    Object value = retrieveValue( target, bind, name, field.type, adapter );
+    if( value == null ) {
+      if( !field.optional ) {
+        throw new ConfigurationException( String.format( Locale.ROOT,
+            "Failed to find configuration for %s bound to %s of %s via %s",
+            bind, name, target.getClass().getName(), adapter.getClass().getName() ) );
+      }
+    } else {
+      try {
+        if( field.setter == null ) {
+          throw field.failure;
         }
+        field.setter.invokeExact( target, value );
+      } catch( Throwable e ) {
+        throw new ConfigurationException( String.format( Locale.ROOT,
+            "Failed to inject field configuration property %s of %s",
+            name, target.getClass().getName() ), e );
       }
     }
   }
 
-  private void injectMethodValue( Method method, Object target, ConfigurationAdapter adapter, ConfigurationBinding binding )
+  private void injectMethodValue( MethodBinding method, Object target, ConfigurationAdapter adapter, ConfigurationBinding binding )
       throws ConfigurationException {
-    Configure methodTag = method.getAnnotation( Configure.class );
-    if( methodTag != null ) {
-      Alias aliasTag = method.getAnnotation( Alias.class );
-      String methodName = getConfigName( method, aliasTag );
-      Class[] argTypes = method.getParameterTypes();
-      Object[] args = new Object[ argTypes.length ];
-      Annotation[][] argTags = method.getParameterAnnotations();
-      for( int i=0; i<argTypes.length; i++ ) {
-        String argName = getConfigName( methodName, argTags[i] );
-        String bndName = getBindName( target, argName, binding );
-        Object argValue = retrieveValue( target, bndName, argName, argTypes[i], adapter );
-        if( argValue == null ) {
-          Default defTag = findAnnotation( argTags[i], Default.class );
-          if( defTag != null ) {
-            String strValue = defTag.value();
-            argValue = convertValue( target, argName, strValue, argTypes[i] );
-          } else {
-            throw new ConfigurationException( String.format( Locale.ROOT,
-                "Failed to find configuration for %s as %s of %s via %s",
-                bndName, argName, target.getClass().getName(), adapter.getClass().getName() ) );
-          }
+    String methodName = method.name;
+    Object[] args = new Object[ method.argNames.length ];
+    for( int i=0; i<args.length; i++ ) {
+      String argName = method.argNames[i];
+      Class<?> argType = method.argTypes[i];
+      String bndName = getBindName( target, argName, binding );
+      Object argValue = retrieveValue( target, bndName, argName, argType, adapter );
+      if( argValue == null ) {
+        Default defTag = method.argDefaults[i];
+        if( defTag != null ) {
+          String strValue = defTag.value();
+          argValue = convertValue( target, argName, strValue, argType );
+        } else {
+          throw new ConfigurationException( String.format( Locale.ROOT,
+              "Failed to find configuration for %s as %s of %s via %s",
+              bndName, argName, target.getClass().getName(), adapter.getClass().getName() ) );
         }
-        args[ i ] = argValue;
-      }
-      if( !method.canAccess(target) ) {
-        method.setAccessible( true );
       }
-      try {
-        method.invoke( target, args );
-      } catch( Exception e ) {
-        throw new ConfigurationException( String.format( Locale.ROOT,
-            "Failed to inject method configuration via %s of %s",
-            methodName, target.getClass().getName() ), e );
+      args[ i ] = argValue;
+    }
+    try {
+      if( method.invoker == null ) {
+        throw method.failure;
       }
+      method.invoker.invokeExact( target, args );
+    } catch( Throwable e ) {
+      throw new ConfigurationException( String.format( Locale.ROOT,
+          "Failed to inject method configuration via %s of %s",
+          methodName, target.getClass().getName() ), e );
     }
   }
 
@@ -171,7 +190,7 @@ public class DefaultConfigurationInjector implements ConfigurationInjector {
     return value;
   }
 
-  private <T extends Annotation> T findAnnotation( Annotation[] annotations, Class<T> type ) {
+  private static <T extends Annotation> T findAnnotation( Annotation[] annotations, Class<T> type ) {
     T found = null;
     for( Annotation current : annotations ) {
       if( type.isAssignableFrom( current.annotationType() ) ) {
@@ -249,4 +268,93 @@ public class DefaultConfigurationInjector implements ConfigurationInjector {
     return null;
   }
 
+  /* A member of a class into which configuration is injected */
+  abstract static class Binding {
+    abstract void inject( DefaultConfigurationInjector injector, Object target, ConfigurationAdapter adapter,
+                          ConfigurationBinding binding );
+  }
+
+  static final class FieldBinding extends Binding {
+    final String name;
+    final Class<?> type;
+    final boolean optional;
+    // Takes the target and the value, or is null if the field can't be set, for the reason kept as failure.
+    final MethodHandle setter;
+    final Exception failure;
+
+    FieldBinding( Field field ) {
+      name = getConfigName( field, field.getAnnotation( Alias.class ) );
+      type = field.getType();
+      optional = field.getAnnotation( Optional.class ) != null;
+      MethodHandle handle = null;
+      Exception exception = null;
+      try {
+        // In JDK 17, setAccessible is restricted for non-reflection code and may fail,
+        // in which case unreflecting the field fails too unless it is accessible anyway.
+        field.trySetAccessible();
+        handle = LOOKUP.unreflectSetter( field );
+        if( Modifier.isStatic( field.getModifiers() ) ) {
+          handle = MethodHandles.dropArguments( handle, 0, Object.class );
+        }
+        handle = handle.asType( MethodType.methodType( void.class, Object.class, Object.class ) );
+      } catch( IllegalAccessException | RuntimeException e ) {
+        handle = null;
+        exception = e;
+      }
+      setter = handle;
+      failure = exception;
+    }
+
+    @Override
+    void inject( DefaultConfigurationInjector injector, Object target, ConfigurationAdapter adapter,
+                 ConfigurationBinding binding ) {
+      injector.injectFieldValue( this, target, adapter, binding );
+    }
+  }
+
+  static final class MethodBinding extends Binding {
+    final String name;
+    final String[] argNames;
+    final Class<?>[] argTypes;
+    final Default[] argDefaults;
+    // Takes the target and the array of arguments, or is null if the method can't be invoked, for the reason
+    // kept as failure.
+    final MethodHandle invoker;
+    final Exception failure;
+
+    MethodBinding( Method method ) {
+      name = getConfigName( method, method.getAnnotation( Alias.class ) );
+      argTypes = method.getParameterTypes();
+      argNames = new String[ argTypes.length ];
+      argDefaults = new Default[ argTypes.length ];
+      Annotation[][] argTags = method.getParameterAnnotations();
+      for( int i=0; i<argTypes.length; i++ ) {
+        argNames[ i ] = getConfigName( name, argTags[i] );
+        argDefaults[ i ] = findAnnotation( argTags[i], Default.class );
+      }
+      MethodHandle handle = null;
+      Exception exception = null;
+      try {
+        method.trySetAccessible();
+        handle = LOOKUP.unreflect( method );
+        if( Modifier.isStatic( method.getModifiers() ) ) {
+          handle = MethodHandles.dropArguments( handle, 0, Object.class );
+        }
+        handle = handle.asSpreader( Object[].class, argTypes.length )
+            .asType( MethodType.methodType( void.class, Object.class, Object[].class ) );
+      } catch( IllegalAccessException | RuntimeException e ) {
+        handle = null;
+        exception = e;
+      }
+      invoker = handle;
+      failure = exception;
+    }
+
+    @Override
+    void inject( DefaultConfigurationInjector injector, Object target, ConfigurationAdapter adapter,
+                 ConfigurationBinding binding ) {
+      injector.injectMethodValue( this, target, adapter, binding );
+    }
+  }
+
 }
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.config.impl;
+
+import org.apache.knox.gateway.config.ConfigurationException;
+import org.apache.knox.gateway.config.Configure;
+import org.apache.knox.gateway.config.Default;
+import org.apache.knox.gateway.config.Optional;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class DefaultConfigurationInjectorTest {
+
+  public static class BaseBean {
+    @Configure
+    private int size;
+
+    @Configure
+    @Optional
+    private String name;
+  }
+
+  public static class SubBean extends BaseBean {
+    private long timeout;
+
+    @Configure
+    public void setTimeout( @Default("1000") long timeout ) {
+      this.timeout = timeout;
+    }
+  }
+
+  @Test
+  public void testBindingsAreCreatedOncePerClass() {
+    assertThat( DefaultConfigurationInjector.getBindings( SubBean.class ),
+        sameInstance( DefaultConfigurationInjector.getBindings( SubBean.class ) ) );
+    // The bindings of the class come first, followed by those of its superclass.
+    assertThat( DefaultConfigurationInjector.getBindings( SubBean.class ).size(), is( 3 ) );
+    assertThat( DefaultConfigurationInjector.getBindings( SubBean.class ).subList( 1, 3 ),
+        is( DefaultConfigurationInjector.getBindings( BaseBean.class ) ) );
+  }
+
+  @Test
+  public void testInstancesAreInjectedIndependently() {
+    DefaultConfigurationInjector injector = new DefaultConfigurationInjector();
+
+    Map<String, String> config = new HashMap<>();
+    config.put( "size", "7" );
+    config.put( "timeout", "42" );
+    SubBean first = new SubBean();
+    injector.configure( first, new MapConfigurationAdapter( config ), new DefaultConfigurationBinding() );
+
+    config = new HashMap<>();
+    config.put( "size", "8" );
+    config.put( "name", "second" );
+    SubBean second = new SubBean();
+    injector.configure( second, new MapConfigurationAdapter( config ), new DefaultConfigurationBinding() );
+
+    assertThat( ( (BaseBean)first ).size, is( 7 ) );
+    assertThat( ( (BaseBean)first ).name, nullValue() );
+    assertThat( first.timeout, is( 42L ) );
+    assertThat( ( (BaseBean)second ).size, is( 8 ) );
+    assertThat( ( (BaseBean)second ).name, is( "second" ) );
+    assertThat( second.timeout, is( 1000L ) );
+  }
+
+  @Test
+  public void testMissingConfiguration() {
+    DefaultConfigurationInjector injector = new DefaultConfigurationInjector();
+    assertThrows( ConfigurationException.class, () -> injector.configure( new SubBean(),
+        new MapConfigurationAdapter( new HashMap<>() ), new DefaultConfigurationBinding() ) );
+  }
+
+}
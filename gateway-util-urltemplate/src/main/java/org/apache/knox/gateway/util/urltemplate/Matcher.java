@@ -135,6 +135,52 @@ public class Matcher<V> {
     return winner;
   }
 
+  /**
+   * Returns the literal the first path segment of an input has to be equal to for the template to match it,
+   * or null if the template may match an input regardless of its first path segment.
+   * @param template the template being added to a matcher
+   * @param portlessInput whether the key is for inputs with a host but without a port, the port is optional
+   *        so for those the node below the host is passed over without being matched
+   */
+  public static String getDispatchKey( Template template, boolean portlessInput ) {
+    Segment[] authority = { template.getScheme(), template.getUsername(), template.getPassword(), template.getHost(), template.getPort() };
+    for( Segment segment : authority ) {
+      if( segment != null && isGlob( segment ) ) {
+        return null;
+      }
+    }
+    int position = ( portlessInput && template.getHost() != null && template.getPort() == null ) ? 1 : 0;
+    List<Path> path = template.getPath();
+    if( path.size() <= position || ( position > 0 && isGlob( path.get( 0 ) ) ) ) {
+      return null;
+    }
+    return getLiteral( path.get( position ) );
+  }
+
+  /**
+   * Returns the literal first path segment of an input, or null if it has none.
+   */
+  public static String getDispatchKey( Template input ) {
+    List<Path> path = input.getPath();
+    return path.isEmpty() ? null : getLiteral( path.get( 0 ) );
+  }
+
+  private static String getLiteral( Segment segment ) {
+    if( segment.getValues().size() == 1 && segment.getFirstValue().getType() == Segment.STATIC ) {
+      return segment.getFirstValue().getOriginalPattern();
+    }
+    return null;
+  }
+
+  private static boolean isGlob( Segment segment ) {
+    for( Segment.Value value : segment.getValues() ) {
+      if( Segment.GLOB == value.getType() ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private boolean matchScheme( Template input, Status status ) {
     pickMatchingChildren( input.getScheme(), status );
     return status.hasCandidates();
@@ -54,6 +54,45 @@ public class MatcherTest {
     }
   }
 
+  @Test
+  public void testDispatchKeyRejectsOnlyInputsThatCannotMatch() throws Exception {
+    String[] templates = {
+        "{scheme}://{host}:{port}/webhdfs/{**}",
+        "{scheme}://{host}/api/v1/{**}",
+        "{scheme}://{host}/api/{**}",
+        "*://*:*/**/jobhistory/{**}",
+        "/static/{**}",
+        "/static/js/app.js",
+        "{scheme}://{host}:{port}/{path=*}/index.html",
+        "/a/{**}?{**}" };
+    String[] inputs = {
+        "http://host:50070/webhdfs/v1/tmp",
+        "http://host/webhdfs/v1/tmp",
+        "http://host/api/v1/clusters",
+        "http://host/v1/clusters",
+        "http://host:8080/api/v1/clusters",
+        "http://host:19888/ws/v1/jobhistory/jobs",
+        "/static/js/app.js",
+        "/js/app.js",
+        "http://host:8080/ui/index.html",
+        "/a/b?c=d",
+        "http://host" };
+    for( String template : templates ) {
+      Template parsed = Parser.parseTemplate( template );
+      Matcher<String> matcher = new Matcher<>( parsed, template );
+      for( String input : inputs ) {
+        Template literal = Parser.parseLiteral( input );
+        String key = Matcher.getDispatchKey( parsed, literal.getHost() != null && literal.getPort() == null );
+        if( key != null && !key.equals( Matcher.getDispatchKey( literal ) ) ) {
+          assertThat( template + " must not match " + input, matcher.match( literal ), nullValue() );
+        }
+      }
+    }
+    assertThat( Matcher.getDispatchKey( Parser.parseTemplate( "{scheme}://{host}:{port}/webhdfs/{**}" ), false ), is( "webhdfs" ) );
+    assertThat( Matcher.getDispatchKey( Parser.parseTemplate( "*://*:*/**/jobhistory/{**}" ), false ), nullValue() );
+    assertThat( Matcher.getDispatchKey( Parser.parseLiteral( "http://host:8080/api/v1" ) ), is( "api" ) );
+  }
+
   @Test
   public void testGlobMatching() throws Exception {
     Matcher<String> matcher;